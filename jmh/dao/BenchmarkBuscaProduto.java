@@ -0,0 +1,74 @@
+package dao;
+
+import config.DatabaseConnection;
+import model.Produto;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import util.BancoBenchmark;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@code ProdutoDAO.buscarPorNome} com e sem o cache de entidades e o de statements,
+ * percorrendo {@link #PRODUTOS} nomes em sequência. {@code maximoProdutos} é o
+ * db.cache.maximoProdutos e {@code cacheStatements} o db.pool.cacheStatements (0 desativa
+ * cada um); com o cache de entidades desativado, toda chamada vai ao banco e a diferença entre
+ * os valores de {@code cacheStatements} é o custo de interpretar e planejar o SELECT a cada
+ * chamada. Como os caches são configurados uma vez por processo, cada combinação roda em um
+ * processo próprio, que é o padrão do JMH.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BenchmarkBuscaProduto {
+
+    private static final int PRODUTOS = 1000;
+
+    @Param({"0", "10000"})
+    private int maximoProdutos;
+
+    @Param({"0", "64"})
+    private int cacheStatements;
+
+    private ProdutoDAO produtoDAO;
+    private String[] nomes;
+    private int proximo;
+
+    @Setup
+    public void preparar() throws Exception {
+        System.setProperty("db.cache.maximoProdutos", String.valueOf(maximoProdutos));
+        System.setProperty("db.pool.cacheStatements", String.valueOf(cacheStatements));
+        BancoBenchmark.iniciar();
+        BancoBenchmark.popular(PRODUTOS, 0);
+        produtoDAO = new ProdutoDAO();
+        nomes = new String[PRODUTOS];
+        for (int i = 0; i < PRODUTOS; i++) {
+            nomes[i] = BancoBenchmark.nomeProduto(i);
+        }
+    }
+
+    @TearDown
+    public void encerrar() {
+        DatabaseConnection.getInstance().closeConnection();
+    }
+
+    @Benchmark
+    public Produto buscarPorNome() {
+        String nome = nomes[proximo];
+        proximo = (proximo + 1) % PRODUTOS;
+        return produtoDAO.buscarPorNome(nome);
+    }
+}
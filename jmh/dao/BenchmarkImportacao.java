@@ -0,0 +1,80 @@
+package dao;
+
+import config.DatabaseConnection;
+import model.Categoria;
+import model.Produto;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import util.BancoBenchmark;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cadastro de produtos novos: {@link #PRODUTOS} chamadas de {@code ProdutoDAO.criar} (o caminho
+ * de PRODUTO_CRIAR, com a busca da categoria e um INSERT cada) contra um único
+ * {@code importar} (PRODUTO_IMPORTAR) com a mesma quantidade. Os resultados são por produto.
+ * Cada chamada usa nomes ainda não cadastrados, então a tabela cresce durante a medição.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BenchmarkImportacao {
+
+    private static final int PRODUTOS = 1000;
+
+    private final ProdutoDAO produtoDAO = new ProdutoDAO();
+    private Categoria categoria;
+    private long rodada;
+
+    @Setup
+    public void preparar() throws Exception {
+        BancoBenchmark.iniciar();
+        BancoBenchmark.popular(PRODUTOS, 0);
+        categoria = new Categoria(BancoBenchmark.nomeCategoria(0), null, null);
+    }
+
+    @TearDown
+    public void encerrar() {
+        DatabaseConnection.getInstance().closeConnection();
+    }
+
+    private List<Produto> novosProdutos() {
+        rodada++;
+        List<Produto> produtos = new ArrayList<>(PRODUTOS);
+        for (int i = 0; i < PRODUTOS; i++) {
+            produtos.add(new Produto(String.format("Importado %06d %04d", rodada, i), BigDecimal.valueOf(1050, 2),
+                                     "un", 100, 10, 1000, categoria));
+        }
+        return produtos;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PRODUTOS)
+    public void individual() throws Exception {
+        for (Produto produto : novosProdutos()) {
+            produtoDAO.criar(produto);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PRODUTOS)
+    public List<String> importacao() throws Exception {
+        return produtoDAO.importar(novosProdutos());
+    }
+}
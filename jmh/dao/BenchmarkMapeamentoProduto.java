@@ -0,0 +1,92 @@
+package dao;
+
+import config.DatabaseConnection;
+import model.Categoria;
+import model.Produto;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import util.BancoBenchmark;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Conversão de uma linha da consulta de produtos (com a categoria) em {@link Produto}: o
+ * {@link MapeadorProduto} dos DAOs contra a conversão anterior ({@code porNome}), que buscava
+ * as colunas pelo nome, convertia os enums com valueOf e criava uma Categoria por linha.
+ * A consulta é a mesma de listarTodos, lida uma vez em um ResultSet navegável; cada operação
+ * percorre as {@link #LINHAS} linhas de novo, então o resultado é o custo por linha do
+ * mapeamento mais a leitura das colunas pelo driver. Com {@code -prof gc}, gc.alloc.rate.norm
+ * dá os bytes alocados por linha.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BenchmarkMapeamentoProduto {
+
+    private static final int LINHAS = 1000;
+
+    private Connection conn;
+    private PreparedStatement stmt;
+    private ResultSet rs;
+
+    @Setup
+    public void preparar() throws Exception {
+        BancoBenchmark.iniciar();
+        BancoBenchmark.popular(LINHAS, 0);
+        conn = DatabaseConnection.getInstance().getConnection();
+        stmt = conn.prepareStatement("SELECT p.nome, p.preco, p.unidade, p.estoque_atual, p.estoque_minimo, " +
+                                     "p.estoque_maximo, c.nome as categoria_nome, c.tamanho, c.embalagem " +
+                                     "FROM produtos p " + Esquema.JUNCAO_CATEGORIA,
+                                     ResultSet.TYPE_SCROLL_INSENSITIVE, ResultSet.CONCUR_READ_ONLY);
+        rs = stmt.executeQuery();
+    }
+
+    @TearDown
+    public void encerrar() throws Exception {
+        rs.close();
+        stmt.close();
+        conn.close();
+        DatabaseConnection.getInstance().closeConnection();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LINHAS)
+    public void porNome(Blackhole bh) throws Exception {
+        rs.beforeFirst();
+        while (rs.next()) {
+            Categoria categoria = new Categoria(rs.getString("categoria_nome"),
+                                                Categoria.Tamanho.valueOf(rs.getString("tamanho")),
+                                                Categoria.Embalagem.valueOf(rs.getString("embalagem")));
+            bh.consume(new Produto(rs.getString("nome"), rs.getBigDecimal("preco"), rs.getString("unidade"),
+                                   rs.getInt("estoque_atual"), rs.getInt("estoque_minimo"),
+                                   rs.getInt("estoque_maximo"), categoria));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LINHAS)
+    public void mapeador(Blackhole bh) throws Exception {
+        rs.beforeFirst();
+        MapeadorProduto mapeador = new MapeadorProduto(rs);
+        while (rs.next()) {
+            bh.consume(mapeador.mapear(rs));
+        }
+    }
+}
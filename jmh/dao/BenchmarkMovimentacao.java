@@ -0,0 +1,75 @@
+package dao;
+
+import config.DatabaseConnection;
+import model.Movimentacao;
+import model.Produto;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import util.BancoBenchmark;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Gravação de movimentações: {@link #MOVIMENTACOES} chamadas de {@code MovimentacaoDAO.criar}
+ * (uma transação cada) contra um único {@code criarLote} com as mesmas movimentações. Os dois
+ * resultados são por movimentação e incluem a atualização do estoque, do resumo por período
+ * e dos agregados dos relatórios. As movimentações são entradas em {@link #PRODUTOS} produtos,
+ * então nunca falham por falta de estoque.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BenchmarkMovimentacao {
+
+    private static final int PRODUTOS = 1000;
+    private static final int MOVIMENTACOES = 100;
+
+    private final MovimentacaoDAO movimentacaoDAO = new MovimentacaoDAO();
+    private final List<Movimentacao> movimentacoes = new ArrayList<>();
+
+    @Setup
+    public void preparar() throws Exception {
+        BancoBenchmark.iniciar();
+        BancoBenchmark.popular(PRODUTOS, 0);
+        for (int i = 0; i < MOVIMENTACOES; i++) {
+            Produto produto = new Produto(BancoBenchmark.nomeProduto(i * (PRODUTOS / MOVIMENTACOES)), BigDecimal.ZERO,
+                                          null, 0, 0, 0, null);
+            movimentacoes.add(new Movimentacao(produto, null, 1, Movimentacao.TipoMovimentacao.ENTRADA));
+        }
+    }
+
+    @TearDown
+    public void encerrar() {
+        DatabaseConnection.getInstance().closeConnection();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(MOVIMENTACOES)
+    public void individual() throws Exception {
+        for (Movimentacao movimentacao : movimentacoes) {
+            movimentacaoDAO.criar(movimentacao);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(MOVIMENTACOES)
+    public void lote() throws Exception {
+        movimentacaoDAO.criarLote(movimentacoes);
+    }
+}
@@ -0,0 +1,104 @@
+package model;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compara as três formas de calcular o valor do estoque (preço × estoque somado por produto),
+ * como no RELATORIO_BALANCO: double (o formato antigo de Produto.preco), BigDecimal e centavos
+ * em long ({@link Dinheiro}, o formato atual). Cada variante também formata o total, como o
+ * relatório faz.
+ *
+ * Os preços são os mesmos nas três variantes (DECIMAL(10,2) sorteados com semente fixa). No
+ * setup é impressa a diferença entre o total em double e o total exato, que é o erro que os
+ * relatórios acumulavam.
+ *
+ * INSTRUÇÕES DE EXECUÇÃO:
+ * mvn -P jmh package
+ * java -jar target/benchmarks.jar BenchmarkDinheiro -prof gc
+ * (-prof gc mostra os bytes alocados por operação em cada variante)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BenchmarkDinheiro {
+
+    @Param({"1000", "100000"})
+    private int produtos;
+
+    private double[] precosDouble;
+    private BigDecimal[] precosDecimal;
+    private long[] precosCentavos;
+    private long[] estoques;
+
+    @Setup
+    public void preparar() {
+        Random random = new Random(42);
+        precosDouble = new double[produtos];
+        precosDecimal = new BigDecimal[produtos];
+        precosCentavos = new long[produtos];
+        estoques = new long[produtos];
+        for (int i = 0; i < produtos; i++) {
+            long centavos = 1 + random.nextInt(10_000_000);
+            precosCentavos[i] = centavos;
+            precosDecimal[i] = BigDecimal.valueOf(centavos, 2);
+            precosDouble[i] = precosDecimal[i].doubleValue();
+            estoques[i] = random.nextInt(100_000);
+        }
+        BigDecimal exato = Dinheiro.valor(somarCentavos());
+        BigDecimal aproximado = new BigDecimal(somarDouble());
+        System.out.println("\nTotal exato: " + exato + ", em double: " + aproximado +
+                           " (diferença " + aproximado.subtract(exato) + ")");
+    }
+
+    @Benchmark
+    public String valorEmDouble() {
+        return String.format("%.2f", somarDouble());
+    }
+
+    @Benchmark
+    public String valorEmBigDecimal() {
+        BigDecimal total = BigDecimal.ZERO;
+        for (int i = 0; i < produtos; i++) {
+            total = total.add(precosDecimal[i].multiply(BigDecimal.valueOf(estoques[i])));
+        }
+        return total.toPlainString();
+    }
+
+    @Benchmark
+    public String valorEmCentavos() {
+        return Dinheiro.formatar(somarCentavos());
+    }
+
+    private double somarDouble() {
+        double total = 0;
+        for (int i = 0; i < produtos; i++) {
+            total += precosDouble[i] * estoques[i];
+        }
+        return total;
+    }
+
+    private long somarCentavos() {
+        long total = 0;
+        for (int i = 0; i < produtos; i++) {
+            total = Dinheiro.somar(total, Dinheiro.multiplicar(precosCentavos[i], estoques[i]));
+        }
+        return total;
+    }
+}
@@ -0,0 +1,200 @@
+package server;
+
+import model.Categoria;
+import model.Dinheiro;
+import model.Produto;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import util.BancoBenchmark;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Resposta de PRODUTO_LISTAR e de RELATORIO_BALANCO (1 mil produtos) nos dois modos do
+ * protocolo, do lado do servidor ao do cliente e sem banco: no texto, formatação, UTF-8,
+ * decodificação e separação dos campos; no binário, {@link EscritorBinario} e
+ * {@link LeitorBinario}. Com {@code tabelaNova}, cada resposta é a primeira da sessão
+ * (nomes enviados por extenso); sem ela, os produtos já estão na tabela e vão como números.
+ * O tamanho das respostas é impresso no início.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BenchmarkCodecBinario {
+
+    private static final int PRODUTOS = 1000;
+
+    @Param({"true", "false"})
+    public boolean tabelaNova;
+
+    private List<Produto> produtos;
+    private TabelaProdutos tabelaServidor;
+    private TabelaProdutos tabelaCliente;
+    private EscritorBinario escritor;
+    private LeitorBinario leitor;
+
+    @Setup
+    public void preparar(Blackhole bh) throws Exception {
+        Categoria categoria = new Categoria("Graos", Categoria.Tamanho.MEDIO, Categoria.Embalagem.LATA);
+        produtos = new ArrayList<>();
+        for (int i = 0; i < PRODUTOS; i++) {
+            produtos.add(new Produto(BancoBenchmark.nomeProduto(i), BigDecimal.valueOf(100 + i, 2), "un",
+                                     i, 10, 1000, categoria));
+        }
+        novasTabelas();
+        // Aquece as tabelas (e imprime os tamanhos) com a primeira resposta de cada comando
+        int listaTexto = listaTexto().length;
+        int listaBinaria = codificarLista();
+        leitor.reiniciar(escritor.getDados(), 0, escritor.getTamanho());
+        decodificarLista(bh);
+        System.out.println("PRODUTO_LISTAR: texto " + listaTexto + " bytes, binário " + listaBinaria +
+                           " bytes na primeira resposta e " + codificarLista() + " nas seguintes");
+        System.out.println("RELATORIO_BALANCO: texto " + balancoTexto().length + " bytes, binário " +
+                           codificarBalanco() + " bytes com a tabela preenchida");
+    }
+
+    private void novasTabelas() {
+        tabelaServidor = new TabelaProdutos();
+        tabelaCliente = new TabelaProdutos();
+        escritor = new EscritorBinario(64 * 1024, tabelaServidor);
+        leitor = new LeitorBinario(tabelaCliente);
+    }
+
+    @Benchmark
+    public void listaTexto(Blackhole bh) {
+        String resposta = new String(listaTexto(), StandardCharsets.UTF_8);
+        for (String registro : resposta.substring(Despachante.SUCESSO.length()).split(";")) {
+            String[] campos = registro.split(",");
+            bh.consume(campos[0]);
+            bh.consume(Dinheiro.centavos(new BigDecimal(campos[1])));
+            bh.consume(campos[2]);
+            bh.consume(Integer.parseInt(campos[3]));
+            bh.consume(Integer.parseInt(campos[4]));
+            bh.consume(Integer.parseInt(campos[5]));
+            bh.consume(campos[6]);
+        }
+    }
+
+    @Benchmark
+    public void listaBinaria(Blackhole bh) throws IOException {
+        if (tabelaNova) {
+            novasTabelas();
+        }
+        codificarLista();
+        leitor.reiniciar(escritor.getDados(), 0, escritor.getTamanho());
+        decodificarLista(bh);
+    }
+
+    @Benchmark
+    public void balancoTexto(Blackhole bh) {
+        String resposta = new String(balancoTexto(), StandardCharsets.UTF_8);
+        for (String registro : resposta.substring(Despachante.SUCESSO.length()).split(";")) {
+            String[] campos = registro.split(",");
+            bh.consume(campos[0]);
+            bh.consume(Long.parseLong(campos[1]));
+            bh.consume(Dinheiro.centavos(new BigDecimal(campos[2])));
+            if (campos.length > 3) {
+                bh.consume(Dinheiro.centavos(new BigDecimal(campos[3])));
+            }
+        }
+    }
+
+    @Benchmark
+    public void balancoBinario(Blackhole bh) throws IOException {
+        if (tabelaNova) {
+            novasTabelas();
+        }
+        codificarBalanco();
+        leitor.reiniciar(escritor.getDados(), 0, escritor.getTamanho());
+        leitor.natural();
+        leitor.octeto();
+        bh.consume(leitor.inteiro());
+        bh.consume(leitor.inteiro());
+        while (leitor.temMais()) {
+            bh.consume(leitor.produto());
+            bh.consume(leitor.inteiro());
+            bh.consume(leitor.inteiro());
+            bh.consume(leitor.inteiro());
+        }
+    }
+
+    private byte[] listaTexto() {
+        return (Despachante.SUCESSO + ComandosEstoque.formatarProdutos(produtos)).getBytes(StandardCharsets.UTF_8);
+    }
+
+    private int codificarLista() {
+        escritor.limpar().natural(1).octeto(ProtocoloBinario.OK_BINARIO);
+        ComandosEstoque.codificarProdutos(produtos, escritor);
+        return escritor.getTamanho();
+    }
+
+    private void decodificarLista(Blackhole bh) throws IOException {
+        leitor.natural();
+        leitor.octeto();
+        while (leitor.temMais()) {
+            bh.consume(leitor.produto());
+            bh.consume(leitor.inteiro());
+            bh.consume(leitor.texto());
+            bh.consume(leitor.inteiro());
+            bh.consume(leitor.inteiro());
+            bh.consume(leitor.inteiro());
+            bh.consume(leitor.texto());
+        }
+    }
+
+    /**
+     * Mesmo formato de {@code AgregadosRelatorio.balanco()}.
+     */
+    private byte[] balancoTexto() {
+        StringBuilder sb = new StringBuilder(Despachante.SUCESSO);
+        long quantidadeTotal = 0;
+        long valorTotal = 0;
+        for (Produto produto : produtos) {
+            long valor = Dinheiro.multiplicar(produto.getPrecoCentavos(), produto.getQuantidadeEstoque());
+            sb.append(produto.getNome()).append(',').append(produto.getQuantidadeEstoque()).append(',');
+            Dinheiro.formatar(sb, produto.getPrecoCentavos()).append(',');
+            Dinheiro.formatar(sb, valor).append(';');
+            quantidadeTotal += produto.getQuantidadeEstoque();
+            valorTotal = Dinheiro.somar(valorTotal, valor);
+        }
+        sb.append("TOTAL,").append(quantidadeTotal).append(',');
+        Dinheiro.formatar(sb, valorTotal);
+        return sb.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private int codificarBalanco() {
+        escritor.limpar().natural(1).octeto(ProtocoloBinario.OK_BINARIO);
+        long quantidadeTotal = 0;
+        long valorTotal = 0;
+        for (Produto produto : produtos) {
+            quantidadeTotal += produto.getQuantidadeEstoque();
+            valorTotal = Dinheiro.somar(valorTotal,
+                    Dinheiro.multiplicar(produto.getPrecoCentavos(), produto.getQuantidadeEstoque()));
+        }
+        ComandosEstoque.codificarLinhaBalanco(null, quantidadeTotal, 0, valorTotal, escritor);
+        for (Produto produto : produtos) {
+            long preco = produto.getPrecoCentavos();
+            ComandosEstoque.codificarLinhaBalanco(produto.getNome(), produto.getQuantidadeEstoque(), preco,
+                    Dinheiro.multiplicar(preco, produto.getQuantidadeEstoque()), escritor);
+        }
+        return escritor.getTamanho();
+    }
+}
@@ -0,0 +1,129 @@
+package server;
+
+import config.DatabaseConnection;
+import model.Categoria;
+import model.Movimentacao;
+import model.Produto;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import util.BancoBenchmark;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Interpretação das linhas do protocolo e formatação das respostas, sem acesso ao banco:
+ * {@link RequisicaoTexto} (servidor bloqueante) e {@link RequisicaoBytes} (servidor NIO)
+ * lendo os parâmetros de PRODUTO_CRIAR e MOVIMENTACAO_CRIAR, e as linhas de resposta de
+ * PRODUTO_BUSCAR, PRODUTO_LISTAR (100 produtos) e MOVIMENTACAO_LISTAR.
+ * O despachante tem todos os comandos registrados, como no servidor (o nome do comando é
+ * procurado entre eles); o banco só é aberto para criar os tratadores.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BenchmarkProtocolo {
+
+    private static final String CRIAR_PRODUTO = "PRODUTO_CRIAR|Arroz Integral|9.90|kg|100|10|200|Graos";
+    private static final String CRIAR_MOVIMENTACAO = "movimentacao_criar|Arroz Integral|SAIDA|5";
+
+    private final Despachante despachante = new Despachante();
+    private byte[] criarProdutoBytes;
+    private byte[] criarMovimentacaoBytes;
+    private Produto produto;
+    private List<Produto> produtos;
+    private Movimentacao movimentacao;
+
+    @Setup
+    public void preparar() {
+        BancoBenchmark.iniciar();
+        new ComandosEstoque().registrar(despachante);
+        criarProdutoBytes = CRIAR_PRODUTO.getBytes(StandardCharsets.UTF_8);
+        criarMovimentacaoBytes = CRIAR_MOVIMENTACAO.getBytes(StandardCharsets.UTF_8);
+
+        Categoria categoria = new Categoria("Graos", Categoria.Tamanho.MEDIO, Categoria.Embalagem.LATA);
+        produto = new Produto("Arroz Integral", new BigDecimal("9.90"), "kg", 100, 10, 200, categoria);
+        produtos = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            produtos.add(new Produto(BancoBenchmark.nomeProduto(i), BigDecimal.valueOf(100 + i, 2), "un",
+                                     i, 10, 1000, categoria));
+        }
+        movimentacao = new Movimentacao(produto, LocalDateTime.of(2024, 3, 15, 10, 30),
+                                        5, Movimentacao.TipoMovimentacao.SAIDA);
+    }
+
+    @TearDown
+    public void encerrar() {
+        DatabaseConnection.getInstance().closeConnection();
+    }
+
+    @Benchmark
+    public void criarProdutoTexto(Blackhole bh) throws Exception {
+        lerProduto(Requisicao.parse(CRIAR_PRODUTO), bh);
+    }
+
+    @Benchmark
+    public void criarProdutoBytes(Blackhole bh) throws Exception {
+        lerProduto(RequisicaoBytes.parse(criarProdutoBytes, criarProdutoBytes.length, despachante), bh);
+    }
+
+    @Benchmark
+    public void criarMovimentacaoTexto(Blackhole bh) throws Exception {
+        lerMovimentacao(Requisicao.parse(CRIAR_MOVIMENTACAO), bh);
+    }
+
+    @Benchmark
+    public void criarMovimentacaoBytes(Blackhole bh) throws Exception {
+        lerMovimentacao(RequisicaoBytes.parse(criarMovimentacaoBytes, criarMovimentacaoBytes.length, despachante), bh);
+    }
+
+    @Benchmark
+    public String respostaProduto() {
+        return Despachante.SUCESSO + ComandosEstoque.formatarProduto(produto);
+    }
+
+    @Benchmark
+    public String respostaListaProdutos() {
+        return Despachante.SUCESSO + ComandosEstoque.formatarProdutos(produtos);
+    }
+
+    @Benchmark
+    public String respostaMovimentacao() {
+        return Despachante.SUCESSO + ComandosEstoque.formatarMovimentacao(movimentacao);
+    }
+
+    private static void lerProduto(Requisicao req, Blackhole bh) throws Exception {
+        bh.consume(req.getComando());
+        bh.consume(req.texto(0));
+        bh.consume(req.decimal(1));
+        bh.consume(req.texto(2));
+        bh.consume(req.inteiro(3));
+        bh.consume(req.inteiro(4));
+        bh.consume(req.inteiro(5));
+        bh.consume(req.texto(6));
+    }
+
+    private static void lerMovimentacao(Requisicao req, Blackhole bh) throws Exception {
+        bh.consume(req.getComando());
+        bh.consume(req.texto(0));
+        bh.consume(req.enumeracao(1, Movimentacao.TipoMovimentacao.class));
+        bh.consume(req.inteiro(2));
+    }
+}
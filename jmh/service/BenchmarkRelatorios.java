@@ -0,0 +1,132 @@
+package service;
+
+import config.DatabaseConnection;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import server.ComandosEstoque;
+import server.Despachante;
+import server.Requisicao;
+import util.BancoBenchmark;
+
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cada comando RELATORIO_* executado pelo despachante, como chega de um cliente, com 1 mil,
+ * 100 mil e 1 milhão de produtos e um décimo disso em movimentações (no mínimo 10 mil) nos
+ * últimos 30 dias. Os relatórios por período cobrem os 30 dias.
+ *
+ * Os agregados dos relatórios já estão carregados quando a medição começa; o custo de
+ * carregá-los (primeiro relatório e RELATORIO_VERIFICAR com diferença) é medido à parte em
+ * {@link #cargaAgregados}. Com 1 milhão de produtos a massa é criada em alguns minutos.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class BenchmarkRelatorios {
+
+    @Param({"1000", "100000", "1000000"})
+    private int produtos;
+
+    private final Despachante despachante = new Despachante();
+    private Requisicao listaPrecos;
+    private Requisicao balanco;
+    private Requisicao abaixoMinimo;
+    private Requisicao quantidadeCategoria;
+    private Requisicao maisMovimentacoes;
+    private Requisicao movimentacaoDiaria;
+    private Requisicao maisMovimentacoesPeriodo;
+    private Requisicao verificar;
+
+    @Setup
+    public void preparar() throws Exception {
+        BancoBenchmark.iniciar();
+        BancoBenchmark.popular(produtos, Math.max(10_000, produtos / 10));
+        new ComandosEstoque().registrar(despachante);
+
+        String periodo = LocalDate.now().minusDays(30) + "|" + LocalDate.now();
+        listaPrecos = preparar("RELATORIO_LISTA_PRECOS");
+        balanco = preparar("RELATORIO_BALANCO");
+        abaixoMinimo = preparar("RELATORIO_ABAIXO_MINIMO");
+        quantidadeCategoria = preparar("RELATORIO_QUANTIDADE_CATEGORIA");
+        maisMovimentacoes = preparar("RELATORIO_MAIS_MOVIMENTACOES");
+        movimentacaoDiaria = preparar("RELATORIO_MOVIMENTACAO_DIARIA|" + periodo);
+        maisMovimentacoesPeriodo = preparar("RELATORIO_MAIS_MOVIMENTACOES_PERIODO|" + periodo);
+        verificar = preparar("RELATORIO_VERIFICAR");
+    }
+
+    /**
+     * Executa o comando uma vez, para conferir que responde com sucesso.
+     */
+    private Requisicao preparar(String linha) {
+        Requisicao requisicao = Requisicao.parse(linha);
+        String resposta = despachante.despachar(requisicao);
+        if (!resposta.startsWith(Despachante.SUCESSO)) {
+            throw new IllegalStateException(linha + ": " + resposta);
+        }
+        return requisicao;
+    }
+
+    @TearDown
+    public void encerrar() {
+        DatabaseConnection.getInstance().closeConnection();
+    }
+
+    @Benchmark
+    public String listaPrecos() {
+        return despachante.despachar(listaPrecos);
+    }
+
+    @Benchmark
+    public String balanco() {
+        return despachante.despachar(balanco);
+    }
+
+    @Benchmark
+    public String abaixoMinimo() {
+        return despachante.despachar(abaixoMinimo);
+    }
+
+    @Benchmark
+    public String quantidadeCategoria() {
+        return despachante.despachar(quantidadeCategoria);
+    }
+
+    @Benchmark
+    public String maisMovimentacoes() {
+        return despachante.despachar(maisMovimentacoes);
+    }
+
+    @Benchmark
+    public String movimentacaoDiaria() {
+        return despachante.despachar(movimentacaoDiaria);
+    }
+
+    @Benchmark
+    public String maisMovimentacoesPeriodo() {
+        return despachante.despachar(maisMovimentacoesPeriodo);
+    }
+
+    @Benchmark
+    public String verificar() {
+        return despachante.despachar(verificar);
+    }
+
+    @Benchmark
+    public void cargaAgregados() throws Exception {
+        AgregadosRelatorio.getInstance().reconstruir();
+    }
+}
@@ -0,0 +1,125 @@
+package util;
+
+import config.DatabaseConnection;
+import dao.CategoriaDAO;
+import dao.MovimentacaoDAO;
+import dao.ProdutoDAO;
+import model.Categoria;
+import model.Movimentacao;
+import model.Produto;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Banco usado pelos benchmarks. Sem -Ddb.url, usa um H2 em memória no modo MySQL, então os
+ * benchmarks rodam sem servidor de banco; com -Ddb.url (e -Ddb.username/-Ddb.password)
+ * medem um MySQL de verdade. Qualquer outra chave db.* de database.properties pode ser
+ * trocada da mesma forma (ex.: -Ddb.cache.maximoProdutos=0).
+ *
+ * A massa de dados é sempre a mesma para um mesmo tamanho (semente fixa): produtos
+ * "Produto 0000000" em diante, divididos em {@link #CATEGORIAS} categorias, e movimentações
+ * espalhadas pelos últimos 30 dias.
+ */
+public final class BancoBenchmark {
+
+    public static final String URL_H2 = "jdbc:h2:mem:estoque;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1";
+    public static final int CATEGORIAS = 50;
+    /** Movimentações por transação ao popular (MovimentacaoDAO.criarLote). */
+    private static final int MOVIMENTACOES_POR_LOTE = 1000;
+    private static final int PRODUTOS_POR_COMMIT = 10_000;
+
+    private BancoBenchmark() {
+    }
+
+    /**
+     * Aponta para o H2 em memória (se db.url não foi informada) e cria as tabelas.
+     * Deve ser chamado antes de qualquer uso de DatabaseConnection.
+     */
+    public static void iniciar() {
+        if (System.getProperty("db.url") == null) {
+            System.setProperty("db.url", URL_H2);
+            System.setProperty("db.username", "sa");
+            System.setProperty("db.password", "");
+        }
+        DatabaseInitializer.initializeDatabase();
+    }
+
+    public static String nomeProduto(int i) {
+        return String.format("Produto %07d", i);
+    }
+
+    public static String nomeCategoria(int i) {
+        return String.format("Categoria %02d", i);
+    }
+
+    /**
+     * Apaga tudo e cria {@code produtos} produtos e {@code movimentacoes} movimentações.
+     * Os produtos são inseridos direto no banco, em batch; as movimentações passam pelo
+     * MovimentacaoDAO, que mantém o resumo por período e os agregados dos relatórios.
+     */
+    public static void popular(int produtos, int movimentacoes) throws Exception {
+        new MovimentacaoDAO().limparTodos();
+        new ProdutoDAO().limparTodos();
+        new CategoriaDAO().limparTodos();
+
+        Random random = new Random(produtos);
+        try (Connection conn = DatabaseConnection.getInstance().getConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement stmt = conn.prepareStatement(
+                    "INSERT INTO categorias (nome, tamanho, embalagem) VALUES (?, ?, ?)")) {
+                for (int i = 0; i < CATEGORIAS; i++) {
+                    stmt.setString(1, nomeCategoria(i));
+                    stmt.setString(2, Categoria.Tamanho.values()[i % 3].name());
+                    stmt.setString(3, Categoria.Embalagem.values()[i % 3].name());
+                    stmt.addBatch();
+                }
+                stmt.executeBatch();
+            }
+            String categoria = DatabaseConnection.getInstance().isChavesInteiras()
+                    ? "categoria_id) VALUES (?, ?, 'un', ?, ?, ?, (SELECT id FROM categorias WHERE nome = ?))"
+                    : "categoria_nome) VALUES (?, ?, 'un', ?, ?, ?, ?)";
+            try (PreparedStatement stmt = conn.prepareStatement(
+                    "INSERT INTO produtos (nome, preco, unidade, estoque_atual, estoque_minimo, estoque_maximo, " +
+                    categoria)) {
+                for (int i = 0; i < produtos; i++) {
+                    stmt.setString(1, nomeProduto(i));
+                    stmt.setBigDecimal(2, BigDecimal.valueOf(1 + random.nextInt(100_000), 2));
+                    stmt.setInt(3, random.nextInt(1000));
+                    stmt.setInt(4, random.nextInt(100));
+                    stmt.setInt(5, 1000);
+                    stmt.setString(6, nomeCategoria(i % CATEGORIAS));
+                    stmt.addBatch();
+                    if ((i + 1) % PRODUTOS_POR_COMMIT == 0) {
+                        stmt.executeBatch();
+                        conn.commit();
+                    }
+                }
+                stmt.executeBatch();
+            }
+            conn.commit();
+            conn.setAutoCommit(true);
+        } catch (SQLException e) {
+            throw new Exception("Erro ao popular banco do benchmark: " + e.getMessage());
+        }
+
+        MovimentacaoDAO movimentacaoDAO = new MovimentacaoDAO();
+        LocalDateTime agora = LocalDateTime.now();
+        List<Movimentacao> lote = new ArrayList<>(MOVIMENTACOES_POR_LOTE);
+        for (int i = 0; i < movimentacoes; i++) {
+            Produto produto = new Produto(nomeProduto(random.nextInt(produtos)), BigDecimal.ZERO, null, 0, 0, 0, null);
+            lote.add(new Movimentacao(produto, agora.minusMinutes(random.nextInt(30 * 24 * 60)), 1 + random.nextInt(10),
+                                      Movimentacao.TipoMovimentacao.ENTRADA));
+            if (lote.size() == MOVIMENTACOES_POR_LOTE || i == movimentacoes - 1) {
+                movimentacaoDAO.criarLote(lote);
+                lote.clear();
+            }
+        }
+    }
+}
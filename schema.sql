@@ -38,8 +38,14 @@ CREATE TABLE IF NOT EXISTS movimentacoes (
     observacao TEXT,
     data_movimentacao TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
     FOREIGN KEY (produto_nome) REFERENCES produtos(nome) ON DELETE RESTRICT ON UPDATE CASCADE,
-    INDEX idx_produto (produto_nome),
-    INDEX idx_tipo (tipo),
-    INDEX idx_data (data_movimentacao)
+    -- Histórico paginado: a ordem (data_movimentacao, id) vem pronta do índice em cada filtro
+    INDEX idx_produto_data (produto_nome, data_movimentacao, id),
+    INDEX idx_tipo_data (tipo, data_movimentacao, id),
+    INDEX idx_data (data_movimentacao, id)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
 
+-- Controle do diário do estoque em memória: última sequência já gravada no banco
+CREATE TABLE IF NOT EXISTS diario_controle (
+    id TINYINT PRIMARY KEY,
+    sequencia BIGINT NOT NULL
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
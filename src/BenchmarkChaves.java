@@ -0,0 +1,302 @@
+import config.DatabaseConnection;
+import util.HistogramaLatencia;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Random;
+
+/**
+ * Compara o esquema por nomes (schema.sql) com o de chaves inteiras (schema_chaves_inteiras.sql):
+ * tamanho da tabela de movimentações (dados e índices) e latência das junções usadas pelos DAOs.
+ *
+ * Cria tabelas próprias no banco configurado (bench_nomes_* e bench_ids_*), com os mesmos
+ * produtos, categorias e movimentações nos dois esquemas, e as apaga no final (a menos que
+ * --manter seja informado). As movimentações são geradas uma vez no esquema por nomes e
+ * copiadas para o de ids no próprio servidor.
+ *
+ * Consultas medidas, alternando os esquemas:
+ *  - histórico de um produto (como MovimentacaoDAO.buscarPorProduto: movimentacoes + produtos + categorias)
+ *  - total movimentado por categoria (junção de toda a tabela de movimentações)
+ *
+ * INSTRUÇÕES DE EXECUÇÃO:
+ * Com o MySQL configurado em database.properties, execute:
+ * java -cp target/classes:lib/mysql-connector-j-8.0.33.jar BenchmarkChaves [movimentacoes] [produtos] [--manter]
+ * (padrão: 10.000.000 movimentações, 10.000 produtos; a carga leva alguns minutos)
+ */
+public class BenchmarkChaves {
+    private static final int CATEGORIAS = 50;
+    private static final int LINHAS_POR_BATCH = 5000;
+    private static final int FAIXA_COPIA = 500_000;
+    private static final int CONSULTAS_HISTORICO = 200;
+    private static final int CONSULTAS_AGREGADAS = 3;
+
+    public static void main(String[] args) throws Exception {
+        long movimentacoes = 10_000_000;
+        int produtos = 10_000;
+        boolean manter = false;
+        int posicional = 0;
+        for (String arg : args) {
+            if (arg.equals("--manter")) {
+                manter = true;
+            } else if (posicional++ == 0) {
+                movimentacoes = Long.parseLong(arg);
+            } else {
+                produtos = Integer.parseInt(arg);
+            }
+        }
+
+        System.out.println("=".repeat(70));
+        System.out.println("BENCHMARK DE CHAVES - " + movimentacoes + " movimentações, " + produtos + " produtos");
+        System.out.println("=".repeat(70));
+
+        try (Connection conn = DatabaseConnection.getInstance().getConnection();
+             Statement stmt = conn.createStatement()) {
+            criarTabelas(stmt);
+            carregar(conn, stmt, produtos, movimentacoes);
+
+            stmt.execute("ANALYZE TABLE bench_nomes_movimentacoes, bench_ids_movimentacoes");
+            System.out.println("\nTamanho de movimentacoes");
+            System.out.println("-".repeat(70));
+            imprimirTamanho(conn, "bench_nomes_movimentacoes", "Nomes");
+            imprimirTamanho(conn, "bench_ids_movimentacoes", "Ids");
+
+            medirLatencias(conn, produtos);
+
+            if (!manter) {
+                apagarTabelas(stmt);
+            }
+        } finally {
+            DatabaseConnection.getInstance().closeConnection();
+        }
+    }
+
+    private static void criarTabelas(Statement stmt) throws SQLException {
+        apagarTabelas(stmt);
+        String tabela = ") ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci";
+
+        stmt.executeUpdate("CREATE TABLE bench_nomes_categorias (" +
+            "nome VARCHAR(100) PRIMARY KEY, tamanho ENUM('PEQUENO', 'MEDIO', 'GRANDE') NOT NULL, " +
+            "embalagem ENUM('LATA', 'VIDRO', 'PLASTICO') NOT NULL" + tabela);
+        stmt.executeUpdate("CREATE TABLE bench_nomes_produtos (" +
+            "nome VARCHAR(100) PRIMARY KEY, preco DECIMAL(10, 2) NOT NULL, unidade VARCHAR(20) NOT NULL, " +
+            "estoque_atual INT NOT NULL, estoque_minimo INT NOT NULL, estoque_maximo INT NOT NULL, " +
+            "categoria_nome VARCHAR(100) NOT NULL, " +
+            "FOREIGN KEY (categoria_nome) REFERENCES bench_nomes_categorias(nome), " +
+            "INDEX idx_categoria (categoria_nome)" + tabela);
+        stmt.executeUpdate("CREATE TABLE bench_nomes_movimentacoes (" +
+            "id INT AUTO_INCREMENT PRIMARY KEY, produto_nome VARCHAR(100) NOT NULL, " +
+            "tipo ENUM('ENTRADA', 'SAIDA') NOT NULL, quantidade INT NOT NULL, observacao TEXT, " +
+            "data_movimentacao TIMESTAMP DEFAULT CURRENT_TIMESTAMP, " +
+            "FOREIGN KEY (produto_nome) REFERENCES bench_nomes_produtos(nome), " +
+            "INDEX idx_produto_data (produto_nome, data_movimentacao, id), INDEX idx_tipo_data (tipo, data_movimentacao, id), " +
+            "INDEX idx_data (data_movimentacao, id)" + tabela);
+
+        stmt.executeUpdate("CREATE TABLE bench_ids_categorias (" +
+            "id INT AUTO_INCREMENT PRIMARY KEY, nome VARCHAR(100) NOT NULL, " +
+            "tamanho ENUM('PEQUENO', 'MEDIO', 'GRANDE') NOT NULL, " +
+            "embalagem ENUM('LATA', 'VIDRO', 'PLASTICO') NOT NULL, UNIQUE KEY uk_nome (nome)" + tabela);
+        stmt.executeUpdate("CREATE TABLE bench_ids_produtos (" +
+            "id INT AUTO_INCREMENT PRIMARY KEY, nome VARCHAR(100) NOT NULL, preco DECIMAL(10, 2) NOT NULL, " +
+            "unidade VARCHAR(20) NOT NULL, estoque_atual INT NOT NULL, estoque_minimo INT NOT NULL, " +
+            "estoque_maximo INT NOT NULL, categoria_id INT NOT NULL, UNIQUE KEY uk_nome (nome), " +
+            "FOREIGN KEY (categoria_id) REFERENCES bench_ids_categorias(id), " +
+            "INDEX idx_categoria (categoria_id)" + tabela);
+        stmt.executeUpdate("CREATE TABLE bench_ids_movimentacoes (" +
+            "id INT AUTO_INCREMENT PRIMARY KEY, produto_id INT NOT NULL, " +
+            "tipo ENUM('ENTRADA', 'SAIDA') NOT NULL, quantidade INT NOT NULL, observacao TEXT, " +
+            "data_movimentacao TIMESTAMP DEFAULT CURRENT_TIMESTAMP, " +
+            "FOREIGN KEY (produto_id) REFERENCES bench_ids_produtos(id), " +
+            "INDEX idx_produto_data (produto_id, data_movimentacao, id), INDEX idx_tipo_data (tipo, data_movimentacao, id), " +
+            "INDEX idx_data (data_movimentacao, id)" + tabela);
+    }
+
+    private static void apagarTabelas(Statement stmt) throws SQLException {
+        stmt.executeUpdate("DROP TABLE IF EXISTS bench_nomes_movimentacoes, bench_nomes_produtos, bench_nomes_categorias, " +
+                           "bench_ids_movimentacoes, bench_ids_produtos, bench_ids_categorias");
+    }
+
+    private static void carregar(Connection conn, Statement stmt, int produtos, long movimentacoes) throws SQLException {
+        long inicio = System.nanoTime();
+        String[] tamanhos = { "PEQUENO", "MEDIO", "GRANDE" };
+        String[] embalagens = { "LATA", "VIDRO", "PLASTICO" };
+
+        try (PreparedStatement insert = conn.prepareStatement(
+                "INSERT INTO bench_nomes_categorias (nome, tamanho, embalagem) VALUES (?, ?, ?)")) {
+            for (int c = 0; c < CATEGORIAS; c++) {
+                insert.setString(1, nomeCategoria(c));
+                insert.setString(2, tamanhos[c % tamanhos.length]);
+                insert.setString(3, embalagens[c % embalagens.length]);
+                insert.addBatch();
+            }
+            insert.executeBatch();
+        }
+        try (PreparedStatement insert = conn.prepareStatement(
+                "INSERT INTO bench_nomes_produtos (nome, preco, unidade, estoque_atual, estoque_minimo, " +
+                "estoque_maximo, categoria_nome) VALUES (?, 9.90, 'Unidade', 1000, 10, 100000, ?)")) {
+            for (int p = 0; p < produtos; p++) {
+                insert.setString(1, nomeProduto(p));
+                insert.setString(2, nomeCategoria(p % CATEGORIAS));
+                insert.addBatch();
+                if ((p + 1) % LINHAS_POR_BATCH == 0) {
+                    insert.executeBatch();
+                }
+            }
+            insert.executeBatch();
+        }
+
+        // Movimentações com produto aleatório e datas espalhadas pelo último ano
+        Random random = new Random(42);
+        LocalDateTime base = LocalDateTime.now().minusYears(1);
+        long segundosNoAno = 365L * 24 * 3600;
+        conn.setAutoCommit(false);
+        try (PreparedStatement insert = conn.prepareStatement(
+                "INSERT INTO bench_nomes_movimentacoes (produto_nome, tipo, quantidade, data_movimentacao) " +
+                "VALUES (?, ?, ?, ?)")) {
+            for (long i = 1; i <= movimentacoes; i++) {
+                insert.setString(1, nomeProduto(random.nextInt(produtos)));
+                insert.setString(2, random.nextBoolean() ? "ENTRADA" : "SAIDA");
+                insert.setInt(3, 1 + random.nextInt(100));
+                insert.setTimestamp(4, Timestamp.valueOf(base.plusSeconds(i * segundosNoAno / movimentacoes)));
+                insert.addBatch();
+                if (i % LINHAS_POR_BATCH == 0 || i == movimentacoes) {
+                    insert.executeBatch();
+                    conn.commit();
+                }
+                if (i % 1_000_000 == 0) {
+                    System.out.printf("   %d movimentações geradas (%.0f s)%n", i, (System.nanoTime() - inicio) / 1e9);
+                }
+            }
+        } finally {
+            conn.setAutoCommit(true);
+        }
+
+        // Mesmos dados no esquema de ids (os ids seguem a ordem dos nomes)
+        stmt.executeUpdate("INSERT INTO bench_ids_categorias (nome, tamanho, embalagem) " +
+                           "SELECT nome, tamanho, embalagem FROM bench_nomes_categorias ORDER BY nome");
+        stmt.executeUpdate("INSERT INTO bench_ids_produtos (nome, preco, unidade, estoque_atual, estoque_minimo, " +
+                           "estoque_maximo, categoria_id) " +
+                           "SELECT p.nome, p.preco, p.unidade, p.estoque_atual, p.estoque_minimo, p.estoque_maximo, c.id " +
+                           "FROM bench_nomes_produtos p INNER JOIN bench_ids_categorias c ON p.categoria_nome = c.nome " +
+                           "ORDER BY p.nome");
+        try (PreparedStatement copia = conn.prepareStatement(
+                "INSERT INTO bench_ids_movimentacoes (id, produto_id, tipo, quantidade, data_movimentacao) " +
+                "SELECT m.id, p.id, m.tipo, m.quantidade, m.data_movimentacao " +
+                "FROM bench_nomes_movimentacoes m INNER JOIN bench_ids_produtos p ON m.produto_nome = p.nome " +
+                "WHERE m.id BETWEEN ? AND ?")) {
+            for (long faixa = 1; faixa <= movimentacoes; faixa += FAIXA_COPIA) {
+                copia.setLong(1, faixa);
+                copia.setLong(2, faixa + FAIXA_COPIA - 1);
+                copia.executeUpdate();
+            }
+        }
+        System.out.printf("Carga concluída em %.0f s%n", (System.nanoTime() - inicio) / 1e9);
+    }
+
+    private static void imprimirTamanho(Connection conn, String tabela, String nome) throws SQLException {
+        String sql = "SELECT TABLE_ROWS, DATA_LENGTH, INDEX_LENGTH FROM information_schema.TABLES " +
+                     "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ?";
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setString(1, tabela);
+            try (ResultSet rs = stmt.executeQuery()) {
+                rs.next();
+                long dados = rs.getLong("DATA_LENGTH");
+                long indices = rs.getLong("INDEX_LENGTH");
+                System.out.printf("   %-6s ~%d linhas: dados %,d MB, índices %,d MB, total %,d MB%n",
+                                  nome, rs.getLong("TABLE_ROWS"), dados >> 20, indices >> 20, (dados + indices) >> 20);
+            }
+        }
+    }
+
+    private static void medirLatencias(Connection conn, int produtos) throws SQLException {
+        String historicoNomes =
+            "SELECT m.id, p.nome AS produto_nome, m.tipo, m.quantidade, m.data_movimentacao, p.preco, " +
+            "c.nome AS categoria_nome, c.tamanho, c.embalagem FROM bench_nomes_movimentacoes m " +
+            "INNER JOIN bench_nomes_produtos p ON m.produto_nome = p.nome " +
+            "INNER JOIN bench_nomes_categorias c ON p.categoria_nome = c.nome " +
+            "WHERE m.produto_nome = ? ORDER BY m.data_movimentacao DESC";
+        // Como no DAO, o id vem do dicionário de nomes, então a consulta recebe o id
+        String historicoIds =
+            "SELECT m.id, p.nome AS produto_nome, m.tipo, m.quantidade, m.data_movimentacao, p.preco, " +
+            "c.nome AS categoria_nome, c.tamanho, c.embalagem FROM bench_ids_movimentacoes m " +
+            "INNER JOIN bench_ids_produtos p ON m.produto_id = p.id " +
+            "INNER JOIN bench_ids_categorias c ON p.categoria_id = c.id " +
+            "WHERE m.produto_id = ? ORDER BY m.data_movimentacao DESC";
+        String agregadoNomes =
+            "SELECT c.nome, SUM(m.quantidade) FROM bench_nomes_movimentacoes m " +
+            "INNER JOIN bench_nomes_produtos p ON m.produto_nome = p.nome " +
+            "INNER JOIN bench_nomes_categorias c ON p.categoria_nome = c.nome GROUP BY c.nome";
+        String agregadoIds =
+            "SELECT c.nome, SUM(m.quantidade) FROM bench_ids_movimentacoes m " +
+            "INNER JOIN bench_ids_produtos p ON m.produto_id = p.id " +
+            "INNER JOIN bench_ids_categorias c ON p.categoria_id = c.id GROUP BY c.nome";
+
+        HistogramaLatencia nomes = new HistogramaLatencia();
+        HistogramaLatencia ids = new HistogramaLatencia();
+        Random random = new Random(7);
+        try (PreparedStatement consultaNomes = conn.prepareStatement(historicoNomes);
+             PreparedStatement consultaIds = conn.prepareStatement(historicoIds)) {
+            // Aquecimento (buffer pool), depois medição alternando os esquemas
+            for (int i = 0; i < 2 * CONSULTAS_HISTORICO; i++) {
+                boolean medir = i >= CONSULTAS_HISTORICO;
+                int produto = random.nextInt(produtos);
+                consultaNomes.setString(1, nomeProduto(produto));
+                long tempo = executar(consultaNomes);
+                if (medir) {
+                    nomes.registrar(tempo);
+                }
+                // Os produtos foram inseridos em ordem de nome, então o id é a posição + 1
+                consultaIds.setInt(1, produto + 1);
+                tempo = executar(consultaIds);
+                if (medir) {
+                    ids.registrar(tempo);
+                }
+            }
+        }
+        System.out.println("\nHistórico de um produto (" + CONSULTAS_HISTORICO + " consultas)");
+        System.out.println("-".repeat(70));
+        System.out.println("   Nomes: " + nomes.resumoMicros());
+        System.out.println("   Ids:   " + ids.resumoMicros());
+
+        System.out.println("\nTotal por categoria (junção da tabela inteira, " + CONSULTAS_AGREGADAS + " consultas)");
+        System.out.println("-".repeat(70));
+        try (PreparedStatement consultaNomes = conn.prepareStatement(agregadoNomes);
+             PreparedStatement consultaIds = conn.prepareStatement(agregadoIds)) {
+            executar(consultaNomes);
+            executar(consultaIds);
+            long totalNomes = 0;
+            long totalIds = 0;
+            for (int i = 0; i < CONSULTAS_AGREGADAS; i++) {
+                totalNomes += executar(consultaNomes);
+                totalIds += executar(consultaIds);
+            }
+            System.out.printf("   Nomes: %.0f ms em média%n", totalNomes / 1e6 / CONSULTAS_AGREGADAS);
+            System.out.printf("   Ids:   %.0f ms em média%n", totalIds / 1e6 / CONSULTAS_AGREGADAS);
+        }
+    }
+
+    /**
+     * Executa a consulta lendo todas as linhas e retorna o tempo em nanossegundos.
+     */
+    private static long executar(PreparedStatement consulta) throws SQLException {
+        long inicio = System.nanoTime();
+        try (ResultSet rs = consulta.executeQuery()) {
+            while (rs.next()) {
+                rs.getString(2);
+            }
+        }
+        return System.nanoTime() - inicio;
+    }
+
+    private static String nomeCategoria(int indice) {
+        return String.format("Categoria de benchmark %03d", indice);
+    }
+
+    private static String nomeProduto(int indice) {
+        return String.format("Produto de benchmark %07d", indice);
+    }
+}
@@ -0,0 +1,384 @@
+import util.HistogramaLatencia;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Gerador de carga para o servidor: abre várias conexões simultâneas (virtual threads, quando
+ * a JVM oferece) e envia uma mistura de comandos, medindo a vazão e a latência de cada comando
+ * (p50/p99/p999, com o {@link HistogramaLatencia}).
+ *
+ * Cada conexão espera a resposta antes do próximo comando. Sem --taxa, envia o próximo logo
+ * em seguida (carga fechada: a vazão é a que o servidor aguenta). Com --taxa, os comandos são
+ * agendados para somar essa taxa entre todas as conexões, e a latência é contada a partir do
+ * horário agendado: se o servidor atrasar, a espera entra na medida em vez de só reduzir a
+ * taxa enviada (o mesmo cuidado do wrk2).
+ *
+ * Os produtos de cada comando seguem uma distribuição de Zipf (poucos produtos concentram a
+ * maior parte dos comandos, como os mais vendidos de uma loja). A sequência de comandos de
+ * cada conexão vem de um gerador com a semente informada, então duas execuções com os mesmos
+ * parâmetros enviam os mesmos comandos; só a intercalação entre conexões muda.
+ *
+ * INSTRUÇÕES DE EXECUÇÃO:
+ * 1. Inicie o servidor (server.Servidor).
+ * 2. Na primeira vez, crie os produtos da carga com --preparar.
+ * java -cp target/classes ClienteCarga [--opcao=valor ...]
+ *   --host=localhost --porta=12345
+ *   --conexoes=64          conexões simultâneas
+ *   --duracao=60           segundos medidos
+ *   --aquecimento=10       segundos iniciais descartados
+ *   --taxa=0               comandos/s somando todas as conexões (0: carga fechada)
+ *   --mix=MOVIMENTACAO_CRIAR:70,PRODUTO_BUSCAR:20,RELATORIO:10
+ *                          pesos dos comandos; RELATORIO sorteia entre os relatórios de {@link #RELATORIOS}
+ *   --produtos=1000        produtos da carga ("Carga 0000001" em diante, na categoria "Carga")
+ *   --zipf=0.99            expoente da distribuição (0: uniforme)
+ *   --semente=42
+ *   --preparar             cria a categoria e os produtos que faltarem antes de medir
+ *
+ * RELATORIO_LISTA_PRECOS e RELATORIO_VERIFICAR ficam fora do sorteio porque leem as tabelas
+ * inteiras a cada chamada; podem ser incluídos na mistura pelo nome.
+ */
+public class ClienteCarga {
+    private static final String CATEGORIA = "Carga";
+    private static final String[] RELATORIOS = {
+        "RELATORIO_BALANCO", "RELATORIO_ABAIXO_MINIMO", "RELATORIO_QUANTIDADE_CATEGORIA",
+        "RELATORIO_MAIS_MOVIMENTACOES", "RELATORIO_MOVIMENTACAO_DIARIA", "RELATORIO_MAIS_MOVIMENTACOES_PERIODO"
+    };
+    /** Estoque inicial dos produtos da carga: as saídas quase nunca são recusadas. */
+    private static final int ESTOQUE_INICIAL = 1_000_000;
+
+    private final String host;
+    private final int porta;
+    private final int conexoes;
+    private final long duracaoNanos;
+    private final long aquecimentoNanos;
+    private final double taxa;
+    private final String[] comandosMix;
+    private final int[] pesosAcumulados;
+    private final Zipf zipf;
+    private final long semente;
+    private final String mix;
+    /** Parâmetros de data dos relatórios por período: última semana e último mês. */
+    private final String ultimaSemana = LocalDate.now().minusDays(7) + "|" + LocalDate.now();
+    private final String ultimoMes = LocalDate.now().minusDays(30) + "|" + LocalDate.now();
+    /** Um registro por comando, criados antes da carga (só os contadores mudam depois). */
+    private final Map<String, Estatistica> estatisticas = new LinkedHashMap<>();
+    private final Estatistica total = new Estatistica("TOTAL");
+
+    private ClienteCarga(Map<String, String> opcoes) {
+        host = opcoes.getOrDefault("host", "localhost");
+        porta = Integer.parseInt(opcoes.getOrDefault("porta", "12345"));
+        conexoes = Integer.parseInt(opcoes.getOrDefault("conexoes", "64"));
+        duracaoNanos = Long.parseLong(opcoes.getOrDefault("duracao", "60")) * 1_000_000_000L;
+        aquecimentoNanos = Long.parseLong(opcoes.getOrDefault("aquecimento", "10")) * 1_000_000_000L;
+        taxa = Double.parseDouble(opcoes.getOrDefault("taxa", "0"));
+        zipf = new Zipf(Integer.parseInt(opcoes.getOrDefault("produtos", "1000")),
+                        Double.parseDouble(opcoes.getOrDefault("zipf", "0.99")));
+        semente = Long.parseLong(opcoes.getOrDefault("semente", "42"));
+
+        mix = opcoes.getOrDefault("mix", "MOVIMENTACAO_CRIAR:70,PRODUTO_BUSCAR:20,RELATORIO:10");
+        String[] partes = mix.split(",");
+        comandosMix = new String[partes.length];
+        pesosAcumulados = new int[partes.length];
+        int soma = 0;
+        for (int i = 0; i < partes.length; i++) {
+            String[] parte = partes[i].split(":");
+            comandosMix[i] = parte[0].trim().toUpperCase(Locale.ROOT);
+            soma += Integer.parseInt(parte[1].trim());
+            pesosAcumulados[i] = soma;
+            if (comandosMix[i].equals("RELATORIO")) {
+                for (String relatorio : RELATORIOS) {
+                    estatisticas.putIfAbsent(relatorio, new Estatistica(relatorio));
+                }
+            } else {
+                estatisticas.putIfAbsent(comandosMix[i], new Estatistica(comandosMix[i]));
+            }
+        }
+        if (conexoes <= 0 || soma <= 0) {
+            throw new IllegalArgumentException("Conexões e pesos da mistura devem ser positivos");
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> opcoes = new LinkedHashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--")) {
+                throw new IllegalArgumentException("Opção inválida: " + arg + " (use --opcao=valor)");
+            }
+            int igual = arg.indexOf('=');
+            opcoes.put(igual < 0 ? arg.substring(2) : arg.substring(2, igual), igual < 0 ? "" : arg.substring(igual + 1));
+        }
+        ClienteCarga carga = new ClienteCarga(opcoes);
+        if (opcoes.containsKey("preparar")) {
+            carga.preparar();
+        }
+        carga.executar();
+    }
+
+    private static String nomeProduto(int indice) {
+        return String.format("Carga %07d", indice + 1);
+    }
+
+    /**
+     * Cria a categoria e os produtos da carga em pipeline; os que já existem respondem ERROR e
+     * são mantidos como estão.
+     */
+    private void preparar() throws Exception {
+        int produtos = zipf.tamanho();
+        System.out.println("Criando " + produtos + " produtos da carga...");
+        List<String> comandos = new ArrayList<>(produtos + 1);
+        comandos.add("CATEGORIA_CRIAR|" + CATEGORIA + "|MEDIO|PLASTICO");
+        for (int i = 0; i < produtos; i++) {
+            comandos.add("PRODUTO_CRIAR|" + nomeProduto(i) + "|10.00|un|" + ESTOQUE_INICIAL + "|10|" +
+                         (2 * ESTOQUE_INICIAL) + "|" + CATEGORIA);
+        }
+        try (Socket socket = new Socket(host, porta);
+             BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+             Writer out = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8))) {
+            // Escrita em outra thread para os buffers dos dois lados não travarem a conexão
+            Thread escritor = new Thread(() -> {
+                try {
+                    for (String comando : comandos) {
+                        out.write(comando);
+                        out.write('\n');
+                    }
+                    out.flush();
+                } catch (IOException e) {
+                    System.err.println("Erro ao enviar produtos da carga: " + e.getMessage());
+                }
+            }, "carga-preparo");
+            escritor.start();
+            int criados = 0;
+            for (int i = 0; i < comandos.size(); i++) {
+                String resposta = in.readLine();
+                if (resposta == null) {
+                    throw new IOException("Conexão encerrada após " + i + " respostas");
+                }
+                if (i > 0 && resposta.startsWith("SUCCESS")) {
+                    criados++;
+                }
+            }
+            escritor.join();
+            System.out.println(criados + " produtos criados (" + (produtos - criados) + " já existiam ou falharam).");
+        }
+    }
+
+    private void executar() throws Exception {
+        System.out.println("=".repeat(70));
+        System.out.printf(Locale.US, "CARGA - %d conexões, %s, %d produtos (zipf %.2f), semente %d%n",
+                          conexoes, taxa > 0 ? String.format(Locale.US, "%.0f comandos/s", taxa) : "carga fechada",
+                          zipf.tamanho(), zipf.expoente, semente);
+        System.out.println("Mistura: " + mix);
+        System.out.println("=".repeat(70));
+
+        long inicio = System.nanoTime();
+        long inicioMedicao = inicio + aquecimentoNanos;
+        long fim = inicioMedicao + duracaoNanos;
+        ExecutorService executor = criarExecutor();
+        List<Future<?>> tarefas = new ArrayList<>();
+        for (int i = 0; i < conexoes; i++) {
+            int conexao = i;
+            tarefas.add(executor.submit(() -> {
+                conectar(conexao, inicioMedicao, fim);
+                return null;
+            }));
+        }
+        int falhas = 0;
+        for (Future<?> tarefa : tarefas) {
+            try {
+                tarefa.get();
+            } catch (Exception e) {
+                if (falhas++ == 0) {
+                    System.err.println("Conexão interrompida: " + e.getCause());
+                }
+            }
+        }
+        executor.shutdown();
+        if (falhas > 0) {
+            System.err.println(falhas + " de " + conexoes + " conexões falharam; os números abaixo são parciais.");
+        }
+        imprimirResultado(duracaoNanos / 1_000_000_000.0);
+    }
+
+    /**
+     * Laço de uma conexão: sorteia o comando e o produto, envia, espera a resposta e registra
+     * a latência (só depois do aquecimento).
+     */
+    private void conectar(int conexao, long inicioMedicao, long fim) throws IOException {
+        Random random = new Random(semente * 1_000_003L + conexao);
+        long intervalo = taxa > 0 ? (long) (1_000_000_000.0 * conexoes / taxa) : 0;
+        // Conexões defasadas dentro do intervalo, para não enviarem todas no mesmo instante
+        long agendado = System.nanoTime() + intervalo * conexao / conexoes;
+
+        try (Socket socket = new Socket(host, porta);
+             BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+             Writer out = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8))) {
+            socket.setTcpNoDelay(true);
+            while (true) {
+                String linha = sortearComando(random);
+                long enviado;
+                if (intervalo > 0) {
+                    if (agendado >= fim) {
+                        return;
+                    }
+                    long espera = agendado - System.nanoTime();
+                    if (espera > 0) {
+                        LockSupport.parkNanos(espera);
+                    }
+                    enviado = agendado;
+                    agendado += intervalo;
+                } else {
+                    enviado = System.nanoTime();
+                    if (enviado >= fim) {
+                        return;
+                    }
+                }
+
+                out.write(linha);
+                out.write('\n');
+                out.flush();
+                String resposta = in.readLine();
+                long recebido = System.nanoTime();
+                if (resposta == null) {
+                    throw new IOException("Conexão encerrada pelo servidor");
+                }
+                if (enviado >= inicioMedicao) {
+                    boolean sucesso = resposta.startsWith("SUCCESS");
+                    estatisticas.get(nomeDoComando(linha)).registrar(recebido - enviado, sucesso);
+                    total.registrar(recebido - enviado, sucesso);
+                }
+            }
+        }
+    }
+
+    private String sortearComando(Random random) {
+        int sorteio = random.nextInt(pesosAcumulados[pesosAcumulados.length - 1]);
+        int i = 0;
+        while (sorteio >= pesosAcumulados[i]) {
+            i++;
+        }
+        String comando = comandosMix[i];
+        if (comando.equals("RELATORIO")) {
+            comando = RELATORIOS[random.nextInt(RELATORIOS.length)];
+        }
+        switch (comando) {
+            case "MOVIMENTACAO_CRIAR":
+                return comando + "|" + nomeProduto(zipf.sortear(random)) + "|" +
+                       (random.nextBoolean() ? "ENTRADA" : "SAIDA") + "|" + (1 + random.nextInt(5));
+            case "PRODUTO_BUSCAR":
+                return comando + "|" + nomeProduto(zipf.sortear(random));
+            case "RELATORIO_MOVIMENTACAO_DIARIA":
+                return comando + "|" + ultimaSemana + "|" + nomeProduto(zipf.sortear(random));
+            case "RELATORIO_MAIS_MOVIMENTACOES_PERIODO":
+                return comando + "|" + ultimoMes;
+            default:
+                return comando;
+        }
+    }
+
+    private static String nomeDoComando(String linha) {
+        int separador = linha.indexOf('|');
+        return separador < 0 ? linha : linha.substring(0, separador);
+    }
+
+    private void imprimirResultado(double segundos) {
+        System.out.println();
+        System.out.printf("%-38s %9s %7s %10s %9s %9s %9s %9s%n",
+                          "Comando", "n", "erros", "cmd/s", "p50 us", "p99 us", "p999 us", "max us");
+        System.out.println("-".repeat(106));
+        for (Estatistica estatistica : estatisticas.values()) {
+            estatistica.imprimir(segundos);
+        }
+        System.out.println("-".repeat(106));
+        total.imprimir(segundos);
+    }
+
+    /**
+     * Virtual threads quando a JVM oferece (Java 21+), como no servidor; senão, uma thread
+     * de plataforma por conexão.
+     */
+    private static ExecutorService criarExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool();
+        }
+    }
+
+    private static final class Estatistica {
+        private final String nome;
+        private final HistogramaLatencia latencias = new HistogramaLatencia();
+        private final AtomicLong erros = new AtomicLong();
+
+        Estatistica(String nome) {
+            this.nome = nome;
+        }
+
+        void registrar(long nanos, boolean sucesso) {
+            latencias.registrar(nanos);
+            if (!sucesso) {
+                erros.incrementAndGet();
+            }
+        }
+
+        void imprimir(double segundos) {
+            System.out.printf(Locale.US, "%-38s %9d %7d %10.1f %9d %9d %9d %9d%n",
+                              nome, latencias.getContagem(), erros.get(), latencias.getContagem() / segundos,
+                              latencias.percentil(50) / 1000, latencias.percentil(99) / 1000,
+                              latencias.percentil(99.9) / 1000, latencias.getMaximo() / 1000);
+        }
+    }
+
+    /**
+     * Sorteia índices de 0 a n-1 com probabilidade proporcional a 1/(i+1)^expoente,
+     * por busca binária na distribuição acumulada.
+     */
+    private static final class Zipf {
+        private final double[] acumulada;
+        private final double expoente;
+
+        Zipf(int n, double expoente) {
+            if (n <= 0) {
+                throw new IllegalArgumentException("A quantidade de produtos deve ser positiva");
+            }
+            this.expoente = expoente;
+            acumulada = new double[n];
+            double soma = 0;
+            for (int i = 0; i < n; i++) {
+                soma += 1 / Math.pow(i + 1, expoente);
+                acumulada[i] = soma;
+            }
+            for (int i = 0; i < n; i++) {
+                acumulada[i] /= soma;
+            }
+        }
+
+        int tamanho() {
+            return acumulada.length;
+        }
+
+        int sortear(Random random) {
+            int i = Arrays.binarySearch(acumulada, random.nextDouble());
+            return Math.min(i >= 0 ? i : -i - 1, acumulada.length - 1);
+        }
+    }
+}
@@ -0,0 +1,260 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Importa e exporta o catálogo de produtos em CSV pelo protocolo (PRODUTO_IMPORTAR e
+ * PRODUTO_EXPORTAR), sem montar o arquivo inteiro em memória em nenhum dos lados.
+ *
+ * Cada linha do CSV é um produto: nome,preco,unidade,estoque,minimo,maximo,categoria (preço
+ * com ponto decimal; a primeira linha pode ser o cabeçalho). Na importação, as linhas do
+ * arquivo vão em comandos de {@code --registros} produtos, enviados em pipeline por uma
+ * thread enquanto outra lê as respostas; no máximo {@code --janela} comandos ficam sem
+ * resposta. O servidor grava cada grupo de comandos recebidos juntos em uma transação.
+ * Produtos já existentes são atualizados, mas o estoque deles não muda (só por movimentações).
+ *
+ * INSTRUÇÕES DE EXECUÇÃO:
+ * 1. Inicie o servidor (server.Servidor). As categorias do arquivo precisam existir.
+ * java -cp target/classes ClienteImportacao importar produtos.csv [--opcao=valor ...]
+ * java -cp target/classes ClienteImportacao exportar produtos.csv
+ * java -cp target/classes ClienteImportacao gerar produtos.csv --produtos=1000000
+ *   --host=localhost --porta=12345
+ *   --registros=500        produtos por comando PRODUTO_IMPORTAR
+ *   --janela=32            comandos enviados sem resposta
+ *   --maxErros=100         produtos recusados mostrados (os demais só são contados)
+ *   --produtos=1000000     produtos do arquivo gerado ("Importado 0000001" em diante)
+ *   --categoria=Carga      categoria dos produtos gerados
+ */
+public class ClienteImportacao {
+    private static final String CABECALHO = "nome,preco,unidade,estoque,minimo,maximo,categoria";
+    /** Marca, na fila de comandos sem resposta, o fim do envio. */
+    private static final int[] FIM = new int[0];
+
+    private final String host;
+    private final int porta;
+    private final int registros;
+    private final int janela;
+    private final long maxErros;
+    private final Map<String, String> opcoes;
+
+    private final AtomicLong recusados = new AtomicLong();
+    private long gravados;
+    private volatile Exception falhaEnvio;
+
+    private ClienteImportacao(Map<String, String> opcoes) {
+        this.opcoes = opcoes;
+        host = opcoes.getOrDefault("host", "localhost");
+        porta = Integer.parseInt(opcoes.getOrDefault("porta", "12345"));
+        registros = Integer.parseInt(opcoes.getOrDefault("registros", "500"));
+        janela = Integer.parseInt(opcoes.getOrDefault("janela", "32"));
+        maxErros = Long.parseLong(opcoes.getOrDefault("maxErros", "100"));
+        if (registros <= 0 || janela <= 0) {
+            throw new IllegalArgumentException("Registros e janela devem ser positivos");
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 2) {
+            System.err.println("Uso: ClienteImportacao importar|exportar|gerar arquivo.csv [--opcao=valor ...]");
+            System.exit(1);
+        }
+        Map<String, String> opcoes = new LinkedHashMap<>();
+        for (int i = 2; i < args.length; i++) {
+            String arg = args[i];
+            if (!arg.startsWith("--")) {
+                throw new IllegalArgumentException("Opção inválida: " + arg + " (use --opcao=valor)");
+            }
+            int igual = arg.indexOf('=');
+            opcoes.put(igual < 0 ? arg.substring(2) : arg.substring(2, igual), igual < 0 ? "" : arg.substring(igual + 1));
+        }
+        ClienteImportacao cliente = new ClienteImportacao(opcoes);
+        Path arquivo = Paths.get(args[1]);
+        switch (args[0].toLowerCase()) {
+            case "importar":
+                cliente.importar(arquivo);
+                break;
+            case "exportar":
+                cliente.exportar(arquivo);
+                break;
+            case "gerar":
+                cliente.gerar(arquivo);
+                break;
+            default:
+                throw new IllegalArgumentException("Operação desconhecida: " + args[0]);
+        }
+    }
+
+    private void importar(Path arquivo) throws Exception {
+        long inicio = System.nanoTime();
+        try (Socket socket = new Socket(host, porta);
+             BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+             BufferedWriter out = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8), 65536);
+             BufferedReader csv = Files.newBufferedReader(arquivo, StandardCharsets.UTF_8)) {
+
+            socket.setTcpNoDelay(true);
+            // Números das linhas do arquivo de cada comando enviado, na ordem das respostas
+            BlockingQueue<int[]> pendentes = new ArrayBlockingQueue<>(janela + 1);
+            Semaphore livres = new Semaphore(janela);
+            Thread envio = new Thread(() -> {
+                try {
+                    enviar(csv, out, pendentes, livres);
+                } catch (Exception e) {
+                    falhaEnvio = e;
+                } finally {
+                    pendentes.add(FIM);
+                }
+            }, "envio-importacao");
+            envio.setDaemon(true);
+            envio.start();
+
+            int[] numeros;
+            while ((numeros = pendentes.take()) != FIM) {
+                String resposta = in.readLine();
+                if (resposta == null) {
+                    throw new IOException("Conexão encerrada antes das respostas");
+                }
+                livres.release();
+                lerResposta(resposta, numeros);
+            }
+            envio.join();
+        }
+        if (falhaEnvio != null) {
+            throw falhaEnvio;
+        }
+        double segundos = (System.nanoTime() - inicio) / 1e9;
+        System.out.printf("%d produtos gravados e %d recusados em %.1f s (%.0f produtos/s)%n",
+                          gravados, recusados.get(), segundos, gravados / segundos);
+    }
+
+    /**
+     * Thread de envio: junta as linhas do arquivo em comandos e os envia assim que a janela permite.
+     */
+    private void enviar(BufferedReader csv, BufferedWriter out, BlockingQueue<int[]> pendentes, Semaphore livres)
+            throws Exception {
+        StringBuilder comando = new StringBuilder();
+        int[] numeros = new int[registros];
+        int quantidade = 0;
+        int numero = 0;
+        String linha;
+        while ((linha = csv.readLine()) != null) {
+            numero++;
+            if (linha.trim().isEmpty() || (numero == 1 && linha.trim().equalsIgnoreCase(CABECALHO))) {
+                continue;
+            }
+            if (linha.indexOf(';') >= 0 || linha.indexOf('|') >= 0) {
+                recusar(numero, "';' e '|' não são permitidos");
+                continue;
+            }
+            comando.append(quantidade == 0 ? "PRODUTO_IMPORTAR|" : ";").append(linha);
+            numeros[quantidade++] = numero;
+            if (quantidade == registros) {
+                enviarComando(out, comando, Arrays.copyOf(numeros, quantidade), pendentes, livres);
+                quantidade = 0;
+            }
+        }
+        if (quantidade > 0) {
+            enviarComando(out, comando, Arrays.copyOf(numeros, quantidade), pendentes, livres);
+        }
+    }
+
+    private static void enviarComando(BufferedWriter out, StringBuilder comando, int[] numeros,
+                                      BlockingQueue<int[]> pendentes, Semaphore livres) throws Exception {
+        livres.acquire();
+        pendentes.put(numeros);
+        out.append(comando).append('\n');
+        out.flush();
+        comando.setLength(0);
+    }
+
+    /**
+     * Resposta de um comando: {@code SUCCESS|gravados,recusados;n,motivo;...} ou ERROR|motivo
+     * (nenhum produto do comando foi gravado).
+     */
+    private void lerResposta(String resposta, int[] numeros) {
+        if (!resposta.startsWith("SUCCESS|")) {
+            if (recusados.getAndAdd(numeros.length) < maxErros) {
+                System.err.println("Linhas " + numeros[0] + " a " + numeros[numeros.length - 1] + ": " + resposta);
+            }
+            return;
+        }
+        String[] partes = resposta.substring("SUCCESS|".length()).split(";");
+        gravados += Long.parseLong(partes[0].substring(0, partes[0].indexOf(',')));
+        for (int i = 1; i < partes.length; i++) {
+            int virgula = partes[i].indexOf(',');
+            recusar(numeros[Integer.parseInt(partes[i].substring(0, virgula)) - 1], partes[i].substring(virgula + 1));
+        }
+    }
+
+    private void recusar(int numero, String motivo) {
+        if (recusados.incrementAndGet() <= maxErros) {
+            System.err.println("Linha " + numero + ": " + motivo);
+        }
+    }
+
+    private void exportar(Path arquivo) throws Exception {
+        long inicio = System.nanoTime();
+        long produtos = 0;
+        try (Socket socket = new Socket(host, porta);
+             BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+             BufferedWriter out = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8));
+             BufferedWriter csv = Files.newBufferedWriter(arquivo, StandardCharsets.UTF_8)) {
+
+            out.write("PRODUTO_EXPORTAR\n");
+            out.flush();
+            String linha = in.readLine();
+            if (!"SUCCESS|STREAM".equals(linha)) {
+                throw new IOException("Resposta inesperada: " + linha);
+            }
+            csv.write(CABECALHO);
+            csv.newLine();
+            // Cada parte traz vários produtos separados por ';', até END|quantidade ou ERROR|
+            while ((linha = in.readLine()) != null && !linha.startsWith("END|")) {
+                if (linha.startsWith("ERROR|")) {
+                    throw new IOException("Exportação interrompida depois de " + produtos + " produtos: " + linha);
+                }
+                for (String registro : linha.split(";")) {
+                    csv.write(registro);
+                    csv.newLine();
+                    produtos++;
+                }
+            }
+            if (linha == null) {
+                throw new IOException("Conexão encerrada no meio da exportação");
+            }
+        }
+        System.out.printf("%d produtos exportados para %s em %.1f s%n", produtos, arquivo,
+                          (System.nanoTime() - inicio) / 1e9);
+    }
+
+    /**
+     * Gera um catálogo de teste para medir a importação.
+     */
+    private void gerar(Path arquivo) throws IOException {
+        int produtos = Integer.parseInt(opcoes.getOrDefault("produtos", "1000000"));
+        String categoria = opcoes.getOrDefault("categoria", "Carga");
+        try (BufferedWriter csv = Files.newBufferedWriter(arquivo, StandardCharsets.UTF_8)) {
+            csv.write(CABECALHO);
+            csv.newLine();
+            for (int i = 1; i <= produtos; i++) {
+                csv.write(String.format("Importado %07d,%d.%02d,un,100,10,1000,%s", i, 1 + i % 500, i % 100, categoria));
+                csv.newLine();
+            }
+        }
+        System.out.println(produtos + " produtos gerados em " + arquivo + " (categoria " + categoria +
+                           ", que precisa existir antes da importação)");
+    }
+}
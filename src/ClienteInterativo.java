@@ -1,8 +1,10 @@
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
 import java.net.Socket;
+import java.nio.charset.StandardCharsets;
 
 /**
  * Cliente Interativo para o Sistema de Estoque
@@ -26,8 +28,8 @@ public class ClienteInterativo {
         System.out.println("Digite 'ajuda' para ver exemplos de comandos\n");
 
         try (Socket socket = new Socket(HOST, PORTA);
-             BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream()));
-             PrintWriter out = new PrintWriter(socket.getOutputStream(), true);
+             BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+             PrintWriter out = new PrintWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8), true);
              BufferedReader consoleInput = new BufferedReader(new InputStreamReader(System.in))) {
 
             System.out.println("✓ Conectado ao servidor em " + HOST + ":" + PORTA + "\n");
@@ -67,6 +69,11 @@ public class ClienteInterativo {
                     System.out.println("Erro: Nenhuma resposta recebida do servidor");
                     break;
                 }
+                // Listagem contínua: as partes são mostradas conforme chegam, até END ou ERROR
+                if (resposta.equals("SUCCESS|STREAM") && !mostrarPartes(in)) {
+                    System.out.println("Erro: Conexão encerrada no meio da listagem");
+                    break;
+                }
                 System.out.println();
             }
 
@@ -76,6 +83,23 @@ public class ClienteInterativo {
         }
     }
 
+    /**
+     * Mostra um registro por linha. Retorna false se a conexão terminou antes do fim.
+     */
+    private static boolean mostrarPartes(BufferedReader in) throws IOException {
+        String linha;
+        while ((linha = in.readLine()) != null) {
+            if (linha.startsWith("END|") || linha.startsWith("ERROR|")) {
+                System.out.println(linha);
+                return true;
+            }
+            for (String registro : linha.split(";")) {
+                System.out.println("  " + registro);
+            }
+        }
+        return false;
+    }
+
     private static void mostrarAjuda() {
         System.out.println("\n" + "=".repeat(70));
         System.out.println("EXEMPLOS DE COMANDOS:");
@@ -92,6 +116,8 @@ public class ClienteInterativo {
         System.out.println("  PRODUTO_LISTAR");
         System.out.println("  PRODUTO_BUSCAR|Detergente");
         System.out.println("  PRODUTO_DELETAR|Detergente");
+        System.out.println("  PRODUTO_IMPORTAR|Detergente,5.50,Litro,100,20,200,Limpeza;Sabão,3.20,un,50,10,100,Limpeza");
+        System.out.println("  PRODUTO_EXPORTAR (em partes, até END|quantidade)");
         
         System.out.println("\n🔄 MOVIMENTAÇÕES:");
         System.out.println("  MOVIMENTACAO_CRIAR|Detergente|ENTRADA|50");
@@ -100,7 +126,9 @@ public class ClienteInterativo {
         
         System.out.println("\n📊 RELATÓRIOS:");
         System.out.println("  RELATORIO_LISTA_PRECOS");
+        System.out.println("  RELATORIO_LISTA_PRECOS_STREAM (em partes, até END|quantidade)");
         System.out.println("  RELATORIO_BALANCO");
+        System.out.println("  RELATORIO_BALANCO_STREAM (em partes, até END|quantidade)");
         System.out.println("  RELATORIO_ABAIXO_MINIMO");
         System.out.println("  RELATORIO_QUANTIDADE_CATEGORIA");
         System.out.println("  RELATORIO_MAIS_MOVIMENTACOES");
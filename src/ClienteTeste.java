@@ -1,8 +1,10 @@
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
 import java.net.Socket;
+import java.nio.charset.StandardCharsets;
 
 /**
  * Cliente de Teste para o Sistema de Estoque
@@ -11,19 +13,27 @@ import java.net.Socket;
  * INSTRUÇÕES DE EXECUÇÃO:
  * 1. Primeiro, inicie o servidor: Execute Servidor.java
  * 2. Depois, execute este arquivo: ClienteTeste.java
+ *
+ * Com o argumento {@code --pipeline [N]}, mede comandos por segundo enviando N movimentações
+ * uma a uma (esperando cada resposta) e depois em pipeline (todas de uma vez).
  */
 public class ClienteTeste {
     private static final String HOST = "localhost";
     private static final int PORTA = 12345;
 
     public static void main(String[] args) {
+        if (args.length > 0 && args[0].equals("--pipeline")) {
+            compararPipeline(args.length > 1 ? Integer.parseInt(args[1]) : 2000);
+            return;
+        }
+
         System.out.println("=".repeat(70));
         System.out.println("CLIENTE DE TESTE - SISTEMA DE ESTOQUE");
         System.out.println("=".repeat(70));
         System.out.println("Conectando ao servidor em " + HOST + ":" + PORTA + "...\n");
 
         try (Socket socket = new Socket(HOST, PORTA);
-             BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream()));
+             BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
              PrintWriter out = new PrintWriter(socket.getOutputStream(), true)) {
 
             System.out.println("✓ Conectado ao servidor!\n");
@@ -139,6 +149,9 @@ public class ClienteTeste {
             String resposta22 = enviarComando(out, in, "RELATORIO_MAIS_MOVIMENTACOES");
             System.out.println(resposta22);
 
+            System.out.println("\n4.6 Relatório: Balanço em partes (listagem contínua)");
+            System.out.println("   " + enviarComandoStream(out, in, "RELATORIO_BALANCO_STREAM"));
+
             // ========== TESTE 5: DELETE ==========
             System.out.println("\n\n[TESTE 5] Testando Delete");
             System.out.println("-".repeat(70));
@@ -162,6 +175,98 @@ public class ClienteTeste {
         }
     }
 
+    /**
+     * Compara o modo passo a passo (uma ida e volta por comando) com o modo em pipeline.
+     * Alterna ENTRADA e SAIDA de 1 unidade, então o estoque do produto de teste não muda.
+     */
+    private static void compararPipeline(int quantidade) {
+        System.out.println("Comparando modo passo a passo e pipeline com " + quantidade + " movimentações\n");
+
+        try (Socket socket = new Socket(HOST, PORTA);
+             BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+             PrintWriter out = new PrintWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8), true)) {
+
+            // Categoria e produto podem já existir de uma execução anterior
+            enviarComando(out, in, "CATEGORIA_CRIAR|Teste Pipeline|PEQUENO|PLASTICO");
+            enviarComando(out, in, "PRODUTO_CRIAR|Produto Pipeline|1.00|Unidade|1000|0|100000|Teste Pipeline");
+
+            String[] comandos = new String[quantidade];
+            for (int i = 0; i < quantidade; i++) {
+                comandos[i] = "MOVIMENTACAO_CRIAR|Produto Pipeline|" + (i % 2 == 0 ? "ENTRADA" : "SAIDA") + "|1";
+            }
+
+            long inicio = System.nanoTime();
+            int erros = 0;
+            for (String comando : comandos) {
+                if (!enviarComando(out, in, comando).startsWith("SUCCESS")) {
+                    erros++;
+                }
+            }
+            imprimirVazao("Passo a passo", quantidade, erros, System.nanoTime() - inicio);
+
+            inicio = System.nanoTime();
+            // A escrita roda em outra thread: se o cliente só lesse depois de enviar tudo,
+            // os buffers dos dois lados poderiam encher e travar a conexão
+            Thread escritor = new Thread(() -> {
+                for (String comando : comandos) {
+                    out.print(comando);
+                    out.print('\n');
+                }
+                out.flush();
+            }, "pipeline-escritor");
+            escritor.start();
+
+            erros = 0;
+            for (int i = 0; i < quantidade; i++) {
+                String resposta = in.readLine();
+                if (resposta == null) {
+                    throw new IOException("Conexão encerrada após " + i + " respostas");
+                }
+                if (!resposta.startsWith("SUCCESS")) {
+                    erros++;
+                }
+            }
+            escritor.join();
+            imprimirVazao("Pipeline", quantidade, erros, System.nanoTime() - inicio);
+
+        } catch (IOException e) {
+            System.err.println("Erro ao conectar ao servidor: " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void imprimirVazao(String modo, int quantidade, int erros, long nanos) {
+        double segundos = nanos / 1_000_000_000.0;
+        System.out.printf("%-14s %8d comandos em %7.3f s = %10.1f comandos/s (%d erros)%n",
+                          modo, quantidade, segundos, quantidade / segundos, erros);
+    }
+
+    /**
+     * Envia um comando de listagem contínua, mostra cada registro assim que a sua parte chega
+     * e retorna a linha final (END ou ERROR).
+     */
+    private static String enviarComandoStream(PrintWriter out, BufferedReader in, String comando) {
+        String resposta = enviarComando(out, in, comando);
+        if (!resposta.equals("SUCCESS|STREAM")) {
+            return resposta;
+        }
+        try {
+            String linha;
+            while ((linha = in.readLine()) != null) {
+                if (linha.startsWith("END|") || linha.startsWith("ERROR|")) {
+                    return linha;
+                }
+                for (String registro : linha.split(";")) {
+                    System.out.println("   " + registro);
+                }
+            }
+            return "Erro: Conexão encerrada no meio da listagem";
+        } catch (IOException e) {
+            return "Erro ao ler a listagem: " + e.getMessage();
+        }
+    }
+
     /**
      * Envia um comando ao servidor e retorna a resposta
      */
@@ -0,0 +1,224 @@
+import config.DatabaseConnection;
+import dao.MovimentacaoDAO;
+import model.Movimentacao;
+import model.Produto;
+import util.DatabaseInitializer;
+import util.HistogramaLatencia;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Teste de estresse de saídas simultâneas no mesmo produto.
+ * Compara o algoritmo antigo de {@code MovimentacaoDAO.criar} (SELECT, cálculo em Java e
+ * UPDATE com o valor absoluto) com o UPDATE condicional atual, contando atualizações perdidas.
+ *
+ * O produto de teste começa com metade do estoque necessário para todas as saídas, então
+ * metade delas deve ser recusada por estoque insuficiente. Ao final, o estoque precisa ser
+ * exatamente o inicial menos as saídas aceitas, nunca negativo, e cada saída aceita precisa
+ * ter gerado um registro em movimentacoes.
+ *
+ * INSTRUÇÕES DE EXECUÇÃO:
+ * Com o MySQL configurado em database.properties, execute:
+ * java -cp target/classes:lib/mysql-connector-j-8.0.33.jar TestadorConcorrencia [threads] [saidasPorThread]
+ * (padrão: 64 threads, 200 saídas cada)
+ */
+public class TestadorConcorrencia {
+    private static final String CATEGORIA = "Teste Concorrência";
+    private static final String PRODUTO = "Produto Concorrência";
+    /** Esquema em uso (db.chavesInteiras): movimentacoes referencia produto_id em vez de produto_nome. */
+    private static final boolean CHAVES_INTEIRAS = DatabaseConnection.getInstance().isChavesInteiras();
+    private static final String REFERENCIA_PRODUTO = CHAVES_INTEIRAS
+            ? "produto_id = (SELECT id FROM produtos WHERE nome = ?)" : "produto_nome = ?";
+
+    public static void main(String[] args) throws Exception {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : 64;
+        int saidasPorThread = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+        int estoqueInicial = threads * saidasPorThread / 2;
+
+        DatabaseInitializer.initializeDatabase();
+        System.out.println("=".repeat(70));
+        System.out.println("TESTE DE CONCORRÊNCIA - " + threads + " threads x " + saidasPorThread +
+                           " saídas, estoque inicial " + estoqueInicial);
+        System.out.println("=".repeat(70));
+
+        executar("Leitura-modificação-escrita (anterior)", threads, saidasPorThread, estoqueInicial,
+                 TestadorConcorrencia::saidaLeituraEscrita);
+
+        MovimentacaoDAO dao = new MovimentacaoDAO();
+        executar("UPDATE condicional (atual)", threads, saidasPorThread, estoqueInicial, () -> {
+            Produto produto = new Produto(PRODUTO, BigDecimal.ZERO, null, 0, 0, 0, null);
+            dao.criar(new Movimentacao(produto, LocalDateTime.now(), 1, Movimentacao.TipoMovimentacao.SAIDA));
+        });
+
+        DatabaseConnection.getInstance().closeConnection();
+    }
+
+    private interface Saida {
+        void executar() throws Exception;
+    }
+
+    private static void executar(String nome, int threads, int saidasPorThread, int estoqueInicial,
+                                 Saida saida) throws Exception {
+        prepararProduto(estoqueInicial);
+
+        AtomicInteger aceitas = new AtomicInteger();
+        AtomicInteger recusadas = new AtomicInteger();
+        AtomicInteger erros = new AtomicInteger();
+        HistogramaLatencia latencias = new HistogramaLatencia();
+        CountDownLatch largada = new CountDownLatch(1);
+        CountDownLatch chegada = new CountDownLatch(threads);
+
+        for (int t = 0; t < threads; t++) {
+            new Thread(() -> {
+                try {
+                    largada.await();
+                    for (int i = 0; i < saidasPorThread; i++) {
+                        long inicio = System.nanoTime();
+                        try {
+                            saida.executar();
+                            aceitas.incrementAndGet();
+                        } catch (Exception e) {
+                            if (e.getMessage() != null && e.getMessage().startsWith("Estoque insuficiente")) {
+                                recusadas.incrementAndGet();
+                            } else {
+                                erros.incrementAndGet();
+                            }
+                        }
+                        latencias.registrar(System.nanoTime() - inicio);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    chegada.countDown();
+                }
+            }, "escritor-" + t).start();
+        }
+
+        long inicio = System.nanoTime();
+        largada.countDown();
+        chegada.await();
+        double segundos = (System.nanoTime() - inicio) / 1_000_000_000.0;
+
+        int estoqueFinal = lerEstoque();
+        int registros = contarMovimentacoes();
+        int esperado = estoqueInicial - aceitas.get();
+
+        System.out.println("\n" + nome);
+        System.out.println("-".repeat(70));
+        System.out.printf("   Saídas aceitas: %d, recusadas: %d, erros: %d%n", aceitas.get(), recusadas.get(), erros.get());
+        System.out.printf("   Vazão: %.1f saídas/s (%.3f s)%n", threads * saidasPorThread / segundos, segundos);
+        System.out.println("   Latência: " + latencias.resumoMicros());
+        System.out.printf("   Estoque final: %d (esperado %d) -> %d atualizações perdidas%n",
+                          estoqueFinal, esperado, estoqueFinal - esperado);
+        System.out.printf("   Registros em movimentacoes: %d (esperado %d)%n", registros, aceitas.get());
+        System.out.println("   " + (estoqueFinal == esperado && estoqueFinal >= 0 && registros == aceitas.get()
+                                    ? "✓ Consistente" : "✗ INCONSISTENTE"));
+    }
+
+    /**
+     * Reprodução do algoritmo anterior de MovimentacaoDAO.criar para uma saída de 1 unidade.
+     */
+    private static void saidaLeituraEscrita() throws Exception {
+        try (Connection conn = DatabaseConnection.getInstance().getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                int estoque;
+                try (PreparedStatement stmt = conn.prepareStatement("SELECT estoque_atual FROM produtos WHERE nome = ?")) {
+                    stmt.setString(1, PRODUTO);
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        rs.next();
+                        estoque = rs.getInt(1);
+                    }
+                }
+                int novoEstoque = estoque - 1;
+                if (novoEstoque < 0) {
+                    throw new Exception("Estoque insuficiente. Estoque atual: " + estoque);
+                }
+                try (PreparedStatement stmt = conn.prepareStatement("UPDATE produtos SET estoque_atual = ? WHERE nome = ?")) {
+                    stmt.setInt(1, novoEstoque);
+                    stmt.setString(2, PRODUTO);
+                    stmt.executeUpdate();
+                }
+                inserirSaida(conn);
+                conn.commit();
+            } catch (Exception e) {
+                conn.rollback();
+                throw e;
+            }
+        }
+    }
+
+    private static void inserirSaida(Connection conn) throws SQLException {
+        String sql = CHAVES_INTEIRAS
+                ? "INSERT INTO movimentacoes (produto_id, tipo, quantidade, data_movimentacao) " +
+                  "VALUES ((SELECT id FROM produtos WHERE nome = ?), 'SAIDA', 1, ?)"
+                : "INSERT INTO movimentacoes (produto_nome, tipo, quantidade, data_movimentacao) VALUES (?, 'SAIDA', 1, ?)";
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setString(1, PRODUTO);
+            stmt.setTimestamp(2, Timestamp.valueOf(LocalDateTime.now()));
+            stmt.executeUpdate();
+        }
+    }
+
+    /**
+     * Cria (ou reinicia) a categoria e o produto de teste e apaga as movimentações anteriores dele.
+     */
+    private static void prepararProduto(int estoqueInicial) throws SQLException {
+        try (Connection conn = DatabaseConnection.getInstance().getConnection()) {
+            try (PreparedStatement stmt = conn.prepareStatement(
+                    "INSERT IGNORE INTO categorias (nome, tamanho, embalagem) VALUES (?, 'PEQUENO', 'PLASTICO')")) {
+                stmt.setString(1, CATEGORIA);
+                stmt.executeUpdate();
+            }
+            String categoria = CHAVES_INTEIRAS
+                    ? "categoria_id) SELECT ?, 1.00, 'Unidade', ?, 0, ?, id FROM categorias WHERE nome = ? "
+                    : "categoria_nome) VALUES (?, 1.00, 'Unidade', ?, 0, ?, ?) ";
+            try (PreparedStatement stmt = conn.prepareStatement(
+                    "INSERT INTO produtos (nome, preco, unidade, estoque_atual, estoque_minimo, estoque_maximo, " + categoria +
+                    "ON DUPLICATE KEY UPDATE estoque_atual = ?")) {
+                stmt.setString(1, PRODUTO);
+                stmt.setInt(2, estoqueInicial);
+                stmt.setInt(3, estoqueInicial * 2);
+                stmt.setString(4, CATEGORIA);
+                stmt.setInt(5, estoqueInicial);
+                stmt.executeUpdate();
+            }
+            for (String tabela : new String[] {"movimentacoes", "movimentacoes_resumo"}) {
+                try (PreparedStatement stmt = conn.prepareStatement("DELETE FROM " + tabela + " WHERE " + REFERENCIA_PRODUTO)) {
+                    stmt.setString(1, PRODUTO);
+                    stmt.executeUpdate();
+                }
+            }
+        }
+    }
+
+    private static int lerEstoque() throws SQLException {
+        try (Connection conn = DatabaseConnection.getInstance().getConnection();
+             PreparedStatement stmt = conn.prepareStatement("SELECT estoque_atual FROM produtos WHERE nome = ?")) {
+            stmt.setString(1, PRODUTO);
+            try (ResultSet rs = stmt.executeQuery()) {
+                rs.next();
+                return rs.getInt(1);
+            }
+        }
+    }
+
+    private static int contarMovimentacoes() throws SQLException {
+        try (Connection conn = DatabaseConnection.getInstance().getConnection();
+             PreparedStatement stmt = conn.prepareStatement("SELECT COUNT(*) FROM movimentacoes WHERE " + REFERENCIA_PRODUTO)) {
+            stmt.setString(1, PRODUTO);
+            try (ResultSet rs = stmt.executeQuery()) {
+                rs.next();
+                return rs.getInt(1);
+            }
+        }
+    }
+}
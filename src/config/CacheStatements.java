@@ -0,0 +1,185 @@
+package config;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * PreparedStatements de uma conexão física do pool, reaproveitados entre empréstimos.
+ *
+ * Os DAOs continuam chamando prepareStatement(sql) e close() a cada uso; o close() do
+ * statement entregue só limpa os parâmetros e o devolve ao cache, então o SQL é interpretado
+ * (e, com useServerPrepStmts, preparado no MySQL) uma vez por conexão. O cache guarda os
+ * {@code maximo} SQLs usados mais recentemente e é usado por uma thread de cada vez, como a
+ * própria conexão.
+ *
+ * Statements cujo comportamento foi alterado (fetchSize, timeout, maxRows...) são fechados de
+ * verdade no close(), para não levar a alteração ao próximo uso; um SQL que já está aberto na
+ * mesma conexão é preparado sem passar pelo cache.
+ */
+final class CacheStatements {
+
+    private final int maximo;
+    private final LongAdder reaproveitados;
+    private final LongAdder preparados;
+    private final LinkedHashMap<String, Entrada> entradas;
+
+    /**
+     * Um statement do cache e o proxy entregue aos DAOs.
+     */
+    private final class Entrada {
+        final String sql;
+        final PreparedStatement statement;
+        final PreparedStatement proxy;
+        Connection conexaoProxy;
+        boolean emUso;
+        boolean descartar;
+
+        Entrada(String sql, PreparedStatement statement) {
+            this.sql = sql;
+            this.statement = statement;
+            this.proxy = criarProxy(this);
+        }
+    }
+
+    CacheStatements(int maximo, LongAdder reaproveitados, LongAdder preparados) {
+        this.maximo = maximo;
+        this.reaproveitados = reaproveitados;
+        this.preparados = preparados;
+        this.entradas = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entrada> maisAntiga) {
+                // Um statement em uso só sai do cache quando for fechado
+                if (size() <= CacheStatements.this.maximo || maisAntiga.getValue().emUso) {
+                    return false;
+                }
+                fechar(maisAntiga.getValue());
+                return true;
+            }
+        };
+    }
+
+    /**
+     * prepareStatement(sql) da conexão: o statement do cache, se houver um livre, ou um novo.
+     * {@code conexaoProxy} é a conexão do pool, devolvida por getConnection() do statement.
+     */
+    PreparedStatement preparar(Connection conexao, Connection conexaoProxy, String sql) throws SQLException {
+        Entrada entrada = entradas.get(sql);
+        if (entrada != null && !entrada.emUso) {
+            reaproveitados.increment();
+            entrada.emUso = true;
+            entrada.conexaoProxy = conexaoProxy;
+            return entrada.proxy;
+        }
+        preparados.increment();
+        PreparedStatement statement = conexao.prepareStatement(sql);
+        if (entrada != null) {
+            return statement;
+        }
+        entrada = new Entrada(sql, statement);
+        entrada.emUso = true;
+        entrada.conexaoProxy = conexaoProxy;
+        entradas.put(sql, entrada);
+        return entrada.proxy;
+    }
+
+    /**
+     * Chamado quando a conexão volta ao pool: statements que o DAO não fechou são descartados.
+     */
+    void liberar() {
+        List<Entrada> abertas = new ArrayList<>();
+        for (Entrada entrada : entradas.values()) {
+            if (entrada.emUso) {
+                abertas.add(entrada);
+            }
+        }
+        for (Entrada entrada : abertas) {
+            entradas.remove(entrada.sql);
+            entrada.emUso = false;
+            fechar(entrada);
+        }
+        for (Entrada entrada : entradas.values()) {
+            entrada.conexaoProxy = null;
+        }
+    }
+
+    private void devolver(Entrada entrada) throws SQLException {
+        entrada.emUso = false;
+        entrada.conexaoProxy = null;
+        if (entrada.descartar || entradas.get(entrada.sql) != entrada) {
+            entradas.remove(entrada.sql, entrada);
+            fechar(entrada);
+            return;
+        }
+        try {
+            entrada.statement.clearParameters();
+            entrada.statement.clearBatch();
+            entrada.statement.clearWarnings();
+        } catch (SQLException e) {
+            entradas.remove(entrada.sql, entrada);
+            fechar(entrada);
+        }
+    }
+
+    private static void fechar(Entrada entrada) {
+        try {
+            entrada.statement.close();
+        } catch (SQLException e) {
+            System.err.println("Erro ao fechar statement do cache: " + e.getMessage());
+        }
+    }
+
+    private PreparedStatement criarProxy(Entrada entrada) {
+        InvocationHandler handler = (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "close":
+                    if (entrada.emUso) {
+                        devolver(entrada);
+                    }
+                    return null;
+                case "isClosed":
+                    return !entrada.emUso || entrada.statement.isClosed();
+                case "getConnection":
+                    return entrada.conexaoProxy;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "StatementCache[" + entrada.statement + "]";
+                case "setFetchSize":
+                case "setFetchDirection":
+                case "setMaxRows":
+                case "setLargeMaxRows":
+                case "setMaxFieldSize":
+                case "setQueryTimeout":
+                case "setEscapeProcessing":
+                case "setCursorName":
+                case "setPoolable":
+                case "closeOnCompletion":
+                    entrada.descartar = true;
+                    break;
+                default:
+                    break;
+            }
+            if (!entrada.emUso) {
+                throw new SQLException("Statement já foi fechado");
+            }
+            try {
+                return method.invoke(entrada.statement, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        };
+        return (PreparedStatement) Proxy.newProxyInstance(CacheStatements.class.getClassLoader(),
+                                                          new Class<?>[] { PreparedStatement.class }, handler);
+    }
+}
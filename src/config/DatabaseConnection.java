@@ -9,13 +9,23 @@ import java.io.FileInputStream;
 import java.io.IOException;
 
 /**
- * Gerencia a conexão com o banco de dados MySQL.
- * Utiliza padrão Singleton para garantir uma única instância de conexão.
+ * Gerencia as conexões com o banco de dados MySQL.
+ * Utiliza padrão Singleton para garantir uma única instância do pool de conexões.
  */
 public class DatabaseConnection {
     
+    /**
+     * Parâmetros da URL montada a partir de host/porta/banco. Com useServerPrepStmts cada SQL é
+     * preparado uma vez no MySQL por conexão; cachePrepStmts guarda no Connector/J os statements
+     * fechados fora do cache do pool (ver {@link CacheStatements}).
+     */
+    private static final String PARAMETROS_MYSQL =
+            "?useSSL=false&serverTimezone=America/Sao_Paulo&allowPublicKeyRetrieval=true&rewriteBatchedStatements=true" +
+            "&useServerPrepStmts=true&cachePrepStmts=true&prepStmtCacheSize=250&prepStmtCacheSqlLimit=2048";
+
     private static DatabaseConnection instance;
-    private Connection connection;
+    private PoolConexoes pool;
+    private Properties config = new Properties();
     private String url;
     private String username;
     private String password;
@@ -24,6 +34,8 @@ public class DatabaseConnection {
     private DatabaseConnection() {
         carregarConfiguracao();
         criarBancoSeNaoExistir();
+        pool = new PoolConexoes(url, username, password, config);
+        pool.aquecer();
     }
     
     /**
@@ -51,6 +63,13 @@ public class DatabaseConnection {
             } else {
                 props.load(input);
             }
+            // Propriedades de sistema db.* (-Ddb.url=...) têm prioridade sobre o arquivo
+            for (String chave : System.getProperties().stringPropertyNames()) {
+                if (chave.startsWith("db.")) {
+                    props.setProperty(chave, System.getProperty(chave));
+                }
+            }
+            config = props;
             
             String host = props.getProperty("db.host", "localhost");
             String port = props.getProperty("db.port", "3306");
@@ -58,13 +77,18 @@ public class DatabaseConnection {
             username = props.getProperty("db.username", "root");
             password = props.getProperty("db.password", "");
             
-            url = "jdbc:mysql://" + host + ":" + port + "/" + database + 
-                  "?useSSL=false&serverTimezone=America/Sao_Paulo&allowPublicKeyRetrieval=true";
+            url = props.getProperty("db.url", "").trim();
+            if (url.isEmpty()) {
+                url = "jdbc:mysql://" + host + ":" + port + "/" + database + PARAMETROS_MYSQL;
+                if (lerBooleano(props, "db.importacao.loadData")) {
+                    url += "&allowLoadLocalInfile=true";
+                }
+            }
             
         } catch (IOException e) {
             System.err.println("Erro ao carregar configurações do banco de dados: " + e.getMessage());
             // Usar valores padrão
-            url = "jdbc:mysql://localhost:3306/estoque?useSSL=false&serverTimezone=America/Sao_Paulo&allowPublicKeyRetrieval=true";
+            url = "jdbc:mysql://localhost:3306/estoque" + PARAMETROS_MYSQL;
             username = "root";
             password = "";
             database = "estoque";
@@ -75,6 +99,10 @@ public class DatabaseConnection {
      * Cria o banco de dados se ele não existir.
      */
     private void criarBancoSeNaoExistir() {
+        if (!isMySQL()) {
+            // Com db.url apontando para outro banco, a própria URL indica o banco a usar
+            return;
+        }
         String urlSemDatabase = url.substring(0, url.lastIndexOf("/")) + "/";
         
         try (Connection conn = DriverManager.getConnection(urlSemDatabase, username, password)) {
@@ -87,37 +115,70 @@ public class DatabaseConnection {
     }
     
     /**
-     * Obtém uma conexão com o banco de dados.
-     * Se não houver conexão ativa, cria uma nova.
+     * Obtém uma conexão do pool.
+     * Fechar a conexão (close) a devolve ao pool em vez de encerrá-la.
      */
     public Connection getConnection() throws SQLException {
-        if (connection == null || connection.isClosed()) {
-            connection = DriverManager.getConnection(url, username, password);
-            System.out.println("Conectado ao banco de dados MySQL: " + database);
-        }
-        return connection;
+        return pool.obterConexao();
     }
     
     /**
-     * Fecha a conexão com o banco de dados.
+     * Fecha o pool e todas as conexões com o banco de dados.
      */
     public void closeConnection() {
-        try {
-            if (connection != null && !connection.isClosed()) {
-                connection.close();
-                System.out.println("Conexão com o banco de dados fechada.");
-            }
-        } catch (SQLException e) {
-            System.err.println("Erro ao fechar conexão: " + e.getMessage());
-        }
+        pool.fechar();
+        System.out.println("Conexões com o banco de dados fechadas.");
+    }
+    
+    /**
+     * Retorna as estatísticas do pool de conexões (ativas, ociosas, aguardando, latência de aquisição).
+     */
+    public PoolConexoes.EstatisticasPool getEstatisticasPool() {
+        return pool.getEstatisticas();
+    }
+    
+    /**
+     * Lê um valor numérico de database.properties (ou o padrão, se ausente ou inválido).
+     */
+    public long getConfiguracao(String chave, long padrao) {
+        return PoolConexoes.lerLong(config, chave, padrao);
+    }
+    
+    /**
+     * Indica se o banco usa chaves inteiras (db.chavesInteiras=true): tabelas com id INT como
+     * chave primária e o nome como coluna única, referenciadas por produto_id e categoria_id.
+     */
+    public boolean isChavesInteiras() {
+        return lerBooleano(config, "db.chavesInteiras");
+    }
+    
+    /**
+     * Indica se PRODUTO_IMPORTAR grava por LOAD DATA LOCAL INFILE (db.importacao.loadData=true)
+     * em vez de INSERTs de várias linhas. Só vale para o MySQL, com local_infile ativado no
+     * servidor; a URL montada a partir de host/porta/banco já inclui allowLoadLocalInfile.
+     */
+    public boolean isImportacaoLoadData() {
+        return isMySQL() && lerBooleano(config, "db.importacao.loadData");
+    }
+    
+    private static boolean lerBooleano(Properties props, String chave) {
+        return Boolean.parseBoolean(props.getProperty(chave, "false").trim());
+    }
+    
+    /**
+     * Indica se o banco é o MySQL. Com db.url é possível usar um banco compatível
+     * (ex.: H2 em modo MySQL nos benchmarks); os poucos comandos exclusivos do MySQL
+     * consultam este método.
+     */
+    public boolean isMySQL() {
+        return url.startsWith("jdbc:mysql:");
     }
     
     /**
      * Testa a conexão com o banco de dados.
      */
     public boolean testConnection() {
-        try {
-            Connection conn = getConnection();
+        try (Connection conn = getConnection()) {
             return conn != null && !conn.isClosed();
         } catch (SQLException e) {
             System.err.println("Erro ao testar conexão: " + e.getMessage());
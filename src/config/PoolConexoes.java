@@ -0,0 +1,504 @@
+package config;
+
+import util.HistogramaLatencia;
+import util.Metricas;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.util.Iterator;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Pool limitado de conexões JDBC.
+ * As conexões entregues são proxies: chamar close() devolve a conexão física ao pool
+ * em vez de fechá-la, então o try-with-resources dos DAOs continua válido e
+ * o handshake TCP/autenticação com o MySQL só acontece quando o pool cresce.
+ * Cada conexão física mantém seus PreparedStatements em um {@link CacheStatements}
+ * ({@code db.pool.cacheStatements}), reaproveitados entre os empréstimos.
+ */
+public class PoolConexoes {
+
+    /** Conexões usadas há menos que isso não são validadas novamente no empréstimo. */
+    private static final long VALIDACAO_DISPENSADA_MS = 500;
+
+    private final String url;
+    private final String username;
+    private final String password;
+
+    private final int tamanhoMinimo;
+    private final int tamanhoMaximo;
+    private final long timeoutAquisicaoMs;
+    private final long tempoOciosoMaximoMs;
+    private final long limiteVazamentoMs;
+    /** Guarda a pilha de quem pegou cada conexão; caro (um Throwable por empréstimo), só para depuração. */
+    private final boolean pilhaVazamento;
+    private final int timeoutValidacaoSeg;
+    private final int maximoStatements;
+
+    private final LinkedBlockingDeque<ConexaoFisica> ociosas = new LinkedBlockingDeque<>();
+    private final Set<ConexaoFisica> emprestadas = ConcurrentHashMap.newKeySet();
+    private final Semaphore permissoes;
+    private final AtomicInteger total = new AtomicInteger();
+    private final AtomicInteger aguardando = new AtomicInteger();
+    private final AtomicLong criadas = new AtomicLong();
+    private final AtomicLong destruidas = new AtomicLong();
+    private final AtomicLong timeouts = new AtomicLong();
+    private final AtomicLong vazamentos = new AtomicLong();
+    private final LongAdder statementsReaproveitados = new LongAdder();
+    private final LongAdder statementsPreparados = new LongAdder();
+    private final HistogramaLatencia latenciaAquisicao = new HistogramaLatencia();
+    private final ScheduledExecutorService manutencao;
+    private volatile boolean fechado;
+
+    /**
+     * Cria o pool lendo as chaves {@code db.pool.*} de {@code config}.
+     */
+    public PoolConexoes(String url, String username, String password, Properties config) {
+        this.url = url;
+        this.username = username;
+        this.password = password;
+
+        this.tamanhoMaximo = Math.max(1, lerInt(config, "db.pool.maximo", 10));
+        this.tamanhoMinimo = Math.min(tamanhoMaximo, Math.max(0, lerInt(config, "db.pool.minimo", 2)));
+        this.timeoutAquisicaoMs = lerLong(config, "db.pool.timeoutAquisicaoMs", 5000);
+        this.tempoOciosoMaximoMs = lerLong(config, "db.pool.tempoOciosoMaximoMs", 600000);
+        this.limiteVazamentoMs = lerLong(config, "db.pool.deteccaoVazamentoMs", 60000);
+        this.pilhaVazamento = Boolean.parseBoolean(config.getProperty("db.pool.pilhaVazamento", "false").trim());
+        this.timeoutValidacaoSeg = lerInt(config, "db.pool.timeoutValidacaoSeg", 2);
+        this.maximoStatements = Math.max(0, lerInt(config, "db.pool.cacheStatements", 64));
+
+        this.permissoes = new Semaphore(tamanhoMaximo, true);
+        this.manutencao = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "pool-conexoes-manutencao");
+            t.setDaemon(true);
+            return t;
+        });
+
+        long intervalo = Math.max(1000, Math.min(30000, tempoOciosoMaximoMs / 2));
+        manutencao.scheduleWithFixedDelay(this::executarManutencao, intervalo, intervalo, TimeUnit.MILLISECONDS);
+        publicarMetricas();
+    }
+
+    /**
+     * Publica o estado do pool em {@link Metricas}; um pool criado depois substitui o anterior.
+     */
+    private void publicarMetricas() {
+        Metricas.histograma("estoque_pool_aquisicao_segundos", "Espera para obter uma conexão do pool",
+                            latenciaAquisicao);
+        Metricas.medidor("estoque_pool_conexoes", "Conexões do pool por estado", emprestadas::size, "estado", "ativa");
+        Metricas.medidor("estoque_pool_conexoes", "Conexões do pool por estado", ociosas::size, "estado", "ociosa");
+        Metricas.medidor("estoque_pool_aguardando", "Threads esperando uma conexão", aguardando::get);
+        Metricas.medidor("estoque_pool_maximo", "Tamanho máximo do pool", () -> tamanhoMaximo);
+        Metricas.contador("estoque_pool_timeouts_total", "Aquisições que esgotaram o timeout", timeouts::get);
+        Metricas.contador("estoque_pool_vazamentos_total", "Conexões presas além do limite de vazamento",
+                          vazamentos::get);
+        Metricas.contador("estoque_sql_statements_total", "prepareStatement atendidos pelo cache de statements",
+                          statementsReaproveitados::sum, "resultado", "reaproveitado");
+        Metricas.contador("estoque_sql_statements_total", "prepareStatement atendidos pelo cache de statements",
+                          statementsPreparados::sum, "resultado", "preparado");
+        Metricas.medidor("estoque_sql_statements_acerto_percentual", "Percentual de prepareStatement reaproveitados",
+                         this::getPercentualAcertoStatements);
+    }
+
+    /**
+     * Percentual de chamadas a prepareStatement atendidas pelo cache desde a criação do pool.
+     */
+    public long getPercentualAcertoStatements() {
+        long reaproveitados = statementsReaproveitados.sum();
+        long total = reaproveitados + statementsPreparados.sum();
+        return total == 0 ? 0 : reaproveitados * 100 / total;
+    }
+
+    /**
+     * Abre as conexões mínimas para que as primeiras requisições não paguem o handshake.
+     */
+    public void aquecer() {
+        while (total.get() < tamanhoMinimo && !fechado) {
+            try {
+                ociosas.offerLast(criarConexaoFisica());
+            } catch (SQLException e) {
+                System.err.println("Erro ao pré-abrir conexões do pool: " + e.getMessage());
+                return;
+            }
+        }
+    }
+
+    /**
+     * Empresta uma conexão do pool, aguardando até {@code db.pool.timeoutAquisicaoMs}.
+     * A conexão deve ser fechada (close) para voltar ao pool.
+     */
+    public Connection obterConexao() throws SQLException {
+        if (fechado) {
+            throw new SQLException("Pool de conexões encerrado");
+        }
+
+        long inicio = System.nanoTime();
+        boolean adquiriu;
+        aguardando.incrementAndGet();
+        try {
+            adquiriu = permissoes.tryAcquire(timeoutAquisicaoMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrompido enquanto aguardava conexão do pool", e);
+        } finally {
+            aguardando.decrementAndGet();
+        }
+
+        if (!adquiriu) {
+            timeouts.incrementAndGet();
+            throw new SQLTimeoutException("Tempo esgotado aguardando conexão do pool (" +
+                                          timeoutAquisicaoMs + " ms). " + getEstatisticas());
+        }
+
+        try {
+            ConexaoFisica fisica = emprestarOciosaValida();
+            if (fisica == null) {
+                fisica = criarConexaoFisica();
+            }
+            fisica.emprestadaEm = System.currentTimeMillis();
+            fisica.vazamentoReportado = false;
+            fisica.emprestadaPor = Thread.currentThread().getName();
+            fisica.origem = pilhaVazamento && limiteVazamentoMs > 0
+                            ? new Throwable("Conexão emprestada por " + fisica.emprestadaPor) : null;
+            emprestadas.add(fisica);
+
+            latenciaAquisicao.registrar(System.nanoTime() - inicio);
+            return criarProxy(fisica);
+        } catch (SQLException | RuntimeException e) {
+            permissoes.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Retira a conexão ociosa mais recente, descartando as que falharem na validação.
+     */
+    private ConexaoFisica emprestarOciosaValida() {
+        ConexaoFisica fisica;
+        while ((fisica = ociosas.pollFirst()) != null) {
+            if (System.currentTimeMillis() - fisica.ultimoUso < VALIDACAO_DISPENSADA_MS) {
+                return fisica;
+            }
+            try {
+                if (fisica.conexao.isValid(timeoutValidacaoSeg)) {
+                    return fisica;
+                }
+            } catch (SQLException e) {
+                // conexão inválida: descartar e tentar a próxima
+            }
+            destruir(fisica);
+        }
+        return null;
+    }
+
+    private ConexaoFisica criarConexaoFisica() throws SQLException {
+        total.incrementAndGet();
+        try {
+            Connection conexao = DriverManager.getConnection(url, username, password);
+            criadas.incrementAndGet();
+            CacheStatements statements = maximoStatements > 0
+                    ? new CacheStatements(maximoStatements, statementsReaproveitados, statementsPreparados)
+                    : null;
+            return new ConexaoFisica(conexao, statements);
+        } catch (SQLException e) {
+            total.decrementAndGet();
+            throw e;
+        }
+    }
+
+    /**
+     * Chamado quando o proxy é fechado: restaura o estado da conexão e a devolve às ociosas.
+     */
+    private void devolver(ConexaoFisica fisica) {
+        emprestadas.remove(fisica);
+        try {
+            if (fechado || fisica.conexao.isClosed()) {
+                destruir(fisica);
+                return;
+            }
+            if (!fisica.conexao.getAutoCommit()) {
+                // Transação esquecida aberta: não pode vazar para o próximo usuário
+                fisica.conexao.rollback();
+                fisica.conexao.setAutoCommit(true);
+            }
+            if (fisica.statements != null) {
+                fisica.statements.liberar();
+            }
+            fisica.ultimoUso = System.currentTimeMillis();
+            fisica.origem = null;
+            ociosas.offerFirst(fisica);
+        } catch (SQLException e) {
+            destruir(fisica);
+        } finally {
+            permissoes.release();
+        }
+    }
+
+    private void destruir(ConexaoFisica fisica) {
+        total.decrementAndGet();
+        destruidas.incrementAndGet();
+        try {
+            fisica.conexao.close();
+        } catch (SQLException e) {
+            System.err.println("Erro ao fechar conexão do pool: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Remove conexões ociosas há muito tempo (mantendo o mínimo) e reporta possíveis vazamentos.
+     */
+    private void executarManutencao() {
+        try {
+            long agora = System.currentTimeMillis();
+
+            Iterator<ConexaoFisica> it = ociosas.descendingIterator();
+            while (it.hasNext() && total.get() > tamanhoMinimo) {
+                ConexaoFisica fisica = it.next();
+                if (agora - fisica.ultimoUso > tempoOciosoMaximoMs && ociosas.remove(fisica)) {
+                    destruir(fisica);
+                }
+            }
+            aquecer();
+
+            if (limiteVazamentoMs > 0) {
+                for (ConexaoFisica fisica : emprestadas) {
+                    if (!fisica.vazamentoReportado && agora - fisica.emprestadaEm > limiteVazamentoMs) {
+                        fisica.vazamentoReportado = true;
+                        vazamentos.incrementAndGet();
+                        System.err.println("Possível vazamento de conexão: emprestada por " + fisica.emprestadaPor +
+                                           " há " + (agora - fisica.emprestadaEm) + " ms sem ser fechada" +
+                                           (pilhaVazamento ? "" : " (db.pool.pilhaVazamento=true mostra a origem)"));
+                        Throwable origem = fisica.origem;
+                        if (origem != null) {
+                            origem.printStackTrace();
+                        }
+                    }
+                }
+            }
+        } catch (RuntimeException e) {
+            System.err.println("Erro na manutenção do pool de conexões: " + e.getMessage());
+        }
+    }
+
+    private Connection criarProxy(ConexaoFisica fisica) {
+        AtomicBoolean devolvida = new AtomicBoolean(false);
+
+        InvocationHandler handler = (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "close":
+                    if (devolvida.compareAndSet(false, true)) {
+                        devolver(fisica);
+                    }
+                    return null;
+                case "isClosed":
+                    return devolvida.get() || fisica.conexao.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "ConexaoPool[" + fisica.conexao + "]";
+                default:
+                    break;
+            }
+            if (devolvida.get()) {
+                throw new SQLException("Conexão já foi devolvida ao pool");
+            }
+            if (fisica.statements != null && method.getName().equals("prepareStatement") && args.length == 1) {
+                return fisica.statements.preparar(fisica.conexao, (Connection) proxy, (String) args[0]);
+            }
+            return invocar(fisica.conexao, method, args);
+        };
+
+        return (Connection) Proxy.newProxyInstance(PoolConexoes.class.getClassLoader(),
+                                                   new Class<?>[] { Connection.class }, handler);
+    }
+
+    private static Object invocar(Object alvo, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(alvo, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Retorna um retrato do estado atual do pool.
+     */
+    public EstatisticasPool getEstatisticas() {
+        return new EstatisticasPool(emprestadas.size(), ociosas.size(), aguardando.get(), total.get(),
+                                    tamanhoMaximo, criadas.get(), destruidas.get(), timeouts.get(),
+                                    vazamentos.get(), latenciaAquisicao);
+    }
+
+    /**
+     * Histograma (em nanossegundos) do tempo gasto para obter uma conexão.
+     */
+    public HistogramaLatencia getLatenciaAquisicao() {
+        return latenciaAquisicao;
+    }
+
+    /**
+     * Fecha todas as conexões ociosas. Conexões ainda emprestadas são fechadas quando devolvidas.
+     */
+    public void fechar() {
+        fechado = true;
+        manutencao.shutdownNow();
+        ConexaoFisica fisica;
+        while ((fisica = ociosas.pollFirst()) != null) {
+            destruir(fisica);
+        }
+    }
+
+    private static int lerInt(Properties config, String chave, int padrao) {
+        return (int) lerLong(config, chave, padrao);
+    }
+
+    static long lerLong(Properties config, String chave, long padrao) {
+        String valor = config.getProperty(chave);
+        if (valor == null || valor.trim().isEmpty()) {
+            return padrao;
+        }
+        try {
+            return Long.parseLong(valor.trim());
+        } catch (NumberFormatException e) {
+            System.err.println("Valor inválido para " + chave + ": " + valor + ". Usando " + padrao);
+            return padrao;
+        }
+    }
+
+    /**
+     * Conexão física mantida pelo pool e seus metadados de uso.
+     */
+    private static final class ConexaoFisica {
+        final Connection conexao;
+        /** Null com db.pool.cacheStatements=0. */
+        final CacheStatements statements;
+        volatile long ultimoUso = System.currentTimeMillis();
+        volatile long emprestadaEm;
+        volatile boolean vazamentoReportado;
+        volatile String emprestadaPor;
+        /** Null sem db.pool.pilhaVazamento=true. */
+        volatile Throwable origem;
+
+        ConexaoFisica(Connection conexao, CacheStatements statements) {
+            this.conexao = conexao;
+            this.statements = statements;
+        }
+    }
+
+    /**
+     * Retrato das métricas do pool em um instante.
+     */
+    public static final class EstatisticasPool {
+        private final int ativas;
+        private final int ociosas;
+        private final int aguardando;
+        private final int total;
+        private final int maximo;
+        private final long criadas;
+        private final long destruidas;
+        private final long timeouts;
+        private final long vazamentos;
+        private final long aquisicoes;
+        private final long aquisicaoP50Nanos;
+        private final long aquisicaoP99Nanos;
+        private final long aquisicaoMaxNanos;
+
+        EstatisticasPool(int ativas, int ociosas, int aguardando, int total, int maximo,
+                         long criadas, long destruidas, long timeouts, long vazamentos,
+                         HistogramaLatencia latencia) {
+            this.ativas = ativas;
+            this.ociosas = ociosas;
+            this.aguardando = aguardando;
+            this.total = total;
+            this.maximo = maximo;
+            this.criadas = criadas;
+            this.destruidas = destruidas;
+            this.timeouts = timeouts;
+            this.vazamentos = vazamentos;
+            this.aquisicoes = latencia.getContagem();
+            this.aquisicaoP50Nanos = latencia.percentil(50);
+            this.aquisicaoP99Nanos = latencia.percentil(99);
+            this.aquisicaoMaxNanos = latencia.getMaximo();
+        }
+
+        public int getAtivas() {
+            return ativas;
+        }
+
+        public int getOciosas() {
+            return ociosas;
+        }
+
+        public int getAguardando() {
+            return aguardando;
+        }
+
+        public int getTotal() {
+            return total;
+        }
+
+        public int getMaximo() {
+            return maximo;
+        }
+
+        public long getCriadas() {
+            return criadas;
+        }
+
+        public long getDestruidas() {
+            return destruidas;
+        }
+
+        public long getTimeouts() {
+            return timeouts;
+        }
+
+        public long getVazamentos() {
+            return vazamentos;
+        }
+
+        public long getAquisicoes() {
+            return aquisicoes;
+        }
+
+        public long getAquisicaoP50Nanos() {
+            return aquisicaoP50Nanos;
+        }
+
+        public long getAquisicaoP99Nanos() {
+            return aquisicaoP99Nanos;
+        }
+
+        public long getAquisicaoMaxNanos() {
+            return aquisicaoMaxNanos;
+        }
+
+        @Override
+        public String toString() {
+            return "Pool[ativas=" + ativas + ", ociosas=" + ociosas + ", aguardando=" + aguardando +
+                   ", total=" + total + "/" + maximo + ", criadas=" + criadas + ", destruidas=" + destruidas +
+                   ", timeouts=" + timeouts + ", vazamentos=" + vazamentos +
+                   ", aquisicao p50=" + aquisicaoP50Nanos / 1000 + "us p99=" + aquisicaoP99Nanos / 1000 +
+                   "us max=" + aquisicaoMaxNanos / 1000 + "us]";
+        }
+    }
+}
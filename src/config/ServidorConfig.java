@@ -0,0 +1,108 @@
+package config;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Properties;
+
+/**
+ * Configurações do servidor de sockets, lidas do arquivo servidor.properties.
+ */
+public class ServidorConfig {
+
+    private final Properties props = new Properties();
+
+    public ServidorConfig() {
+        carregar();
+    }
+
+    /**
+     * Carrega o arquivo servidor.properties do classpath ou do diretório do projeto.
+     * Se não existir, todas as chaves usam o valor padrão.
+     */
+    private void carregar() {
+        try (InputStream input = getClass().getClassLoader().getResourceAsStream("servidor.properties")) {
+            if (input == null) {
+                try (FileInputStream fileInput = new FileInputStream("servidor.properties")) {
+                    props.load(fileInput);
+                }
+            } else {
+                props.load(input);
+            }
+        } catch (IOException e) {
+            System.err.println("servidor.properties não encontrado, usando configurações padrão.");
+        }
+    }
+
+    public int getPorta() {
+        return getInt("servidor.porta", 12345);
+    }
+
+    /**
+     * Porta do endpoint HTTP de métricas no formato do Prometheus (0 desativa).
+     */
+    public int getPortaMetricas() {
+        return getInt("servidor.metricas.porta", 0);
+    }
+
+    /**
+     * BLOQUEANTE (uma thread por cliente) ou NIO (seletor único e pool de threads de trabalho).
+     */
+    public String getModo() {
+        return getString("servidor.modo", "BLOQUEANTE").toUpperCase();
+    }
+
+    /**
+     * Máximo de clientes conectados ao mesmo tempo; novas conexões recebem ERROR e são fechadas.
+     */
+    public int getMaxConexoes() {
+        return getInt("servidor.maxConexoes", 5000);
+    }
+
+    /**
+     * Tempo (ms) sem receber comandos após o qual a conexão é encerrada (0 desativa).
+     */
+    public int getTimeoutOciosoMs() {
+        return getInt("servidor.timeoutOciosoMs", 300000);
+    }
+
+    /**
+     * Tempo máximo (ms) aguardando comandos em andamento terminarem no desligamento.
+     */
+    public long getTempoDrenagemMs() {
+        return getInt("servidor.tempoDrenagemMs", 10000);
+    }
+
+    /**
+     * Usa virtual threads (Java 21+) para os clientes quando disponíveis.
+     */
+    public boolean isThreadsVirtuais() {
+        return Boolean.parseBoolean(props.getProperty("servidor.threadsVirtuais", "true").trim());
+    }
+
+    /**
+     * Mantém o estoque em memória e grava as movimentações no banco em segundo plano
+     * (ver service.EstoqueEmMemoria).
+     */
+    public boolean isEstoqueEmMemoria() {
+        return Boolean.parseBoolean(props.getProperty("estoque.memoria", "false").trim());
+    }
+
+    public String getString(String chave, String padrao) {
+        String valor = props.getProperty(chave);
+        return valor == null || valor.trim().isEmpty() ? padrao : valor.trim();
+    }
+
+    public int getInt(String chave, int padrao) {
+        String valor = props.getProperty(chave);
+        if (valor == null || valor.trim().isEmpty()) {
+            return padrao;
+        }
+        try {
+            return Integer.parseInt(valor.trim());
+        } catch (NumberFormatException e) {
+            System.err.println("Valor inválido para " + chave + ": " + valor + ". Usando " + padrao);
+            return padrao;
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package dao;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/**
+ * Registro dos {@link OuvinteEstoque} avisados das gravações feitas pelos DAOs.
+ *
+ * Cada gravação faz o commit e avisa os ouvintes segurando a parte compartilhada de uma trava
+ * de leitura/escrita; {@link FotografiaEstoque} abre sua transação com a parte exclusiva.
+ * Assim, toda alteração presente na fotografia já foi avisada antes dela, e toda alteração
+ * avisada depois não está nela, que é o que permite a quem mantém um estado derivado
+ * recarregá-lo sem perder nem contar duas vezes as gravações concorrentes.
+ */
+public final class AlteracoesEstoque {
+
+    private static final List<OuvinteEstoque> OUVINTES = new CopyOnWriteArrayList<>();
+    private static final ReentrantReadWriteLock TRAVA = new ReentrantReadWriteLock();
+
+    private AlteracoesEstoque() {
+    }
+
+    public static void registrar(OuvinteEstoque ouvinte) {
+        OUVINTES.add(ouvinte);
+    }
+
+    public static void remover(OuvinteEstoque ouvinte) {
+        OUVINTES.remove(ouvinte);
+    }
+
+    /**
+     * Chamado antes do commit (ou do comando em auto-commit) de uma gravação que será avisada;
+     * deve ser seguido de {@link #concluirGravacao()} em um finally.
+     */
+    static void iniciarGravacao() {
+        TRAVA.readLock().lock();
+    }
+
+    static void concluirGravacao() {
+        TRAVA.readLock().unlock();
+    }
+
+    /**
+     * Segura as novas gravações enquanto {@code acao} roda (usado ao abrir uma fotografia).
+     */
+    static void semGravacoes(AcaoSql acao) throws SQLException {
+        TRAVA.writeLock().lock();
+        try {
+            acao.executar();
+        } finally {
+            TRAVA.writeLock().unlock();
+        }
+    }
+
+    interface AcaoSql {
+        void executar() throws SQLException;
+    }
+
+    /**
+     * Avisa todos os ouvintes. Um erro em um ouvinte não afeta a gravação, que já foi confirmada.
+     */
+    static void avisar(Consumer<OuvinteEstoque> aviso) {
+        for (OuvinteEstoque ouvinte : OUVINTES) {
+            try {
+                aviso.accept(ouvinte);
+            } catch (RuntimeException e) {
+                System.err.println("Erro ao avisar alteração de estoque: " + e.getMessage());
+            }
+        }
+    }
+}
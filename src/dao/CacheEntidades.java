@@ -0,0 +1,97 @@
+package dao;
+
+import config.DatabaseConnection;
+import model.Categoria;
+import model.Produto;
+import util.CacheLimitado;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Caches de leitura compartilhados pelos DAOs (valem para o processo todo, já que cada
+ * comando cria seus próprios DAOs). Configurados em database.properties:
+ * db.cache.maximoProdutos, db.cache.maximoCategorias e db.cache.ttlMs.
+ *
+ * Toda escrita feita pelos DAOs invalida as entradas afetadas depois de gravar, incluindo as
+ * alterações de estoque feitas por {@link MovimentacaoDAO}. Alterações feitas direto no banco
+ * por outro processo só aparecem quando a entrada vence (ttlMs).
+ * Os produtos guardados nunca saem do cache: quem lê recebe uma cópia.
+ */
+public final class CacheEntidades {
+
+    static final CacheLimitado<String, Produto> PRODUTOS;
+    static final CacheLimitado<String, Categoria> CATEGORIAS;
+    /** Resultado de CategoriaDAO.listarTodas, guardado em uma única entrada. */
+    static final CacheLimitado<String, List<Categoria>> LISTA_CATEGORIAS;
+    static final String TODAS = "*";
+
+    static {
+        DatabaseConnection db = DatabaseConnection.getInstance();
+        long ttlMs = db.getConfiguracao("db.cache.ttlMs", 30000);
+        int maximoProdutos = (int) db.getConfiguracao("db.cache.maximoProdutos", 10000);
+        int maximoCategorias = (int) db.getConfiguracao("db.cache.maximoCategorias", 1000);
+        PRODUTOS = new CacheLimitado<>("produtos", maximoProdutos, ttlMs);
+        CATEGORIAS = new CacheLimitado<>("categorias", maximoCategorias, ttlMs);
+        LISTA_CATEGORIAS = new CacheLimitado<>("lista de categorias", maximoCategorias > 0 ? 1 : 0, ttlMs);
+    }
+
+    private CacheEntidades() {
+    }
+
+    /**
+     * Chamado depois de qualquer alteração no produto (inclusive de estoque).
+     */
+    static void produtoAlterado(String nome) {
+        PRODUTOS.invalidar(nome);
+    }
+
+    /**
+     * Chamado depois de qualquer alteração em categorias. Os produtos em cache carregam
+     * a categoria, então também são descartados (categorias quase nunca mudam).
+     */
+    static void categoriaAlterada(String nome) {
+        CATEGORIAS.invalidar(nome);
+        LISTA_CATEGORIAS.limpar();
+        PRODUTOS.limpar();
+        MapeadorCategoria.esquecer(nome);
+    }
+
+    static void limparTudo() {
+        PRODUTOS.limpar();
+        CATEGORIAS.limpar();
+        LISTA_CATEGORIAS.limpar();
+        MapeadorCategoria.esquecer(null);
+    }
+
+    static Produto copiar(Produto produto) {
+        if (produto == null) {
+            return null;
+        }
+        return new Produto(produto.getNome(), produto.getPrecoUnitario(), produto.getUnidade(),
+                           produto.getQuantidadeEstoque(), produto.getQuantidadeMinima(),
+                           produto.getQuantidadeMaxima(), copiar(produto.getCategoria()));
+    }
+
+    /**
+     * Categoria é imutável, então a mesma instância pode ser entregue.
+     */
+    static Categoria copiar(Categoria categoria) {
+        return categoria;
+    }
+
+    static List<Categoria> copiar(List<Categoria> categorias) {
+        List<Categoria> copia = new ArrayList<>(categorias.size());
+        for (Categoria categoria : categorias) {
+            copia.add(copiar(categoria));
+        }
+        return copia;
+    }
+
+    /**
+     * Contadores de acertos, falhas e remoções de cada cache.
+     */
+    public static String resumo() {
+        return PRODUTOS.resumo() + "\n" + CATEGORIAS.resumo() + "\n" + LISTA_CATEGORIAS.resumo();
+    }
+}
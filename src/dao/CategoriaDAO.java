@@ -2,6 +2,7 @@ package dao;
 
 import model.Categoria;
 import config.DatabaseConnection;
+import util.HistogramaLatencia;
 
 import java.sql.Connection;
 import java.sql.PreparedStatement;
@@ -16,6 +17,20 @@ import java.util.List;
  */
 public class CategoriaDAO {
     
+    private static final HistogramaLatencia SQL_CRIAR = TemposSql.de("categoria.criar");
+    private static final HistogramaLatencia SQL_BUSCAR = TemposSql.de("categoria.buscar");
+    private static final HistogramaLatencia SQL_LISTAR = TemposSql.de("categoria.listar");
+    private static final HistogramaLatencia SQL_ATUALIZAR = TemposSql.de("categoria.atualizar");
+    private static final HistogramaLatencia SQL_DELETAR = TemposSql.de("categoria.deletar");
+    private static final HistogramaLatencia SQL_LIMPAR = TemposSql.de("categoria.limpar");
+
+    private static final String INSERT_CATEGORIA = "INSERT INTO categorias (nome, tamanho, embalagem) VALUES (?, ?, ?)";
+    private static final String SELECT_POR_NOME = "SELECT nome, tamanho, embalagem FROM categorias WHERE nome = ?";
+    private static final String SELECT_TODAS = "SELECT nome, tamanho, embalagem FROM categorias ORDER BY nome";
+    private static final String UPDATE_CATEGORIA = "UPDATE categorias SET tamanho = ?, embalagem = ? WHERE nome = ?";
+    private static final String DELETE_POR_NOME = "DELETE FROM categorias WHERE nome = ?";
+    private static final String DELETE_TODAS = "DELETE FROM categorias";
+    
     /**
      * Cria uma nova categoria no banco de dados.
      */
@@ -27,69 +42,93 @@ public class CategoriaDAO {
             throw new Exception("Nome da categoria é obrigatório");
         }
         
-        // Verificar se já existe categoria com mesmo nome
-        if (buscarPorNome(categoria.getNome()) != null) {
-            throw new Exception("Já existe uma categoria com este nome");
-        }
-        
-        String sql = "INSERT INTO categorias (nome, tamanho, embalagem) VALUES (?, ?, ?)";
-        
+        long inicio = System.nanoTime();
         try (Connection conn = DatabaseConnection.getInstance().getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
+             PreparedStatement stmt = conn.prepareStatement(INSERT_CATEGORIA)) {
             
             stmt.setString(1, categoria.getNome());
             stmt.setString(2, categoria.getTamanho().toString());
             stmt.setString(3, categoria.getEmbalagem().toString());
             
             stmt.executeUpdate();
+            CacheEntidades.categoriaAlterada(categoria.getNome());
             return categoria;
             
         } catch (SQLException e) {
+            if (e.getErrorCode() == 1062) { // Chave duplicada
+                throw new Exception("Já existe uma categoria com este nome");
+            }
             throw new Exception("Erro ao criar categoria: " + e.getMessage());
+        } finally {
+            SQL_CRIAR.registrar(System.nanoTime() - inicio);
         }
     }
     
     /**
-     * Busca uma categoria pelo nome.
+     * Busca uma categoria pelo nome, passando pelo cache (ver {@link CacheEntidades}).
      */
     public Categoria buscarPorNome(String nome) {
-        String sql = "SELECT nome, tamanho, embalagem FROM categorias WHERE nome = ?";
-        
+        return CacheEntidades.copiar(CacheEntidades.CATEGORIAS.obter(nome, this::buscarNoBanco));
+    }
+    
+    private Categoria buscarNoBanco(String nome) {
+        long inicio = System.nanoTime();
         try (Connection conn = DatabaseConnection.getInstance().getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
+             PreparedStatement stmt = conn.prepareStatement(SELECT_POR_NOME)) {
             
             stmt.setString(1, nome);
             
             try (ResultSet rs = stmt.executeQuery()) {
                 if (rs.next()) {
-                    return criarCategoriaDoResultSet(rs);
+                    return new MapeadorCategoria(rs, "nome").mapear(rs);
                 }
             }
             
         } catch (SQLException e) {
             System.err.println("Erro ao buscar categoria: " + e.getMessage());
+        } finally {
+            SQL_BUSCAR.registrar(System.nanoTime() - inicio);
         }
         
         return null;
     }
     
     /**
-     * Lista todas as categorias.
+     * Lista todas as categorias, passando pelo cache (ver {@link CacheEntidades}).
      */
     public List<Categoria> listarTodas() {
+        long versao = CacheEntidades.LISTA_CATEGORIAS.versao();
+        List<Categoria> categorias = CacheEntidades.LISTA_CATEGORIAS.buscar(CacheEntidades.TODAS);
+        if (categorias == null) {
+            categorias = listarNoBanco();
+            if (categorias == null) {
+                return new ArrayList<>();
+            }
+            CacheEntidades.LISTA_CATEGORIAS.colocar(CacheEntidades.TODAS, categorias, versao);
+        }
+        return CacheEntidades.copiar(categorias);
+    }
+    
+    /**
+     * Retorna null em caso de erro, para que a lista vazia não seja guardada no cache.
+     */
+    private List<Categoria> listarNoBanco() {
         List<Categoria> categorias = new ArrayList<>();
-        String sql = "SELECT nome, tamanho, embalagem FROM categorias ORDER BY nome";
-        
+        long inicio = System.nanoTime();
         try (Connection conn = DatabaseConnection.getInstance().getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql);
+             PreparedStatement stmt = conn.prepareStatement(SELECT_TODAS);
              ResultSet rs = stmt.executeQuery()) {
             
+            MapeadorCategoria mapeador = new MapeadorCategoria(rs, "nome");
             while (rs.next()) {
-                categorias.add(criarCategoriaDoResultSet(rs));
+                categorias.add(mapeador.mapear(rs));
             }
             
         } catch (SQLException e) {
             System.err.println("Erro ao listar categorias: " + e.getMessage());
+            return null;
+        } finally {
+            SQL_LISTAR.registrar(System.nanoTime() - inicio);
         }
         
         return categorias;
@@ -103,25 +142,25 @@ public class CategoriaDAO {
             throw new Exception("Categoria não pode ser nula");
         }
         
-        Categoria categoriaExistente = buscarPorNome(categoriaAtualizada.getNome());
-        if (categoriaExistente == null) {
-            throw new Exception("Categoria não encontrada");
-        }
-        
-        String sql = "UPDATE categorias SET tamanho = ?, embalagem = ? WHERE nome = ?";
-        
+        long inicio = System.nanoTime();
         try (Connection conn = DatabaseConnection.getInstance().getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
+             PreparedStatement stmt = conn.prepareStatement(UPDATE_CATEGORIA)) {
             
             stmt.setString(1, categoriaAtualizada.getTamanho().toString());
             stmt.setString(2, categoriaAtualizada.getEmbalagem().toString());
             stmt.setString(3, categoriaAtualizada.getNome());
             
-            stmt.executeUpdate();
+            int rowsAffected = stmt.executeUpdate();
+            CacheEntidades.categoriaAlterada(categoriaAtualizada.getNome());
+            if (rowsAffected == 0) {
+                throw new Exception("Categoria não encontrada");
+            }
             return categoriaAtualizada;
             
         } catch (SQLException e) {
             throw new Exception("Erro ao atualizar categoria: " + e.getMessage());
+        } finally {
+            SQL_ATUALIZAR.registrar(System.nanoTime() - inicio);
         }
     }
     
@@ -129,25 +168,26 @@ public class CategoriaDAO {
      * Deleta uma categoria pelo nome.
      */
     public boolean deletar(String nome) throws Exception {
-        Categoria categoria = buscarPorNome(nome);
-        if (categoria == null) {
-            throw new Exception("Categoria não encontrada");
-        }
-        
-        String sql = "DELETE FROM categorias WHERE nome = ?";
-        
+        long inicio = System.nanoTime();
         try (Connection conn = DatabaseConnection.getInstance().getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
+             PreparedStatement stmt = conn.prepareStatement(DELETE_POR_NOME)) {
             
             stmt.setString(1, nome);
             int rowsAffected = stmt.executeUpdate();
-            return rowsAffected > 0;
+            CacheEntidades.categoriaAlterada(nome);
+            DicionarioNomes.categoriaRemovida(nome);
+            if (rowsAffected == 0) {
+                throw new Exception("Categoria não encontrada");
+            }
+            return true;
             
         } catch (SQLException e) {
             if (e.getErrorCode() == 1451) { // Foreign key constraint
                 throw new Exception("Não é possível deletar categoria: existem produtos associados");
             }
             throw new Exception("Erro ao deletar categoria: " + e.getMessage());
+        } finally {
+            SQL_DELETAR.registrar(System.nanoTime() - inicio);
         }
     }
     
@@ -155,29 +195,24 @@ public class CategoriaDAO {
      * Remove todas as categorias (cuidado: também remove produtos e movimentações relacionados).
      */
     public void limparTodos() {
-        String sql = "DELETE FROM categorias";
-        
+        long inicio = System.nanoTime();
         try (Connection conn = DatabaseConnection.getInstance().getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
+             PreparedStatement stmt = conn.prepareStatement(DELETE_TODAS)) {
             
-            stmt.executeUpdate();
+            AlteracoesEstoque.iniciarGravacao();
+            try {
+                stmt.executeUpdate();
+                AlteracoesEstoque.avisar(OuvinteEstoque::tudoAlterado);
+            } finally {
+                AlteracoesEstoque.concluirGravacao();
+            }
             
         } catch (SQLException e) {
             System.err.println("Erro ao limpar categorias: " + e.getMessage());
+        } finally {
+            SQL_LIMPAR.registrar(System.nanoTime() - inicio);
+            CacheEntidades.limparTudo();
+            DicionarioNomes.todosRemovidos();
         }
     }
-    
-    /**
-     * Cria um objeto Categoria a partir de um ResultSet.
-     */
-    private Categoria criarCategoriaDoResultSet(ResultSet rs) throws SQLException {
-        String nome = rs.getString("nome");
-        String tamanhoStr = rs.getString("tamanho");
-        String embalagemStr = rs.getString("embalagem");
-        
-        Categoria.Tamanho tamanho = Categoria.Tamanho.valueOf(tamanhoStr);
-        Categoria.Embalagem embalagem = Categoria.Embalagem.valueOf(embalagemStr);
-        
-        return new Categoria(nome, tamanho, embalagem);
-    }
 }
@@ -0,0 +1,13 @@
+package dao;
+
+/**
+ * Recebe, um a um, os registros de uma leitura contínua (ver {@code ProdutoDAO.percorrerTodos}).
+ */
+@FunctionalInterface
+public interface ConsumidorRegistro<T> {
+
+    /**
+     * Processa um registro. Retornar false encerra a leitura sem processar os seguintes.
+     */
+    boolean aceitar(T registro) throws Exception;
+}
@@ -0,0 +1,141 @@
+package dao;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Dicionário nome ↔ id de produtos e categorias, compartilhado pelo processo, usado no
+ * esquema de chaves inteiras ({@link Esquema#CHAVES_INTEIRAS}) para que o protocolo continue
+ * falando nomes enquanto o banco grava e compara inteiros.
+ *
+ * Os ids são lidos do banco na primeira vez que cada nome aparece. Como os DAOs nunca
+ * renomeiam produtos ou categorias, a associação só muda quando o registro é excluído e
+ * recriado; por isso as exclusões feitas pelos DAOs removem o nome do dicionário.
+ */
+final class DicionarioNomes {
+
+    private static final Tabela PRODUTOS = new Tabela("SELECT id FROM produtos WHERE nome = ?",
+                                                      "SELECT nome FROM produtos WHERE id = ?");
+    private static final Tabela CATEGORIAS = new Tabela("SELECT id FROM categorias WHERE nome = ?",
+                                                        "SELECT nome FROM categorias WHERE id = ?");
+
+    private DicionarioNomes() {
+    }
+
+    private static final class Tabela {
+        final Map<String, Integer> ids = new ConcurrentHashMap<>();
+        final Map<Integer, String> nomes = new ConcurrentHashMap<>();
+        final String sqlId;
+        final String sqlNome;
+
+        Tabela(String sqlId, String sqlNome) {
+            this.sqlId = sqlId;
+            this.sqlNome = sqlNome;
+        }
+
+        /**
+         * Id do nome, ou null se não existir no banco (nomes inexistentes não são guardados).
+         */
+        Integer id(Connection conn, String nome) throws SQLException {
+            Integer id = ids.get(nome);
+            if (id == null) {
+                try (PreparedStatement stmt = conn.prepareStatement(sqlId)) {
+                    stmt.setString(1, nome);
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        if (rs.next()) {
+                            id = rs.getInt(1);
+                            associar(nome, id);
+                        }
+                    }
+                }
+            }
+            return id;
+        }
+
+        String nome(Connection conn, int id) throws SQLException {
+            String nome = nomes.get(id);
+            if (nome == null) {
+                try (PreparedStatement stmt = conn.prepareStatement(sqlNome)) {
+                    stmt.setInt(1, id);
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        if (rs.next()) {
+                            nome = rs.getString(1);
+                            associar(nome, id);
+                        }
+                    }
+                }
+            }
+            return nome;
+        }
+
+        void associar(String nome, int id) {
+            ids.put(nome, id);
+            nomes.put(id, nome);
+        }
+
+        void remover(String nome) {
+            Integer id = ids.remove(nome);
+            if (id != null) {
+                nomes.remove(id);
+            }
+        }
+
+        void limpar() {
+            ids.clear();
+            nomes.clear();
+        }
+    }
+
+    /**
+     * Preenche o parâmetro que referencia um produto: o nome, no esquema por nomes, ou o id.
+     * Um nome inexistente vira id 0, que não corresponde a nenhuma linha.
+     */
+    static void definirProduto(Connection conn, PreparedStatement stmt, int indice, String nome) throws SQLException {
+        definir(PRODUTOS, conn, stmt, indice, nome);
+    }
+
+    /**
+     * Preenche o parâmetro que referencia uma categoria (ver {@link #definirProduto}).
+     */
+    static void definirCategoria(Connection conn, PreparedStatement stmt, int indice, String nome) throws SQLException {
+        definir(CATEGORIAS, conn, stmt, indice, nome);
+    }
+
+    private static void definir(Tabela tabela, Connection conn, PreparedStatement stmt, int indice, String nome)
+            throws SQLException {
+        if (!Esquema.CHAVES_INTEIRAS) {
+            stmt.setString(indice, nome);
+            return;
+        }
+        Integer id = tabela.id(conn, nome);
+        stmt.setInt(indice, id != null ? id : 0);
+    }
+
+    static String nomeDoProduto(Connection conn, int id) throws SQLException {
+        return PRODUTOS.nome(conn, id);
+    }
+
+    static void produtoRemovido(String nome) {
+        PRODUTOS.remover(nome);
+    }
+
+    static void categoriaRemovida(String nome) {
+        CATEGORIAS.remover(nome);
+    }
+
+    static void produtosRemovidos() {
+        PRODUTOS.limpar();
+    }
+
+    /**
+     * Remover todas as categorias remove também os produtos (e suas movimentações).
+     */
+    static void todosRemovidos() {
+        PRODUTOS.limpar();
+        CATEGORIAS.limpar();
+    }
+}
@@ -0,0 +1,36 @@
+package dao;
+
+import config.DatabaseConnection;
+
+/**
+ * Trechos de SQL que dependem do esquema em uso (db.chavesInteiras em database.properties).
+ *
+ * No esquema por nomes (padrão), produtos e categorias têm o nome como chave primária e são
+ * referenciados por produto_nome e categoria_nome. No esquema de chaves inteiras, cada tabela
+ * tem um id INT e o nome fica como coluna única; as referências passam a ser produto_id e
+ * categoria_id, e os ids são obtidos pelo {@link DicionarioNomes}. Consultas por nome
+ * (WHERE nome = ?) funcionam igual nos dois esquemas.
+ */
+final class Esquema {
+
+    static final boolean CHAVES_INTEIRAS = DatabaseConnection.getInstance().isChavesInteiras();
+
+    /** Coluna de movimentacoes que referencia o produto. */
+    static final String PRODUTO_DA_MOVIMENTACAO = CHAVES_INTEIRAS ? "produto_id" : "produto_nome";
+
+    /** Coluna de produtos que referencia a categoria. */
+    static final String CATEGORIA_DO_PRODUTO = CHAVES_INTEIRAS ? "categoria_id" : "categoria_nome";
+
+    /** Junção de movimentacoes m com produtos p. */
+    static final String JUNCAO_PRODUTO = CHAVES_INTEIRAS
+            ? "INNER JOIN produtos p ON m.produto_id = p.id "
+            : "INNER JOIN produtos p ON m.produto_nome = p.nome ";
+
+    /** Junção de produtos p com categorias c. */
+    static final String JUNCAO_CATEGORIA = CHAVES_INTEIRAS
+            ? "INNER JOIN categorias c ON p.categoria_id = c.id "
+            : "INNER JOIN categorias c ON p.categoria_nome = c.nome ";
+
+    private Esquema() {
+    }
+}
@@ -0,0 +1,291 @@
+package dao;
+
+import config.DatabaseConnection;
+import model.Categoria;
+import model.Produto;
+import model.TotaisCategoria;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Leitura de produtos e movimentações em uma única fotografia do banco
+ * (START TRANSACTION WITH CONSISTENT SNAPSHOT), alinhada com os avisos de
+ * {@link AlteracoesEstoque}: o {@code aoAbrir} de {@link #abrir} roda junto com a abertura,
+ * sem gravações em andamento, então a fotografia contém exatamente as alterações avisadas
+ * antes dele. Usada para recarregar e conferir estados mantidos a partir dos avisos.
+ *
+ * A fotografia pode ser aberta em várias conexões do pool: todas as transações começam
+ * dentro do mesmo {@link AlteracoesEstoque#semGravacoes}, então enxergam o mesmo estado, e as
+ * leituras podem ser feitas em paralelo por várias threads. Cada leitura usa uma conexão livre
+ * enquanto dura (esperando uma, se todas estiverem ocupadas).
+ *
+ * As fotografias abertas ao mesmo tempo dividem um limite de conexões, abaixo de
+ * db.pool.maximo para sobrar conexões para os comandos: uma fotografia que pede mais conexões
+ * do que o limite recebe o limite, e uma que não cabe espera as abertas fecharem antes de
+ * pegar qualquer conexão, então duas aberturas nunca ficam esperando uma pela outra.
+ */
+public final class FotografiaEstoque implements AutoCloseable {
+
+    private final List<Connection> conexoes = new ArrayList<>();
+    private final List<Integer> isolamentosOriginais = new ArrayList<>();
+    private final BlockingQueue<Connection> livres;
+    /** Conexões reservadas em {@link #RESERVAS}, devolvidas no close(). */
+    private int reservadas;
+
+    /** Conexões do pool que as fotografias podem usar juntas: db.pool.maximo menos um quarto (ao menos uma). */
+    private static final int LIMITE_CONEXOES;
+    private static final Semaphore RESERVAS;
+
+    static {
+        int maximo = (int) Math.max(1, DatabaseConnection.getInstance().getConfiguracao("db.pool.maximo", 10));
+        LIMITE_CONEXOES = Math.max(1, maximo - Math.max(1, maximo / 4));
+        RESERVAS = new Semaphore(LIMITE_CONEXOES, true);
+    }
+
+    private FotografiaEstoque(int conexoes) {
+        this.livres = new ArrayBlockingQueue<>(conexoes);
+    }
+
+    /**
+     * Conexões que uma fotografia pedindo {@code conexoes} recebe (para dimensionar as threads de leitura).
+     */
+    public static int conexoesPermitidas(int conexoes) {
+        return Math.max(1, Math.min(conexoes, LIMITE_CONEXOES));
+    }
+
+    public static FotografiaEstoque abrir(Runnable aoAbrir) throws Exception {
+        return abrir(1, aoAbrir);
+    }
+
+    /**
+     * Abre a fotografia em {@code conexoes} conexões do pool (no máximo {@link #conexoesPermitidas}).
+     */
+    public static FotografiaEstoque abrir(int conexoes, Runnable aoAbrir) throws Exception {
+        int permitidas = conexoesPermitidas(conexoes);
+        try {
+            RESERVAS.acquire(permitidas);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new Exception("Abertura da fotografia do estoque interrompida");
+        }
+        FotografiaEstoque fotografia = new FotografiaEstoque(permitidas);
+        fotografia.reservadas = permitidas;
+        boolean aberta = false;
+        try {
+            for (int i = 0; i < permitidas; i++) {
+                Connection conn = DatabaseConnection.getInstance().getConnection();
+                fotografia.conexoes.add(conn);
+                fotografia.isolamentosOriginais.add(conn.getTransactionIsolation());
+                conn.setTransactionIsolation(Connection.TRANSACTION_REPEATABLE_READ);
+                conn.setAutoCommit(false);
+            }
+            AlteracoesEstoque.semGravacoes(() -> {
+                // Fora do MySQL (db.url), a transação começa na primeira leitura
+                String inicio = DatabaseConnection.getInstance().isMySQL()
+                        ? "START TRANSACTION WITH CONSISTENT SNAPSHOT" : "SELECT COUNT(*) FROM categorias";
+                for (Connection conn : fotografia.conexoes) {
+                    try (Statement stmt = conn.createStatement()) {
+                        stmt.execute(inicio);
+                    }
+                }
+                aoAbrir.run();
+            });
+            fotografia.livres.addAll(fotografia.conexoes);
+            aberta = true;
+            return fotografia;
+        } catch (SQLException e) {
+            throw new Exception("Erro ao abrir fotografia do estoque: " + e.getMessage());
+        } finally {
+            if (!aberta) {
+                fotografia.close();
+            }
+        }
+    }
+
+    private Connection emprestar() throws Exception {
+        try {
+            return livres.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new Exception("Leitura da fotografia do estoque interrompida");
+        }
+    }
+
+    private void devolver(Connection conn) {
+        livres.add(conn);
+    }
+
+    /**
+     * Nomes das categorias, para dividir a leitura dos produtos ({@link #percorrerProdutos(String, ConsumidorRegistro)}).
+     */
+    public List<String> categorias() throws Exception {
+        List<String> categorias = new ArrayList<>();
+        Connection conn = emprestar();
+        try (PreparedStatement stmt = conn.prepareStatement("SELECT nome FROM categorias");
+             ResultSet rs = stmt.executeQuery()) {
+            while (rs.next()) {
+                categorias.add(rs.getString("nome"));
+            }
+        } catch (SQLException e) {
+            throw new Exception("Erro ao ler categorias da fotografia: " + e.getMessage());
+        } finally {
+            devolver(conn);
+        }
+        return categorias;
+    }
+
+    /**
+     * Produtos com nome, preço, estoque atual, estoque mínimo e nome da categoria
+     * (os demais campos ficam vazios).
+     */
+    public void percorrerProdutos(ConsumidorRegistro<Produto> consumidor) throws Exception {
+        percorrerProdutos(null, consumidor);
+    }
+
+    /**
+     * Produtos de uma categoria ({@code nomeCategoria} null para todos), como em {@link #percorrerProdutos(ConsumidorRegistro)}.
+     */
+    public void percorrerProdutos(String nomeCategoria, ConsumidorRegistro<Produto> consumidor) throws Exception {
+        String sql = "SELECT p.nome, p.preco, p.estoque_atual, p.estoque_minimo, c.nome AS categoria_nome " +
+                     "FROM produtos p " +
+                     Esquema.JUNCAO_CATEGORIA +
+                     (nomeCategoria != null ? "WHERE c.nome = ?" : "");
+        Connection conn = emprestar();
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            if (nomeCategoria != null) {
+                stmt.setString(1, nomeCategoria);
+            }
+            try (ResultSet rs = stmt.executeQuery()) {
+                int nome = rs.findColumn("nome");
+                int preco = rs.findColumn("preco");
+                int estoqueAtual = rs.findColumn("estoque_atual");
+                int estoqueMinimo = rs.findColumn("estoque_minimo");
+                int categoriaNome = rs.findColumn("categoria_nome");
+                // Uma Categoria (só com o nome) por categoria, compartilhada pelos produtos dela
+                Map<String, Categoria> categorias = new HashMap<>();
+                while (rs.next()) {
+                    Categoria categoria = categorias.computeIfAbsent(rs.getString(categoriaNome),
+                                                                     n -> new Categoria(n, null, null));
+                    Produto produto = new Produto(rs.getString(nome), rs.getBigDecimal(preco), null,
+                                                  rs.getInt(estoqueAtual), rs.getInt(estoqueMinimo), 0, categoria);
+                    if (!consumidor.aceitar(produto)) {
+                        return;
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            throw new Exception("Erro ao ler produtos da fotografia: " + e.getMessage());
+        } finally {
+            devolver(conn);
+        }
+    }
+
+    /**
+     * Quantidade de movimentações de cada produto que tem alguma.
+     */
+    public Map<String, Integer> contarMovimentacoes() throws Exception {
+        String sql = "SELECT p.nome, t.total FROM (SELECT " + Esquema.PRODUTO_DA_MOVIMENTACAO + " AS produto, " +
+                     "COUNT(*) AS total FROM movimentacoes GROUP BY " + Esquema.PRODUTO_DA_MOVIMENTACAO + ") t " +
+                     "INNER JOIN produtos p ON t.produto = p." + (Esquema.CHAVES_INTEIRAS ? "id" : "nome");
+        Map<String, Integer> contagem = new HashMap<>();
+        Connection conn = emprestar();
+        try (PreparedStatement stmt = conn.prepareStatement(sql);
+             ResultSet rs = stmt.executeQuery()) {
+            while (rs.next()) {
+                contagem.put(rs.getString("nome"), rs.getInt("total"));
+            }
+        } catch (SQLException e) {
+            throw new Exception("Erro ao contar movimentações da fotografia: " + e.getMessage());
+        } finally {
+            devolver(conn);
+        }
+        return contagem;
+    }
+
+    /**
+     * Totais de cada categoria que tem produtos, calculados pelo banco.
+     */
+    public Map<String, TotaisCategoria> totaisPorCategoria() throws Exception {
+        String sql = "SELECT c.nome AS categoria_nome, COUNT(*) AS produtos, SUM(p.estoque_atual) AS unidades, " +
+                     "SUM(p.preco * p.estoque_atual) AS valor " +
+                     "FROM produtos p " +
+                     Esquema.JUNCAO_CATEGORIA +
+                     "GROUP BY c.nome";
+        Map<String, TotaisCategoria> totais = new HashMap<>();
+        Connection conn = emprestar();
+        try (PreparedStatement stmt = conn.prepareStatement(sql);
+             ResultSet rs = stmt.executeQuery()) {
+            while (rs.next()) {
+                String categoria = rs.getString("categoria_nome");
+                BigDecimal valor = rs.getBigDecimal("valor");
+                totais.put(categoria, new TotaisCategoria(categoria, rs.getLong("produtos"), rs.getLong("unidades"),
+                                                          valor != null ? valor : BigDecimal.ZERO));
+            }
+        } catch (SQLException e) {
+            throw new Exception("Erro ao totalizar categorias da fotografia: " + e.getMessage());
+        } finally {
+            devolver(conn);
+        }
+        return totais;
+    }
+
+    /**
+     * Nomes dos produtos com estoque abaixo do mínimo.
+     */
+    public Set<String> nomesAbaixoDoMinimo() throws Exception {
+        String sql = "SELECT nome FROM produtos WHERE estoque_atual < estoque_minimo";
+        Set<String> nomes = new HashSet<>();
+        Connection conn = emprestar();
+        try (PreparedStatement stmt = conn.prepareStatement(sql);
+             ResultSet rs = stmt.executeQuery()) {
+            while (rs.next()) {
+                nomes.add(rs.getString("nome"));
+            }
+        } catch (SQLException e) {
+            throw new Exception("Erro ao ler produtos abaixo do mínimo da fotografia: " + e.getMessage());
+        } finally {
+            devolver(conn);
+        }
+        return nomes;
+    }
+
+    @Override
+    public void close() {
+        for (int i = 0; i < conexoes.size(); i++) {
+            Connection conn = conexoes.get(i);
+            try {
+                conn.rollback();
+                conn.setAutoCommit(true);
+                if (i < isolamentosOriginais.size()) {
+                    conn.setTransactionIsolation(isolamentosOriginais.get(i));
+                }
+            } catch (SQLException e) {
+                System.err.println("Erro ao encerrar fotografia do estoque: " + e.getMessage());
+            }
+            try {
+                conn.close();
+            } catch (SQLException e) {
+                System.err.println("Erro ao devolver conexão: " + e.getMessage());
+            }
+        }
+        conexoes.clear();
+        if (reservadas > 0) {
+            RESERVAS.release(reservadas);
+            reservadas = 0;
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package dao;
+
+import config.DatabaseConnection;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Consultas lidas linha a linha, sem carregar o resultado em memória: com
+ * setFetchSize(Integer.MIN_VALUE) o Connector/J entrega cada linha conforme ela chega do
+ * servidor, então o consumo de memória não depende do tamanho da tabela.
+ *
+ * Enquanto a leitura não termina a conexão fica presa a ela. Se o consumidor parar antes do
+ * fim (ou falhar), a consulta é cancelada no servidor (KILL QUERY) antes de fechar o
+ * ResultSet; sem isso o driver leria todas as linhas restantes para liberar a conexão.
+ * Consumidores lentos são tolerados até netTimeoutForStreamingResults (600 s por padrão).
+ */
+final class LeituraContinua {
+
+    @FunctionalInterface
+    interface Mapeador<T> {
+        T mapear(ResultSet rs) throws SQLException;
+    }
+
+    /**
+     * Cria o mapeador de um ResultSet já aberto, para que ele resolva as colunas uma vez.
+     */
+    @FunctionalInterface
+    interface FabricaMapeador<T> {
+        Mapeador<T> criar(ResultSet rs) throws SQLException;
+    }
+
+    private LeituraContinua() {
+    }
+
+    /**
+     * Executa {@code sql} e entrega cada linha ao consumidor. Retorna quantos registros ele aceitou.
+     */
+    static <T> long percorrer(String sql, FabricaMapeador<T> fabrica, ConsumidorRegistro<T> consumidor,
+                              String mensagemErro) throws Exception {
+        try (Connection conn = DatabaseConnection.getInstance().getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY,
+                                                            ResultSet.CONCUR_READ_ONLY)) {
+            stmt.setFetchSize(Integer.MIN_VALUE);
+            
+            ResultSet rs = stmt.executeQuery();
+            long aceitos = 0;
+            boolean completa = false;
+            try {
+                Mapeador<T> mapeador = fabrica.criar(rs);
+                while (rs.next()) {
+                    if (!consumidor.aceitar(mapeador.mapear(rs))) {
+                        return aceitos;
+                    }
+                    aceitos++;
+                }
+                completa = true;
+                return aceitos;
+            } finally {
+                if (!completa) {
+                    cancelar(stmt);
+                }
+                fechar(rs);
+            }
+            
+        } catch (SQLException e) {
+            throw new Exception(mensagemErro + e.getMessage());
+        }
+    }
+
+    private static void cancelar(PreparedStatement stmt) {
+        try {
+            stmt.cancel();
+        } catch (SQLException e) {
+            System.err.println("Erro ao cancelar leitura contínua: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Depois do cancelamento o fechamento pode reportar a consulta interrompida; isso é esperado.
+     */
+    private static void fechar(ResultSet rs) {
+        try {
+            rs.close();
+        } catch (SQLException e) {
+            // consulta cancelada
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package dao;
+
+import model.Categoria;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Converte as colunas de categoria de um ResultSet (nome, tamanho e embalagem) em
+ * {@link Categoria}. É criado para um ResultSet: os índices das colunas são resolvidos uma vez,
+ * no construtor, e os enums vêm de tabelas montadas na carga da classe, sem valueOf por linha.
+ *
+ * As categorias devolvidas são canônicas: há uma instância por nome no processo, reaproveitada
+ * enquanto tamanho e embalagem forem os mesmos. Uma listagem de um milhão de produtos
+ * compartilha as poucas categorias existentes em vez de criar uma por linha.
+ */
+final class MapeadorCategoria implements LeituraContinua.Mapeador<Categoria> {
+
+    private static final Categoria.Tamanho[] TAMANHOS = Categoria.Tamanho.values();
+    private static final Categoria.Embalagem[] EMBALAGENS = Categoria.Embalagem.values();
+    private static final Map<String, Categoria> CANONICAS = new ConcurrentHashMap<>();
+
+    private final int nome;
+    private final int tamanho;
+    private final int embalagem;
+    /** Categoria da linha anterior: produtos vizinhos costumam ter a mesma. */
+    private Categoria ultima;
+
+    /**
+     * {@code colunaNome} é o rótulo da coluna com o nome da categoria (categoria_nome nas
+     * consultas de produtos, nome na de categorias).
+     */
+    MapeadorCategoria(ResultSet rs, String colunaNome) throws SQLException {
+        nome = rs.findColumn(colunaNome);
+        tamanho = rs.findColumn("tamanho");
+        embalagem = rs.findColumn("embalagem");
+    }
+
+    @Override
+    public Categoria mapear(ResultSet rs) throws SQLException {
+        String nomeCategoria = rs.getString(nome);
+        Categoria.Tamanho t = constante(TAMANHOS, rs.getString(tamanho));
+        Categoria.Embalagem e = constante(EMBALAGENS, rs.getString(embalagem));
+        Categoria categoria = ultima;
+        if (categoria == null || categoria.getTamanho() != t || categoria.getEmbalagem() != e ||
+                !categoria.getNome().equals(nomeCategoria)) {
+            categoria = canonica(nomeCategoria, t, e);
+            ultima = categoria;
+        }
+        return categoria;
+    }
+
+    /**
+     * Instância compartilhada da categoria; uma categoria alterada substitui a anterior.
+     */
+    static Categoria canonica(String nome, Categoria.Tamanho tamanho, Categoria.Embalagem embalagem) {
+        Categoria categoria = CANONICAS.get(nome);
+        if (categoria == null || categoria.getTamanho() != tamanho || categoria.getEmbalagem() != embalagem) {
+            categoria = new Categoria(nome, tamanho, embalagem);
+            CANONICAS.put(nome, categoria);
+        }
+        return categoria;
+    }
+
+    /**
+     * Chamado quando a categoria é alterada ou removida pelos DAOs ({@code null} para todas).
+     */
+    static void esquecer(String nome) {
+        if (nome == null) {
+            CANONICAS.clear();
+        } else {
+            CANONICAS.remove(nome);
+        }
+    }
+
+    /**
+     * Constante com o nome lido do banco. Os enums têm poucos valores, então a comparação
+     * direta sai mais barata que o valueOf (hash do texto e busca no mapa do enum).
+     */
+    static <E extends Enum<E>> E constante(E[] constantes, String valor) throws SQLException {
+        for (E constante : constantes) {
+            if (constante.name().equals(valor)) {
+                return constante;
+            }
+        }
+        throw new SQLException("Valor inesperado no banco: " + valor);
+    }
+}
@@ -0,0 +1,48 @@
+package dao;
+
+import model.Produto;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Converte as linhas das consultas de produtos (com as colunas da categoria) em {@link Produto},
+ * usado pelos DAOs de produtos e de movimentações. Como o {@link MapeadorCategoria}, é criado
+ * para um ResultSet e resolve os índices das colunas uma vez; a categoria de cada produto é a
+ * instância canônica.
+ */
+final class MapeadorProduto implements LeituraContinua.Mapeador<Produto> {
+
+    private final int nome;
+    private final int preco;
+    private final int unidade;
+    private final int estoqueAtual;
+    private final int estoqueMinimo;
+    private final int estoqueMaximo;
+    private final MapeadorCategoria categoria;
+
+    MapeadorProduto(ResultSet rs) throws SQLException {
+        this(rs, "nome");
+    }
+
+    /**
+     * {@code colunaNome} é o rótulo da coluna com o nome do produto (produto_nome nas
+     * consultas de movimentações).
+     */
+    MapeadorProduto(ResultSet rs, String colunaNome) throws SQLException {
+        nome = rs.findColumn(colunaNome);
+        preco = rs.findColumn("preco");
+        unidade = rs.findColumn("unidade");
+        estoqueAtual = rs.findColumn("estoque_atual");
+        estoqueMinimo = rs.findColumn("estoque_minimo");
+        estoqueMaximo = rs.findColumn("estoque_maximo");
+        categoria = new MapeadorCategoria(rs, "categoria_nome");
+    }
+
+    @Override
+    public Produto mapear(ResultSet rs) throws SQLException {
+        return new Produto(rs.getString(nome), rs.getBigDecimal(preco), rs.getString(unidade),
+                           rs.getInt(estoqueAtual), rs.getInt(estoqueMinimo), rs.getInt(estoqueMaximo),
+                           categoria.mapear(rs));
+    }
+}
@@ -5,13 +5,24 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Timestamp;
+import java.text.Collator;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
 
 import config.DatabaseConnection;
 import model.Movimentacao;
+import model.Pagina;
 import model.Produto;
+import model.ResultadoMovimentacao;
+import util.HistogramaLatencia;
+import util.Metricas;
 
 /**
  * DAO para acesso aos dados de Movimentacao usando MySQL.
@@ -19,6 +30,65 @@ import model.Produto;
  */
 public class MovimentacaoDAO {
     
+    /** Tamanho máximo da lista do IN ao bloquear os produtos de um lote. */
+    private static final int NOMES_POR_CONSULTA = 1000;
+    /** Linhas acumuladas antes de enviar o batch de INSERT. */
+    private static final int LINHAS_POR_BATCH = 1000;
+    /** Maior página aceita pelas buscas paginadas. */
+    public static final int LIMITE_MAXIMO_PAGINA = 1000;
+    
+    private static final HistogramaLatencia SQL_CRIAR = TemposSql.de("movimentacao.criar");
+    private static final HistogramaLatencia SQL_CRIAR_LOTE = TemposSql.de("movimentacao.criarLote");
+    private static final HistogramaLatencia SQL_GRAVAR_APLICADAS = TemposSql.de("movimentacao.gravarAplicadas");
+    private static final HistogramaLatencia SQL_LER_SEQUENCIA = TemposSql.de("movimentacao.lerSequenciaDiario");
+    private static final HistogramaLatencia SQL_LISTAR = TemposSql.de("movimentacao.listar");
+    private static final HistogramaLatencia SQL_BUSCAR_PRODUTO = TemposSql.de("movimentacao.buscarPorProduto");
+    private static final HistogramaLatencia SQL_BUSCAR_TIPO = TemposSql.de("movimentacao.buscarPorTipo");
+    private static final HistogramaLatencia SQL_BUSCAR_ENTRADAS = TemposSql.de("movimentacao.buscarEntradasPorProduto");
+    private static final HistogramaLatencia SQL_BUSCAR_SAIDAS = TemposSql.de("movimentacao.buscarSaidasPorProduto");
+    private static final HistogramaLatencia SQL_BUSCAR_PAGINA = TemposSql.de("movimentacao.buscarPagina");
+    private static final HistogramaLatencia SQL_CONTAR_POR_PRODUTO = TemposSql.de("movimentacao.contarPorProduto");
+    private static final HistogramaLatencia SQL_LIMPAR = TemposSql.de("movimentacao.limpar");
+
+    private static final String UPSERT_SEQUENCIA_DIARIO =
+            "INSERT INTO diario_controle (id, sequencia) VALUES (1, ?) " +
+            "ON DUPLICATE KEY UPDATE sequencia = VALUES(sequencia)";
+    private static final String SELECT_SEQUENCIA_DIARIO = "SELECT sequencia FROM diario_controle WHERE id = 1";
+    private static final String UPDATE_SOMAR_ESTOQUE = "UPDATE produtos SET estoque_atual = estoque_atual + ? WHERE nome = ?";
+    private static final String UPDATE_SUBTRAIR_ESTOQUE =
+            "UPDATE produtos SET estoque_atual = estoque_atual - ? WHERE nome = ? AND estoque_atual >= ?";
+    private static final String SELECT_ESTOQUE = "SELECT estoque_atual FROM produtos WHERE nome = ?";
+    private static final String INSERT_MOVIMENTACAO =
+            "INSERT INTO movimentacoes (" + Esquema.PRODUTO_DA_MOVIMENTACAO + ", tipo, quantidade, data_movimentacao) " +
+            "VALUES (?, ?, ?, ?)";
+    private static final String SELECT_MOVIMENTACAO =
+            "SELECT m.id, p.nome AS produto_nome, m.tipo, m.quantidade, m.data_movimentacao, " +
+            "p.preco, p.unidade, p.estoque_atual, p.estoque_minimo, p.estoque_maximo, " +
+            "c.nome as categoria_nome, c.tamanho, c.embalagem " +
+            "FROM movimentacoes m " +
+            Esquema.JUNCAO_PRODUTO +
+            Esquema.JUNCAO_CATEGORIA;
+    private static final String SELECT_TODAS = SELECT_MOVIMENTACAO + "ORDER BY m.data_movimentacao DESC";
+    private static final String SELECT_POR_PRODUTO =
+            SELECT_MOVIMENTACAO + "WHERE m." + Esquema.PRODUTO_DA_MOVIMENTACAO + " = ? ORDER BY m.data_movimentacao DESC";
+    private static final String SELECT_POR_TIPO = SELECT_MOVIMENTACAO + "WHERE m.tipo = ? ORDER BY m.data_movimentacao DESC";
+    private static final String SELECT_ENTRADAS_POR_PRODUTO =
+            SELECT_MOVIMENTACAO + "WHERE m." + Esquema.PRODUTO_DA_MOVIMENTACAO + " = ? AND m.tipo = 'ENTRADA' " +
+            "ORDER BY m.data_movimentacao DESC";
+    private static final String SELECT_SAIDAS_POR_PRODUTO =
+            SELECT_MOVIMENTACAO + "WHERE m." + Esquema.PRODUTO_DA_MOVIMENTACAO + " = ? AND m.tipo = 'SAIDA' " +
+            "ORDER BY m.data_movimentacao DESC";
+    private static final String CONTAR_POR_PRODUTO =
+            "SELECT " + Esquema.PRODUTO_DA_MOVIMENTACAO + ", COUNT(*) AS total FROM movimentacoes " +
+            "GROUP BY " + Esquema.PRODUTO_DA_MOVIMENTACAO + " ORDER BY total DESC" +
+            (Esquema.CHAVES_INTEIRAS ? "" : ", produto_nome");
+    private static final String DELETE_TODAS = "DELETE FROM movimentacoes";
+
+    private static final Metricas.Contador COMMITS =
+        Metricas.contador("estoque_transacoes_total", "Transações de movimentação encerradas", "resultado", "commit");
+    private static final Metricas.Contador ROLLBACKS =
+        Metricas.contador("estoque_transacoes_total", "Transações de movimentação encerradas", "resultado", "rollback");
+    
     /**
      * Cria uma nova movimentação no banco de dados e atualiza o estoque do produto.
      */
@@ -32,136 +102,421 @@ public class MovimentacaoDAO {
         
         Connection conn = null;
         boolean originalAutoCommit = true;
+        long inicio = System.nanoTime();
         try {
             conn = DatabaseConnection.getInstance().getConnection();
-            // Verificar se a conexão está válida
-            if (conn.isClosed()) {
-                // Forçar nova conexão
-                conn = DatabaseConnection.getInstance().getConnection();
-            }
             originalAutoCommit = conn.getAutoCommit();
             conn.setAutoCommit(false); // Iniciar transação
             
-            // Aplicar movimentação no estoque do produto
-            Produto produto = movimentacao.getProduto();
-            // Buscar produto usando a mesma conexão da transação
-            Produto produtoDoBanco = buscarProdutoPorNome(conn, produto.getNome());
+            aplicarMovimentacao(conn, movimentacao);
+            
+            String nome = movimentacao.getProduto().getNome();
+            confirmar(conn, Map.of(nome, saldo(movimentacao)), Map.of(nome, 1));
+            return movimentacao;
             
-            if (produtoDoBanco == null) {
-                throw new Exception("Produto não encontrado: " + produto.getNome());
+        } catch (Exception e) {
+            desfazer(conn);
+            if (e instanceof SQLException) {
+                throw new Exception("Erro ao criar movimentação: " + e.getMessage());
             }
+            throw e;
+        } finally {
+            SQL_CRIAR.registrar(System.nanoTime() - inicio);
+            devolverConexao(conn, originalAutoCommit);
+        }
+    }
+    
+    /**
+     * Grava um lote de movimentações (ex.: recebimento de um caminhão) em uma única transação.
+     * Os produtos do lote são lidos e bloqueados de uma vez; cada linha é conferida em ordem
+     * contra o estoque acumulado, e as linhas inválidas (produto inexistente, estoque
+     * insuficiente) são rejeitadas individualmente no resultado sem afetar as demais.
+     * As linhas aceitas viram um UPDATE por produto (com o saldo somado) e um INSERT por
+     * movimentação, ambos enviados em batch, e um único commit.
+     * Os resultados seguem a ordem da lista recebida; um erro de banco desfaz todo o lote.
+     */
+    public List<ResultadoMovimentacao> criarLote(List<Movimentacao> movimentacoes) throws Exception {
+        List<ResultadoMovimentacao> resultados = new ArrayList<>(movimentacoes.size());
+        if (movimentacoes.isEmpty()) {
+            return resultados;
+        }
+        
+        Connection conn = null;
+        boolean originalAutoCommit = true;
+        long inicio = System.nanoTime();
+        try {
+            conn = DatabaseConnection.getInstance().getConnection();
+            originalAutoCommit = conn.getAutoCommit();
+            conn.setAutoCommit(false);
             
-            int novoEstoque;
-            if (movimentacao.getTipo() == Movimentacao.TipoMovimentacao.ENTRADA) {
-                novoEstoque = produtoDoBanco.getQuantidadeEstoque() + movimentacao.getQuantidade();
-            } else {
-                novoEstoque = produtoDoBanco.getQuantidadeEstoque() - movimentacao.getQuantidade();
-                if (novoEstoque < 0) {
-                    throw new Exception("Estoque insuficiente. Estoque atual: " + produtoDoBanco.getQuantidadeEstoque());
+            Set<String> nomes = new LinkedHashSet<>();
+            for (Movimentacao movimentacao : movimentacoes) {
+                if (movimentacao != null && movimentacao.getProduto() != null) {
+                    nomes.add(movimentacao.getProduto().getNome());
                 }
             }
+            Map<String, Integer> estoques = bloquearEstoques(conn, nomes);
             
-            // Atualizar estoque do produto
-            String updateProdutoSQL = "UPDATE produtos SET estoque_atual = ? WHERE nome = ?";
-            try (PreparedStatement updateStmt = conn.prepareStatement(updateProdutoSQL)) {
-                updateStmt.setInt(1, novoEstoque);
-                updateStmt.setString(2, produtoDoBanco.getNome());
-                updateStmt.executeUpdate();
-            }
-            
-            // Inserir movimentação
-            LocalDateTime dataMovimentacao = movimentacao.getData();
-            if (dataMovimentacao == null) {
-                dataMovimentacao = LocalDateTime.now();
-            }
-            
-            String insertMovSQL = "INSERT INTO movimentacoes (produto_nome, tipo, quantidade, data_movimentacao) VALUES (?, ?, ?, ?)";
-            try (PreparedStatement insertStmt = conn.prepareStatement(insertMovSQL, PreparedStatement.RETURN_GENERATED_KEYS)) {
-                insertStmt.setString(1, produtoDoBanco.getNome());
-                insertStmt.setString(2, movimentacao.getTipo().toString());
-                insertStmt.setInt(3, movimentacao.getQuantidade());
-                insertStmt.setTimestamp(4, Timestamp.valueOf(dataMovimentacao));
-                
-                insertStmt.executeUpdate();
-                
-                // Obter ID gerado
-                try (ResultSet generatedKeys = insertStmt.getGeneratedKeys()) {
-                    if (generatedKeys.next()) {
-                        // Atualizar ID da movimentação se houver setter
+            // Conferir as linhas em ordem, acumulando o saldo de cada produto
+            Map<String, Integer> saldos = new LinkedHashMap<>();
+            List<Movimentacao> aceitas = new ArrayList<>();
+            for (Movimentacao movimentacao : movimentacoes) {
+                try {
+                    if (movimentacao == null) {
+                        throw new Exception("Movimentação não pode ser nula");
+                    }
+                    movimentacao.validarMovimentacao();
+                    
+                    String nome = movimentacao.getProduto().getNome();
+                    Integer estoqueAtual = estoques.get(nome);
+                    if (estoqueAtual == null) {
+                        throw new Exception("Produto não encontrado: " + nome);
                     }
+                    
+                    int delta = saldo(movimentacao);
+                    int novoEstoque = estoqueAtual + delta;
+                    if (novoEstoque < 0) {
+                        throw new Exception("Estoque insuficiente. Estoque atual: " + estoqueAtual);
+                    }
+                    
+                    estoques.put(nome, novoEstoque);
+                    saldos.merge(nome, delta, Integer::sum);
+                    movimentacao.getProduto().setQuantidadeEstoque(novoEstoque);
+                    aceitas.add(movimentacao);
+                    resultados.add(ResultadoMovimentacao.sucesso(movimentacao));
+                } catch (Exception e) {
+                    resultados.add(ResultadoMovimentacao.falha(movimentacao, e.getMessage()));
                 }
             }
             
-            conn.commit(); // Confirmar transação
-            return movimentacao;
+            if (!aceitas.isEmpty()) {
+                atualizarEstoques(conn, saldos);
+                inserirMovimentacoes(conn, aceitas);
+            }
+            
+            confirmar(conn, saldos, quantidadesPorProduto(aceitas));
+            return resultados;
             
         } catch (SQLException e) {
-            if (conn != null) {
-                try {
-                    conn.rollback(); // Reverter transação em caso de erro
-                } catch (SQLException rollbackEx) {
-                    System.err.println("Erro ao fazer rollback: " + rollbackEx.getMessage());
-                }
-            }
-            throw new Exception("Erro ao criar movimentação: " + e.getMessage());
+            desfazer(conn);
+            throw new Exception("Erro ao criar lote de movimentações: " + e.getMessage());
         } finally {
-            if (conn != null) {
-                try {
-                    // Restaurar auto-commit apenas se não houver erro
-                    if (!conn.isClosed()) {
-                        conn.setAutoCommit(originalAutoCommit);
-                    }
-                } catch (SQLException e) {
-                    System.err.println("Erro ao restaurar auto-commit: " + e.getMessage());
-                }
+            SQL_CRIAR_LOTE.registrar(System.nanoTime() - inicio);
+            devolverConexao(conn, originalAutoCommit);
+        }
+    }
+    
+    /**
+     * Grava movimentações já aplicadas e confirmadas pelo estoque em memória
+     * ({@code service.EstoqueEmMemoria}): soma os saldos por produto em um UPDATE em batch,
+     * insere as movimentações em batch e registra {@code sequencia} como a última entrada do
+     * diário já gravada, tudo no mesmo commit. Assim, após uma queda, o diário pode ser
+     * reaplicado a partir dessa sequência sem gravar nada duas vezes.
+     *
+     * Lança {@link MovimentacaoRecusadaException} quando o banco rejeita os dados em si
+     * (restrição violada, valor fora da faixa); qualquer outra falha pode passar se tentada de novo.
+     */
+    public void gravarAplicadas(List<Movimentacao> movimentacoes, long sequencia) throws Exception {
+        Map<String, Integer> saldos = new LinkedHashMap<>();
+        for (Movimentacao movimentacao : movimentacoes) {
+            saldos.merge(movimentacao.getProduto().getNome(), saldo(movimentacao), Integer::sum);
+        }
+        
+        Connection conn = null;
+        boolean originalAutoCommit = true;
+        long inicio = System.nanoTime();
+        try {
+            conn = DatabaseConnection.getInstance().getConnection();
+            originalAutoCommit = conn.getAutoCommit();
+            conn.setAutoCommit(false);
+            
+            atualizarEstoques(conn, saldos);
+            inserirMovimentacoes(conn, movimentacoes);
+            
+            try (PreparedStatement stmt = conn.prepareStatement(UPSERT_SEQUENCIA_DIARIO)) {
+                stmt.setLong(1, sequencia);
+                stmt.executeUpdate();
             }
+            
+            confirmar(conn, saldos, quantidadesPorProduto(movimentacoes));
+            
+        } catch (SQLException e) {
+            desfazer(conn);
+            if (recusaDefinitiva(e)) {
+                throw new MovimentacaoRecusadaException("Movimentações recusadas pelo banco: " + e.getMessage());
+            }
+            throw new Exception("Erro ao gravar movimentações do diário: " + e.getMessage());
+        } finally {
+            SQL_GRAVAR_APLICADAS.registrar(System.nanoTime() - inicio);
+            devolverConexao(conn, originalAutoCommit);
+        }
+    }
+    
+    /**
+     * Registra {@code sequencia} como gravada sem gravar movimentações: usado quando o estoque
+     * em memória desiste de uma entrada do diário que o banco recusa, para que ela não seja
+     * reaplicada na próxima inicialização.
+     */
+    public void gravarSequenciaDiario(long sequencia) throws Exception {
+        long inicio = System.nanoTime();
+        try (Connection conn = DatabaseConnection.getInstance().getConnection();
+             PreparedStatement stmt = conn.prepareStatement(UPSERT_SEQUENCIA_DIARIO)) {
+            
+            stmt.setLong(1, sequencia);
+            stmt.executeUpdate();
+            
+        } catch (SQLException e) {
+            throw new Exception("Erro ao gravar sequência do diário: " + e.getMessage());
+        } finally {
+            SQL_GRAVAR_APLICADAS.registrar(System.nanoTime() - inicio);
         }
     }
     
     /**
-     * Busca um produto pelo nome usando uma conexão específica (para uso em transações).
+     * Última sequência do diário de movimentações já gravada no banco (0 se nenhuma).
      */
-    private Produto buscarProdutoPorNome(Connection conn, String nome) throws SQLException {
-        String sql = "SELECT p.nome, p.preco, p.unidade, p.estoque_atual, p.estoque_minimo, p.estoque_maximo, " +
-                     "c.nome as categoria_nome, c.tamanho, c.embalagem " +
-                     "FROM produtos p " +
-                     "INNER JOIN categorias c ON p.categoria_nome = c.nome " +
-                     "WHERE p.nome = ?";
+    public long lerSequenciaDiario() throws Exception {
+        long inicio = System.nanoTime();
+        try (Connection conn = DatabaseConnection.getInstance().getConnection();
+             PreparedStatement stmt = conn.prepareStatement(SELECT_SEQUENCIA_DIARIO);
+             ResultSet rs = stmt.executeQuery()) {
+            
+            return rs.next() ? rs.getLong("sequencia") : 0;
+            
+        } catch (SQLException e) {
+            throw new Exception("Erro ao ler sequência do diário: " + e.getMessage());
+        } finally {
+            SQL_LER_SEQUENCIA.registrar(System.nanoTime() - inicio);
+        }
+    }
+    
+    /**
+     * Confirma a transação, avisa os ouvintes de {@link AlteracoesEstoque} e invalida o cache
+     * dos produtos movimentados.
+     */
+    private void confirmar(Connection conn, Map<String, Integer> saldos, Map<String, Integer> quantidades)
+            throws SQLException {
+        AlteracoesEstoque.iniciarGravacao();
+        try {
+            conn.commit();
+            COMMITS.incrementar();
+            AlteracoesEstoque.avisar(ouvinte -> ouvinte.movimentacoesGravadas(saldos, quantidades));
+        } finally {
+            AlteracoesEstoque.concluirGravacao();
+        }
+        for (String nome : saldos.keySet()) {
+            CacheEntidades.produtoAlterado(nome);
+        }
+    }
+    
+    /**
+     * SQLState das classes 22 (dado inválido) e 23 (restrição violada, como a chave estrangeira de
+     * um produto excluído): repetir a gravação dá o mesmo erro. Deadlock, espera de trava e falta
+     * de conexão ficam de fora.
+     */
+    private static boolean recusaDefinitiva(SQLException e) {
+        String estado = e.getSQLState();
+        return estado != null && (estado.startsWith("22") || estado.startsWith("23"));
+    }
+    
+    private static int saldo(Movimentacao movimentacao) {
+        return movimentacao.getTipo() == Movimentacao.TipoMovimentacao.ENTRADA
+                ? movimentacao.getQuantidade() : -movimentacao.getQuantidade();
+    }
+    
+    private static Map<String, Integer> quantidadesPorProduto(List<Movimentacao> movimentacoes) {
+        Map<String, Integer> quantidades = new HashMap<>();
+        for (Movimentacao movimentacao : movimentacoes) {
+            quantidades.merge(movimentacao.getProduto().getNome(), 1, Integer::sum);
+        }
+        return quantidades;
+    }
+    
+    /**
+     * Lê o estoque atual dos produtos informados, bloqueando as linhas até o fim da transação
+     * (SELECT ... FOR UPDATE). Produtos inexistentes ficam fora do mapa.
+     *
+     * Os nomes são ordenados antes de divididos em consultas, para que lotes concorrentes com
+     * produtos em comum bloqueiem as linhas na mesma ordem e não entrem em deadlock entre uma
+     * consulta e outra. A ordem acompanha a da coluna (utf8mb4_unicode_ci, que ignora
+     * maiúsculas e acentos), a mesma em que o InnoDB bloqueia as linhas dentro de cada consulta.
+     */
+    private Map<String, Integer> bloquearEstoques(Connection conn, Set<String> nomes) throws SQLException {
+        Map<String, Integer> estoques = new HashMap<>();
+        List<String> pendentes = new ArrayList<>(nomes);
+        Collator collator = Collator.getInstance(Locale.ROOT);
+        collator.setStrength(Collator.PRIMARY);
+        pendentes.sort((a, b) -> {
+            int ordem = collator.compare(a, b);
+            return ordem != 0 ? ordem : a.compareTo(b);
+        });
         
-        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
-            stmt.setString(1, nome);
+        for (int inicio = 0; inicio < pendentes.size(); inicio += NOMES_POR_CONSULTA) {
+            List<String> parte = pendentes.subList(inicio, Math.min(inicio + NOMES_POR_CONSULTA, pendentes.size()));
+            StringBuilder sql = new StringBuilder("SELECT nome, estoque_atual FROM produtos WHERE nome IN (");
+            for (int i = 0; i < parte.size(); i++) {
+                sql.append(i == 0 ? "?" : ", ?");
+            }
+            sql.append(") FOR UPDATE");
             
-            try (ResultSet rs = stmt.executeQuery()) {
-                if (rs.next()) {
-                    return criarProdutoDoResultSet(rs);
+            try (PreparedStatement stmt = conn.prepareStatement(sql.toString())) {
+                for (int i = 0; i < parte.size(); i++) {
+                    stmt.setString(i + 1, parte.get(i));
+                }
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        estoques.put(rs.getString("nome"), rs.getInt("estoque_atual"));
+                    }
                 }
             }
         }
         
-        return null;
+        return estoques;
+    }
+    
+    /**
+     * Aplica o saldo acumulado de cada produto com um UPDATE em batch.
+     */
+    private void atualizarEstoques(Connection conn, Map<String, Integer> saldos) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(UPDATE_SOMAR_ESTOQUE)) {
+            for (Map.Entry<String, Integer> saldo : saldos.entrySet()) {
+                if (saldo.getValue() != 0) {
+                    stmt.setInt(1, saldo.getValue());
+                    stmt.setString(2, saldo.getKey());
+                    stmt.addBatch();
+                }
+            }
+            stmt.executeBatch();
+        }
+    }
+    
+    /**
+     * Insere as movimentações com INSERT em batch; com rewriteBatchedStatements=true na URL
+     * o driver envia tudo como INSERTs de múltiplas linhas. O resumo por hora e por dia
+     * ({@link ResumoMovimentacaoDAO}) é atualizado na mesma transação.
+     */
+    private void inserirMovimentacoes(Connection conn, List<Movimentacao> movimentacoes) throws SQLException {
+        LocalDateTime agora = LocalDateTime.now();
+        try (PreparedStatement stmt = conn.prepareStatement(INSERT_MOVIMENTACAO)) {
+            int pendentes = 0;
+            for (Movimentacao movimentacao : movimentacoes) {
+                LocalDateTime data = movimentacao.getData() != null ? movimentacao.getData() : agora;
+                DicionarioNomes.definirProduto(conn, stmt, 1, movimentacao.getProduto().getNome());
+                stmt.setString(2, movimentacao.getTipo().toString());
+                stmt.setInt(3, movimentacao.getQuantidade());
+                stmt.setTimestamp(4, Timestamp.valueOf(data));
+                stmt.addBatch();
+                if (++pendentes == LINHAS_POR_BATCH) {
+                    stmt.executeBatch();
+                    pendentes = 0;
+                }
+            }
+            if (pendentes > 0) {
+                stmt.executeBatch();
+            }
+        }
+        ResumoMovimentacaoDAO.acumular(conn, movimentacoes, agora);
     }
     
     /**
-     * Cria um objeto Produto a partir de um ResultSet.
+     * Aplica uma movimentação na transação de {@code conn} e grava o registro.
+     * O estoque é alterado por um único UPDATE condicional (estoque_atual = estoque_atual - ?
+     * com a condição de não ficar negativo), sem ler o valor antes: duas saídas simultâneas
+     * do mesmo produto nunca sobrescrevem uma à outra, e o banco só bloqueia a linha durante
+     * o UPDATE. Nenhuma linha afetada significa produto inexistente ou estoque insuficiente.
+     * O produto da movimentação recebe o novo estoque.
      */
-    private Produto criarProdutoDoResultSet(ResultSet rs) throws SQLException {
-        String nome = rs.getString("nome");
-        double preco = rs.getDouble("preco");
-        String unidade = rs.getString("unidade");
-        int estoqueAtual = rs.getInt("estoque_atual");
-        int estoqueMinimo = rs.getInt("estoque_minimo");
-        int estoqueMaximo = rs.getInt("estoque_maximo");
+    private void aplicarMovimentacao(Connection conn, Movimentacao movimentacao) throws Exception {
+        Produto produto = movimentacao.getProduto();
+        int quantidade = movimentacao.getQuantidade();
         
-        // Criar categoria
-        String categoriaNome = rs.getString("categoria_nome");
-        String tamanhoStr = rs.getString("tamanho");
-        String embalagemStr = rs.getString("embalagem");
+        int alteradas;
+        if (movimentacao.getTipo() == Movimentacao.TipoMovimentacao.ENTRADA) {
+            try (PreparedStatement stmt = conn.prepareStatement(UPDATE_SOMAR_ESTOQUE)) {
+                stmt.setInt(1, quantidade);
+                stmt.setString(2, produto.getNome());
+                alteradas = stmt.executeUpdate();
+            }
+        } else {
+            try (PreparedStatement stmt = conn.prepareStatement(UPDATE_SUBTRAIR_ESTOQUE)) {
+                stmt.setInt(1, quantidade);
+                stmt.setString(2, produto.getNome());
+                stmt.setInt(3, quantidade);
+                alteradas = stmt.executeUpdate();
+            }
+        }
         
-        model.Categoria.Tamanho tamanho = model.Categoria.Tamanho.valueOf(tamanhoStr);
-        model.Categoria.Embalagem embalagem = model.Categoria.Embalagem.valueOf(embalagemStr);
-        model.Categoria categoria = new model.Categoria(categoriaNome, tamanho, embalagem);
+        // A linha está bloqueada pela transação desde o UPDATE, então a leitura é consistente
+        Integer estoque = lerEstoque(conn, produto.getNome());
+        if (estoque == null) {
+            throw new Exception("Produto não encontrado: " + produto.getNome());
+        }
+        if (alteradas == 0) {
+            throw new Exception("Estoque insuficiente. Estoque atual: " + estoque);
+        }
         
-        return new Produto(nome, preco, unidade, estoqueAtual, estoqueMinimo, estoqueMaximo, categoria);
+        // Inserir movimentação
+        LocalDateTime dataMovimentacao = movimentacao.getData();
+        if (dataMovimentacao == null) {
+            dataMovimentacao = LocalDateTime.now();
+        }
+        
+        try (PreparedStatement insertStmt = conn.prepareStatement(INSERT_MOVIMENTACAO)) {
+            DicionarioNomes.definirProduto(conn, insertStmt, 1, produto.getNome());
+            insertStmt.setString(2, movimentacao.getTipo().toString());
+            insertStmt.setInt(3, quantidade);
+            insertStmt.setTimestamp(4, Timestamp.valueOf(dataMovimentacao));
+            insertStmt.executeUpdate();
+        }
+        ResumoMovimentacaoDAO.acumular(conn, List.of(movimentacao), dataMovimentacao);
+        
+        produto.setQuantidadeEstoque(estoque);
+    }
+    
+    /**
+     * Estoque atual do produto, ou null se ele não existir.
+     */
+    private Integer lerEstoque(Connection conn, String nome) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(SELECT_ESTOQUE)) {
+            stmt.setString(1, nome);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? rs.getInt("estoque_atual") : null;
+            }
+        }
+    }
+    
+    /**
+     * Desfaz a transação em andamento, se houver conexão.
+     */
+    private void desfazer(Connection conn) {
+        if (conn != null) {
+            try {
+                conn.rollback(); // Reverter transação em caso de erro
+                ROLLBACKS.incrementar();
+            } catch (SQLException rollbackEx) {
+                System.err.println("Erro ao fazer rollback: " + rollbackEx.getMessage());
+            }
+        }
+    }
+    
+    /**
+     * Restaura o auto-commit e devolve a conexão ao pool.
+     */
+    private void devolverConexao(Connection conn, boolean originalAutoCommit) {
+        if (conn != null) {
+            try {
+                if (!conn.isClosed()) {
+                    conn.setAutoCommit(originalAutoCommit);
+                }
+            } catch (SQLException e) {
+                System.err.println("Erro ao restaurar auto-commit: " + e.getMessage());
+            }
+            try {
+                conn.close();
+            } catch (SQLException e) {
+                System.err.println("Erro ao devolver conexão: " + e.getMessage());
+            }
+        }
     }
     
     /**
@@ -169,56 +524,56 @@ public class MovimentacaoDAO {
      */
     public List<Movimentacao> listarTodas() {
         List<Movimentacao> movimentacoes = new ArrayList<>();
-        String sql = "SELECT m.id, m.produto_nome, m.tipo, m.quantidade, m.data_movimentacao, " +
-                     "p.preco, p.unidade, p.estoque_atual, p.estoque_minimo, p.estoque_maximo, " +
-                     "c.nome as categoria_nome, c.tamanho, c.embalagem " +
-                     "FROM movimentacoes m " +
-                     "INNER JOIN produtos p ON m.produto_nome = p.nome " +
-                     "INNER JOIN categorias c ON p.categoria_nome = c.nome " +
-                     "ORDER BY m.data_movimentacao DESC";
-        
+        long inicio = System.nanoTime();
         try (Connection conn = DatabaseConnection.getInstance().getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql);
+             PreparedStatement stmt = conn.prepareStatement(SELECT_TODAS);
              ResultSet rs = stmt.executeQuery()) {
             
+            MapeadorMovimentacao mapeador = new MapeadorMovimentacao(rs);
             while (rs.next()) {
-                movimentacoes.add(criarMovimentacaoDoResultSet(rs));
+                movimentacoes.add(mapeador.mapear(rs));
             }
             
         } catch (SQLException e) {
             System.err.println("Erro ao listar movimentações: " + e.getMessage());
+        } finally {
+            SQL_LISTAR.registrar(System.nanoTime() - inicio);
         }
         
         return movimentacoes;
     }
     
+    /**
+     * Percorre todas as movimentações, da mais recente para a mais antiga, sem montar a lista
+     * em memória (ver {@link LeituraContinua}). Retorna a quantidade aceita pelo consumidor.
+     */
+    public long percorrerTodas(ConsumidorRegistro<Movimentacao> consumidor) throws Exception {
+        return LeituraContinua.percorrer(SELECT_TODAS, MapeadorMovimentacao::new, consumidor,
+                                         "Erro ao listar movimentações: ");
+    }
+    
     /**
      * Busca movimentações por produto.
      */
     public List<Movimentacao> buscarPorProduto(Produto produto) {
         List<Movimentacao> movimentacoes = new ArrayList<>();
-        String sql = "SELECT m.id, m.produto_nome, m.tipo, m.quantidade, m.data_movimentacao, " +
-                     "p.preco, p.unidade, p.estoque_atual, p.estoque_minimo, p.estoque_maximo, " +
-                     "c.nome as categoria_nome, c.tamanho, c.embalagem " +
-                     "FROM movimentacoes m " +
-                     "INNER JOIN produtos p ON m.produto_nome = p.nome " +
-                     "INNER JOIN categorias c ON p.categoria_nome = c.nome " +
-                     "WHERE m.produto_nome = ? " +
-                     "ORDER BY m.data_movimentacao DESC";
-        
+        long inicio = System.nanoTime();
         try (Connection conn = DatabaseConnection.getInstance().getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
+             PreparedStatement stmt = conn.prepareStatement(SELECT_POR_PRODUTO)) {
             
-            stmt.setString(1, produto.getNome());
+            DicionarioNomes.definirProduto(conn, stmt, 1, produto.getNome());
             
             try (ResultSet rs = stmt.executeQuery()) {
+                MapeadorMovimentacao mapeador = new MapeadorMovimentacao(rs);
                 while (rs.next()) {
-                    movimentacoes.add(criarMovimentacaoDoResultSet(rs));
+                    movimentacoes.add(mapeador.mapear(rs));
                 }
             }
             
         } catch (SQLException e) {
             System.err.println("Erro ao buscar movimentações por produto: " + e.getMessage());
+        } finally {
+            SQL_BUSCAR_PRODUTO.registrar(System.nanoTime() - inicio);
         }
         
         return movimentacoes;
@@ -229,28 +584,23 @@ public class MovimentacaoDAO {
      */
     public List<Movimentacao> buscarPorTipo(Movimentacao.TipoMovimentacao tipo) {
         List<Movimentacao> movimentacoes = new ArrayList<>();
-        String sql = "SELECT m.id, m.produto_nome, m.tipo, m.quantidade, m.data_movimentacao, " +
-                     "p.preco, p.unidade, p.estoque_atual, p.estoque_minimo, p.estoque_maximo, " +
-                     "c.nome as categoria_nome, c.tamanho, c.embalagem " +
-                     "FROM movimentacoes m " +
-                     "INNER JOIN produtos p ON m.produto_nome = p.nome " +
-                     "INNER JOIN categorias c ON p.categoria_nome = c.nome " +
-                     "WHERE m.tipo = ? " +
-                     "ORDER BY m.data_movimentacao DESC";
-        
+        long inicio = System.nanoTime();
         try (Connection conn = DatabaseConnection.getInstance().getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
+             PreparedStatement stmt = conn.prepareStatement(SELECT_POR_TIPO)) {
             
             stmt.setString(1, tipo.toString());
             
             try (ResultSet rs = stmt.executeQuery()) {
+                MapeadorMovimentacao mapeador = new MapeadorMovimentacao(rs);
                 while (rs.next()) {
-                    movimentacoes.add(criarMovimentacaoDoResultSet(rs));
+                    movimentacoes.add(mapeador.mapear(rs));
                 }
             }
             
         } catch (SQLException e) {
             System.err.println("Erro ao buscar movimentações por tipo: " + e.getMessage());
+        } finally {
+            SQL_BUSCAR_TIPO.registrar(System.nanoTime() - inicio);
         }
         
         return movimentacoes;
@@ -261,28 +611,23 @@ public class MovimentacaoDAO {
      */
     public List<Movimentacao> buscarEntradasPorProduto(Produto produto) {
         List<Movimentacao> movimentacoes = new ArrayList<>();
-        String sql = "SELECT m.id, m.produto_nome, m.tipo, m.quantidade, m.data_movimentacao, " +
-                     "p.preco, p.unidade, p.estoque_atual, p.estoque_minimo, p.estoque_maximo, " +
-                     "c.nome as categoria_nome, c.tamanho, c.embalagem " +
-                     "FROM movimentacoes m " +
-                     "INNER JOIN produtos p ON m.produto_nome = p.nome " +
-                     "INNER JOIN categorias c ON p.categoria_nome = c.nome " +
-                     "WHERE m.produto_nome = ? AND m.tipo = 'ENTRADA' " +
-                     "ORDER BY m.data_movimentacao DESC";
-        
+        long inicio = System.nanoTime();
         try (Connection conn = DatabaseConnection.getInstance().getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
+             PreparedStatement stmt = conn.prepareStatement(SELECT_ENTRADAS_POR_PRODUTO)) {
             
-            stmt.setString(1, produto.getNome());
+            DicionarioNomes.definirProduto(conn, stmt, 1, produto.getNome());
             
             try (ResultSet rs = stmt.executeQuery()) {
+                MapeadorMovimentacao mapeador = new MapeadorMovimentacao(rs);
                 while (rs.next()) {
-                    movimentacoes.add(criarMovimentacaoDoResultSet(rs));
+                    movimentacoes.add(mapeador.mapear(rs));
                 }
             }
             
         } catch (SQLException e) {
             System.err.println("Erro ao buscar entradas por produto: " + e.getMessage());
+        } finally {
+            SQL_BUSCAR_ENTRADAS.registrar(System.nanoTime() - inicio);
         }
         
         return movimentacoes;
@@ -293,80 +638,269 @@ public class MovimentacaoDAO {
      */
     public List<Movimentacao> buscarSaidasPorProduto(Produto produto) {
         List<Movimentacao> movimentacoes = new ArrayList<>();
-        String sql = "SELECT m.id, m.produto_nome, m.tipo, m.quantidade, m.data_movimentacao, " +
-                     "p.preco, p.unidade, p.estoque_atual, p.estoque_minimo, p.estoque_maximo, " +
-                     "c.nome as categoria_nome, c.tamanho, c.embalagem " +
-                     "FROM movimentacoes m " +
-                     "INNER JOIN produtos p ON m.produto_nome = p.nome " +
-                     "INNER JOIN categorias c ON p.categoria_nome = c.nome " +
-                     "WHERE m.produto_nome = ? AND m.tipo = 'SAIDA' " +
-                     "ORDER BY m.data_movimentacao DESC";
-        
+        long inicio = System.nanoTime();
         try (Connection conn = DatabaseConnection.getInstance().getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
+             PreparedStatement stmt = conn.prepareStatement(SELECT_SAIDAS_POR_PRODUTO)) {
             
-            stmt.setString(1, produto.getNome());
+            DicionarioNomes.definirProduto(conn, stmt, 1, produto.getNome());
             
             try (ResultSet rs = stmt.executeQuery()) {
+                MapeadorMovimentacao mapeador = new MapeadorMovimentacao(rs);
                 while (rs.next()) {
-                    movimentacoes.add(criarMovimentacaoDoResultSet(rs));
+                    movimentacoes.add(mapeador.mapear(rs));
                 }
             }
             
         } catch (SQLException e) {
             System.err.println("Erro ao buscar saídas por produto: " + e.getMessage());
+        } finally {
+            SQL_BUSCAR_SAIDAS.registrar(System.nanoTime() - inicio);
         }
         
         return movimentacoes;
     }
     
     /**
-     * Remove todas as movimentações.
+     * Página do histórico de um produto (ver {@link #buscarPagina}).
      */
-    public void limparTodos() {
-        String sql = "DELETE FROM movimentacoes";
+    public Pagina<Movimentacao> buscarPorProduto(Produto produto, LocalDateTime de, LocalDateTime ate,
+                                                 String continuacao, int limite) throws Exception {
+        return buscarPagina(produto.getNome(), null, de, ate, continuacao, limite);
+    }
+    
+    /**
+     * Página das movimentações de um tipo (ver {@link #buscarPagina}).
+     */
+    public Pagina<Movimentacao> buscarPorTipo(Movimentacao.TipoMovimentacao tipo, LocalDateTime de, LocalDateTime ate,
+                                              String continuacao, int limite) throws Exception {
+        return buscarPagina(null, tipo, de, ate, continuacao, limite);
+    }
+    
+    /**
+     * Página das entradas de um produto (ver {@link #buscarPagina}).
+     */
+    public Pagina<Movimentacao> buscarEntradasPorProduto(Produto produto, LocalDateTime de, LocalDateTime ate,
+                                                         String continuacao, int limite) throws Exception {
+        return buscarPagina(produto.getNome(), Movimentacao.TipoMovimentacao.ENTRADA, de, ate, continuacao, limite);
+    }
+    
+    /**
+     * Página das saídas de um produto (ver {@link #buscarPagina}).
+     */
+    public Pagina<Movimentacao> buscarSaidasPorProduto(Produto produto, LocalDateTime de, LocalDateTime ate,
+                                                       String continuacao, int limite) throws Exception {
+        return buscarPagina(produto.getNome(), Movimentacao.TipoMovimentacao.SAIDA, de, ate, continuacao, limite);
+    }
+    
+    /**
+     * Busca movimentações da mais recente para a mais antiga, em páginas de até {@code limite}
+     * linhas. Filtros null são ignorados; {@code de} é inclusivo e {@code ate} exclusivo.
+     *
+     * A paginação é por chave (data_movimentacao, id): o token de continuação guarda a última
+     * linha devolvida e a página seguinte começa logo depois dela, descendo pelos índices
+     * idx_produto_data, idx_tipo_data ou idx_data. Assim a página N custa o mesmo que a
+     * primeira, e movimentações novas não deslocam as páginas já lidas.
+     */
+    public Pagina<Movimentacao> buscarPagina(String produto, Movimentacao.TipoMovimentacao tipo,
+                                             LocalDateTime de, LocalDateTime ate,
+                                             String continuacao, int limite) throws Exception {
+        if (limite <= 0 || limite > LIMITE_MAXIMO_PAGINA) {
+            throw new Exception("Limite da página deve estar entre 1 e " + LIMITE_MAXIMO_PAGINA);
+        }
+        Timestamp ultimaData = null;
+        int ultimoId = 0;
+        if (continuacao != null) {
+            int separador = continuacao.indexOf('_');
+            try {
+                ultimaData = new Timestamp(Long.parseLong(continuacao.substring(0, separador)));
+                ultimoId = Integer.parseInt(continuacao.substring(separador + 1));
+            } catch (RuntimeException e) {
+                throw new Exception("Token de continuação inválido: " + continuacao);
+            }
+        }
         
+        StringBuilder sql = new StringBuilder(
+                "SELECT m.id, p.nome AS produto_nome, m.tipo, m.quantidade, m.data_movimentacao, " +
+                "p.preco, p.unidade, p.estoque_atual, p.estoque_minimo, p.estoque_maximo, " +
+                "c.nome as categoria_nome, c.tamanho, c.embalagem " +
+                "FROM movimentacoes m " +
+                Esquema.JUNCAO_PRODUTO +
+                Esquema.JUNCAO_CATEGORIA +
+                "WHERE 1 = 1 ");
+        if (produto != null) {
+            sql.append("AND m.").append(Esquema.PRODUTO_DA_MOVIMENTACAO).append(" = ? ");
+        }
+        if (tipo != null) {
+            sql.append("AND m.tipo = ? ");
+        }
+        if (de != null) {
+            sql.append("AND m.data_movimentacao >= ? ");
+        }
+        if (ate != null) {
+            sql.append("AND m.data_movimentacao < ? ");
+        }
+        if (ultimaData != null) {
+            // Equivale a (data, id) < (?, ?); a primeira condição dá a faixa no índice
+            sql.append("AND m.data_movimentacao <= ? AND (m.data_movimentacao < ? OR m.id < ?) ");
+        }
+        // Uma linha a mais indica se existe próxima página
+        sql.append("ORDER BY m.data_movimentacao DESC, m.id DESC LIMIT ?");
+        
+        List<Movimentacao> movimentacoes = new ArrayList<>();
+        long inicio = System.nanoTime();
         try (Connection conn = DatabaseConnection.getInstance().getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
+             PreparedStatement stmt = conn.prepareStatement(sql.toString())) {
             
-            stmt.executeUpdate();
+            int i = 1;
+            if (produto != null) {
+                DicionarioNomes.definirProduto(conn, stmt, i++, produto);
+            }
+            if (tipo != null) {
+                stmt.setString(i++, tipo.toString());
+            }
+            if (de != null) {
+                stmt.setTimestamp(i++, Timestamp.valueOf(de));
+            }
+            if (ate != null) {
+                stmt.setTimestamp(i++, Timestamp.valueOf(ate));
+            }
+            if (ultimaData != null) {
+                stmt.setTimestamp(i++, ultimaData);
+                stmt.setTimestamp(i++, ultimaData);
+                stmt.setInt(i++, ultimoId);
+            }
+            stmt.setInt(i, limite + 1);
+            
+            try (ResultSet rs = stmt.executeQuery()) {
+                MapeadorMovimentacao mapeador = new MapeadorMovimentacao(rs);
+                while (rs.next()) {
+                    movimentacoes.add(mapeador.mapear(rs));
+                }
+            }
             
         } catch (SQLException e) {
-            System.err.println("Erro ao limpar movimentações: " + e.getMessage());
+            throw new Exception("Erro ao buscar movimentações: " + e.getMessage());
+        } finally {
+            SQL_BUSCAR_PAGINA.registrar(System.nanoTime() - inicio);
+        }
+        
+        if (movimentacoes.size() <= limite) {
+            return new Pagina<>(movimentacoes, null);
         }
+        movimentacoes.remove(limite);
+        Movimentacao ultima = movimentacoes.get(limite - 1);
+        String proxima = Timestamp.valueOf(ultima.getData()).getTime() + "_" + ultima.getId();
+        return new Pagina<>(movimentacoes, proxima);
     }
     
     /**
-     * Cria um objeto Movimentacao a partir de um ResultSet.
+     * Conta as movimentações de cada produto, do mais movimentado para o menos movimentado.
+     * No esquema de chaves inteiras o agrupamento é feito pelo id e os nomes vêm do dicionário.
      */
-    private Movimentacao criarMovimentacaoDoResultSet(ResultSet rs) throws SQLException {
-        // Criar produto
-        String produtoNome = rs.getString("produto_nome");
-        double preco = rs.getDouble("preco");
-        String unidade = rs.getString("unidade");
-        int estoqueAtual = rs.getInt("estoque_atual");
-        int estoqueMinimo = rs.getInt("estoque_minimo");
-        int estoqueMaximo = rs.getInt("estoque_maximo");
-        
-        String categoriaNome = rs.getString("categoria_nome");
-        String tamanhoStr = rs.getString("tamanho");
-        String embalagemStr = rs.getString("embalagem");
-        
-        model.Categoria.Tamanho tamanho = model.Categoria.Tamanho.valueOf(tamanhoStr);
-        model.Categoria.Embalagem embalagem = model.Categoria.Embalagem.valueOf(embalagemStr);
-        model.Categoria categoria = new model.Categoria(categoriaNome, tamanho, embalagem);
-        
-        Produto produto = new Produto(produtoNome, preco, unidade, estoqueAtual, estoqueMinimo, estoqueMaximo, categoria);
-        
-        // Criar movimentação
-        String tipoStr = rs.getString("tipo");
-        Movimentacao.TipoMovimentacao tipo = Movimentacao.TipoMovimentacao.valueOf(tipoStr);
-        int quantidade = rs.getInt("quantidade");
-        
-        // Obter data do banco ou usar data atual
-        Timestamp timestamp = rs.getTimestamp("data_movimentacao");
-        LocalDateTime dataMovimentacao = timestamp != null ? timestamp.toLocalDateTime() : LocalDateTime.now();
+    public Map<String, Integer> contarPorProduto() {
+        Map<String, Integer> contagem = new LinkedHashMap<>();
+        String coluna = Esquema.PRODUTO_DA_MOVIMENTACAO;
+        long inicio = System.nanoTime();
+        try (Connection conn = DatabaseConnection.getInstance().getConnection();
+             PreparedStatement stmt = conn.prepareStatement(CONTAR_POR_PRODUTO);
+             ResultSet rs = stmt.executeQuery()) {
+            
+            List<Map.Entry<String, Integer>> totais = new ArrayList<>();
+            while (rs.next()) {
+                String nome = Esquema.CHAVES_INTEIRAS
+                        ? DicionarioNomes.nomeDoProduto(conn, rs.getInt(coluna))
+                        : rs.getString(coluna);
+                if (nome != null) {
+                    totais.add(Map.entry(nome, rs.getInt("total")));
+                }
+            }
+            if (Esquema.CHAVES_INTEIRAS) {
+                totais.sort(Map.Entry.<String, Integer>comparingByValue().reversed()
+                                     .thenComparing(Map.Entry.comparingByKey()));
+            }
+            for (Map.Entry<String, Integer> total : totais) {
+                contagem.put(total.getKey(), total.getValue());
+            }
+            
+        } catch (SQLException e) {
+            System.err.println("Erro ao contar movimentações por produto: " + e.getMessage());
+        } finally {
+            SQL_CONTAR_POR_PRODUTO.registrar(System.nanoTime() - inicio);
+        }
         
-        return new Movimentacao(produto, dataMovimentacao, quantidade, tipo);
+        return contagem;
+    }
+    
+    /**
+     * Remove todas as movimentações e o resumo delas.
+     */
+    public void limparTodos() {
+        long inicio = System.nanoTime();
+        try (Connection conn = DatabaseConnection.getInstance().getConnection();
+             PreparedStatement stmt = conn.prepareStatement(DELETE_TODAS)) {
+            
+            AlteracoesEstoque.iniciarGravacao();
+            try {
+                stmt.executeUpdate();
+                ResumoMovimentacaoDAO.limpar(conn);
+            } finally {
+                // Avisa mesmo se o resumo falhar: as movimentações podem já ter sido apagadas
+                AlteracoesEstoque.avisar(OuvinteEstoque::tudoAlterado);
+                AlteracoesEstoque.concluirGravacao();
+            }
+            
+        } catch (SQLException e) {
+            System.err.println("Erro ao limpar movimentações: " + e.getMessage());
+        } finally {
+            SQL_LIMPAR.registrar(System.nanoTime() - inicio);
+        }
+    }
+    
+    /**
+     * Converte as linhas das consultas de movimentações; como o {@link MapeadorProduto}, resolve
+     * as colunas uma vez por ResultSet.
+     */
+    private static final class MapeadorMovimentacao implements LeituraContinua.Mapeador<Movimentacao> {
+        private static final Movimentacao.TipoMovimentacao[] TIPOS = Movimentacao.TipoMovimentacao.values();
+
+        private final int id;
+        private final int tipo;
+        private final int quantidade;
+        private final int data;
+        private final MapeadorProduto produto;
+
+        MapeadorMovimentacao(ResultSet rs) throws SQLException {
+            id = rs.findColumn("id");
+            tipo = rs.findColumn("tipo");
+            quantidade = rs.findColumn("quantidade");
+            data = rs.findColumn("data_movimentacao");
+            produto = new MapeadorProduto(rs, "produto_nome");
+        }
+
+        @Override
+        public Movimentacao mapear(ResultSet rs) throws SQLException {
+            Produto p = produto.mapear(rs);
+            Movimentacao.TipoMovimentacao t = MapeadorCategoria.constante(TIPOS, rs.getString(tipo));
+            
+            // Obter data do banco ou usar data atual
+            Timestamp timestamp = rs.getTimestamp(data);
+            LocalDateTime dataMovimentacao = timestamp != null ? timestamp.toLocalDateTime() : LocalDateTime.now();
+            
+            Movimentacao movimentacao = new Movimentacao(p, dataMovimentacao, rs.getInt(quantidade), t);
+            movimentacao.setId(rs.getInt(id));
+            return movimentacao;
+        }
+    }
+
+    /**
+     * Lançada por {@link #gravarAplicadas} quando o banco recusa as movimentações pelo conteúdo,
+     * e não por uma falha passageira.
+     */
+    public static class MovimentacaoRecusadaException extends Exception {
+        private static final long serialVersionUID = 1L;
+
+        public MovimentacaoRecusadaException(String mensagem) {
+            super(mensagem);
+        }
     }
 }
@@ -0,0 +1,29 @@
+package dao;
+
+import model.Produto;
+
+import java.util.Map;
+
+/**
+ * Recebe as alterações gravadas pelos DAOs, logo depois do commit (ver {@link AlteracoesEstoque}).
+ * Os métodos são chamados na thread que fez a gravação e devem ser rápidos.
+ */
+public interface OuvinteEstoque {
+
+    /**
+     * Produto criado ou atualizado, com os valores gravados.
+     */
+    void produtoGravado(Produto produto);
+
+    void produtoRemovido(String nome);
+
+    /**
+     * Movimentações gravadas: saldo de estoque e quantidade de movimentações de cada produto.
+     */
+    void movimentacoesGravadas(Map<String, Integer> saldos, Map<String, Integer> quantidades);
+
+    /**
+     * Alteração em massa (limparTodos); o ouvinte deve descartar o que sabe e recarregar.
+     */
+    void tudoAlterado();
+}
@@ -1,15 +1,26 @@
 package dao;
 
 import model.Categoria;
+import model.Dinheiro;
 import model.Produto;
+import com.mysql.cj.jdbc.JdbcStatement;
 import config.DatabaseConnection;
+import util.HistogramaLatencia;
 
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * DAO para acesso aos dados de Produto usando MySQL.
@@ -17,6 +28,65 @@ import java.util.List;
  */
 public class ProdutoDAO {
     
+    private static final HistogramaLatencia SQL_CRIAR = TemposSql.de("produto.criar");
+    private static final HistogramaLatencia SQL_BUSCAR = TemposSql.de("produto.buscar");
+    private static final HistogramaLatencia SQL_LISTAR = TemposSql.de("produto.listar");
+    private static final HistogramaLatencia SQL_ATUALIZAR = TemposSql.de("produto.atualizar");
+    private static final HistogramaLatencia SQL_DELETAR = TemposSql.de("produto.deletar");
+    private static final HistogramaLatencia SQL_BUSCAR_CATEGORIA = TemposSql.de("produto.buscarPorCategoria");
+    private static final HistogramaLatencia SQL_LIMPAR = TemposSql.de("produto.limpar");
+    private static final HistogramaLatencia SQL_IMPORTAR = TemposSql.de("produto.importar");
+
+    private static final String INSERT_PRODUTO =
+            "INSERT INTO produtos (nome, preco, unidade, estoque_atual, estoque_minimo, estoque_maximo, " +
+            Esquema.CATEGORIA_DO_PRODUTO + ") " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?)";
+    private static final String SELECT_PRODUTO =
+            "SELECT p.nome, p.preco, p.unidade, p.estoque_atual, p.estoque_minimo, p.estoque_maximo, " +
+            "c.nome as categoria_nome, c.tamanho, c.embalagem " +
+            "FROM produtos p " +
+            Esquema.JUNCAO_CATEGORIA;
+    private static final String SELECT_POR_NOME = SELECT_PRODUTO + "WHERE p.nome = ?";
+    private static final String SELECT_TODOS = SELECT_PRODUTO + "ORDER BY p.nome";
+    private static final String SELECT_POR_CATEGORIA = SELECT_PRODUTO + "WHERE c.nome = ? ORDER BY p.nome";
+    private static final String UPDATE_PRODUTO =
+            "UPDATE produtos SET preco = ?, unidade = ?, estoque_atual = ?, " +
+            "estoque_minimo = ?, estoque_maximo = ?, " + Esquema.CATEGORIA_DO_PRODUTO + " = ? WHERE nome = ?";
+    private static final String DELETE_POR_NOME = "DELETE FROM produtos WHERE nome = ?";
+    private static final String DELETE_TODOS = "DELETE FROM produtos";
+
+    /** Produtos por INSERT na importação (7 parâmetros cada, longe do limite de 65535 do MySQL). */
+    private static final int PRODUTOS_POR_INSERT = 500;
+    private static final int MAXIMO_NOME = 100;
+    private static final int MAXIMO_UNIDADE = 20;
+    /** Maior preço que cabe em DECIMAL(10,2), em centavos. */
+    private static final long MAXIMO_PRECO = 99_999_999_99L;
+    /** Na importação o estoque de um produto existente não muda: ele só é alterado por movimentações. */
+    private static final String ATUALIZAR_IMPORTADO =
+            " ON DUPLICATE KEY UPDATE produtos.preco = VALUES(preco), produtos.unidade = VALUES(unidade), " +
+            "produtos.estoque_minimo = VALUES(estoque_minimo), produtos.estoque_maximo = VALUES(estoque_maximo), " +
+            "produtos." + Esquema.CATEGORIA_DO_PRODUTO + " = VALUES(" + Esquema.CATEGORIA_DO_PRODUTO + ")";
+    private static final String UPSERT_PRODUTOS = upsertProdutos(PRODUTOS_POR_INSERT);
+    private static final String SELECT_ESTOQUES = selectEstoques(PRODUTOS_POR_INSERT);
+    private static final String CRIAR_TABELA_IMPORTACAO =
+            "CREATE TEMPORARY TABLE IF NOT EXISTS importacao_produtos (" +
+            "nome VARCHAR(100) NOT NULL, preco DECIMAL(10, 2) NOT NULL, unidade VARCHAR(20) NOT NULL, " +
+            "estoque_atual INT NOT NULL, estoque_minimo INT NOT NULL, estoque_maximo INT NOT NULL, " +
+            "categoria_nome VARCHAR(100) NOT NULL" +
+            ") ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci";
+    private static final String LIMPAR_TABELA_IMPORTACAO = "DELETE FROM importacao_produtos";
+    private static final String CARREGAR_TABELA_IMPORTACAO =
+            "LOAD DATA LOCAL INFILE 'importacao_produtos.tsv' INTO TABLE importacao_produtos " +
+            "CHARACTER SET utf8mb4 FIELDS TERMINATED BY '\\t' LINES TERMINATED BY '\\n' " +
+            "(nome, preco, unidade, estoque_atual, estoque_minimo, estoque_maximo, categoria_nome)";
+    private static final String UPSERT_DA_TABELA_IMPORTACAO =
+            "INSERT INTO produtos (nome, preco, unidade, estoque_atual, estoque_minimo, estoque_maximo, " +
+            Esquema.CATEGORIA_DO_PRODUTO + ") " +
+            "SELECT i.nome, i.preco, i.unidade, i.estoque_atual, i.estoque_minimo, i.estoque_maximo, " +
+            (Esquema.CHAVES_INTEIRAS ? "c.id " : "c.nome ") +
+            "FROM importacao_produtos i INNER JOIN categorias c ON c.nome = i.categoria_nome" +
+            ATUALIZAR_IMPORTADO;
+    
     private final CategoriaDAO categoriaDAO;
     
     public ProdutoDAO() {
@@ -34,12 +104,7 @@ public class ProdutoDAO {
             throw new Exception("Nome do produto é obrigatório");
         }
         
-        // Verificar se já existe produto com mesmo nome
-        if (buscarPorNome(produto.getNome()) != null) {
-            throw new Exception("Já existe um produto com este nome");
-        }
-        
-        // Verificar se a categoria existe
+        // Verificar se a categoria existe (a duplicidade do nome é conferida pelo banco)
         if (produto.getCategoria() == null) {
             throw new Exception("Categoria é obrigatória");
         }
@@ -49,51 +114,305 @@ public class ProdutoDAO {
             throw new Exception("Categoria não encontrada: " + produto.getCategoria().getNome());
         }
         
-        String sql = "INSERT INTO produtos (nome, preco, unidade, estoque_atual, estoque_minimo, estoque_maximo, categoria_nome) " +
-                     "VALUES (?, ?, ?, ?, ?, ?, ?)";
-        
+        long inicio = System.nanoTime();
         try (Connection conn = DatabaseConnection.getInstance().getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
+             PreparedStatement stmt = conn.prepareStatement(INSERT_PRODUTO)) {
             
             stmt.setString(1, produto.getNome());
-            stmt.setDouble(2, produto.getPrecoUnitario());
+            stmt.setBigDecimal(2, produto.getPreco());
             stmt.setString(3, produto.getUnidade());
             stmt.setInt(4, produto.getQuantidadeEstoque());
             stmt.setInt(5, produto.getQuantidadeMinima());
             stmt.setInt(6, produto.getQuantidadeMaxima());
-            stmt.setString(7, categoriaExistente.getNome());
+            DicionarioNomes.definirCategoria(conn, stmt, 7, categoriaExistente.getNome());
             
-            stmt.executeUpdate();
+            AlteracoesEstoque.iniciarGravacao();
+            try {
+                stmt.executeUpdate();
+                AlteracoesEstoque.avisar(ouvinte -> ouvinte.produtoGravado(produto));
+            } finally {
+                AlteracoesEstoque.concluirGravacao();
+            }
+            CacheEntidades.produtoAlterado(produto.getNome());
             return produto;
             
         } catch (SQLException e) {
+            if (e.getErrorCode() == 1062) { // Chave duplicada
+                throw new Exception("Já existe um produto com este nome");
+            }
             throw new Exception("Erro ao criar produto: " + e.getMessage());
+        } finally {
+            SQL_CRIAR.registrar(System.nanoTime() - inicio);
         }
     }
     
     /**
-     * Busca um produto pelo nome.
+     * Grava produtos em massa (PRODUTO_IMPORTAR): cria os novos e atualiza os existentes, em uma
+     * única transação. Cada produto é conferido antes (nome, unidade, preço e categoria, contra
+     * as categorias lidas uma vez do cache), e os aceitos são gravados em INSERTs de
+     * {@link #PRODUTOS_POR_INSERT} linhas com ON DUPLICATE KEY UPDATE, ou por LOAD DATA LOCAL
+     * INFILE com db.importacao.loadData. O estoque informado só vale para produtos novos.
+     *
+     * Retorna, na ordem recebida, null para cada produto gravado ou o motivo da recusa.
+     * Uma falha do banco desfaz a transação inteira e é lançada.
      */
-    public Produto buscarPorNome(String nome) {
-        String sql = "SELECT p.nome, p.preco, p.unidade, p.estoque_atual, p.estoque_minimo, p.estoque_maximo, " +
-                     "c.nome as categoria_nome, c.tamanho, c.embalagem " +
-                     "FROM produtos p " +
-                     "INNER JOIN categorias c ON p.categoria_nome = c.nome " +
-                     "WHERE p.nome = ?";
+    public List<String> importar(List<Produto> produtos) throws Exception {
+        String[] erros = new String[produtos.size()];
+        if (produtos.isEmpty()) {
+            return Arrays.asList(erros);
+        }
+        Set<String> categorias = new HashSet<>();
+        for (Categoria categoria : categoriaDAO.listarTodas()) {
+            categorias.add(categoria.getNome());
+        }
+        List<Produto> aceitos = new ArrayList<>(produtos.size());
+        for (int i = 0; i < produtos.size(); i++) {
+            erros[i] = validarImportacao(produtos.get(i), categorias);
+            if (erros[i] == null) {
+                aceitos.add(produtos.get(i));
+            }
+        }
+        if (aceitos.isEmpty()) {
+            return Arrays.asList(erros);
+        }
         
+        Connection conn = null;
+        boolean originalAutoCommit = true;
+        long inicio = System.nanoTime();
+        try {
+            conn = DatabaseConnection.getInstance().getConnection();
+            originalAutoCommit = conn.getAutoCommit();
+            conn.setAutoCommit(false);
+            
+            if (DatabaseConnection.getInstance().isImportacaoLoadData()) {
+                carregarImportacao(conn, aceitos);
+            } else {
+                inserirImportacao(conn, aceitos);
+            }
+            
+            List<Produto> gravados = lerGravados(conn, aceitos);
+            AlteracoesEstoque.iniciarGravacao();
+            try {
+                conn.commit();
+                AlteracoesEstoque.avisar(ouvinte -> {
+                    for (Produto produto : gravados) {
+                        ouvinte.produtoGravado(produto);
+                    }
+                });
+            } finally {
+                AlteracoesEstoque.concluirGravacao();
+            }
+            for (Produto produto : aceitos) {
+                CacheEntidades.produtoAlterado(produto.getNome());
+            }
+            return Arrays.asList(erros);
+            
+        } catch (SQLException e) {
+            if (conn != null) {
+                try {
+                    conn.rollback();
+                } catch (SQLException rollbackEx) {
+                    System.err.println("Erro ao fazer rollback: " + rollbackEx.getMessage());
+                }
+            }
+            throw new Exception("Erro ao importar produtos: " + e.getMessage());
+        } finally {
+            SQL_IMPORTAR.registrar(System.nanoTime() - inicio);
+            if (conn != null) {
+                try {
+                    conn.setAutoCommit(originalAutoCommit);
+                } catch (SQLException e) {
+                    System.err.println("Erro ao restaurar auto-commit: " + e.getMessage());
+                }
+                try {
+                    conn.close();
+                } catch (SQLException e) {
+                    System.err.println("Erro ao devolver conexão: " + e.getMessage());
+                }
+            }
+        }
+    }
+    
+    /**
+     * Produtos importados com o estoque gravado, para os ouvintes: o dos existentes não muda na
+     * importação, então é lido do banco dentro da mesma transação (as linhas estão travadas
+     * pelo INSERT até o commit).
+     */
+    private static List<Produto> lerGravados(Connection conn, List<Produto> produtos) throws SQLException {
+        Map<String, Integer> estoques = new HashMap<>(produtos.size() * 2);
+        for (int i = 0; i < produtos.size(); i += PRODUTOS_POR_INSERT) {
+            List<Produto> grupo = produtos.subList(i, Math.min(i + PRODUTOS_POR_INSERT, produtos.size()));
+            String sql = grupo.size() == PRODUTOS_POR_INSERT ? SELECT_ESTOQUES : selectEstoques(grupo.size());
+            try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                for (int j = 0; j < grupo.size(); j++) {
+                    stmt.setString(j + 1, grupo.get(j).getNome());
+                }
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        estoques.put(rs.getString(1), rs.getInt(2));
+                    }
+                }
+            }
+        }
+        List<Produto> gravados = new ArrayList<>(produtos.size());
+        for (Produto produto : produtos) {
+            gravados.add(new Produto(produto.getNome(), produto.getPreco(), produto.getUnidade(),
+                                     estoques.getOrDefault(produto.getNome(), produto.getQuantidadeEstoque()),
+                                     produto.getQuantidadeMinima(), produto.getQuantidadeMaxima(),
+                                     produto.getCategoria()));
+        }
+        return gravados;
+    }
+    
+    private static String selectEstoques(int quantidade) {
+        StringBuilder sql = new StringBuilder("SELECT nome, estoque_atual FROM produtos WHERE nome IN (");
+        for (int i = 0; i < quantidade; i++) {
+            sql.append(i == 0 ? "?" : ", ?");
+        }
+        return sql.append(')').toString();
+    }
+    
+    /**
+     * Motivo da recusa do produto na importação, ou null se ele pode ser gravado. Confere o que
+     * faria o banco recusar o INSERT inteiro.
+     */
+    private static String validarImportacao(Produto produto, Set<String> categorias) {
+        String nome = produto.getNome();
+        if (nome == null || nome.isEmpty()) {
+            return "Nome do produto é obrigatório";
+        }
+        if (nome.length() > MAXIMO_NOME) {
+            return "Nome do produto excede " + MAXIMO_NOME + " caracteres: " + nome;
+        }
+        String unidade = produto.getUnidade();
+        if (unidade == null || unidade.isEmpty() || unidade.length() > MAXIMO_UNIDADE) {
+            return "Unidade deve ter de 1 a " + MAXIMO_UNIDADE + " caracteres: " + nome;
+        }
+        if (produto.getPrecoCentavos() < 0 || produto.getPrecoCentavos() > MAXIMO_PRECO) {
+            return "Preço fora do intervalo aceito: " + nome;
+        }
+        if (produto.getCategoria() == null || !categorias.contains(produto.getCategoria().getNome())) {
+            return "Categoria não encontrada: " + (produto.getCategoria() != null ? produto.getCategoria().getNome() : "");
+        }
+        return null;
+    }
+    
+    /**
+     * INSERTs de várias linhas: os grupos completos usam sempre o mesmo SQL (e o mesmo statement
+     * do cache da conexão); só o último grupo tem um SQL próprio.
+     */
+    private void inserirImportacao(Connection conn, List<Produto> produtos) throws SQLException {
+        int completos = produtos.size() - produtos.size() % PRODUTOS_POR_INSERT;
+        if (completos > 0) {
+            try (PreparedStatement stmt = conn.prepareStatement(UPSERT_PRODUTOS)) {
+                for (int i = 0; i < completos; i += PRODUTOS_POR_INSERT) {
+                    preencherImportacao(conn, stmt, produtos.subList(i, i + PRODUTOS_POR_INSERT));
+                    stmt.executeUpdate();
+                }
+            }
+        }
+        if (completos < produtos.size()) {
+            List<Produto> resto = produtos.subList(completos, produtos.size());
+            try (PreparedStatement stmt = conn.prepareStatement(upsertProdutos(resto.size()))) {
+                preencherImportacao(conn, stmt, resto);
+                stmt.executeUpdate();
+            }
+        }
+    }
+    
+    private static void preencherImportacao(Connection conn, PreparedStatement stmt, List<Produto> produtos)
+            throws SQLException {
+        int p = 1;
+        for (Produto produto : produtos) {
+            stmt.setString(p++, produto.getNome());
+            stmt.setBigDecimal(p++, produto.getPreco());
+            stmt.setString(p++, produto.getUnidade());
+            stmt.setInt(p++, produto.getQuantidadeEstoque());
+            stmt.setInt(p++, produto.getQuantidadeMinima());
+            stmt.setInt(p++, produto.getQuantidadeMaxima());
+            DicionarioNomes.definirCategoria(conn, stmt, p++, produto.getCategoria().getNome());
+        }
+    }
+    
+    private static String upsertProdutos(int quantidade) {
+        StringBuilder sql = new StringBuilder(
+                "INSERT INTO produtos (nome, preco, unidade, estoque_atual, estoque_minimo, estoque_maximo, " +
+                Esquema.CATEGORIA_DO_PRODUTO + ") VALUES ");
+        for (int i = 0; i < quantidade; i++) {
+            sql.append(i == 0 ? "" : ", ").append("(?, ?, ?, ?, ?, ?, ?)");
+        }
+        return sql.append(ATUALIZAR_IMPORTADO).toString();
+    }
+    
+    /**
+     * LOAD DATA LOCAL INFILE de um arquivo montado em memória para uma tabela temporária da
+     * conexão, seguido de um único INSERT ... SELECT com a mesma atualização dos existentes.
+     * Exige local_infile no servidor e allowLoadLocalInfile no Connector/J.
+     */
+    private static void carregarImportacao(Connection conn, List<Produto> produtos) throws SQLException {
+        StringBuilder arquivo = new StringBuilder(produtos.size() * 64);
+        for (Produto produto : produtos) {
+            campoImportacao(arquivo, produto.getNome()).append('\t');
+            Dinheiro.formatar(arquivo, produto.getPrecoCentavos()).append('\t');
+            campoImportacao(arquivo, produto.getUnidade()).append('\t');
+            arquivo.append(produto.getQuantidadeEstoque()).append('\t')
+                   .append(produto.getQuantidadeMinima()).append('\t')
+                   .append(produto.getQuantidadeMaxima()).append('\t');
+            campoImportacao(arquivo, produto.getCategoria().getNome()).append('\n');
+        }
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute(CRIAR_TABELA_IMPORTACAO);
+            stmt.executeUpdate(LIMPAR_TABELA_IMPORTACAO);
+            stmt.unwrap(JdbcStatement.class).setLocalInfileInputStream(
+                    new ByteArrayInputStream(arquivo.toString().getBytes(StandardCharsets.UTF_8)));
+            stmt.executeUpdate(CARREGAR_TABELA_IMPORTACAO);
+            stmt.executeUpdate(UPSERT_DA_TABELA_IMPORTACAO);
+            stmt.executeUpdate(LIMPAR_TABELA_IMPORTACAO);
+        }
+    }
+    
+    /**
+     * Texto com os escapes de LOAD DATA (barra invertida, tabulação e quebras de linha).
+     */
+    private static StringBuilder campoImportacao(StringBuilder arquivo, String valor) {
+        for (int i = 0; i < valor.length(); i++) {
+            char c = valor.charAt(i);
+            switch (c) {
+                case '\\': arquivo.append("\\\\"); break;
+                case '\t': arquivo.append("\\t"); break;
+                case '\n': arquivo.append("\\n"); break;
+                case '\r': arquivo.append("\\r"); break;
+                default: arquivo.append(c);
+            }
+        }
+        return arquivo;
+    }
+    
+    /**
+     * Busca um produto pelo nome, passando pelo cache (ver {@link CacheEntidades}).
+     * Retorna uma cópia: alterar o objeto não afeta o cache.
+     */
+    public Produto buscarPorNome(String nome) {
+        return CacheEntidades.copiar(CacheEntidades.PRODUTOS.obter(nome, this::buscarNoBanco));
+    }
+    
+    private Produto buscarNoBanco(String nome) {
+        long inicio = System.nanoTime();
         try (Connection conn = DatabaseConnection.getInstance().getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
+             PreparedStatement stmt = conn.prepareStatement(SELECT_POR_NOME)) {
             
             stmt.setString(1, nome);
             
             try (ResultSet rs = stmt.executeQuery()) {
                 if (rs.next()) {
-                    return criarProdutoDoResultSet(rs);
+                    return new MapeadorProduto(rs).mapear(rs);
                 }
             }
             
         } catch (SQLException e) {
             System.err.println("Erro ao buscar produto: " + e.getMessage());
+        } finally {
+            SQL_BUSCAR.registrar(System.nanoTime() - inicio);
         }
         
         return null;
@@ -104,27 +423,33 @@ public class ProdutoDAO {
      */
     public List<Produto> listarTodos() {
         List<Produto> produtos = new ArrayList<>();
-        String sql = "SELECT p.nome, p.preco, p.unidade, p.estoque_atual, p.estoque_minimo, p.estoque_maximo, " +
-                     "c.nome as categoria_nome, c.tamanho, c.embalagem " +
-                     "FROM produtos p " +
-                     "INNER JOIN categorias c ON p.categoria_nome = c.nome " +
-                     "ORDER BY p.nome";
-        
+        long inicio = System.nanoTime();
         try (Connection conn = DatabaseConnection.getInstance().getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql);
+             PreparedStatement stmt = conn.prepareStatement(SELECT_TODOS);
              ResultSet rs = stmt.executeQuery()) {
             
+            MapeadorProduto mapeador = new MapeadorProduto(rs);
             while (rs.next()) {
-                produtos.add(criarProdutoDoResultSet(rs));
+                produtos.add(mapeador.mapear(rs));
             }
             
         } catch (SQLException e) {
             System.err.println("Erro ao listar produtos: " + e.getMessage());
+        } finally {
+            SQL_LISTAR.registrar(System.nanoTime() - inicio);
         }
         
         return produtos;
     }
     
+    /**
+     * Percorre todos os produtos em ordem de nome sem montar a lista em memória
+     * (ver {@link LeituraContinua}). Retorna a quantidade de produtos aceitos pelo consumidor.
+     */
+    public long percorrerTodos(ConsumidorRegistro<Produto> consumidor) throws Exception {
+        return LeituraContinua.percorrer(SELECT_TODOS, MapeadorProduto::new, consumidor, "Erro ao listar produtos: ");
+    }
+    
     /**
      * Atualiza um produto existente.
      */
@@ -133,11 +458,6 @@ public class ProdutoDAO {
             throw new Exception("Produto não pode ser nulo");
         }
         
-        Produto produtoExistente = buscarPorNome(produtoAtualizado.getNome());
-        if (produtoExistente == null) {
-            throw new Exception("Produto não encontrado");
-        }
-        
         // Verificar se a categoria existe se foi alterada
         if (produtoAtualizado.getCategoria() != null) {
             Categoria categoriaExistente = categoriaDAO.buscarPorNome(produtoAtualizado.getCategoria().getNome());
@@ -146,25 +466,38 @@ public class ProdutoDAO {
             }
         }
         
-        String sql = "UPDATE produtos SET preco = ?, unidade = ?, estoque_atual = ?, " +
-                     "estoque_minimo = ?, estoque_maximo = ?, categoria_nome = ? WHERE nome = ?";
-        
+        long inicio = System.nanoTime();
         try (Connection conn = DatabaseConnection.getInstance().getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
+             PreparedStatement stmt = conn.prepareStatement(UPDATE_PRODUTO)) {
             
-            stmt.setDouble(1, produtoAtualizado.getPrecoUnitario());
+            stmt.setBigDecimal(1, produtoAtualizado.getPreco());
             stmt.setString(2, produtoAtualizado.getUnidade());
             stmt.setInt(3, produtoAtualizado.getQuantidadeEstoque());
             stmt.setInt(4, produtoAtualizado.getQuantidadeMinima());
             stmt.setInt(5, produtoAtualizado.getQuantidadeMaxima());
-            stmt.setString(6, produtoAtualizado.getCategoria().getNome());
+            DicionarioNomes.definirCategoria(conn, stmt, 6, produtoAtualizado.getCategoria().getNome());
             stmt.setString(7, produtoAtualizado.getNome());
             
-            stmt.executeUpdate();
+            int rowsAffected;
+            AlteracoesEstoque.iniciarGravacao();
+            try {
+                rowsAffected = stmt.executeUpdate();
+                if (rowsAffected > 0) {
+                    AlteracoesEstoque.avisar(ouvinte -> ouvinte.produtoGravado(produtoAtualizado));
+                }
+            } finally {
+                AlteracoesEstoque.concluirGravacao();
+            }
+            CacheEntidades.produtoAlterado(produtoAtualizado.getNome());
+            if (rowsAffected == 0) {
+                throw new Exception("Produto não encontrado");
+            }
             return produtoAtualizado;
             
         } catch (SQLException e) {
             throw new Exception("Erro ao atualizar produto: " + e.getMessage());
+        } finally {
+            SQL_ATUALIZAR.registrar(System.nanoTime() - inicio);
         }
     }
     
@@ -172,25 +505,35 @@ public class ProdutoDAO {
      * Deleta um produto pelo nome.
      */
     public boolean deletar(String nome) throws Exception {
-        Produto produto = buscarPorNome(nome);
-        if (produto == null) {
-            throw new Exception("Produto não encontrado");
-        }
-        
-        String sql = "DELETE FROM produtos WHERE nome = ?";
-        
+        long inicio = System.nanoTime();
         try (Connection conn = DatabaseConnection.getInstance().getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
+             PreparedStatement stmt = conn.prepareStatement(DELETE_POR_NOME)) {
             
             stmt.setString(1, nome);
-            int rowsAffected = stmt.executeUpdate();
-            return rowsAffected > 0;
+            int rowsAffected;
+            AlteracoesEstoque.iniciarGravacao();
+            try {
+                rowsAffected = stmt.executeUpdate();
+                if (rowsAffected > 0) {
+                    AlteracoesEstoque.avisar(ouvinte -> ouvinte.produtoRemovido(nome));
+                }
+            } finally {
+                AlteracoesEstoque.concluirGravacao();
+            }
+            CacheEntidades.produtoAlterado(nome);
+            DicionarioNomes.produtoRemovido(nome);
+            if (rowsAffected == 0) {
+                throw new Exception("Produto não encontrado");
+            }
+            return true;
             
         } catch (SQLException e) {
             if (e.getErrorCode() == 1451) { // Foreign key constraint
                 throw new Exception("Não é possível deletar produto: existem movimentações associadas");
             }
             throw new Exception("Erro ao deletar produto: " + e.getMessage());
+        } finally {
+            SQL_DELETAR.registrar(System.nanoTime() - inicio);
         }
     }
     
@@ -199,26 +542,23 @@ public class ProdutoDAO {
      */
     public List<Produto> buscarPorCategoria(Categoria categoria) {
         List<Produto> produtos = new ArrayList<>();
-        String sql = "SELECT p.nome, p.preco, p.unidade, p.estoque_atual, p.estoque_minimo, p.estoque_maximo, " +
-                     "c.nome as categoria_nome, c.tamanho, c.embalagem " +
-                     "FROM produtos p " +
-                     "INNER JOIN categorias c ON p.categoria_nome = c.nome " +
-                     "WHERE c.nome = ? " +
-                     "ORDER BY p.nome";
-        
+        long inicio = System.nanoTime();
         try (Connection conn = DatabaseConnection.getInstance().getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
+             PreparedStatement stmt = conn.prepareStatement(SELECT_POR_CATEGORIA)) {
             
             stmt.setString(1, categoria.getNome());
             
             try (ResultSet rs = stmt.executeQuery()) {
+                MapeadorProduto mapeador = new MapeadorProduto(rs);
                 while (rs.next()) {
-                    produtos.add(criarProdutoDoResultSet(rs));
+                    produtos.add(mapeador.mapear(rs));
                 }
             }
             
         } catch (SQLException e) {
             System.err.println("Erro ao buscar produtos por categoria: " + e.getMessage());
+        } finally {
+            SQL_BUSCAR_CATEGORIA.registrar(System.nanoTime() - inicio);
         }
         
         return produtos;
@@ -228,38 +568,24 @@ public class ProdutoDAO {
      * Remove todos os produtos.
      */
     public void limparTodos() {
-        String sql = "DELETE FROM produtos";
-        
+        long inicio = System.nanoTime();
         try (Connection conn = DatabaseConnection.getInstance().getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
+             PreparedStatement stmt = conn.prepareStatement(DELETE_TODOS)) {
             
-            stmt.executeUpdate();
+            AlteracoesEstoque.iniciarGravacao();
+            try {
+                stmt.executeUpdate();
+                AlteracoesEstoque.avisar(OuvinteEstoque::tudoAlterado);
+            } finally {
+                AlteracoesEstoque.concluirGravacao();
+            }
             
         } catch (SQLException e) {
             System.err.println("Erro ao limpar produtos: " + e.getMessage());
+        } finally {
+            SQL_LIMPAR.registrar(System.nanoTime() - inicio);
+            CacheEntidades.PRODUTOS.limpar();
+            DicionarioNomes.produtosRemovidos();
         }
     }
-    
-    /**
-     * Cria um objeto Produto a partir de um ResultSet.
-     */
-    private Produto criarProdutoDoResultSet(ResultSet rs) throws SQLException {
-        String nome = rs.getString("nome");
-        double preco = rs.getDouble("preco");
-        String unidade = rs.getString("unidade");
-        int estoqueAtual = rs.getInt("estoque_atual");
-        int estoqueMinimo = rs.getInt("estoque_minimo");
-        int estoqueMaximo = rs.getInt("estoque_maximo");
-        
-        // Criar categoria
-        String categoriaNome = rs.getString("categoria_nome");
-        String tamanhoStr = rs.getString("tamanho");
-        String embalagemStr = rs.getString("embalagem");
-        
-        Categoria.Tamanho tamanho = Categoria.Tamanho.valueOf(tamanhoStr);
-        Categoria.Embalagem embalagem = Categoria.Embalagem.valueOf(embalagemStr);
-        Categoria categoria = new Categoria(categoriaNome, tamanho, embalagem);
-        
-        return new Produto(nome, preco, unidade, estoqueAtual, estoqueMinimo, estoqueMaximo, categoria);
-    }
 }
@@ -0,0 +1,315 @@
+package dao;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import config.DatabaseConnection;
+import model.Movimentacao;
+import model.ResumoMovimentacao;
+import util.HistogramaLatencia;
+
+/**
+ * DAO do resumo de movimentações (movimentacoes_resumo): soma das quantidades e número de
+ * movimentações por produto e tipo, em períodos de uma hora e de um dia.
+ *
+ * O resumo é atualizado pelo {@link MovimentacaoDAO} na mesma transação que grava as
+ * movimentações, então não diverge do histórico. Uma consulta por intervalo lê os dias
+ * inteiros do resumo diário, as horas inteiras das pontas do resumo por hora e só as frações
+ * de hora das pontas na tabela movimentacoes: meses de histórico custam algumas centenas de
+ * linhas de resumo por produto, e não uma linha por movimentação.
+ *
+ * Os períodos seguem o horário local em que data_movimentacao é gravada.
+ */
+public class ResumoMovimentacaoDAO {
+    private static final HistogramaLatencia SQL_BUSCAR_TOTAIS = TemposSql.de("resumo.buscarTotais");
+
+    /** Escalas do resumo; o nome é o valor da coluna escala. */
+    enum Escala {
+        HORA(ChronoUnit.HOURS), DIA(ChronoUnit.DAYS);
+
+        final ChronoUnit unidade;
+
+        Escala(ChronoUnit unidade) {
+            this.unidade = unidade;
+        }
+
+        LocalDateTime inicio(LocalDateTime data) {
+            return data.truncatedTo(unidade);
+        }
+
+        /** Início do primeiro período que começa em {@code data} ou depois dela. */
+        LocalDateTime proximoInicio(LocalDateTime data) {
+            LocalDateTime inicio = inicio(data);
+            return inicio.equals(data) ? data : inicio.plus(1, unidade);
+        }
+    }
+
+    /** Linha do resumo afetada por uma gravação. */
+    private static final class Periodo implements Comparable<Periodo> {
+        final String produto;
+        final Escala escala;
+        final LocalDateTime inicio;
+        final Movimentacao.TipoMovimentacao tipo;
+
+        Periodo(String produto, Escala escala, LocalDateTime inicio, Movimentacao.TipoMovimentacao tipo) {
+            this.produto = produto;
+            this.escala = escala;
+            this.inicio = inicio;
+            this.tipo = tipo;
+        }
+
+        @Override
+        public int compareTo(Periodo outro) {
+            int comparacao = produto.compareTo(outro.produto);
+            if (comparacao == 0) {
+                comparacao = escala.compareTo(outro.escala);
+            }
+            if (comparacao == 0) {
+                comparacao = inicio.compareTo(outro.inicio);
+            }
+            return comparacao != 0 ? comparacao : tipo.compareTo(outro.tipo);
+        }
+    }
+
+    /**
+     * Soma as movimentações ao resumo, na transação de {@code conn}. Movimentações sem data
+     * contam em {@code dataPadrao}, a mesma data com que foram inseridas.
+     */
+    static void acumular(Connection conn, List<Movimentacao> movimentacoes, LocalDateTime dataPadrao)
+            throws SQLException {
+        // Em ordem, para que transações simultâneas bloqueiem as linhas do resumo na mesma sequência
+        Map<Periodo, long[]> totais = new TreeMap<>();
+        for (Movimentacao movimentacao : movimentacoes) {
+            LocalDateTime data = movimentacao.getData() != null ? movimentacao.getData() : dataPadrao;
+            for (Escala escala : Escala.values()) {
+                Periodo periodo = new Periodo(movimentacao.getProduto().getNome(), escala,
+                                              escala.inicio(data), movimentacao.getTipo());
+                long[] total = totais.computeIfAbsent(periodo, p -> new long[2]);
+                total[0] += movimentacao.getQuantidade();
+                total[1]++;
+            }
+        }
+
+        String sql = "INSERT INTO movimentacoes_resumo (" + Esquema.PRODUTO_DA_MOVIMENTACAO +
+                     ", escala, inicio, tipo, quantidade, movimentacoes) VALUES (?, ?, ?, ?, ?, ?) " +
+                     "ON DUPLICATE KEY UPDATE quantidade = quantidade + VALUES(quantidade), " +
+                     "movimentacoes = movimentacoes + VALUES(movimentacoes)";
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            for (Map.Entry<Periodo, long[]> total : totais.entrySet()) {
+                Periodo periodo = total.getKey();
+                DicionarioNomes.definirProduto(conn, stmt, 1, periodo.produto);
+                stmt.setString(2, periodo.escala.name());
+                stmt.setTimestamp(3, Timestamp.valueOf(periodo.inicio));
+                stmt.setString(4, periodo.tipo.toString());
+                stmt.setLong(5, total.getValue()[0]);
+                stmt.setLong(6, total.getValue()[1]);
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+        }
+    }
+
+    /**
+     * Remove todo o resumo, na transação de {@code conn}.
+     */
+    static void limpar(Connection conn) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement("DELETE FROM movimentacoes_resumo")) {
+            stmt.executeUpdate();
+        }
+    }
+
+    /**
+     * Totais de movimentações entre {@code de} (inclusivo) e {@code ate} (exclusivo), por produto
+     * ou, com {@code porDia}, por produto e dia. {@code produto} null considera todos os produtos.
+     * Produtos sem movimentações no intervalo ficam fora da lista, ordenada por dia e produto.
+     */
+    public List<ResumoMovimentacao> buscarTotais(String produto, LocalDateTime de, LocalDateTime ate,
+                                                 boolean porDia) throws Exception {
+        if (de == null || ate == null || !de.isBefore(ate)) {
+            throw new Exception("Intervalo inválido: a data inicial deve ser anterior à final");
+        }
+
+        Consulta consulta = new Consulta(produto, porDia);
+        LocalDateTime primeiroDia = Escala.DIA.proximoInicio(de);
+        LocalDateTime ultimoDia = Escala.DIA.inicio(ate);
+        if (primeiroDia.isAfter(ultimoDia)) {
+            // Intervalo dentro de um único dia
+            consulta.fracaoDeDia(de, ate);
+        } else {
+            consulta.fracaoDeDia(de, primeiroDia);
+            consulta.resumo(Escala.DIA, primeiroDia, ultimoDia, null);
+            consulta.fracaoDeDia(ultimoDia, ate);
+        }
+
+        long inicio = System.nanoTime();
+        try (Connection conn = DatabaseConnection.getInstance().getConnection()) {
+            return consulta.executar(conn);
+        } catch (SQLException e) {
+            throw new Exception("Erro ao consultar resumo de movimentações: " + e.getMessage());
+        } finally {
+            SQL_BUSCAR_TOTAIS.registrar(System.nanoTime() - inicio);
+        }
+    }
+
+    /** Totais de um produto em um dia (ou no intervalo), somados entre as partes da consulta. */
+    private static final class Totais {
+        final String produto;
+        final LocalDate dia;
+        long entradas;
+        long saidas;
+        long movimentacoesEntrada;
+        long movimentacoesSaida;
+
+        Totais(String produto, LocalDate dia) {
+            this.produto = produto;
+            this.dia = dia;
+        }
+    }
+
+    /**
+     * União das partes do intervalo (resumo diário, resumo por hora e movimentações),
+     * somada por produto, dia e tipo.
+     */
+    private static final class Consulta {
+        private final String produto;
+        private final boolean porDia;
+        private final StringBuilder partes = new StringBuilder();
+        /** Parâmetros na ordem do SQL: datas, e null no lugar de cada filtro de produto. */
+        private final List<LocalDateTime> parametros = new ArrayList<>();
+
+        Consulta(String produto, boolean porDia) {
+            this.produto = produto;
+            this.porDia = porDia;
+        }
+
+        /**
+         * Trecho [de, ate) de um único dia: horas inteiras do resumo por hora e o restante
+         * direto das movimentações.
+         */
+        void fracaoDeDia(LocalDateTime de, LocalDateTime ate) {
+            if (!de.isBefore(ate)) {
+                return;
+            }
+            LocalDateTime dia = Escala.DIA.inicio(de);
+            LocalDateTime primeiraHora = Escala.HORA.proximoInicio(de);
+            LocalDateTime ultimaHora = Escala.HORA.inicio(ate);
+            if (primeiraHora.isAfter(ultimaHora)) {
+                movimentacoes(de, ate, dia);
+                return;
+            }
+            movimentacoes(de, primeiraHora, dia);
+            resumo(Escala.HORA, primeiraHora, ultimaHora, dia);
+            movimentacoes(ultimaHora, ate, dia);
+        }
+
+        /**
+         * Períodos da escala que começam em [de, ate); {@code dia} null usa o início de cada período.
+         */
+        void resumo(Escala escala, LocalDateTime de, LocalDateTime ate, LocalDateTime dia) {
+            if (!de.isBefore(ate)) {
+                return;
+            }
+            String coluna = Esquema.PRODUTO_DA_MOVIMENTACAO;
+            adicionar("SELECT " + coluna + " AS produto, " + (dia == null && porDia ? "inicio" : colunaDia()) +
+                      " AS dia, tipo, quantidade, movimentacoes FROM movimentacoes_resumo " +
+                      "WHERE escala = '" + escala.name() + "' AND inicio >= ? AND inicio < ?" + filtroProduto(),
+                      dia, de, ate);
+        }
+
+        /**
+         * Movimentações em [de, ate), somadas na hora; {@code dia} é o dia do trecho.
+         */
+        void movimentacoes(LocalDateTime de, LocalDateTime ate, LocalDateTime dia) {
+            if (!de.isBefore(ate)) {
+                return;
+            }
+            String coluna = Esquema.PRODUTO_DA_MOVIMENTACAO;
+            adicionar("SELECT " + coluna + " AS produto, " + colunaDia() + " AS dia, tipo, " +
+                      "SUM(quantidade) AS quantidade, COUNT(*) AS movimentacoes FROM movimentacoes " +
+                      "WHERE data_movimentacao >= ? AND data_movimentacao < ?" + filtroProduto() +
+                      " GROUP BY " + coluna + ", tipo",
+                      dia, de, ate);
+        }
+
+        private String colunaDia() {
+            return porDia ? "CAST(? AS DATETIME)" : "NULL";
+        }
+
+        private String filtroProduto() {
+            return produto != null ? " AND " + Esquema.PRODUTO_DA_MOVIMENTACAO + " = ?" : "";
+        }
+
+        private void adicionar(String sql, LocalDateTime dia, LocalDateTime de, LocalDateTime ate) {
+            if (partes.length() > 0) {
+                partes.append(" UNION ALL ");
+            }
+            partes.append(sql);
+            if (porDia && dia != null) {
+                parametros.add(dia);
+            }
+            parametros.add(de);
+            parametros.add(ate);
+            if (produto != null) {
+                parametros.add(null);
+            }
+        }
+
+        List<ResumoMovimentacao> executar(Connection conn) throws SQLException {
+            String sql = "SELECT produto, dia, tipo, SUM(quantidade) AS quantidade, SUM(movimentacoes) AS movimentacoes " +
+                         "FROM (" + partes + ") partes GROUP BY produto, dia, tipo";
+
+            Map<String, Totais> totais = new LinkedHashMap<>();
+            try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                for (int i = 0; i < parametros.size(); i++) {
+                    LocalDateTime parametro = parametros.get(i);
+                    if (parametro != null) {
+                        stmt.setTimestamp(i + 1, Timestamp.valueOf(parametro));
+                    } else {
+                        DicionarioNomes.definirProduto(conn, stmt, i + 1, produto);
+                    }
+                }
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        String nome = Esquema.CHAVES_INTEIRAS
+                                ? DicionarioNomes.nomeDoProduto(conn, rs.getInt("produto"))
+                                : rs.getString("produto");
+                        if (nome == null) {
+                            continue;
+                        }
+                        Timestamp inicio = rs.getTimestamp("dia");
+                        LocalDate dia = inicio != null ? inicio.toLocalDateTime().toLocalDate() : null;
+                        Totais total = totais.computeIfAbsent(dia + "|" + nome, c -> new Totais(nome, dia));
+                        if ("ENTRADA".equals(rs.getString("tipo"))) {
+                            total.entradas += rs.getLong("quantidade");
+                            total.movimentacoesEntrada += rs.getLong("movimentacoes");
+                        } else {
+                            total.saidas += rs.getLong("quantidade");
+                            total.movimentacoesSaida += rs.getLong("movimentacoes");
+                        }
+                    }
+                }
+            }
+
+            List<ResumoMovimentacao> resumos = new ArrayList<>(totais.size());
+            for (Totais total : totais.values()) {
+                resumos.add(new ResumoMovimentacao(total.produto, total.dia, total.entradas, total.saidas,
+                                                   total.movimentacoesEntrada, total.movimentacoesSaida));
+            }
+            resumos.sort(Comparator.comparing(ResumoMovimentacao::getDia, Comparator.nullsFirst(Comparator.naturalOrder()))
+                                   .thenComparing(ResumoMovimentacao::getProduto));
+            return resumos;
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package dao;
+
+import util.HistogramaLatencia;
+import util.Metricas;
+
+/**
+ * Histogramas do tempo das operações de banco dos DAOs, um por método, publicados como
+ * {@code estoque_sql_segundos{operacao="..."}}. O tempo inclui a espera por uma conexão do pool
+ * e a leitura do resultado; os DAOs guardam o histograma em um campo estático.
+ */
+final class TemposSql {
+
+    private TemposSql() {
+    }
+
+    static HistogramaLatencia de(String operacao) {
+        return Metricas.histograma("estoque_sql_segundos", "Tempo das operações de banco dos DAOs",
+                                   "operacao", operacao);
+    }
+}
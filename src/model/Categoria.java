@@ -0,0 +1,34 @@
+package model;
+
+public class Categoria {
+    public enum Tamanho {
+        PEQUENO, MEDIO, GRANDE
+    }
+
+    public enum Embalagem {
+        LATA, VIDRO, PLASTICO
+    }
+
+    // Imutável: a mesma instância é compartilhada pelos produtos da categoria
+    private final String nome;
+    private final Tamanho tamanho;
+    private final Embalagem embalagem;
+
+    public Categoria(String nome, Tamanho tamanho, Embalagem embalagem) {
+        this.nome = nome;
+        this.tamanho = tamanho;
+        this.embalagem = embalagem;
+    }
+
+    public String getNome() {
+        return nome;
+    }
+
+    public Tamanho getTamanho() {
+        return tamanho;
+    }
+
+    public Embalagem getEmbalagem() {
+        return embalagem;
+    }
+}
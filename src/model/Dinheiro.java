@@ -0,0 +1,64 @@
+package model;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Valores monetários em centavos ({@code long}), o formato usado internamente para preços e
+ * totais. A coluna preco é DECIMAL(10,2), então cada preço cabe exatamente em centavos e as
+ * somas são exatas, sem a deriva do double e sem alocar um BigDecimal por operação.
+ * BigDecimal fica só nas bordas: JDBC, parâmetros do protocolo e relatórios que expõem o valor.
+ */
+public final class Dinheiro {
+
+    private Dinheiro() {
+    }
+
+    /**
+     * Centavos do valor, arredondando a terceira casa como o MySQL faz ao gravar DECIMAL(10,2).
+     */
+    public static long centavos(BigDecimal valor) {
+        return valor.setScale(2, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    /**
+     * Valor em reais, com duas casas decimais.
+     */
+    public static BigDecimal valor(long centavos) {
+        return BigDecimal.valueOf(centavos, 2);
+    }
+
+    /**
+     * Valor de {@code quantidade} unidades; falha em vez de estourar o long.
+     */
+    public static long multiplicar(long centavos, long quantidade) {
+        return Math.multiplyExact(centavos, quantidade);
+    }
+
+    /**
+     * Soma que falha em vez de estourar o long.
+     */
+    public static long somar(long centavos, long outros) {
+        return Math.addExact(centavos, outros);
+    }
+
+    /**
+     * Acrescenta o valor com duas casas e ponto decimal (ex.: 1234.50), sem criar objetos.
+     */
+    public static StringBuilder formatar(StringBuilder sb, long centavos) {
+        if (centavos < 0) {
+            sb.append('-');
+            if (centavos == Long.MIN_VALUE) {
+                // -Long.MIN_VALUE não existe; as duas últimas casas são 08
+                return sb.append(-(Long.MIN_VALUE / 100)).append(".08");
+            }
+            centavos = -centavos;
+        }
+        long fracao = centavos % 100;
+        return sb.append(centavos / 100).append('.').append((char) ('0' + fracao / 10)).append((char) ('0' + fracao % 10));
+    }
+
+    public static String formatar(long centavos) {
+        return formatar(new StringBuilder(16), centavos).toString();
+    }
+}
@@ -0,0 +1,59 @@
+package model;
+
+import java.time.LocalDateTime;
+
+public class Movimentacao {
+    public enum TipoMovimentacao {
+        ENTRADA, SAIDA
+    }
+
+    /** Id no banco; 0 enquanto a movimentação não foi gravada. */
+    private int id;
+    private Produto produto;
+    private LocalDateTime data;
+    private int quantidade;
+    private TipoMovimentacao tipo;
+
+    public Movimentacao(Produto produto, LocalDateTime data, int quantidade, TipoMovimentacao tipo) {
+        this.produto = produto;
+        this.data = data;
+        this.quantidade = quantidade;
+        this.tipo = tipo;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public void setId(int id) {
+        this.id = id;
+    }
+
+    public Produto getProduto() {
+        return produto;
+    }
+
+    public LocalDateTime getData() {
+        return data;
+    }
+
+    public int getQuantidade() {
+        return quantidade;
+    }
+
+    public TipoMovimentacao getTipo() {
+        return tipo;
+    }
+
+    public void validarMovimentacao() throws Exception {
+        if (produto == null) {
+            throw new Exception("Produto é obrigatório");
+        }
+        if (tipo == null) {
+            throw new Exception("Tipo da movimentação é obrigatório");
+        }
+        if (quantidade <= 0) {
+            throw new Exception("Quantidade deve ser maior que zero");
+        }
+    }
+}
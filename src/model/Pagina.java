@@ -0,0 +1,29 @@
+package model;
+
+import java.util.List;
+
+/**
+ * Uma página de resultados. {@code continuacao} é o token a enviar para obter a página
+ * seguinte, ou null quando esta é a última.
+ */
+public class Pagina<T> {
+    private final List<T> itens;
+    private final String continuacao;
+
+    public Pagina(List<T> itens, String continuacao) {
+        this.itens = itens;
+        this.continuacao = continuacao;
+    }
+
+    public List<T> getItens() {
+        return itens;
+    }
+
+    public String getContinuacao() {
+        return continuacao;
+    }
+
+    public boolean temMais() {
+        return continuacao != null;
+    }
+}
@@ -1,8 +1,11 @@
 package model;
 
+import java.math.BigDecimal;
+
 public class Produto {
     private String nome;
-    private double preco;
+    /** Preço em centavos (ver {@link Dinheiro}); getPreco expõe o valor como BigDecimal. */
+    private long precoCentavos;
     private String unidade;
     private int estoqueAtual;
     private int estoqueMinimo;
@@ -10,14 +13,14 @@ public class Produto {
     private Categoria categoria;
 
     public Produto(String nome,
-                   double preco,
+                   BigDecimal preco,
                    String unidade,
                    int estoqueAtual,
                    int estoqueMinimo,
                    int estoqueMaximo,
                    Categoria categoria) {
         this.nome = nome;
-        this.preco = preco;
+        this.precoCentavos = Dinheiro.centavos(preco);
         this.unidade = unidade;
         this.estoqueAtual = estoqueAtual;
         this.estoqueMinimo = estoqueMinimo;
@@ -29,8 +32,16 @@ public class Produto {
         return nome;
     }
 
-    public double getPreco() {
-        return preco;
+    public BigDecimal getPreco() {
+        return Dinheiro.valor(precoCentavos);
+    }
+
+    public long getPrecoCentavos() {
+        return precoCentavos;
+    }
+
+    public void setPrecoCentavos(long precoCentavos) {
+        this.precoCentavos = precoCentavos;
     }
 
     public String getUnidade() {
@@ -58,12 +69,12 @@ public class Produto {
     }
 
     // Métodos alternativos para compatibilidade
-    public double getPrecoUnitario() {
-        return preco;
+    public BigDecimal getPrecoUnitario() {
+        return getPreco();
     }
 
-    public void setPrecoUnitario(double preco) {
-        this.preco = preco;
+    public void setPrecoUnitario(BigDecimal preco) {
+        this.precoCentavos = Dinheiro.centavos(preco);
     }
 
     public int getQuantidadeEstoque() {
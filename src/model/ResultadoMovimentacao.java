@@ -0,0 +1,31 @@
+package model;
+
+public class ResultadoMovimentacao {
+    private final Movimentacao movimentacao;
+    private final String erro;
+
+    private ResultadoMovimentacao(Movimentacao movimentacao, String erro) {
+        this.movimentacao = movimentacao;
+        this.erro = erro;
+    }
+
+    public static ResultadoMovimentacao sucesso(Movimentacao movimentacao) {
+        return new ResultadoMovimentacao(movimentacao, null);
+    }
+
+    public static ResultadoMovimentacao falha(Movimentacao movimentacao, String erro) {
+        return new ResultadoMovimentacao(movimentacao, erro);
+    }
+
+    public Movimentacao getMovimentacao() {
+        return movimentacao;
+    }
+
+    public boolean isSucesso() {
+        return erro == null;
+    }
+
+    public String getErro() {
+        return erro;
+    }
+}
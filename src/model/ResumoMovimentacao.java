@@ -0,0 +1,61 @@
+package model;
+
+import java.time.LocalDate;
+
+/**
+ * Totais de movimentações de um produto em um período: unidades e quantidade de movimentações
+ * de entrada e de saída.
+ */
+public class ResumoMovimentacao {
+    private final String produto;
+    /** Dia dos totais, ou null quando eles cobrem o intervalo consultado inteiro. */
+    private final LocalDate dia;
+    private final long entradas;
+    private final long saidas;
+    private final long movimentacoesEntrada;
+    private final long movimentacoesSaida;
+
+    public ResumoMovimentacao(String produto, LocalDate dia, long entradas, long saidas,
+                              long movimentacoesEntrada, long movimentacoesSaida) {
+        this.produto = produto;
+        this.dia = dia;
+        this.entradas = entradas;
+        this.saidas = saidas;
+        this.movimentacoesEntrada = movimentacoesEntrada;
+        this.movimentacoesSaida = movimentacoesSaida;
+    }
+
+    public String getProduto() {
+        return produto;
+    }
+
+    public LocalDate getDia() {
+        return dia;
+    }
+
+    /** Unidades que entraram no período. */
+    public long getEntradas() {
+        return entradas;
+    }
+
+    /** Unidades que saíram no período. */
+    public long getSaidas() {
+        return saidas;
+    }
+
+    public long getMovimentacoesEntrada() {
+        return movimentacoesEntrada;
+    }
+
+    public long getMovimentacoesSaida() {
+        return movimentacoesSaida;
+    }
+
+    public long getMovimentacoes() {
+        return movimentacoesEntrada + movimentacoesSaida;
+    }
+
+    public long getSaldo() {
+        return entradas - saidas;
+    }
+}
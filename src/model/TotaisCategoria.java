@@ -0,0 +1,36 @@
+package model;
+
+import java.math.BigDecimal;
+
+/**
+ * Totais de uma categoria: quantidade de produtos, unidades em estoque e valor do estoque.
+ */
+public class TotaisCategoria {
+    private final String categoria;
+    private final long produtos;
+    private final long unidades;
+    private final BigDecimal valor;
+
+    public TotaisCategoria(String categoria, long produtos, long unidades, BigDecimal valor) {
+        this.categoria = categoria;
+        this.produtos = produtos;
+        this.unidades = unidades;
+        this.valor = valor;
+    }
+
+    public String getCategoria() {
+        return categoria;
+    }
+
+    public long getProdutos() {
+        return produtos;
+    }
+
+    public long getUnidades() {
+        return unidades;
+    }
+
+    public BigDecimal getValor() {
+        return valor;
+    }
+}
@@ -0,0 +1,68 @@
+-- Script SQL do esquema com chaves inteiras (db.chavesInteiras=true em database.properties)
+-- Cada tabela tem um id INT como chave primária; o nome é uma coluna única.
+-- Bancos no esquema por nomes (schema.sql) são migrados automaticamente pelo
+-- DatabaseInitializer na primeira inicialização com db.chavesInteiras=true.
+
+USE estoque;
+
+-- Tabela de Categorias
+CREATE TABLE IF NOT EXISTS categorias (
+    id INT AUTO_INCREMENT PRIMARY KEY,
+    nome VARCHAR(100) NOT NULL,
+    tamanho ENUM('PEQUENO', 'MEDIO', 'GRANDE') NOT NULL,
+    embalagem ENUM('LATA', 'VIDRO', 'PLASTICO') NOT NULL,
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+    UNIQUE KEY uk_categoria_nome (nome)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+
+-- Tabela de Produtos
+CREATE TABLE IF NOT EXISTS produtos (
+    id INT AUTO_INCREMENT PRIMARY KEY,
+    nome VARCHAR(100) NOT NULL,
+    preco DECIMAL(10, 2) NOT NULL,
+    unidade VARCHAR(20) NOT NULL,
+    estoque_atual INT NOT NULL DEFAULT 0,
+    estoque_minimo INT NOT NULL DEFAULT 0,
+    estoque_maximo INT NOT NULL DEFAULT 0,
+    categoria_id INT NOT NULL,
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+    UNIQUE KEY uk_produto_nome (nome),
+    FOREIGN KEY (categoria_id) REFERENCES categorias(id) ON DELETE RESTRICT,
+    INDEX idx_categoria (categoria_id)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+
+-- Tabela de Movimentações
+CREATE TABLE IF NOT EXISTS movimentacoes (
+    id INT AUTO_INCREMENT PRIMARY KEY,
+    produto_id INT NOT NULL,
+    tipo ENUM('ENTRADA', 'SAIDA') NOT NULL,
+    quantidade INT NOT NULL,
+    observacao TEXT,
+    data_movimentacao TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    FOREIGN KEY (produto_id) REFERENCES produtos(id) ON DELETE RESTRICT,
+    -- Histórico paginado: a ordem (data_movimentacao, id) vem pronta do índice em cada filtro
+    INDEX idx_produto_data (produto_id, data_movimentacao, id),
+    INDEX idx_tipo_data (tipo, data_movimentacao, id),
+    INDEX idx_data (data_movimentacao, id)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+
+-- Controle do diário do estoque em memória: última sequência já gravada no banco
+CREATE TABLE IF NOT EXISTS diario_controle (
+    id TINYINT PRIMARY KEY,
+    sequencia BIGINT NOT NULL
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+
+-- Resumo das movimentações por produto, tipo e período (hora ou dia), mantido pelo MovimentacaoDAO
+-- na mesma transação das movimentações; preenchido a partir do histórico por util.ReconstrucaoResumos
+CREATE TABLE IF NOT EXISTS movimentacoes_resumo (
+    produto_id INT NOT NULL,
+    escala ENUM('HORA', 'DIA') NOT NULL,
+    inicio DATETIME NOT NULL,
+    tipo ENUM('ENTRADA', 'SAIDA') NOT NULL,
+    quantidade BIGINT NOT NULL,
+    movimentacoes INT NOT NULL,
+    PRIMARY KEY (produto_id, escala, inicio, tipo),
+    INDEX idx_escala_inicio (escala, inicio)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
@@ -0,0 +1,11 @@
+package server;
+
+/**
+ * Tratador de um comando do protocolo.
+ * Retorna os dados que seguem o prefixo {@code SUCCESS|}; exceções viram {@code ERROR|mensagem}.
+ */
+@FunctionalInterface
+public interface Comando {
+
+    String executar(Requisicao requisicao) throws Exception;
+}
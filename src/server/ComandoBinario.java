@@ -0,0 +1,12 @@
+package server;
+
+/**
+ * Tratador alternativo de um comando para as conexões no modo binário (ver
+ * {@link ProtocoloBinario}): escreve o corpo da resposta já codificado em {@code saida},
+ * sem montar o texto. Uma exceção vira uma resposta de erro, como no modo texto.
+ */
+@FunctionalInterface
+public interface ComandoBinario {
+
+    void executar(Requisicao requisicao, EscritorBinario saida) throws Exception;
+}
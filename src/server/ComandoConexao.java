@@ -0,0 +1,11 @@
+package server;
+
+/**
+ * Tratador de um comando que depende da conexão que o enviou (ex.: assinaturas de avisos),
+ * e por isso recebe a {@link SaidaResposta} dela. Responde como um {@link Comando}.
+ */
+@FunctionalInterface
+public interface ComandoConexao {
+
+    String executar(Requisicao requisicao, SaidaResposta saida) throws Exception;
+}
@@ -0,0 +1,15 @@
+package server;
+
+import java.util.List;
+
+/**
+ * Tratador que executa de uma vez várias requisições consecutivas do mesmo comando
+ * (por exemplo, movimentações enviadas em pipeline) — tipicamente em uma única transação.
+ * Retorna uma linha de resposta completa ({@code SUCCESS|...} ou {@code ERROR|...})
+ * para cada requisição, na mesma ordem. Uma exceção vira ERROR para todas.
+ */
+@FunctionalInterface
+public interface ComandoLote {
+
+    List<String> executar(List<Requisicao> requisicoes) throws Exception;
+}
@@ -0,0 +1,16 @@
+package server;
+
+/**
+ * Tratador de um comando cuja resposta é enviada registro a registro (listagem contínua),
+ * em vez de uma única linha montada em memória.
+ *
+ * A resposta no protocolo é {@code SUCCESS|STREAM}, seguida de linhas com um ou mais registros
+ * separados por ';' (sem '|', ver {@link SaidaStream}) e terminada por {@code END|quantidade},
+ * {@code END|quantidade|CANCELADA} (o cliente enviou CANCELAR) ou {@code ERROR|mensagem}
+ * (falha no meio da listagem).
+ */
+@FunctionalInterface
+public interface ComandoStream {
+
+    void executar(Requisicao requisicao, SaidaStream saida) throws Exception;
+}
@@ -0,0 +1,724 @@
+package server;
+
+import dao.CategoriaDAO;
+import dao.MovimentacaoDAO;
+import dao.ProdutoDAO;
+import model.Categoria;
+import model.Dinheiro;
+import model.Movimentacao;
+import model.Pagina;
+import model.Produto;
+import model.ResultadoMovimentacao;
+import model.TotaisCategoria;
+import service.EstoqueEmMemoria;
+import service.OuvinteAlertaEstoque;
+import service.RelatorioService;
+import util.Metricas;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Tratadores dos comandos de categorias, produtos, movimentações e relatórios.
+ * Listagens usam ';' entre registros e ',' entre campos.
+ */
+public class ComandosEstoque {
+
+    /** Prefixo das linhas de alerta enviadas aos assinantes, fora da ordem das respostas. */
+    static final String ALERTA = "ALERTA|";
+    /** Nome da assinatura de alertas na {@link SaidaResposta} da conexão. */
+    private static final String ASSINATURA_ALERTAS = "alertas";
+
+    /** Tamanho da página das buscas paginadas quando o cliente não informa o limite. */
+    private static final int LIMITE_PADRAO_PAGINA = 100;
+    /** Produtos lidos dos agregados de cada vez em RELATORIO_BALANCO_STREAM. */
+    private static final int PAGINA_BALANCO = 1000;
+
+    private final CategoriaDAO categoriaDAO = new CategoriaDAO();
+    private final ProdutoDAO produtoDAO = new ProdutoDAO();
+    private final MovimentacaoDAO movimentacaoDAO = new MovimentacaoDAO();
+    private final RelatorioService relatorioService = new RelatorioService();
+    /** Estoque em memória com gravação adiada; null quando as movimentações vão direto ao banco. */
+    private final EstoqueEmMemoria estoqueEmMemoria;
+
+    public ComandosEstoque() {
+        this(null);
+    }
+
+    public ComandosEstoque(EstoqueEmMemoria estoqueEmMemoria) {
+        this.estoqueEmMemoria = estoqueEmMemoria;
+    }
+
+    /**
+     * Registra todos os comandos no despachante.
+     */
+    public void registrar(Despachante despachante) {
+        despachante.registrar("CATEGORIA_CRIAR", this::criarCategoria);
+        despachante.registrar("CATEGORIA_LISTAR", req -> formatarCategorias(categoriaDAO.listarTodas()));
+        despachante.registrar("CATEGORIA_BUSCAR", this::buscarCategoria);
+        despachante.registrar("CATEGORIA_ATUALIZAR", this::atualizarCategoria);
+        despachante.registrar("CATEGORIA_DELETAR", this::deletarCategoria);
+
+        despachante.registrar("PRODUTO_CRIAR", this::criarProduto);
+        despachante.registrar("PRODUTO_LISTAR", req -> formatarProdutos(comEstoqueAtual(produtoDAO.listarTodos())));
+        despachante.registrarStream("PRODUTO_LISTAR_STREAM", this::listarProdutosStream);
+        despachante.registrar("PRODUTO_BUSCAR", this::buscarProduto);
+        despachante.registrar("PRODUTO_ATUALIZAR", this::atualizarProduto);
+        despachante.registrar("PRODUTO_DELETAR", this::deletarProduto);
+        despachante.registrar("PRODUTO_IMPORTAR", req -> importarProdutos(List.of(req)).get(0));
+        despachante.registrarLote("PRODUTO_IMPORTAR", this::importarProdutosLote);
+        // Mesmos registros de PRODUTO_LISTAR_STREAM, no formato aceito por PRODUTO_IMPORTAR
+        despachante.registrarStream("PRODUTO_EXPORTAR", this::listarProdutosStream);
+
+        despachante.registrar("MOVIMENTACAO_CRIAR", this::criarMovimentacao);
+        despachante.registrarLote("MOVIMENTACAO_CRIAR", this::criarMovimentacoes);
+        despachante.registrar("MOVIMENTACAO_LOTE", this::criarLoteMovimentacoes);
+        despachante.registrar("MOVIMENTACAO_LISTAR", req -> formatarMovimentacoes(movimentacaoDAO.listarTodas()));
+        despachante.registrarStream("MOVIMENTACAO_LISTAR_STREAM",
+                (req, saida) -> movimentacaoDAO.percorrerTodas(m -> saida.enviar(formatarMovimentacao(m))));
+        despachante.registrar("MOVIMENTACAO_PRODUTO_PAGINA", this::paginaPorProduto);
+        despachante.registrar("MOVIMENTACAO_TIPO_PAGINA", this::paginaPorTipo);
+
+        despachante.registrar("RELATORIO_LISTA_PRECOS", req -> relatorioService.gerarListaPrecos());
+        despachante.registrarStream("RELATORIO_LISTA_PRECOS_STREAM", (req, saida) ->
+                relatorioService.percorrerListaPrecos(produto -> saida.enviar(RelatorioService.formatarPreco(produto))));
+        despachante.registrar("RELATORIO_BALANCO", req -> relatorioService.gerarBalanco());
+        despachante.registrarStream("RELATORIO_BALANCO_STREAM", this::balancoStream);
+        despachante.registrar("RELATORIO_ABAIXO_MINIMO", req -> relatorioService.gerarAbaixoMinimo());
+        despachante.registrar("RELATORIO_QUANTIDADE_CATEGORIA", req -> relatorioService.gerarQuantidadePorCategoria());
+        despachante.registrar("RELATORIO_MAIS_MOVIMENTACOES", req -> relatorioService.gerarMaisMovimentacoes());
+        despachante.registrar("RELATORIO_MOVIMENTACAO_DIARIA", this::movimentacaoDiaria);
+        despachante.registrar("RELATORIO_MAIS_MOVIMENTACOES_PERIODO", this::maisMovimentacoesPeriodo);
+        despachante.registrar("RELATORIO_VERIFICAR", req -> relatorioService.verificarAgregados());
+
+        despachante.registrarConexao("ALERTA_ASSINAR", this::assinarAlertas);
+        despachante.registrarConexao("ALERTA_CANCELAR", (req, saida) ->
+                saida.cancelarAssinatura(ASSINATURA_ALERTAS) ? "Alertas cancelados" : "Nenhuma assinatura de alertas ativa");
+
+        despachante.registrar("METRICAS", req -> Metricas.formatarProtocolo());
+
+        registrarBinarios(despachante);
+    }
+
+    // ========== CATEGORIAS ==========
+
+    private String criarCategoria(Requisicao req) throws Exception {
+        Categoria categoria = new Categoria(req.texto(0),
+                                            req.enumeracao(1, Categoria.Tamanho.class),
+                                            req.enumeracao(2, Categoria.Embalagem.class));
+        categoriaDAO.criar(categoria);
+        return "Categoria criada com sucesso: " + categoria.getNome();
+    }
+
+    private String buscarCategoria(Requisicao req) throws Exception {
+        Categoria categoria = categoriaDAO.buscarPorNome(req.texto(0));
+        if (categoria == null) {
+            throw new Exception("Categoria não encontrada");
+        }
+        return formatarCategoria(categoria);
+    }
+
+    private String atualizarCategoria(Requisicao req) throws Exception {
+        Categoria categoria = new Categoria(req.texto(0),
+                                            req.enumeracao(1, Categoria.Tamanho.class),
+                                            req.enumeracao(2, Categoria.Embalagem.class));
+        categoriaDAO.atualizar(categoria);
+        return "Categoria atualizada com sucesso: " + categoria.getNome();
+    }
+
+    private String deletarCategoria(Requisicao req) throws Exception {
+        String nome = req.texto(0);
+        categoriaDAO.deletar(nome);
+        return "Categoria deletada com sucesso: " + nome;
+    }
+
+    // ========== PRODUTOS ==========
+
+    private String criarProduto(Requisicao req) throws Exception {
+        Produto produto = produtoDaRequisicao(req);
+        produtoDAO.criar(produto);
+        return "Produto criado com sucesso: " + produto.getNome();
+    }
+
+    private String buscarProduto(Requisicao req) throws Exception {
+        Produto produto = produtoDAO.buscarPorNome(req.texto(0));
+        if (produto == null) {
+            throw new Exception("Produto não encontrado");
+        }
+        return formatarProduto(comEstoqueAtual(produto));
+    }
+
+    private String atualizarProduto(Requisicao req) throws Exception {
+        Produto produto = produtoDaRequisicao(req);
+        if (estoqueEmMemoria != null) {
+            estoqueEmMemoria.alterarProduto(produto.getNome(), () -> produtoDAO.atualizar(produto));
+        } else {
+            produtoDAO.atualizar(produto);
+        }
+        return "Produto atualizado com sucesso: " + produto.getNome();
+    }
+
+    private String deletarProduto(Requisicao req) throws Exception {
+        String nome = req.texto(0);
+        if (estoqueEmMemoria != null) {
+            estoqueEmMemoria.alterarProduto(nome, () -> produtoDAO.deletar(nome));
+        } else {
+            produtoDAO.deletar(nome);
+        }
+        return "Produto deletado com sucesso: " + nome;
+    }
+
+    /**
+     * Como PRODUTO_LISTAR, mas enviando cada produto assim que é lido do banco.
+     */
+    private void listarProdutosStream(Requisicao req, SaidaStream saida) throws Exception {
+        produtoDAO.percorrerTodos(produto -> saida.enviar(formatarProduto(comEstoqueAtual(produto))));
+    }
+
+    /**
+     * PRODUTO_IMPORTAR recebidos em pipeline: os registros de todas as linhas são gravados em
+     * uma única transação, e cada linha recebe sua própria resposta.
+     */
+    private List<String> importarProdutosLote(List<Requisicao> requisicoes) throws Exception {
+        List<String> respostas = importarProdutos(requisicoes);
+        for (int i = 0; i < respostas.size(); i++) {
+            respostas.set(i, Despachante.SUCESSO + respostas.get(i));
+        }
+        return respostas;
+    }
+
+    /**
+     * PRODUTO_IMPORTAR|nome,preco,unidade,estoque,minimo,maximo,categoria;... (os registros de
+     * PRODUTO_EXPORTAR). Cria os produtos novos e atualiza preço, unidade, mínimo, máximo e
+     * categoria dos existentes; o estoque de um produto existente não muda. A resposta de cada
+     * linha é o total de gravados e recusados seguido dos registros recusados (numerados a
+     * partir de 1): {@code gravados,recusados;3,motivo;...}
+     */
+    private List<String> importarProdutos(List<Requisicao> requisicoes) throws Exception {
+        List<String[]> registros = new ArrayList<>(requisicoes.size());
+        List<Produto> produtos = new ArrayList<>();
+        List<String> erros = new ArrayList<>();
+        for (Requisicao req : requisicoes) {
+            String parametro = req.opcional(0);
+            String[] linhas = parametro != null ? parametro.split(";") : new String[0];
+            registros.add(linhas);
+            for (String linha : linhas) {
+                try {
+                    produtos.add(produtoDaLinha(linha));
+                    erros.add(null);
+                } catch (Exception e) {
+                    produtos.add(null);
+                    erros.add(e.getMessage());
+                }
+            }
+        }
+
+        List<Produto> validos = new ArrayList<>(produtos.size());
+        for (Produto produto : produtos) {
+            if (produto != null) {
+                validos.add(produto);
+            }
+        }
+        List<String> errosGravacao = produtoDAO.importar(validos);
+        for (int i = 0, j = 0; i < produtos.size(); i++) {
+            if (produtos.get(i) != null) {
+                erros.set(i, errosGravacao.get(j++));
+            }
+        }
+
+        List<String> respostas = new ArrayList<>(requisicoes.size());
+        int i = 0;
+        for (String[] linhas : registros) {
+            StringBuilder detalhes = new StringBuilder();
+            int recusados = 0;
+            for (int n = 1; n <= linhas.length; n++, i++) {
+                if (erros.get(i) != null) {
+                    detalhes.append(';').append(n).append(',').append(erros.get(i).replace(';', ','));
+                    recusados++;
+                }
+            }
+            respostas.add((linhas.length - recusados) + "," + recusados + detalhes);
+        }
+        return respostas;
+    }
+
+    private static Produto produtoDaLinha(String linha) throws Exception {
+        String[] campos = linha.split(",", -1);
+        if (campos.length != 7) {
+            throw new Exception("Linha deve ter nome,preco,unidade,estoque,minimo,maximo,categoria: " + linha.trim());
+        }
+        BigDecimal preco;
+        try {
+            preco = new BigDecimal(campos[1].trim());
+        } catch (NumberFormatException e) {
+            throw new Exception("Preço deve ser um número: " + campos[1].trim());
+        }
+        int[] quantidades = new int[3];
+        for (int i = 0; i < quantidades.length; i++) {
+            String valor = campos[3 + i].trim();
+            try {
+                quantidades[i] = Integer.parseInt(valor);
+            } catch (NumberFormatException e) {
+                throw new Exception("Quantidade deve ser um número inteiro: " + valor);
+            }
+        }
+        return new Produto(campos[0].trim(), preco, campos[2].trim(), quantidades[0], quantidades[1],
+                           quantidades[2], new Categoria(campos[6].trim(), null, null));
+    }
+
+    private Produto comEstoqueAtual(Produto produto) {
+        if (estoqueEmMemoria != null) {
+            Integer estoque = estoqueEmMemoria.getEstoque(produto.getNome());
+            if (estoque != null) {
+                produto.setQuantidadeEstoque(estoque);
+            }
+        }
+        return produto;
+    }
+
+    /**
+     * Com o estoque em memória, o valor do banco pode estar atrasado; usa o da memória.
+     */
+    private List<Produto> comEstoqueAtual(List<Produto> produtos) {
+        for (Produto produto : produtos) {
+            comEstoqueAtual(produto);
+        }
+        return produtos;
+    }
+
+    /**
+     * Lê nome|preco|unidade|qtdEstoque|qtdMin|qtdMax|categoria.
+     * A categoria é validada pelo DAO; aqui só o nome é necessário.
+     */
+    private Produto produtoDaRequisicao(Requisicao req) throws Exception {
+        Categoria categoria = new Categoria(req.texto(6), null, null);
+        return new Produto(req.texto(0), req.decimal(1), req.texto(2),
+                           req.inteiro(3), req.inteiro(4), req.inteiro(5), categoria);
+    }
+
+    // ========== MOVIMENTAÇÕES ==========
+
+    private String criarMovimentacao(Requisicao req) throws Exception {
+        Movimentacao movimentacao = movimentacaoDaRequisicao(req);
+        if (estoqueEmMemoria != null) {
+            ResultadoMovimentacao resultado = estoqueEmMemoria.movimentar(List.of(movimentacao)).get(0);
+            if (!resultado.isSucesso()) {
+                throw new Exception(resultado.getErro());
+            }
+        } else {
+            movimentacaoDAO.criar(movimentacao);
+        }
+        return respostaMovimentacao(movimentacao);
+    }
+
+    /**
+     * MOVIMENTACAO_CRIAR recebidos em pipeline: todas as movimentações válidas são gravadas
+     * em uma única transação. Cada linha continua recebendo sua própria resposta.
+     */
+    private List<String> criarMovimentacoes(List<Requisicao> requisicoes) throws Exception {
+        String[] respostas = new String[requisicoes.size()];
+        List<Movimentacao> movimentacoes = new ArrayList<>();
+        List<Integer> posicoes = new ArrayList<>();
+
+        for (int i = 0; i < requisicoes.size(); i++) {
+            try {
+                movimentacoes.add(movimentacaoDaRequisicao(requisicoes.get(i)));
+                posicoes.add(i);
+            } catch (Exception e) {
+                respostas[i] = Despachante.ERRO + Despachante.mensagemDeErro(e);
+            }
+        }
+
+        List<ResultadoMovimentacao> resultados = gravarMovimentacoes(movimentacoes);
+        for (int j = 0; j < resultados.size(); j++) {
+            ResultadoMovimentacao resultado = resultados.get(j);
+            respostas[posicoes.get(j)] = resultado.isSucesso()
+                    ? Despachante.SUCESSO + respostaMovimentacao(resultado.getMovimentacao())
+                    : Despachante.ERRO + resultado.getErro();
+        }
+        return Arrays.asList(respostas);
+    }
+
+    /**
+     * MOVIMENTACAO_LOTE|produto,TIPO,quantidade;produto,TIPO,quantidade;...
+     * Grava todas as linhas válidas em uma única transação e responde com o total de aceitas
+     * e rejeitadas seguido do resultado de cada linha (numeradas a partir de 1):
+     * {@code aceitas,rejeitadas;1,OK,novoEstoque;2,ERRO,mensagem;...}
+     */
+    private String criarLoteMovimentacoes(Requisicao req) throws Exception {
+        String[] linhas = req.texto(0).split(";");
+        String[] erros = new String[linhas.length];
+        List<Movimentacao> movimentacoes = new ArrayList<>(linhas.length);
+        List<Integer> posicoes = new ArrayList<>(linhas.length);
+
+        for (int i = 0; i < linhas.length; i++) {
+            try {
+                movimentacoes.add(movimentacaoDaLinha(linhas[i]));
+                posicoes.add(i);
+            } catch (Exception e) {
+                erros[i] = e.getMessage();
+            }
+        }
+
+        List<ResultadoMovimentacao> resultados = gravarMovimentacoes(movimentacoes);
+        Integer[] estoques = new Integer[linhas.length];
+        for (int j = 0; j < resultados.size(); j++) {
+            ResultadoMovimentacao resultado = resultados.get(j);
+            int i = posicoes.get(j);
+            if (resultado.isSucesso()) {
+                estoques[i] = resultado.getMovimentacao().getProduto().getQuantidadeEstoque();
+            } else {
+                erros[i] = resultado.getErro();
+            }
+        }
+
+        StringBuilder detalhes = new StringBuilder();
+        int aceitas = 0;
+        for (int i = 0; i < linhas.length; i++) {
+            detalhes.append(';').append(i + 1).append(',');
+            if (erros[i] == null) {
+                detalhes.append("OK,").append(estoques[i]);
+                aceitas++;
+            } else {
+                detalhes.append("ERRO,").append(erros[i].replace(';', ','));
+            }
+        }
+        return aceitas + "," + (linhas.length - aceitas) + detalhes;
+    }
+
+    private static Movimentacao movimentacaoDaLinha(String linha) throws Exception {
+        String[] campos = linha.split(",");
+        if (campos.length != 3) {
+            throw new Exception("Linha deve ter produto,tipo,quantidade: " + linha.trim());
+        }
+        String tipo = campos[1].trim().toUpperCase(Locale.ROOT);
+        String quantidade = campos[2].trim();
+        Produto produto = new Produto(campos[0].trim(), BigDecimal.ZERO, null, 0, 0, 0, null);
+        try {
+            return new Movimentacao(produto, LocalDateTime.now(), Integer.parseInt(quantidade),
+                                    Movimentacao.TipoMovimentacao.valueOf(tipo));
+        } catch (NumberFormatException e) {
+            throw new Exception("Quantidade deve ser um número inteiro: " + quantidade);
+        } catch (IllegalArgumentException e) {
+            throw new Exception("Valor inválido para TipoMovimentacao: " + tipo);
+        }
+    }
+
+    private List<ResultadoMovimentacao> gravarMovimentacoes(List<Movimentacao> movimentacoes) throws Exception {
+        return estoqueEmMemoria != null ? estoqueEmMemoria.movimentar(movimentacoes)
+                                        : movimentacaoDAO.criarLote(movimentacoes);
+    }
+
+    /**
+     * O produto é referenciado só pelo nome; o DAO lê o estoque atual na própria transação.
+     */
+    private static Movimentacao movimentacaoDaRequisicao(Requisicao req) throws Exception {
+        Produto produto = new Produto(req.texto(0), BigDecimal.ZERO, null, 0, 0, 0, null);
+        return new Movimentacao(produto, LocalDateTime.now(), req.inteiro(2),
+                                req.enumeracao(1, Movimentacao.TipoMovimentacao.class));
+    }
+
+    private static String respostaMovimentacao(Movimentacao movimentacao) {
+        return "Movimentação criada com sucesso. Novo estoque: " + movimentacao.getProduto().getQuantidadeEstoque();
+    }
+
+    /**
+     * MOVIMENTACAO_PRODUTO_PAGINA|produto|limite|continuacao|de|ate|tipo (só o produto é obrigatório).
+     */
+    private String paginaPorProduto(Requisicao req) throws Exception {
+        Movimentacao.TipoMovimentacao tipo = req.opcional(5) != null
+                ? req.enumeracao(5, Movimentacao.TipoMovimentacao.class) : null;
+        return formatarPagina(movimentacaoDAO.buscarPagina(req.texto(0), tipo, dataDaRequisicao(req, 3, false),
+                                                           dataDaRequisicao(req, 4, true), req.opcional(2),
+                                                           limiteDaRequisicao(req, 1)));
+    }
+
+    /**
+     * MOVIMENTACAO_TIPO_PAGINA|tipo|limite|continuacao|de|ate (só o tipo é obrigatório).
+     */
+    private String paginaPorTipo(Requisicao req) throws Exception {
+        return formatarPagina(movimentacaoDAO.buscarPorTipo(req.enumeracao(0, Movimentacao.TipoMovimentacao.class),
+                                                            dataDaRequisicao(req, 3, false),
+                                                            dataDaRequisicao(req, 4, true),
+                                                            req.opcional(2), limiteDaRequisicao(req, 1)));
+    }
+
+    /**
+     * RELATORIO_MOVIMENTACAO_DIARIA|de|ate|produto (ate vale agora se omitido; sem produto, todos).
+     */
+    private String movimentacaoDiaria(Requisicao req) throws Exception {
+        return relatorioService.gerarMovimentacaoDiaria(req.opcional(2), inicioDoPeriodo(req, 0), fimDoPeriodo(req, 1));
+    }
+
+    /**
+     * RELATORIO_MAIS_MOVIMENTACOES_PERIODO|de|ate|limite (ate vale agora se omitido).
+     */
+    private String maisMovimentacoesPeriodo(Requisicao req) throws Exception {
+        int limite = req.opcional(2) != null ? req.inteiro(2) : RelatorioService.LIMITE_MAIS_MOVIMENTACOES;
+        return relatorioService.gerarMaisMovimentacoesPeriodo(inicioDoPeriodo(req, 0), fimDoPeriodo(req, 1), limite);
+    }
+
+    private static LocalDateTime inicioDoPeriodo(Requisicao req, int i) throws Exception {
+        LocalDateTime de = dataDaRequisicao(req, i, false);
+        if (de == null) {
+            throw new Exception("Parâmetro " + (i + 1) + " (data inicial) é obrigatório");
+        }
+        return de;
+    }
+
+    private static LocalDateTime fimDoPeriodo(Requisicao req, int i) throws Exception {
+        LocalDateTime ate = dataDaRequisicao(req, i, true);
+        return ate != null ? ate : LocalDateTime.now();
+    }
+
+    private static int limiteDaRequisicao(Requisicao req, int i) throws Exception {
+        return req.opcional(i) != null ? req.inteiro(i) : LIMITE_PADRAO_PAGINA;
+    }
+
+    /**
+     * Data opcional no formato aaaa-mm-dd ou aaaa-mm-ddThh:mm[:ss]. Como fim de intervalo
+     * (exclusivo), uma data sem hora vale até o fim do dia.
+     */
+    private static LocalDateTime dataDaRequisicao(Requisicao req, int i, boolean fim) throws Exception {
+        String valor = req.opcional(i);
+        if (valor == null) {
+            return null;
+        }
+        try {
+            if (valor.length() == 10) {
+                LocalDate data = LocalDate.parse(valor);
+                return (fim ? data.plusDays(1) : data).atStartOfDay();
+            }
+            return LocalDateTime.parse(valor);
+        } catch (DateTimeParseException e) {
+            throw new Exception("Parâmetro " + (i + 1) + " deve ser uma data (aaaa-mm-dd ou aaaa-mm-ddThh:mm:ss): " + valor);
+        }
+    }
+
+    /**
+     * Como RELATORIO_BALANCO, mas em páginas lidas dos agregados: cada página é copiada com a
+     * trava dos agregados e enviada depois de soltá-la, então um cliente lento não segura as
+     * atualizações. O TOTAL vem por último.
+     */
+    private void balancoStream(Requisicao req, SaidaStream saida) throws Exception {
+        List<String> pagina = new ArrayList<>(PAGINA_BALANCO);
+        String depoisDe = null;
+        do {
+            pagina.clear();
+            depoisDe = relatorioService.balanco(depoisDe, PAGINA_BALANCO, (nome, quantidade, preco, valor) ->
+                    pagina.add(RelatorioService.formatarLinhaBalanco(nome, quantidade, preco, valor)));
+            for (String linha : pagina) {
+                if (!saida.enviar(linha)) {
+                    return;
+                }
+            }
+        } while (depoisDe != null);
+    }
+
+    // ========== ALERTAS ==========
+
+    /**
+     * Assina os alertas de estoque mínimo na conexão: a cada produto que ficar abaixo do mínimo
+     * ou voltar a ele, a conexão recebe ALERTA|ABAIXO|nome,estoque,minimo ou
+     * ALERTA|REPOSTO|nome,estoque,minimo.
+     */
+    private String assinarAlertas(Requisicao req, SaidaResposta saida) throws Exception {
+        if (!saida.aceitaAvisos()) {
+            throw new Exception("Esta conexão não recebe alertas");
+        }
+        OuvinteAlertaEstoque ouvinte = (produto, estoque, minimo, abaixo) ->
+                saida.avisar(ALERTA + (abaixo ? "ABAIXO|" : "REPOSTO|") + produto + "," + estoque + "," + minimo);
+        if (!saida.assinar(ASSINATURA_ALERTAS, () -> relatorioService.cancelarAlertas(ouvinte))) {
+            return "Alertas já assinados";
+        }
+        try {
+            relatorioService.assinarAlertas(ouvinte);
+        } catch (Exception e) {
+            saida.cancelarAssinatura(ASSINATURA_ALERTAS);
+            throw e;
+        }
+        return "Alertas assinados";
+    }
+
+    // ========== MODO BINÁRIO ==========
+
+    /**
+     * Respostas compactas das listagens e relatórios para as conexões em modo binário
+     * (ver {@link ProtocoloBinario}): o corpo são os registros até o fim do quadro, com
+     * produtos pela tabela da sessão e preços em centavos. Os demais comandos respondem
+     * em texto dentro do quadro.
+     */
+    private void registrarBinarios(Despachante despachante) {
+        despachante.registrarBinario("PRODUTO_LISTAR", (req, saida) ->
+                codificarProdutos(comEstoqueAtual(produtoDAO.listarTodos()), saida));
+        despachante.registrarBinario("PRODUTO_BUSCAR", (req, saida) -> {
+            Produto produto = produtoDAO.buscarPorNome(req.texto(0));
+            if (produto == null) {
+                throw new Exception("Produto não encontrado");
+            }
+            codificarProduto(comEstoqueAtual(produto), saida);
+        });
+        despachante.registrarBinario("RELATORIO_LISTA_PRECOS", (req, saida) ->
+                codificarListaPrecos(relatorioService.listaPrecos(), saida));
+        despachante.registrarBinario("RELATORIO_BALANCO", (req, saida) ->
+                relatorioService.balanco((nome, quantidade, preco, valor) ->
+                        codificarLinhaBalanco(nome, quantidade, preco, valor, saida)));
+        despachante.registrarBinario("RELATORIO_ABAIXO_MINIMO", (req, saida) ->
+                codificarAbaixoMinimo(relatorioService.abaixoDoMinimo(), saida));
+        despachante.registrarBinario("RELATORIO_QUANTIDADE_CATEGORIA", (req, saida) ->
+                codificarTotaisCategoria(relatorioService.totaisPorCategoria(), saida));
+        despachante.registrarBinario("RELATORIO_MAIS_MOVIMENTACOES", (req, saida) ->
+                codificarMaisMovimentados(relatorioService.maisMovimentados(), saida));
+    }
+
+    /**
+     * produto, preço (centavos), unidade, estoque, mínimo, máximo, categoria.
+     */
+    static void codificarProduto(Produto produto, EscritorBinario saida) {
+        saida.produto(produto.getNome())
+             .inteiro(produto.getPrecoCentavos())
+             .texto(produto.getUnidade())
+             .inteiro(produto.getQuantidadeEstoque())
+             .inteiro(produto.getQuantidadeMinima())
+             .inteiro(produto.getQuantidadeMaxima())
+             .texto(produto.getCategoria().getNome());
+    }
+
+    static void codificarProdutos(List<Produto> produtos, EscritorBinario saida) {
+        for (Produto produto : produtos) {
+            codificarProduto(produto, saida);
+        }
+    }
+
+    /**
+     * produto, preço (centavos), unidade, categoria.
+     */
+    static void codificarListaPrecos(List<Produto> produtos, EscritorBinario saida) {
+        for (Produto produto : produtos) {
+            saida.produto(produto.getNome())
+                 .inteiro(produto.getPrecoCentavos())
+                 .texto(produto.getUnidade())
+                 .texto(produto.getCategoria().getNome());
+        }
+    }
+
+    /**
+     * Primeiro a quantidade total e o valor total; depois produto, quantidade, preço e valor.
+     */
+    static void codificarLinhaBalanco(String nome, long quantidade, long precoCentavos, long valorCentavos,
+                                      EscritorBinario saida) {
+        if (nome == null) {
+            saida.inteiro(quantidade).inteiro(valorCentavos);
+        } else {
+            saida.produto(nome).inteiro(quantidade).inteiro(precoCentavos).inteiro(valorCentavos);
+        }
+    }
+
+    /**
+     * produto, estoque, mínimo.
+     */
+    static void codificarAbaixoMinimo(List<Produto> produtos, EscritorBinario saida) {
+        for (Produto produto : produtos) {
+            saida.produto(produto.getNome())
+                 .inteiro(produto.getQuantidadeEstoque())
+                 .inteiro(produto.getQuantidadeMinima());
+        }
+    }
+
+    /**
+     * categoria, produtos, unidades.
+     */
+    static void codificarTotaisCategoria(List<TotaisCategoria> totais, EscritorBinario saida) {
+        for (TotaisCategoria total : totais) {
+            saida.texto(total.getCategoria())
+                 .inteiro(total.getProdutos())
+                 .inteiro(total.getUnidades());
+        }
+    }
+
+    /**
+     * produto, movimentações.
+     */
+    static void codificarMaisMovimentados(Map<String, Long> ranking, EscritorBinario saida) {
+        for (Map.Entry<String, Long> entry : ranking.entrySet()) {
+            saida.produto(entry.getKey()).inteiro(entry.getValue());
+        }
+    }
+
+    // ========== FORMATAÇÃO ==========
+
+    static String formatarCategoria(Categoria categoria) {
+        return categoria.getNome() + "," + categoria.getTamanho() + "," + categoria.getEmbalagem();
+    }
+
+    static String formatarCategorias(List<Categoria> categorias) {
+        StringBuilder sb = new StringBuilder();
+        for (Categoria categoria : categorias) {
+            if (sb.length() > 0) {
+                sb.append(';');
+            }
+            sb.append(formatarCategoria(categoria));
+        }
+        return sb.toString();
+    }
+
+    static String formatarProduto(Produto produto) {
+        return produto.getNome() + "," +
+               Dinheiro.formatar(produto.getPrecoCentavos()) + "," +
+               produto.getUnidade() + "," +
+               produto.getQuantidadeEstoque() + "," +
+               produto.getQuantidadeMinima() + "," +
+               produto.getQuantidadeMaxima() + "," +
+               produto.getCategoria().getNome();
+    }
+
+    static String formatarProdutos(List<Produto> produtos) {
+        StringBuilder sb = new StringBuilder();
+        for (Produto produto : produtos) {
+            if (sb.length() > 0) {
+                sb.append(';');
+            }
+            sb.append(formatarProduto(produto));
+        }
+        return sb.toString();
+    }
+
+    static String formatarMovimentacao(Movimentacao movimentacao) {
+        return movimentacao.getProduto().getNome() + "," +
+               movimentacao.getTipo() + "," +
+               movimentacao.getQuantidade() + "," +
+               movimentacao.getData();
+    }
+
+    /**
+     * O primeiro campo é o token da próxima página (vazio na última), seguido das movimentações.
+     */
+    static String formatarPagina(Pagina<Movimentacao> pagina) {
+        StringBuilder sb = new StringBuilder();
+        if (pagina.temMais()) {
+            sb.append(pagina.getContinuacao());
+        }
+        for (Movimentacao movimentacao : pagina.getItens()) {
+            sb.append(';').append(formatarMovimentacao(movimentacao));
+        }
+        return sb.toString();
+    }
+
+    static String formatarMovimentacoes(List<Movimentacao> movimentacoes) {
+        StringBuilder sb = new StringBuilder();
+        for (Movimentacao movimentacao : movimentacoes) {
+            if (sb.length() > 0) {
+                sb.append(';');
+            }
+            sb.append(formatarMovimentacao(movimentacao));
+        }
+        return sb.toString();
+    }
+}
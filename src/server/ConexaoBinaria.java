@@ -0,0 +1,171 @@
+package server;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.List;
+
+/**
+ * Lado do servidor de uma conexão que passou ao modo binário (ver {@link ProtocoloBinario}):
+ * lê as requisições dos quadros e escreve as respostas em quadros com o id de cada requisição.
+ * Comandos com tratador binário ({@link Despachante#registrarBinario}) escrevem o corpo direto;
+ * os demais passam pelo despachante como no modo texto e cada linha de resposta vira um quadro.
+ * Usada pela thread da sessão; os avisos, escritos por outra thread, usam um buffer próprio e
+ * a mesma trava de escrita da sessão.
+ */
+final class ConexaoBinaria {
+
+    private final InputStream entrada;
+    private final OutputStream saida;
+    private final Object escrita;
+    private final Despachante despachante;
+    private final int tamanhoMaximo;
+    private final TabelaProdutos produtos = new TabelaProdutos();
+    private final LeitorBinario leitor = new LeitorBinario(null);
+    private final EscritorBinario resposta;
+    private final EscritorBinario aviso = new EscritorBinario(256, null);
+
+    /** Requisições em execução pelo caminho de texto e a que recebe a próxima linha. */
+    private List<Requisicao> grupo;
+    private int atual;
+    private boolean emStream;
+
+    ConexaoBinaria(InputStream entrada, OutputStream saida, Object escrita, Despachante despachante,
+                   int tamanhoMaximo) {
+        this.entrada = entrada;
+        this.saida = saida;
+        this.escrita = escrita;
+        this.despachante = despachante;
+        this.tamanhoMaximo = tamanhoMaximo;
+        this.resposta = new EscritorBinario(8192, produtos);
+    }
+
+    /**
+     * Próxima requisição (bloqueia até chegar um quadro inteiro), ou null se a conexão terminou.
+     */
+    RequisicaoBinaria ler() throws IOException {
+        if (!leitor.lerQuadro(entrada, tamanhoMaximo)) {
+            return null;
+        }
+        return RequisicaoBinaria.ler(leitor, produtos, despachante);
+    }
+
+    boolean temDisponivel() throws IOException {
+        return entrada.available() > 0;
+    }
+
+    /**
+     * Executa as requisições em ordem. As sequências sem tratador binário vão juntas ao
+     * despachante, para manter os lotes e as listagens contínuas; {@code saidaTexto} é a saída
+     * da sessão, que entrega cada linha a {@link #enviarLinha}.
+     */
+    void executar(List<Requisicao> requisicoes, SaidaResposta saidaTexto) throws IOException {
+        int i = 0;
+        while (i < requisicoes.size()) {
+            Requisicao requisicao = requisicoes.get(i);
+            ComandoBinario binario = despachante.getBinario(requisicao.getComando());
+            if (binario != null) {
+                responderBinario(binario, (RequisicaoBinaria) requisicao);
+                i++;
+                continue;
+            }
+            int fim = i + 1;
+            while (fim < requisicoes.size() && despachante.getBinario(requisicoes.get(fim).getComando()) == null) {
+                fim++;
+            }
+            grupo = requisicoes.subList(i, fim);
+            atual = 0;
+            emStream = false;
+            try {
+                despachante.despacharSequencia(grupo, saidaTexto);
+            } finally {
+                grupo = null;
+            }
+            i = fim;
+        }
+    }
+
+    private void responderBinario(ComandoBinario comando, RequisicaoBinaria requisicao) throws IOException {
+        int produtosAntes = produtos.getTamanho();
+        resposta.limpar().natural(requisicao.getId()).octeto(ProtocoloBinario.OK_BINARIO);
+        String erro = despachante.despacharBinario(comando, requisicao, resposta);
+        if (erro != null) {
+            // Os nomes acrescentados pela resposta descartada não chegam ao cliente
+            produtos.truncar(produtosAntes);
+            resposta.limpar().natural(requisicao.getId()).octeto(ProtocoloBinario.ERRO).utf8(erro, 0);
+        }
+        synchronized (escrita) {
+            resposta.gravarQuadro(saida);
+        }
+    }
+
+    /**
+     * Converte uma linha de resposta do modo texto no quadro equivalente, com o id da requisição
+     * a que ela pertence. Chamado com a trava de escrita.
+     */
+    void enviarLinha(String linha) throws IOException {
+        long id = ((RequisicaoBinaria) grupo.get(atual)).getId();
+        resposta.limpar().natural(id);
+        if (emStream) {
+            if (linha.startsWith(Despachante.FIM_STREAM)) {
+                resposta.octeto(ProtocoloBinario.FIM_STREAM).utf8(linha, Despachante.FIM_STREAM.length());
+                encerrarResposta();
+            } else if (linha.startsWith(Despachante.ERRO)) {
+                resposta.octeto(ProtocoloBinario.ERRO).utf8(linha, Despachante.ERRO.length());
+                encerrarResposta();
+            } else {
+                enviarRegistros(id, linha);
+                return;
+            }
+        } else if (linha.equals(Despachante.INICIO_STREAM)) {
+            resposta.octeto(ProtocoloBinario.INICIO_STREAM);
+            emStream = true;
+        } else if (linha.startsWith(Despachante.SUCESSO)) {
+            resposta.octeto(ProtocoloBinario.OK_TEXTO).utf8(linha, Despachante.SUCESSO.length());
+            encerrarResposta();
+        } else {
+            int inicio = linha.startsWith(Despachante.ERRO) ? Despachante.ERRO.length() : 0;
+            resposta.octeto(ProtocoloBinario.ERRO).utf8(linha, inicio);
+            encerrarResposta();
+        }
+        resposta.gravarQuadro(saida);
+    }
+
+    /**
+     * Uma parte da listagem contínua (registros separados por ';') vira um quadro
+     * {@link ProtocoloBinario#REGISTRO} por registro.
+     */
+    private void enviarRegistros(long id, String parte) throws IOException {
+        int inicio = 0;
+        while (true) {
+            int fim = parte.indexOf(';', inicio);
+            resposta.limpar().natural(id).octeto(ProtocoloBinario.REGISTRO)
+                    .utf8(parte, inicio, fim < 0 ? parte.length() : fim);
+            resposta.gravarQuadro(saida);
+            if (fim < 0) {
+                return;
+            }
+            inicio = fim + 1;
+        }
+    }
+
+    private void encerrarResposta() {
+        emStream = false;
+        atual++;
+    }
+
+    /**
+     * Escreve um aviso (id 0). Chamado pela thread de avisos com a trava de escrita.
+     */
+    void enviarAviso(String linha) throws IOException {
+        aviso.limpar().natural(0).octeto(ProtocoloBinario.AVISO).utf8(linha, 0);
+        aviso.gravarQuadro(saida);
+    }
+
+    /**
+     * Chamado com a trava de escrita.
+     */
+    void flush() throws IOException {
+        saida.flush();
+    }
+}
@@ -0,0 +1,78 @@
+package server;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Estado de um cliente atendido pelo {@link ServidorNio}.
+ * Os campos sem sincronização pertencem à thread do seletor; as filas de
+ * requisições e respostas são compartilhadas com as threads de trabalho.
+ */
+class ConexaoNio {
+
+    final SocketChannel canal;
+    SelectionKey chave;
+
+    /** Buffer com uma linha incompleta, ou null quando não há dados pendentes. */
+    ByteBuffer parcial;
+    long ultimaAtividade = System.currentTimeMillis();
+    boolean fecharAposEscrita;
+
+    /** Requisições lidas e ainda não executadas, em ordem de chegada. */
+    final ConcurrentLinkedQueue<Requisicao> pendentes = new ConcurrentLinkedQueue<>();
+    final AtomicInteger quantidadePendentes = new AtomicInteger();
+
+    /** Garante que no máximo uma thread de trabalho processa esta conexão, preservando a ordem. */
+    final AtomicBoolean emProcessamento = new AtomicBoolean(false);
+
+    /** Respostas prontas para envio, produzidas pelas threads de trabalho. */
+    final ConcurrentLinkedQueue<ByteBuffer> saida = new ConcurrentLinkedQueue<>();
+    final AtomicLong bytesSaida = new AtomicLong();
+
+    /** Respostas já retiradas de {@link #saida} e parcialmente escritas no socket. */
+    final ArrayDeque<ByteBuffer> escrevendo = new ArrayDeque<>();
+
+    /** Saída usada pelas threads de trabalho; criada pelo servidor ao aceitar a conexão. */
+    SaidaResposta resposta;
+
+    ConexaoNio(SocketChannel canal) {
+        this.canal = canal;
+    }
+
+    void adicionarRequisicao(Requisicao requisicao) {
+        pendentes.add(requisicao);
+        quantidadePendentes.incrementAndGet();
+    }
+
+    Requisicao proximaRequisicao() {
+        Requisicao requisicao = pendentes.poll();
+        if (requisicao != null) {
+            quantidadePendentes.decrementAndGet();
+        }
+        return requisicao;
+    }
+
+    void enfileirarResposta(String resposta) {
+        ByteBuffer buffer = ByteBuffer.wrap((resposta + "\n").getBytes(StandardCharsets.UTF_8));
+        bytesSaida.addAndGet(buffer.remaining());
+        saida.add(buffer);
+    }
+
+    boolean temSaidaPendente() {
+        return !escrevendo.isEmpty() || !saida.isEmpty();
+    }
+
+    /**
+     * Sem comandos na fila, em execução ou respostas por enviar.
+     */
+    boolean estaOciosa() {
+        return quantidadePendentes.get() == 0 && !emProcessamento.get() && !temSaidaPendente();
+    }
+}
@@ -0,0 +1,378 @@
+package server;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+import util.HistogramaLatencia;
+import util.Metricas;
+
+/**
+ * Tabela de comandos do protocolo: associa o nome do comando ao seu tratador.
+ * A tabela é montada uma única vez na inicialização e depois só é lida,
+ * então pode ser compartilhada por todas as conexões sem sincronização.
+ * Cada comando tem seu histograma de latência e seu contador de erros no registro de
+ * {@link Metricas}, criados no registro do comando.
+ */
+public class Despachante {
+
+    public static final String SUCESSO = "SUCCESS|";
+    public static final String ERRO = "ERROR|";
+    /** Primeira linha da resposta de uma listagem contínua (ver {@link ComandoStream}). */
+    public static final String INICIO_STREAM = SUCESSO + "STREAM";
+    /** Prefixo da última linha de uma listagem contínua concluída ou cancelada. */
+    public static final String FIM_STREAM = "END|";
+    /** Interrompe a listagem contínua em andamento na conexão. */
+    public static final String CANCELAR = "CANCELAR";
+    /** Aviso enviado no lugar dos avisos descartados porque o cliente não os estava lendo. */
+    public static final String AVISOS_DESCARTADOS = "AVISO|DESCARTADOS";
+
+    private final Map<String, Comando> comandos = new HashMap<>();
+    private final Map<String, ComandoLote> lotes = new HashMap<>();
+    private final Map<String, ComandoStream> streams = new HashMap<>();
+    private final Map<String, ComandoConexao> daConexao = new HashMap<>();
+    private final Map<String, ComandoBinario> binarios = new HashMap<>();
+    private final Map<String, Medicao> medicoes = new HashMap<>();
+    private final List<String> nomes = new ArrayList<>();
+    /** Registros por linha das listagens contínuas (ver {@link SaidaStream}). */
+    private int registrosPorParte = 1;
+    private int caracteresPorParte = Integer.MAX_VALUE;
+    private final Metricas.Contador desconhecidos =
+        Metricas.contador("estoque_comandos_desconhecidos_total", "Linhas com comando não registrado");
+
+    /**
+     * Métricas de um comando, guardadas juntas para uma única busca por requisição.
+     */
+    private static final class Medicao {
+        final HistogramaLatencia latencia;
+        final Metricas.Contador erros;
+
+        Medicao(String nome) {
+            latencia = Metricas.histograma("estoque_comando_segundos",
+                                           "Tempo de execução dos comandos do protocolo", "comando", nome);
+            erros = Metricas.contador("estoque_comando_erros_total",
+                                      "Comandos respondidos com ERROR", "comando", nome);
+        }
+
+        void registrar(long inicio, String resposta) {
+            latencia.registrar(System.nanoTime() - inicio);
+            if (resposta.startsWith(ERRO)) {
+                erros.incrementar();
+            }
+        }
+    }
+
+    public Despachante() {
+        // O efeito do CANCELAR acontece quando a linha é lida (ver isCancelamento); a resposta
+        // segue a ordem normal e só é enviada depois do fim da listagem
+        registrar(CANCELAR, req -> "Cancelamento processado");
+        // A troca de modo é feita pela sessão que lê a linha (ver SessaoCliente)
+        registrar(ProtocoloBinario.NEGOCIACAO, req -> {
+            throw new IllegalStateException("Modo binário disponível apenas com servidor.modo=BLOQUEANTE");
+        });
+    }
+
+    /**
+     * Agrupa os registros das listagens contínuas em linhas de até {@code registros} registros
+     * (separados por ';') ou até passar de {@code caracteres}. Com 1 registro, cada registro
+     * vai em uma linha. Deve ser chamado antes do servidor aceitar conexões.
+     */
+    public void configurarPartes(int registros, int caracteres) {
+        if (registros < 1 || caracteres < 1) {
+            throw new IllegalArgumentException("Tamanho de parte inválido: " + registros + " registros, " +
+                                               caracteres + " caracteres");
+        }
+        this.registrosPorParte = registros;
+        this.caracteresPorParte = caracteres;
+    }
+
+    /**
+     * Registra o tratador de um comando. Deve ser chamado antes do servidor aceitar conexões.
+     */
+    public void registrar(String nome, Comando comando) {
+        if (comandos.putIfAbsent(nome, comando) != null) {
+            throw new IllegalStateException("Comando já registrado: " + nome);
+        }
+        nomes.add(nome);
+        medicoes.put(nome, new Medicao(nome));
+    }
+
+    /**
+     * Registra um tratador em lote para um comando já registrado. Quando um cliente envia
+     * várias linhas seguidas desse comando em pipeline, elas são entregues juntas a ele.
+     */
+    public void registrarLote(String nome, ComandoLote lote) {
+        if (!comandos.containsKey(nome)) {
+            throw new IllegalStateException("Comando não registrado: " + nome);
+        }
+        lotes.put(nome, lote);
+    }
+
+    /**
+     * Registra a codificação binária de um comando já registrado, usada pelas conexões no
+     * modo binário; sem ela, essas conexões recebem a resposta de texto dentro de um quadro.
+     */
+    public void registrarBinario(String nome, ComandoBinario comando) {
+        if (!comandos.containsKey(nome)) {
+            throw new IllegalStateException("Comando não registrado: " + nome);
+        }
+        binarios.put(nome, comando);
+    }
+
+    /**
+     * Registra um comando que recebe a saída da conexão que o enviou.
+     */
+    public void registrarConexao(String nome, ComandoConexao comando) {
+        registrar(nome, req -> {
+            throw new IllegalStateException(nome + " só pode ser executado em uma conexão");
+        });
+        daConexao.put(nome, comando);
+    }
+
+    /**
+     * Registra um comando de listagem contínua.
+     */
+    public void registrarStream(String nome, ComandoStream comando) {
+        registrar(nome, req -> {
+            throw new IllegalStateException(nome + " só pode ser executado como listagem contínua");
+        });
+        streams.put(nome, comando);
+    }
+
+    /**
+     * Indica se a requisição é um CANCELAR; os servidores verificam isso ao ler cada linha.
+     */
+    public static boolean isCancelamento(Requisicao requisicao) {
+        return CANCELAR.equals(requisicao.getComando());
+    }
+
+    public Set<String> getComandos() {
+        return comandos.keySet();
+    }
+
+    /**
+     * Interpreta e executa uma linha recebida, retornando a linha de resposta (sem o '\n').
+     */
+    public String despachar(String linha) {
+        return despachar(Requisicao.parse(linha));
+    }
+
+    /**
+     * Retorna o nome registrado que corresponde aos bytes ASCII {@code dados[inicio..fim)},
+     * sem criar uma String nova quando o comando é conhecido.
+     */
+    String nomeCanonico(byte[] dados, int inicio, int fim) {
+        for (int i = 0; i < nomes.size(); i++) {
+            String nome = nomes.get(i);
+            if (iguaisIgnorandoCaixa(nome, dados, inicio, fim)) {
+                return nome;
+            }
+        }
+        return new String(dados, inicio, fim - inicio, StandardCharsets.UTF_8).toUpperCase(Locale.ROOT);
+    }
+
+    /**
+     * Compara um nome ASCII com bytes, sem diferenciar maiúsculas de minúsculas.
+     */
+    static boolean iguaisIgnorandoCaixa(String nome, byte[] dados, int inicio, int fim) {
+        if (nome.length() != fim - inicio) {
+            return false;
+        }
+        for (int j = 0; j < nome.length(); j++) {
+            int b = dados[inicio + j];
+            if (b >= 'a' && b <= 'z') {
+                b -= 'a' - 'A';
+            }
+            if (b != nome.charAt(j)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Executa requisições recebidas em pipeline, na ordem, retornando uma resposta por requisição
+     * (listagens contínuas ocupam várias posições da lista).
+     */
+    public List<String> despacharSequencia(List<Requisicao> requisicoes) {
+        List<String> respostas = new ArrayList<>(requisicoes.size());
+        try {
+            despacharSequencia(requisicoes, new SaidaResposta() {
+                @Override
+                public void enviar(String linha) {
+                    respostas.add(linha);
+                }
+            });
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return respostas;
+    }
+
+    /**
+     * Executa requisições recebidas em pipeline, na ordem, enviando as respostas a {@code saida}.
+     * Requisições consecutivas de um comando com tratador em lote são executadas juntas;
+     * listagens contínuas são enviadas registro a registro.
+     * Uma IOException indica que a conexão falhou e as requisições restantes não foram executadas.
+     */
+    public void despacharSequencia(List<Requisicao> requisicoes, SaidaResposta saida) throws IOException {
+        int i = 0;
+        while (i < requisicoes.size()) {
+            Requisicao requisicao = requisicoes.get(i);
+            ComandoStream stream = streams.get(requisicao.getComando());
+            if (stream != null) {
+                despacharStream(stream, requisicao, saida);
+                i++;
+                continue;
+            }
+            ComandoConexao porConexao = daConexao.get(requisicao.getComando());
+            if (porConexao != null) {
+                saida.enviar(despacharConexao(porConexao, requisicao, saida));
+                i++;
+                continue;
+            }
+            ComandoLote lote = lotes.get(requisicao.getComando());
+
+            int fim = i + 1;
+            if (lote != null) {
+                while (fim < requisicoes.size() && requisicoes.get(fim).getComando().equals(requisicao.getComando())) {
+                    fim++;
+                }
+            }
+
+            if (fim - i == 1) {
+                saida.enviar(despachar(requisicao));
+            } else {
+                for (String resposta : despacharLote(lote, requisicoes.subList(i, fim))) {
+                    saida.enviar(resposta);
+                }
+            }
+            i = fim;
+        }
+    }
+
+    private void despacharStream(ComandoStream comando, Requisicao requisicao, SaidaResposta saida) throws IOException {
+        Medicao medicao = medicoes.get(requisicao.getComando());
+        long inicio = System.nanoTime();
+        String fim = ERRO;
+        saida.iniciarStream();
+        try {
+            saida.enviar(INICIO_STREAM);
+            SaidaStream registros = new SaidaStream(saida, registrosPorParte, caracteresPorParte);
+            try {
+                comando.executar(requisicao, registros);
+            } catch (IOException e) {
+                throw e;
+            } catch (Exception e) {
+                registros.concluirParte();
+                saida.enviar(ERRO + mensagemDeErro(e));
+                return;
+            }
+            registros.concluirParte();
+            fim = FIM_STREAM;
+            saida.enviar(FIM_STREAM + registros.getEnviados() + (saida.isCancelada() ? "|CANCELADA" : ""));
+        } finally {
+            saida.finalizarStream();
+            medicao.registrar(inicio, fim);
+        }
+    }
+
+    /**
+     * Todas as requisições do lote recebem a latência do lote inteiro, que é quanto cada uma
+     * esperou pela resposta.
+     */
+    private List<String> despacharLote(ComandoLote lote, List<Requisicao> requisicoes) {
+        long inicio = System.nanoTime();
+        List<String> respostas;
+        try {
+            respostas = lote.executar(requisicoes);
+            if (respostas.size() != requisicoes.size()) {
+                throw new IllegalStateException("Lote retornou " + respostas.size() +
+                                                " respostas para " + requisicoes.size() + " requisições");
+            }
+        } catch (Exception e) {
+            String erro = ERRO + mensagemDeErro(e);
+            respostas = new ArrayList<>(requisicoes.size());
+            for (int i = 0; i < requisicoes.size(); i++) {
+                respostas.add(erro);
+            }
+        }
+        Medicao medicao = medicoes.get(requisicoes.get(0).getComando());
+        for (String resposta : respostas) {
+            medicao.registrar(inicio, resposta);
+        }
+        return respostas;
+    }
+
+    /**
+     * Executa uma única requisição já interpretada.
+     */
+    public String despachar(Requisicao requisicao) {
+        Comando comando = comandos.get(requisicao.getComando());
+        if (comando == null) {
+            desconhecidos.incrementar();
+            return ERRO + "Comando desconhecido: " + requisicao.getComando();
+        }
+
+        long inicio = System.nanoTime();
+        String resposta;
+        try {
+            resposta = SUCESSO + comando.executar(requisicao);
+        } catch (Exception e) {
+            resposta = ERRO + mensagemDeErro(e);
+        }
+        medicoes.get(requisicao.getComando()).registrar(inicio, resposta);
+        return resposta;
+    }
+
+    /**
+     * Tratador binário do comando, ou null se ele só tem a resposta de texto.
+     */
+    ComandoBinario getBinario(String nome) {
+        return binarios.get(nome);
+    }
+
+    /**
+     * Executa uma requisição pelo tratador binário, que escreve o corpo em {@code saida}.
+     * Retorna null em caso de sucesso ou a mensagem de erro.
+     */
+    String despacharBinario(ComandoBinario comando, Requisicao requisicao, EscritorBinario saida) {
+        long inicio = System.nanoTime();
+        String erro = null;
+        try {
+            comando.executar(requisicao, saida);
+        } catch (Exception e) {
+            erro = mensagemDeErro(e);
+        }
+        medicoes.get(requisicao.getComando()).registrar(inicio, erro == null ? SUCESSO : ERRO);
+        return erro;
+    }
+
+    private String despacharConexao(ComandoConexao comando, Requisicao requisicao, SaidaResposta saida) {
+        long inicio = System.nanoTime();
+        String resposta;
+        try {
+            resposta = SUCESSO + comando.executar(requisicao, saida);
+        } catch (Exception e) {
+            resposta = ERRO + mensagemDeErro(e);
+        }
+        medicoes.get(requisicao.getComando()).registrar(inicio, resposta);
+        return resposta;
+    }
+
+    /**
+     * Mensagem de erro em uma única linha, para não quebrar o protocolo.
+     */
+    static String mensagemDeErro(Exception e) {
+        String mensagem = e.getMessage();
+        if (mensagem == null || mensagem.isEmpty()) {
+            mensagem = e.getClass().getSimpleName();
+        }
+        return mensagem.replace('\n', ' ').replace('\r', ' ');
+    }
+}
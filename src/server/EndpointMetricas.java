@@ -0,0 +1,59 @@
+package server;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import util.Metricas;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Executors;
+
+/**
+ * Endpoint HTTP com as métricas no formato de texto do Prometheus ({@code GET /metrics}),
+ * em uma porta separada da do protocolo (servidor.metricas.porta). Atende com uma única
+ * thread: a coleta é rara e não deve competir com os clientes.
+ */
+public class EndpointMetricas {
+
+    private final HttpServer http;
+
+    public EndpointMetricas(int porta) throws IOException {
+        http = HttpServer.create(new InetSocketAddress(porta), 0);
+        http.createContext("/metrics", this::responder);
+        http.setExecutor(Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "metricas-http");
+            t.setDaemon(true);
+            return t;
+        }));
+    }
+
+    public void iniciar() {
+        http.start();
+        System.out.println("Métricas disponíveis em http://localhost:" + http.getAddress().getPort() + "/metrics");
+    }
+
+    public void parar() {
+        http.stop(0);
+    }
+
+    private void responder(HttpExchange troca) throws IOException {
+        try (troca) {
+            if (!"GET".equals(troca.getRequestMethod()) && !"HEAD".equals(troca.getRequestMethod())) {
+                troca.sendResponseHeaders(405, -1);
+                return;
+            }
+            byte[] corpo = Metricas.formatarPrometheus().getBytes(StandardCharsets.UTF_8);
+            troca.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+            if ("HEAD".equals(troca.getRequestMethod())) {
+                troca.sendResponseHeaders(200, -1);
+                return;
+            }
+            troca.sendResponseHeaders(200, corpo.length);
+            try (OutputStream saida = troca.getResponseBody()) {
+                saida.write(corpo);
+            }
+        }
+    }
+}
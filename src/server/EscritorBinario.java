@@ -0,0 +1,167 @@
+package server;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/**
+ * Monta o conteúdo de um quadro do modo binário (ver {@link ProtocoloBinario}) em um buffer
+ * que cresce quando necessário e é reaproveitado entre quadros: depois de aquecido, codificar
+ * uma resposta não aloca memória. Usado pelo servidor para as respostas e pelos clientes para
+ * as requisições; não é thread-safe.
+ */
+public final class EscritorBinario {
+
+    private byte[] dados;
+    private int tamanho;
+    private final TabelaProdutos produtos;
+
+    /**
+     * {@code produtos} é a tabela da sessão usada por {@link #produto}; com null, os nomes de
+     * produto são sempre enviados sem número.
+     */
+    public EscritorBinario(int capacidadeInicial, TabelaProdutos produtos) {
+        this.dados = new byte[Math.max(16, capacidadeInicial)];
+        this.produtos = produtos;
+    }
+
+    public EscritorBinario limpar() {
+        tamanho = 0;
+        return this;
+    }
+
+    public int getTamanho() {
+        return tamanho;
+    }
+
+    public byte[] getDados() {
+        return dados;
+    }
+
+    public EscritorBinario octeto(int valor) {
+        garantir(1);
+        dados[tamanho++] = (byte) valor;
+        return this;
+    }
+
+    /**
+     * Varint sem sinal.
+     */
+    public EscritorBinario natural(long valor) {
+        garantir(10);
+        while ((valor & ~0x7FL) != 0) {
+            dados[tamanho++] = (byte) ((valor & 0x7F) | 0x80);
+            valor >>>= 7;
+        }
+        dados[tamanho++] = (byte) valor;
+        return this;
+    }
+
+    /**
+     * Varint com sinal (zigzag): valores pequenos, positivos ou negativos, ocupam poucos bytes.
+     */
+    public EscritorBinario inteiro(long valor) {
+        return natural((valor << 1) ^ (valor >> 63));
+    }
+
+    /**
+     * Tamanho em bytes seguido do texto em UTF-8, codificado direto no buffer.
+     */
+    public EscritorBinario texto(String texto) {
+        natural(tamanhoUtf8(texto, 0, texto.length()));
+        return utf8(texto, 0);
+    }
+
+    /**
+     * {@code texto} a partir do char {@code inicio} em UTF-8, sem o tamanho (para corpos que
+     * vão até o fim do quadro).
+     */
+    public EscritorBinario utf8(String texto, int inicio) {
+        return utf8(texto, inicio, texto.length());
+    }
+
+    /**
+     * Os chars de {@code inicio} a {@code fim} (exclusivo) de {@code texto} em UTF-8, sem o tamanho.
+     */
+    public EscritorBinario utf8(String texto, int inicio, int fim) {
+        garantir(tamanhoUtf8(texto, inicio, fim));
+        for (int i = inicio; i < fim; i++) {
+            char c = texto.charAt(i);
+            if (c < 0x80) {
+                dados[tamanho++] = (byte) c;
+            } else if (c < 0x800) {
+                dados[tamanho++] = (byte) (0xC0 | (c >> 6));
+                dados[tamanho++] = (byte) (0x80 | (c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < fim
+                       && Character.isLowSurrogate(texto.charAt(i + 1))) {
+                int cp = Character.toCodePoint(c, texto.charAt(++i));
+                dados[tamanho++] = (byte) (0xF0 | (cp >> 18));
+                dados[tamanho++] = (byte) (0x80 | ((cp >> 12) & 0x3F));
+                dados[tamanho++] = (byte) (0x80 | ((cp >> 6) & 0x3F));
+                dados[tamanho++] = (byte) (0x80 | (cp & 0x3F));
+            } else {
+                if (Character.isSurrogate(c)) {
+                    c = '\uFFFD';
+                }
+                dados[tamanho++] = (byte) (0xE0 | (c >> 12));
+                dados[tamanho++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                dados[tamanho++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Referência a um produto pela tabela da sessão: o número, se o nome já foi enviado,
+     * ou a marca de produto novo seguida do nome.
+     */
+    public EscritorBinario produto(String nome) {
+        if (produtos != null) {
+            int numero = produtos.numero(nome);
+            if (numero >= 0) {
+                return natural(numero);
+            }
+            if (produtos.adicionar(nome) >= 0) {
+                return natural(ProtocoloBinario.PRODUTO_NOVO).texto(nome);
+            }
+        }
+        return natural(ProtocoloBinario.PRODUTO_SEM_NUMERO).texto(nome);
+    }
+
+    /**
+     * Escreve o quadro: o tamanho (varint) seguido do conteúdo montado.
+     */
+    public void gravarQuadro(OutputStream saida) throws IOException {
+        long valor = tamanho;
+        while ((valor & ~0x7FL) != 0) {
+            saida.write((int) ((valor & 0x7F) | 0x80));
+            valor >>>= 7;
+        }
+        saida.write((int) valor);
+        saida.write(dados, 0, tamanho);
+    }
+
+    private static int tamanhoUtf8(String texto, int inicio, int fim) {
+        int bytes = fim - inicio;
+        for (int i = inicio; i < fim; i++) {
+            char c = texto.charAt(i);
+            if (c >= 0x800) {
+                // 3 bytes, ou 4 para um par de surrogates (que conta 2 chars)
+                bytes += 2;
+                if (Character.isHighSurrogate(c) && i + 1 < fim
+                    && Character.isLowSurrogate(texto.charAt(i + 1))) {
+                    i++;
+                }
+            } else if (c >= 0x80) {
+                bytes++;
+            }
+        }
+        return bytes;
+    }
+
+    private void garantir(int adicionais) {
+        if (tamanho + adicionais > dados.length) {
+            dados = Arrays.copyOf(dados, Math.max(dados.length * 2, tamanho + adicionais));
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package server;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Lê quadros do modo binário (ver {@link ProtocoloBinario}) e os campos de um quadro.
+ * O buffer do quadro é reaproveitado: os campos devem ser lidos antes do próximo
+ * {@link #lerQuadro}. Não é thread-safe.
+ */
+public final class LeitorBinario {
+
+    /** Buffer próprio dos quadros lidos da conexão. */
+    private byte[] quadro = new byte[256];
+    private byte[] dados = quadro;
+    private int posicao;
+    private int fim;
+    private final TabelaProdutos produtos;
+
+    /**
+     * {@code produtos} é a cópia da tabela da sessão atualizada por {@link #produto}
+     * (o lado que recebe as respostas); pode ser null se nenhum produto for lido.
+     */
+    public LeitorBinario(TabelaProdutos produtos) {
+        this.produtos = produtos;
+    }
+
+    /**
+     * Lê o próximo quadro inteiro. Retorna false se a conexão terminou antes do início de um
+     * quadro; um quadro maior que {@code tamanhoMaximo} é um erro.
+     */
+    public boolean lerQuadro(InputStream entrada, int tamanhoMaximo) throws IOException {
+        // Um timeout antes do primeiro byte não perde nada; no meio do quadro, encerra a leitura
+        int primeiro = entrada.read();
+        if (primeiro < 0) {
+            return false;
+        }
+        try {
+            return lerRestoDoQuadro(entrada, primeiro, tamanhoMaximo);
+        } catch (InterruptedIOException e) {
+            throw new IOException("Tempo esgotado no meio de um quadro", e);
+        }
+    }
+
+    private boolean lerRestoDoQuadro(InputStream entrada, int primeiro, int tamanhoMaximo) throws IOException {
+        long tamanho = 0;
+        for (int deslocamento = 0; ; deslocamento += 7) {
+            int b = deslocamento == 0 ? primeiro : entrada.read();
+            if (b < 0) {
+                throw new EOFException("Conexão encerrada no meio de um quadro");
+            }
+            if (deslocamento > 28) {
+                throw new IOException("Tamanho de quadro inválido");
+            }
+            tamanho |= (long) (b & 0x7F) << deslocamento;
+            if ((b & 0x80) == 0) {
+                break;
+            }
+        }
+        if (tamanho > tamanhoMaximo) {
+            throw new IOException("Quadro excede " + tamanhoMaximo + " bytes");
+        }
+        if (tamanho > quadro.length) {
+            quadro = Arrays.copyOf(quadro, (int) Math.min(tamanhoMaximo, Math.max(tamanho, quadro.length * 2L)));
+        }
+        int lidos = 0;
+        while (lidos < tamanho) {
+            int n = entrada.read(quadro, lidos, (int) tamanho - lidos);
+            if (n < 0) {
+                throw new EOFException("Conexão encerrada no meio de um quadro");
+            }
+            lidos += n;
+        }
+        dados = quadro;
+        posicao = 0;
+        fim = (int) tamanho;
+        return true;
+    }
+
+    /**
+     * Passa a ler {@code dados[inicio..fim)} (ex.: um quadro já em memória).
+     */
+    public void reiniciar(byte[] dados, int inicio, int fim) {
+        this.dados = dados;
+        this.posicao = inicio;
+        this.fim = fim;
+    }
+
+    public boolean temMais() {
+        return posicao < fim;
+    }
+
+    int getPosicao() {
+        return posicao;
+    }
+
+    int getFim() {
+        return fim;
+    }
+
+    byte[] getDados() {
+        return dados;
+    }
+
+    public int octeto() throws IOException {
+        if (posicao >= fim) {
+            throw truncado();
+        }
+        return dados[posicao++] & 0xFF;
+    }
+
+    public long natural() throws IOException {
+        long valor = 0;
+        for (int deslocamento = 0; deslocamento < 64; deslocamento += 7) {
+            int b = octeto();
+            valor |= (long) (b & 0x7F) << deslocamento;
+            if ((b & 0x80) == 0) {
+                return valor;
+            }
+        }
+        throw new IOException("Varint inválido no quadro binário");
+    }
+
+    public long inteiro() throws IOException {
+        long valor = natural();
+        return (valor >>> 1) ^ -(valor & 1);
+    }
+
+    public String texto() throws IOException {
+        int tamanho = tamanhoTexto();
+        String texto = new String(dados, posicao, tamanho, StandardCharsets.UTF_8);
+        posicao += tamanho;
+        return texto;
+    }
+
+    /**
+     * Pula um texto sem decodificá-lo, retornando a posição do seu primeiro byte.
+     */
+    int pularTexto() throws IOException {
+        int tamanho = tamanhoTexto();
+        int inicio = posicao;
+        posicao += tamanho;
+        return inicio;
+    }
+
+    private int tamanhoTexto() throws IOException {
+        long tamanho = natural();
+        if (tamanho > fim - posicao) {
+            throw truncado();
+        }
+        return (int) tamanho;
+    }
+
+    /**
+     * Referência a um produto (ver {@link EscritorBinario#produto}); nomes novos entram na tabela.
+     */
+    public String produto() throws IOException {
+        long referencia = natural();
+        if (referencia == ProtocoloBinario.PRODUTO_NOVO) {
+            String nome = texto();
+            produtos.adicionar(nome);
+            return nome;
+        }
+        if (referencia == ProtocoloBinario.PRODUTO_SEM_NUMERO) {
+            return texto();
+        }
+        String nome = referencia <= Integer.MAX_VALUE ? produtos.nome((int) referencia) : null;
+        if (nome == null) {
+            throw new IOException("Produto " + referencia + " não está na tabela da sessão");
+        }
+        return nome;
+    }
+
+    private static IOException truncado() {
+        return new IOException("Quadro binário truncado");
+    }
+}
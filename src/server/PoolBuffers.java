@@ -0,0 +1,41 @@
+package server;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+
+/**
+ * Pool de ByteBuffers diretos de tamanho fixo usados na leitura do servidor NIO.
+ * Uma conexão só segura um buffer enquanto tem uma linha incompleta, então milhares
+ * de conexões ociosas não ocupam memória de leitura.
+ * Não é thread-safe: usado apenas pela thread do seletor.
+ */
+class PoolBuffers {
+
+    private final ArrayDeque<ByteBuffer> livres = new ArrayDeque<>();
+    private final int tamanhoBuffer;
+    private final int maximoLivres;
+
+    PoolBuffers(int tamanhoBuffer, int maximoLivres) {
+        this.tamanhoBuffer = tamanhoBuffer;
+        this.maximoLivres = maximoLivres;
+    }
+
+    ByteBuffer obter() {
+        ByteBuffer buffer = livres.pollFirst();
+        return buffer != null ? buffer : ByteBuffer.allocateDirect(tamanhoBuffer);
+    }
+
+    /**
+     * Devolve um buffer ao pool. Buffers de outro tamanho (ampliados para linhas longas) são descartados.
+     */
+    void devolver(ByteBuffer buffer) {
+        if (buffer.isDirect() && buffer.capacity() == tamanhoBuffer && livres.size() < maximoLivres) {
+            buffer.clear();
+            livres.offerFirst(buffer);
+        }
+    }
+
+    int getTamanhoBuffer() {
+        return tamanhoBuffer;
+    }
+}
@@ -0,0 +1,76 @@
+package server;
+
+/**
+ * Constantes do modo binário do protocolo, negociado pela linha de texto {@code BINARIO}.
+ *
+ * O servidor responde {@code SUCCESS|BINARIO|1} (a versão) e, a partir daí, os dois lados
+ * trocam quadros; o cliente só envia o primeiro quadro depois de ler essa resposta. O modo
+ * texto continua sendo o padrão (telnet, depuração) e só o servidor BLOQUEANTE aceita o binário.
+ *
+ * Números são varints (7 bits por byte, o bit alto indica que há mais bytes); inteiros com
+ * sinal e centavos usam zigzag. Textos são o tamanho em bytes (varint) seguido do UTF-8.
+ *
+ * <pre>
+ * quadro     = tamanho (varint) + conteúdo
+ * requisição = id (varint) + comando (texto) + parâmetros (tag + valor cada, até o fim)
+ * resposta   = id (varint) + status (1 byte) + corpo (até o fim)
+ * </pre>
+ *
+ * O id da requisição é escolhido pelo cliente e volta na resposta, para que as respostas possam
+ * ser associadas às requisições mesmo fora de ordem; avisos (ALERTA|...) usam o id 0.
+ * Listagens contínuas respondem {@link #INICIO_STREAM}, um {@link #REGISTRO} por registro e
+ * {@link #FIM_STREAM}, todos com o id da requisição; as partes de vários registros do modo
+ * texto são divididas pelo servidor, um quadro por registro.
+ *
+ * Cada sessão tem uma tabela de produtos: o servidor numera os nomes de produto na ordem em que
+ * os envia pela primeira vez, a partir de 2. Uma referência de produto é o varint 0 seguido do
+ * nome (entrada nova, que recebe o próximo número também na cópia da tabela do cliente) ou o
+ * número já atribuído. Nas requisições, um parâmetro {@link #PRODUTO} envia só o número.
+ * Depois de {@link #MAXIMO_PRODUTOS} nomes a tabela para de crescer e os nomes novos seguem
+ * como varint 1 seguido do nome, sem número.
+ */
+public final class ProtocoloBinario {
+
+    /** Linha de texto que pede o modo binário. */
+    public static final String NEGOCIACAO = "BINARIO";
+    public static final int VERSAO = 1;
+
+    // Tags dos parâmetros das requisições
+    /** Texto UTF-8. */
+    public static final byte TEXTO = 0;
+    /** Inteiro com sinal (zigzag). */
+    public static final byte INTEIRO = 1;
+    /** Valor monetário em centavos (zigzag); lido pelo servidor como decimal com duas casas. */
+    public static final byte CENTAVOS = 2;
+    /** Número de um produto da tabela da sessão. */
+    public static final byte PRODUTO = 3;
+    /** Parâmetro opcional omitido. */
+    public static final byte VAZIO = 4;
+
+    // Status das respostas
+    /** Sucesso; o corpo é o texto que viria depois de SUCCESS| no modo texto. */
+    public static final byte OK_TEXTO = 0;
+    /** Sucesso; o corpo está no formato binário do comando (ver ComandosEstoque). */
+    public static final byte OK_BINARIO = 1;
+    /** Erro; o corpo é a mensagem. */
+    public static final byte ERRO = 2;
+    public static final byte INICIO_STREAM = 3;
+    /** Um registro de listagem contínua, em texto. */
+    public static final byte REGISTRO = 4;
+    /** Fim da listagem contínua; o corpo é o que viria depois de END| no modo texto. */
+    public static final byte FIM_STREAM = 5;
+    /** Aviso fora da ordem das respostas (id 0); o corpo é a linha completa do modo texto. */
+    public static final byte AVISO = 6;
+
+    /** Nomes numerados por sessão antes de a tabela parar de crescer. */
+    public static final int MAXIMO_PRODUTOS = 1 << 20;
+    /** Referência a um produto novo, que recebe o próximo número da tabela. */
+    static final int PRODUTO_NOVO = 0;
+    /** Referência a um produto com a tabela cheia: o nome segue e não recebe número. */
+    static final int PRODUTO_SEM_NUMERO = 1;
+    /** Números de produto começam aqui (os valores abaixo são as duas marcas acima). */
+    static final int PRIMEIRO_NUMERO = 2;
+
+    private ProtocoloBinario() {
+    }
+}
@@ -0,0 +1,97 @@
+package server;
+
+import java.math.BigDecimal;
+import java.util.Locale;
+
+/**
+ * Comando recebido de um cliente no formato {@code COMANDO|param1|param2|...}.
+ * Há duas representações: {@link RequisicaoTexto}, usada pelo servidor bloqueante
+ * (linhas lidas como String), e {@link RequisicaoBytes}, usada pelo servidor NIO,
+ * que mantém a linha em UTF-8 e só converte um parâmetro em String quando pedido.
+ */
+public abstract class Requisicao {
+
+    private final String comando;
+
+    protected Requisicao(String comando) {
+        this.comando = comando;
+    }
+
+    /**
+     * Interpreta uma linha do protocolo de texto.
+     */
+    public static Requisicao parse(String linha) {
+        return RequisicaoTexto.deLinha(linha);
+    }
+
+    public String getComando() {
+        return comando;
+    }
+
+    public abstract int getQuantidadeParametros();
+
+    /**
+     * Parâmetro de índice {@code i} sem espaços nas pontas, ou vazio se não existir.
+     */
+    protected abstract String parametro(int i);
+
+    /**
+     * Retorna o parâmetro de índice {@code i} (começando em 0, logo após o nome do comando).
+     */
+    public String texto(int i) throws Exception {
+        String valor = i < getQuantidadeParametros() ? parametro(i) : "";
+        if (valor.isEmpty()) {
+            throw parametroAusente(i);
+        }
+        return valor;
+    }
+
+    /**
+     * Parâmetro opcional: o valor sem espaços nas pontas, ou null se estiver vazio ou ausente.
+     */
+    public String opcional(int i) {
+        String valor = i < getQuantidadeParametros() ? parametro(i) : "";
+        return valor.isEmpty() ? null : valor;
+    }
+
+    public int inteiro(int i) throws Exception {
+        String valor = texto(i);
+        try {
+            return Integer.parseInt(valor);
+        } catch (NumberFormatException e) {
+            throw new Exception("Parâmetro " + (i + 1) + " deve ser um número inteiro: " + valor);
+        }
+    }
+
+    /**
+     * Número decimal exato (aceita vírgula ou ponto como separador).
+     */
+    public BigDecimal decimal(int i) throws Exception {
+        String valor = texto(i);
+        try {
+            return new BigDecimal(valor.replace(',', '.'));
+        } catch (NumberFormatException e) {
+            throw new Exception("Parâmetro " + (i + 1) + " deve ser um número: " + valor);
+        }
+    }
+
+    /**
+     * Converte o parâmetro para a constante do enum informado (sem diferenciar maiúsculas).
+     */
+    public <E extends Enum<E>> E enumeracao(int i, Class<E> tipo) throws Exception {
+        String valor = texto(i);
+        try {
+            return Enum.valueOf(tipo, valor.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw valorInvalido(tipo, valor);
+        }
+    }
+
+    protected Exception parametroAusente(int i) {
+        return new Exception("Parâmetro " + (i + 1) + " ausente para " + comando);
+    }
+
+    protected Exception valorInvalido(Class<?> tipo, String valor) {
+        return new Exception("Valor inválido para " + tipo.getSimpleName() + ": " + valor);
+    }
+}
@@ -0,0 +1,150 @@
+package server;
+
+import model.Dinheiro;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Requisição recebida em um quadro do modo binário (ver {@link ProtocoloBinario}).
+ * Inteiros e centavos chegam já como números e são entregues por {@link #inteiro} e
+ * {@link #decimal} sem passar por texto; os textos só são decodificados quando pedidos.
+ */
+final class RequisicaoBinaria extends Requisicao {
+
+    private final long id;
+    private final byte[] dados;
+    private final byte[] tags;
+    /** Valor dos números; nos textos, a posição do primeiro byte (alto) e o tamanho (baixo). */
+    private final long[] valores;
+    private final String[] textos;
+
+    private RequisicaoBinaria(String comando, long id, byte[] dados, byte[] tags, long[] valores, String[] textos) {
+        super(comando);
+        this.id = id;
+        this.dados = dados;
+        this.tags = tags;
+        this.valores = valores;
+        this.textos = textos;
+    }
+
+    /**
+     * Interpreta o quadro que {@code leitor} acabou de ler. Os bytes são copiados, então o
+     * leitor pode passar ao próximo quadro enquanto a requisição espera na fila.
+     */
+    static RequisicaoBinaria ler(LeitorBinario leitor, TabelaProdutos produtos, Despachante despachante)
+            throws IOException {
+        long id = leitor.natural();
+        int inicioComando = leitor.pularTexto();
+        int fimComando = leitor.getPosicao();
+        String comando = despachante.nomeCanonico(leitor.getDados(), inicioComando, fimComando);
+
+        byte[] dados = Arrays.copyOf(leitor.getDados(), leitor.getFim());
+        LeitorBinario parametros = new LeitorBinario(produtos);
+        parametros.reiniciar(dados, leitor.getPosicao(), dados.length);
+        int quantidade = 0;
+        while (parametros.temMais()) {
+            pularParametro(parametros);
+            quantidade++;
+        }
+
+        byte[] tags = new byte[quantidade];
+        long[] valores = new long[quantidade];
+        String[] textos = new String[quantidade];
+        parametros.reiniciar(dados, leitor.getPosicao(), dados.length);
+        for (int i = 0; i < quantidade; i++) {
+            byte tag = (byte) parametros.octeto();
+            tags[i] = tag;
+            switch (tag) {
+                case ProtocoloBinario.TEXTO:
+                    int inicio = parametros.pularTexto();
+                    valores[i] = ((long) inicio << 32) | (parametros.getPosicao() - inicio);
+                    break;
+                case ProtocoloBinario.INTEIRO:
+                case ProtocoloBinario.CENTAVOS:
+                    valores[i] = parametros.inteiro();
+                    break;
+                case ProtocoloBinario.PRODUTO:
+                    long numero = parametros.natural();
+                    textos[i] = numero <= Integer.MAX_VALUE ? produtos.nome((int) numero) : null;
+                    if (textos[i] == null) {
+                        throw new IOException("Produto " + numero + " não está na tabela da sessão");
+                    }
+                    break;
+                default:
+                    textos[i] = "";
+            }
+        }
+        return new RequisicaoBinaria(comando, id, dados, tags, valores, textos);
+    }
+
+    private static void pularParametro(LeitorBinario leitor) throws IOException {
+        int tag = leitor.octeto();
+        switch (tag) {
+            case ProtocoloBinario.TEXTO:
+                leitor.pularTexto();
+                break;
+            case ProtocoloBinario.INTEIRO:
+            case ProtocoloBinario.CENTAVOS:
+            case ProtocoloBinario.PRODUTO:
+                leitor.natural();
+                break;
+            case ProtocoloBinario.VAZIO:
+                break;
+            default:
+                throw new IOException("Tipo de parâmetro desconhecido: " + tag);
+        }
+    }
+
+    long getId() {
+        return id;
+    }
+
+    @Override
+    public int getQuantidadeParametros() {
+        return tags.length;
+    }
+
+    @Override
+    protected String parametro(int i) {
+        if (textos[i] == null) {
+            switch (tags[i]) {
+                case ProtocoloBinario.TEXTO:
+                    textos[i] = new String(dados, (int) (valores[i] >>> 32), (int) valores[i],
+                                           StandardCharsets.UTF_8).trim();
+                    break;
+                case ProtocoloBinario.CENTAVOS:
+                    textos[i] = Dinheiro.formatar(valores[i]);
+                    break;
+                default:
+                    textos[i] = Long.toString(valores[i]);
+            }
+        }
+        return textos[i];
+    }
+
+    @Override
+    public int inteiro(int i) throws Exception {
+        if (i < tags.length && tags[i] == ProtocoloBinario.INTEIRO) {
+            long valor = valores[i];
+            if (valor < Integer.MIN_VALUE || valor > Integer.MAX_VALUE) {
+                throw new Exception("Parâmetro " + (i + 1) + " deve ser um número inteiro: " + valor);
+            }
+            return (int) valor;
+        }
+        return super.inteiro(i);
+    }
+
+    @Override
+    public BigDecimal decimal(int i) throws Exception {
+        if (i < tags.length && tags[i] == ProtocoloBinario.CENTAVOS) {
+            return Dinheiro.valor(valores[i]);
+        }
+        if (i < tags.length && tags[i] == ProtocoloBinario.INTEIRO) {
+            return BigDecimal.valueOf(valores[i]);
+        }
+        return super.decimal(i);
+    }
+}
@@ -0,0 +1,156 @@
+package server;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Requisição interpretada diretamente sobre os bytes UTF-8 da linha.
+ * Só guarda os limites de cada campo: inteiros e enums são lidos dos bytes
+ * sem criar Strings, e campos de texto são decodificados apenas quando pedidos.
+ */
+final class RequisicaoBytes extends Requisicao {
+
+    private static final ClassValue<Enum<?>[]> CONSTANTES = new ClassValue<Enum<?>[]>() {
+        @Override
+        protected Enum<?>[] computeValue(Class<?> tipo) {
+            return (Enum<?>[]) tipo.getEnumConstants();
+        }
+    };
+
+    private final byte[] dados;
+    private final int[] inicios;
+    private final int[] fins;
+    private String[] decodificados;
+
+    private RequisicaoBytes(String comando, byte[] dados, int[] inicios, int[] fins) {
+        super(comando);
+        this.dados = dados;
+        this.inicios = inicios;
+        this.fins = fins;
+    }
+
+    /**
+     * Separa os campos de {@code dados[0..tamanho)}. O array passa a pertencer à requisição.
+     */
+    static RequisicaoBytes parse(byte[] dados, int tamanho, Despachante despachante) {
+        int separadores = 0;
+        for (int i = 0; i < tamanho; i++) {
+            if (dados[i] == '|') {
+                separadores++;
+            }
+        }
+
+        int[] inicios = new int[separadores];
+        int[] fins = new int[separadores];
+        int fimComando = -1;
+        int campo = -1;
+        int inicio = 0;
+        for (int i = 0; i <= tamanho; i++) {
+            if (i == tamanho || dados[i] == '|') {
+                if (campo < 0) {
+                    fimComando = i;
+                } else {
+                    inicios[campo] = inicio;
+                    fins[campo] = i;
+                }
+                campo++;
+                inicio = i + 1;
+            }
+        }
+
+        for (int c = 0; c < separadores; c++) {
+            int ini = inicios[c];
+            int fim = fins[c];
+            while (ini < fim && ehEspaco(dados[ini])) {
+                ini++;
+            }
+            while (fim > ini && ehEspaco(dados[fim - 1])) {
+                fim--;
+            }
+            inicios[c] = ini;
+            fins[c] = fim;
+        }
+
+        int iniComando = 0;
+        while (iniComando < fimComando && ehEspaco(dados[iniComando])) {
+            iniComando++;
+        }
+        while (fimComando > iniComando && ehEspaco(dados[fimComando - 1])) {
+            fimComando--;
+        }
+        String comando = despachante.nomeCanonico(dados, iniComando, fimComando);
+        return new RequisicaoBytes(comando, dados, inicios, fins);
+    }
+
+    private static boolean ehEspaco(byte b) {
+        return b == ' ' || b == '\t' || b == '\r';
+    }
+
+    @Override
+    public int getQuantidadeParametros() {
+        return inicios.length;
+    }
+
+    @Override
+    protected String parametro(int i) {
+        if (decodificados == null) {
+            decodificados = new String[inicios.length];
+        }
+        String valor = decodificados[i];
+        if (valor == null) {
+            valor = new String(dados, inicios[i], fins[i] - inicios[i], StandardCharsets.UTF_8);
+            decodificados[i] = valor;
+        }
+        return valor;
+    }
+
+    @Override
+    public int inteiro(int i) throws Exception {
+        if (i >= inicios.length || inicios[i] == fins[i]) {
+            throw parametroAusente(i);
+        }
+
+        int pos = inicios[i];
+        int fim = fins[i];
+        boolean negativo = dados[pos] == '-';
+        if (negativo || dados[pos] == '+') {
+            pos++;
+        }
+        if (pos == fim) {
+            return super.inteiro(i);
+        }
+
+        long valor = 0;
+        for (; pos < fim; pos++) {
+            int digito = dados[pos] - '0';
+            if (digito < 0 || digito > 9) {
+                return super.inteiro(i); // gera a mensagem de erro padrão
+            }
+            valor = valor * 10 + digito;
+            if (valor > (long) Integer.MAX_VALUE + 1) {
+                return super.inteiro(i);
+            }
+        }
+        valor = negativo ? -valor : valor;
+        if (valor > Integer.MAX_VALUE) {
+            return super.inteiro(i);
+        }
+        return (int) valor;
+    }
+
+    @Override
+    public <E extends Enum<E>> E enumeracao(int i, Class<E> tipo) throws Exception {
+        if (i >= inicios.length || inicios[i] == fins[i]) {
+            throw parametroAusente(i);
+        }
+        for (Enum<?> constante : CONSTANTES.get(tipo)) {
+            if (iguaisIgnorandoCaixa(constante.name(), inicios[i], fins[i])) {
+                return tipo.cast(constante);
+            }
+        }
+        throw valorInvalido(tipo, parametro(i));
+    }
+
+    private boolean iguaisIgnorandoCaixa(String nome, int inicio, int fim) {
+        return Despachante.iguaisIgnorandoCaixa(nome, dados, inicio, fim);
+    }
+}
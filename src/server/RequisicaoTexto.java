@@ -0,0 +1,36 @@
+package server;
+
+import java.util.Locale;
+
+/**
+ * Requisição interpretada a partir de uma linha já convertida em String.
+ */
+final class RequisicaoTexto extends Requisicao {
+
+    private final String[] parametros;
+
+    private RequisicaoTexto(String comando, String[] parametros) {
+        super(comando);
+        this.parametros = parametros;
+    }
+
+    static RequisicaoTexto deLinha(String linha) {
+        String[] partes = linha.split("\\|", -1);
+        String comando = partes[0].trim().toUpperCase(Locale.ROOT);
+        String[] parametros = new String[partes.length - 1];
+        for (int i = 1; i < partes.length; i++) {
+            parametros[i - 1] = partes[i].trim();
+        }
+        return new RequisicaoTexto(comando, parametros);
+    }
+
+    @Override
+    public int getQuantidadeParametros() {
+        return parametros.length;
+    }
+
+    @Override
+    protected String parametro(int i) {
+        return parametros[i];
+    }
+}
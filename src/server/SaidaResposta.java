@@ -0,0 +1,104 @@
+package server;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Destino das linhas de resposta de uma conexão, implementado por cada servidor.
+ * Também guarda o estado da listagem contínua em andamento (ver {@link ComandoStream}),
+ * para que um CANCELAR recebido enquanto ela é enviada possa interrompê-la, e as assinaturas
+ * da conexão (ex.: ALERTA_ASSINAR), que enviam avisos por {@link #avisar} até serem canceladas
+ * ou a conexão fechar.
+ */
+public abstract class SaidaResposta {
+
+    private volatile boolean streamAtivo;
+    private volatile boolean cancelada;
+    /** Ação que cancela cada assinatura ativa, executada quando a conexão fecha. */
+    private final Map<String, Runnable> assinaturas = new ConcurrentHashMap<>();
+
+    /**
+     * Envia uma linha (sem o '\n'). Durante uma listagem contínua pode bloquear até o
+     * cliente ler o que já foi enviado, para que a memória usada não cresça.
+     */
+    public abstract void enviar(String linha) throws IOException;
+
+    /**
+     * Envia um aviso fora da sequência das respostas (linha iniciada por um prefixo próprio,
+     * como ALERTA|). Pode ser chamado de qualquer thread e não bloqueia: se o cliente não
+     * estiver lendo, os avisos acumulados são descartados e substituídos por um aviso de
+     * sobrecarga.
+     */
+    public void avisar(String linha) {
+        throw new UnsupportedOperationException("Esta conexão não recebe avisos");
+    }
+
+    /**
+     * Indica se {@link #avisar} é suportado (as saídas das conexões dos servidores suportam).
+     */
+    public boolean aceitaAvisos() {
+        return false;
+    }
+
+    /**
+     * Registra uma assinatura da conexão; {@code cancelar} é executado quando ela for removida
+     * ou a conexão fechar. Retorna false se já houver uma assinatura com esse nome.
+     */
+    public boolean assinar(String nome, Runnable cancelar) {
+        return assinaturas.putIfAbsent(nome, cancelar) == null;
+    }
+
+    /**
+     * Cancela a assinatura; retorna false se ela não existia.
+     */
+    public boolean cancelarAssinatura(String nome) {
+        Runnable cancelar = assinaturas.remove(nome);
+        if (cancelar == null) {
+            return false;
+        }
+        cancelar.run();
+        return true;
+    }
+
+    public boolean temAssinaturas() {
+        return !assinaturas.isEmpty();
+    }
+
+    /**
+     * Chamado pelo servidor ao fechar a conexão: cancela todas as assinaturas.
+     */
+    void encerrarAssinaturas() {
+        for (String nome : assinaturas.keySet()) {
+            cancelarAssinatura(nome);
+        }
+    }
+
+    /**
+     * Pedido de cancelamento vindo do cliente (ou do desligamento do servidor).
+     * Só tem efeito se houver uma listagem contínua em andamento.
+     */
+    public synchronized void pedirCancelamento() {
+        if (streamAtivo) {
+            cancelada = true;
+        }
+    }
+
+    public boolean isCancelada() {
+        return cancelada;
+    }
+
+    public boolean isStreamAtivo() {
+        return streamAtivo;
+    }
+
+    synchronized void iniciarStream() {
+        streamAtivo = true;
+        cancelada = false;
+    }
+
+    synchronized void finalizarStream() {
+        streamAtivo = false;
+        cancelada = false;
+    }
+}
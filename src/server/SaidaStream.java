@@ -0,0 +1,67 @@
+package server;
+
+import java.io.IOException;
+
+/**
+ * Saída entregue a um {@link ComandoStream}: conta os registros enviados e informa
+ * quando o cliente pediu o cancelamento.
+ *
+ * Os registros são agrupados em partes: cada linha enviada leva até {@code registrosPorParte}
+ * registros separados por ';' e é enviada antes se passar de {@code caracteresPorParte} caracteres.
+ * Assim a memória usada por uma listagem fica limitada a uma parte, e o cliente pode tratar
+ * cada linha assim que ela chega.
+ */
+public final class SaidaStream {
+
+    private final SaidaResposta saida;
+    private final int registrosPorParte;
+    private final int caracteresPorParte;
+    private final StringBuilder parte = new StringBuilder();
+    private int registrosNaParte;
+    private long enviados;
+
+    SaidaStream(SaidaResposta saida, int registrosPorParte, int caracteresPorParte) {
+        this.saida = saida;
+        this.registrosPorParte = registrosPorParte;
+        this.caracteresPorParte = caracteresPorParte;
+    }
+
+    /**
+     * Envia um registro. Retorna false, sem enviar, se a listagem foi cancelada.
+     */
+    public boolean enviar(String registro) throws IOException {
+        if (saida.isCancelada()) {
+            return false;
+        }
+        enviados++;
+        if (registrosPorParte <= 1) {
+            saida.enviar(registro);
+            return true;
+        }
+        if (registrosNaParte > 0) {
+            parte.append(';');
+        }
+        parte.append(registro);
+        if (++registrosNaParte >= registrosPorParte || parte.length() >= caracteresPorParte) {
+            concluirParte();
+        }
+        return true;
+    }
+
+    /**
+     * Envia a parte incompleta, se houver. Chamado no fim da listagem, antes do END ou do ERROR.
+     */
+    void concluirParte() throws IOException {
+        if (registrosNaParte == 0) {
+            return;
+        }
+        String linha = parte.toString();
+        parte.setLength(0);
+        registrosNaParte = 0;
+        saida.enviar(linha);
+    }
+
+    long getEnviados() {
+        return enviados;
+    }
+}
@@ -0,0 +1,234 @@
+package server;
+
+import config.DatabaseConnection;
+import config.ServidorConfig;
+import service.EstoqueEmMemoria;
+import util.DatabaseInitializer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Servidor de sockets do sistema de estoque.
+ * Cada cliente conectado é atendido por uma thread própria ({@link SessaoCliente});
+ * os comandos são resolvidos pela tabela do {@link Despachante}.
+ * Com servidor.modo=NIO, o main inicia o {@link ServidorNio} no lugar deste.
+ */
+public class Servidor {
+
+    /** Pilha reduzida para as threads de plataforma, já que cada cliente tem a sua. */
+    private static final long PILHA_THREAD_CLIENTE = 256 * 1024;
+
+    private final ServidorConfig config;
+    private final Despachante despachante;
+    private final Set<SessaoCliente> sessoes = ConcurrentHashMap.newKeySet();
+    private final Semaphore vagas;
+    private final AtomicBoolean rodando = new AtomicBoolean(false);
+    private ExecutorService executorClientes;
+    private ServerSocket serverSocket;
+
+    public Servidor(ServidorConfig config, Despachante despachante) {
+        this.config = config;
+        this.despachante = despachante;
+        this.vagas = new Semaphore(config.getMaxConexoes());
+    }
+
+    public static void main(String[] args) {
+        System.out.println("Inicializando banco de dados...");
+        DatabaseInitializer.initializeDatabase();
+        System.out.println("Banco de dados inicializado!");
+
+        ServidorConfig config = new ServidorConfig();
+        EstoqueEmMemoria estoqueEmMemoria = null;
+        if (config.isEstoqueEmMemoria()) {
+            estoqueEmMemoria = new EstoqueEmMemoria(config);
+            try {
+                estoqueEmMemoria.iniciar();
+            } catch (Exception e) {
+                System.err.println("Erro ao iniciar estoque em memória: " + e.getMessage());
+                System.exit(1);
+            }
+        }
+
+        Despachante despachante = new Despachante();
+        new ComandosEstoque(estoqueEmMemoria).registrar(despachante);
+        despachante.configurarPartes(config.getInt("servidor.stream.registrosPorParte", 100),
+                                     config.getInt("servidor.stream.caracteresPorParte", 16 * 1024));
+
+        EndpointMetricas metricas = null;
+        if (config.getPortaMetricas() > 0) {
+            try {
+                metricas = new EndpointMetricas(config.getPortaMetricas());
+                metricas.iniciar();
+            } catch (IOException e) {
+                // O servidor funciona sem o endpoint; as métricas continuam no comando METRICAS
+                System.err.println("Erro ao iniciar endpoint de métricas: " + e.getMessage());
+            }
+        }
+
+        EstoqueEmMemoria estoque = estoqueEmMemoria;
+        EndpointMetricas endpoint = metricas;
+        try {
+            if ("NIO".equals(config.getModo())) {
+                ServidorNio servidor = new ServidorNio(config, despachante);
+                Runtime.getRuntime().addShutdownHook(new Thread(() -> desligar(servidor::parar, estoque, endpoint), "servidor-desligamento"));
+                servidor.iniciar();
+            } else {
+                Servidor servidor = new Servidor(config, despachante);
+                Runtime.getRuntime().addShutdownHook(new Thread(() -> desligar(servidor::parar, estoque, endpoint), "servidor-desligamento"));
+                servidor.iniciar();
+            }
+        } catch (IOException e) {
+            System.err.println("Erro ao iniciar servidor: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Ordem do desligamento: drena os clientes, grava o estoque em memória e só então
+     * fecha o pool de conexões.
+     */
+    private static void desligar(Runnable pararServidor, EstoqueEmMemoria estoqueEmMemoria,
+                                 EndpointMetricas metricas) {
+        pararServidor.run();
+        if (metricas != null) {
+            metricas.parar();
+        }
+        if (estoqueEmMemoria != null) {
+            estoqueEmMemoria.parar();
+        }
+        DatabaseConnection.getInstance().closeConnection();
+        System.out.println("Servidor desligado.");
+    }
+
+    /**
+     * Abre a porta e aceita conexões até {@link #parar()} ser chamado.
+     */
+    public void iniciar() throws IOException {
+        executorClientes = criarExecutorClientes();
+        serverSocket = new ServerSocket(config.getPorta(), 1024);
+        rodando.set(true);
+
+        System.out.println("Servidor iniciado na porta " + config.getPorta());
+        System.out.println("Aguardando conexões...");
+
+        while (rodando.get()) {
+            Socket socket;
+            try {
+                socket = serverSocket.accept();
+            } catch (SocketException e) {
+                if (!rodando.get()) {
+                    break;
+                }
+                throw e;
+            }
+
+            if (!vagas.tryAcquire()) {
+                rejeitar(socket, "Servidor lotado, tente novamente mais tarde");
+                continue;
+            }
+
+            SessaoCliente sessao = new SessaoCliente(socket, despachante, this, config.getTimeoutOciosoMs(),
+                                                    config.getInt("servidor.tamanhoMaximoLinha", 1024 * 1024));
+            sessoes.add(sessao);
+            try {
+                executorClientes.execute(sessao);
+            } catch (RejectedExecutionException e) {
+                sessaoEncerrada(sessao);
+                rejeitar(socket, "Servidor em desligamento");
+            }
+        }
+    }
+
+    /**
+     * Desliga o servidor: para de aceitar conexões, fecha as sessões ociosas e aguarda
+     * os comandos em andamento terminarem (até servidor.tempoDrenagemMs).
+     */
+    public void parar() {
+        if (!rodando.compareAndSet(true, false)) {
+            return;
+        }
+        System.out.println("Desligando servidor...");
+
+        try {
+            serverSocket.close();
+        } catch (IOException e) {
+            System.err.println("Erro ao fechar porta do servidor: " + e.getMessage());
+        }
+
+        for (SessaoCliente sessao : sessoes) {
+            sessao.encerrar();
+        }
+
+        executorClientes.shutdown();
+        try {
+            if (!executorClientes.awaitTermination(config.getTempoDrenagemMs(), TimeUnit.MILLISECONDS)) {
+                System.err.println("Tempo de drenagem esgotado; interrompendo " + sessoes.size() + " sessões");
+                executorClientes.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executorClientes.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+
+    }
+
+    /**
+     * Chamado pela sessão ao terminar, liberando a vaga de conexão.
+     */
+    void sessaoEncerrada(SessaoCliente sessao) {
+        if (sessoes.remove(sessao)) {
+            vagas.release();
+        }
+    }
+
+    public int getConexoesAtivas() {
+        return sessoes.size();
+    }
+
+    private void rejeitar(Socket socket, String motivo) {
+        try (Socket s = socket; OutputStream out = s.getOutputStream()) {
+            out.write((Despachante.ERRO + motivo + "\n").getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            // cliente já desconectou
+        }
+    }
+
+    /**
+     * Uma thread por cliente. Usa virtual threads quando a JVM oferece
+     * (Java 21+); o projeto compila com Java 17, por isso a busca é por reflexão.
+     * Sem elas, usa threads de plataforma com pilha reduzida.
+     */
+    private ExecutorService criarExecutorClientes() {
+        if (config.isThreadsVirtuais()) {
+            try {
+                ExecutorService virtual = (ExecutorService) Executors.class
+                        .getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+                System.out.println("Atendendo clientes com virtual threads");
+                return virtual;
+            } catch (ReflectiveOperationException e) {
+                System.out.println("Virtual threads indisponíveis nesta JVM; usando threads de plataforma");
+            }
+        }
+
+        AtomicInteger contador = new AtomicInteger();
+        return Executors.newCachedThreadPool(r -> {
+            Thread t = new Thread(null, r, "cliente-" + contador.incrementAndGet(), PILHA_THREAD_CLIENTE);
+            t.setDaemon(true);
+            return t;
+        });
+    }
+}
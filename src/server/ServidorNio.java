@@ -0,0 +1,519 @@
+package server;
+
+import config.ServidorConfig;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Servidor não bloqueante (servidor.modo=NIO) para o mesmo protocolo de linhas.
+ * Uma única thread de seletor lê e escreve em todos os sockets; os comandos,
+ * que fazem acesso JDBC, rodam em um pool limitado de threads de trabalho.
+ * Conexões ociosas custam apenas o objeto {@link ConexaoNio}, o que permite
+ * manter dezenas de milhares de terminais conectados.
+ */
+public class ServidorNio {
+
+    /** Comandos executados por tarefa antes de devolver a thread ao pool. */
+    private static final int LOTE_POR_TAREFA = 64;
+    /** Acima disso a conexão para de ser lida até o trabalho acumulado diminuir. */
+    private static final int MAX_PENDENTES_POR_CONEXAO = 256;
+    private static final long MAX_BYTES_SAIDA_POR_CONEXAO = 1024 * 1024;
+    /** Numa listagem contínua, bytes acumulados a partir dos quais o seletor é chamado para escrever. */
+    private static final long BYTES_PARA_ESCRITA_STREAM = 32 * 1024;
+    private static final int MAX_BUFFERS_POR_ESCRITA = 64;
+
+    private final ServidorConfig config;
+    private final Despachante despachante;
+    private final PoolBuffers buffers;
+    private final int tamanhoMaximoLinha;
+
+    /** Conexões com respostas novas ou trabalho a reagendar, avisadas pelas threads de trabalho. */
+    private final ConcurrentLinkedQueue<ConexaoNio> prontas = new ConcurrentLinkedQueue<>();
+    /** Conexões abertas; acessado só pela thread do seletor. */
+    private final Set<ConexaoNio> conexoes = new HashSet<>();
+    private final CountDownLatch finalizado = new CountDownLatch(1);
+    private volatile boolean encerrando;
+
+    private Selector selector;
+    private ServerSocketChannel canalServidor;
+    private ThreadPoolExecutor workers;
+
+    public ServidorNio(ServidorConfig config, Despachante despachante) {
+        this.config = config;
+        this.despachante = despachante;
+        this.buffers = new PoolBuffers(config.getInt("servidor.nio.tamanhoBuffer", 8192),
+                                       config.getInt("servidor.nio.buffersNoPool", 1024));
+        this.tamanhoMaximoLinha = config.getInt("servidor.tamanhoMaximoLinha", 1024 * 1024);
+    }
+
+    /**
+     * Abre a porta e executa o laço do seletor na thread atual até {@link #parar()}.
+     */
+    public void iniciar() throws IOException {
+        int quantidadeWorkers = config.getInt("servidor.nio.workers", 16);
+        AtomicInteger contador = new AtomicInteger();
+        // Cada conexão tem no máximo uma tarefa na fila, então a fila nunca passa de maxConexoes
+        workers = new ThreadPoolExecutor(quantidadeWorkers, quantidadeWorkers, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, config.getMaxConexoes())), r -> {
+                    Thread t = new Thread(r, "nio-worker-" + contador.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                });
+
+        selector = Selector.open();
+        canalServidor = ServerSocketChannel.open();
+        canalServidor.configureBlocking(false);
+        canalServidor.bind(new InetSocketAddress(config.getPorta()), 1024);
+        canalServidor.register(selector, SelectionKey.OP_ACCEPT);
+
+        System.out.println("Servidor NIO iniciado na porta " + config.getPorta() +
+                           " (" + quantidadeWorkers + " threads de trabalho)");
+        System.out.println("Aguardando conexões...");
+
+        try {
+            executarLaco();
+        } finally {
+            for (ConexaoNio conexao : new ArrayList<>(conexoes)) {
+                fechar(conexao);
+            }
+            selector.close();
+            finalizado.countDown();
+        }
+    }
+
+    private void executarLaco() throws IOException {
+        long ultimaVarredura = System.currentTimeMillis();
+        long inicioDrenagem = 0;
+
+        while (true) {
+            selector.select(1000);
+
+            Iterator<SelectionKey> it = selector.selectedKeys().iterator();
+            while (it.hasNext()) {
+                SelectionKey chave = it.next();
+                it.remove();
+                if (!chave.isValid()) {
+                    continue;
+                }
+                if (chave.isAcceptable()) {
+                    aceitar();
+                    continue;
+                }
+
+                ConexaoNio conexao = (ConexaoNio) chave.attachment();
+                try {
+                    if (chave.isReadable()) {
+                        ler(conexao);
+                    }
+                    if (chave.isValid() && chave.isWritable()) {
+                        escrever(conexao);
+                    }
+                } catch (IOException | CancelledKeyException e) {
+                    fechar(conexao);
+                }
+            }
+
+            ConexaoNio conexao;
+            while ((conexao = prontas.poll()) != null) {
+                if (!conexao.canal.isOpen()) {
+                    continue;
+                }
+                try {
+                    escrever(conexao);
+                    agendar(conexao);
+                    ajustarLeitura(conexao);
+                } catch (IOException | CancelledKeyException e) {
+                    fechar(conexao);
+                }
+            }
+
+            long agora = System.currentTimeMillis();
+            if (agora - ultimaVarredura >= 1000) {
+                fecharOciosas(agora);
+                ultimaVarredura = agora;
+            }
+
+            if (encerrando) {
+                if (inicioDrenagem == 0) {
+                    inicioDrenagem = agora;
+                    pararDeAceitarELer();
+                }
+                for (ConexaoNio c : new ArrayList<>(conexoes)) {
+                    if (c.estaOciosa()) {
+                        fechar(c);
+                    }
+                }
+                if (conexoes.isEmpty()) {
+                    break;
+                }
+                if (agora - inicioDrenagem > config.getTempoDrenagemMs()) {
+                    System.err.println("Tempo de drenagem esgotado; fechando " + conexoes.size() + " conexões");
+                    break;
+                }
+            }
+        }
+    }
+
+    private void aceitar() throws IOException {
+        SocketChannel canal;
+        while ((canal = canalServidor.accept()) != null) {
+            if (encerrando || conexoes.size() >= config.getMaxConexoes()) {
+                rejeitar(canal, encerrando ? "Servidor em desligamento" : "Servidor lotado, tente novamente mais tarde");
+                continue;
+            }
+            canal.configureBlocking(false);
+            canal.socket().setTcpNoDelay(true);
+            ConexaoNio conexao = new ConexaoNio(canal);
+            conexao.resposta = new SaidaNio(conexao);
+            conexao.chave = canal.register(selector, SelectionKey.OP_READ, conexao);
+            conexoes.add(conexao);
+        }
+    }
+
+    private void rejeitar(SocketChannel canal, String motivo) {
+        try (SocketChannel c = canal) {
+            c.configureBlocking(false);
+            c.write(ByteBuffer.wrap((Despachante.ERRO + motivo + "\n").getBytes(StandardCharsets.UTF_8)));
+        } catch (IOException e) {
+            // cliente já desconectou
+        }
+    }
+
+    /**
+     * Lê o que estiver disponível no socket e separa as linhas completas em requisições.
+     */
+    private void ler(ConexaoNio conexao) throws IOException {
+        ByteBuffer buffer = conexao.parcial != null ? conexao.parcial : buffers.obter();
+        conexao.parcial = null;
+
+        int lidos;
+        try {
+            lidos = conexao.canal.read(buffer);
+        } catch (IOException e) {
+            buffers.devolver(buffer);
+            throw e;
+        }
+        if (lidos < 0) {
+            buffers.devolver(buffer);
+            fechar(conexao);
+            return;
+        }
+        conexao.ultimaAtividade = System.currentTimeMillis();
+
+        buffer.flip();
+        extrairLinhas(conexao, buffer);
+        buffer.compact();
+
+        if (buffer.position() == 0) {
+            buffers.devolver(buffer);
+        } else if (buffer.hasRemaining()) {
+            conexao.parcial = buffer;
+        } else if (buffer.capacity() >= tamanhoMaximoLinha) {
+            // Linha maior que o limite: responde com erro e desconecta
+            buffers.devolver(buffer);
+            conexao.fecharAposEscrita = true;
+            conexao.enfileirarResposta(Despachante.ERRO + "Linha excede " + tamanhoMaximoLinha + " bytes");
+            escrever(conexao);
+        } else {
+            ByteBuffer maior = ByteBuffer.allocate(Math.min(buffer.capacity() * 2, tamanhoMaximoLinha));
+            buffer.flip();
+            maior.put(buffer);
+            buffers.devolver(buffer);
+            conexao.parcial = maior;
+        }
+
+        agendar(conexao);
+        ajustarLeitura(conexao);
+    }
+
+    /**
+     * Cria uma requisição para cada linha terminada em '\n' entre position e limit.
+     * A position avança até o início da última linha incompleta.
+     */
+    private void extrairLinhas(ConexaoNio conexao, ByteBuffer buffer) {
+        int inicio = buffer.position();
+        int limite = buffer.limit();
+        for (int i = inicio; i < limite; i++) {
+            if (buffer.get(i) != '\n') {
+                continue;
+            }
+            int tamanho = i - inicio;
+            if (!emBranco(buffer, inicio, i)) {
+                byte[] linha = new byte[tamanho];
+                buffer.get(inicio, linha);
+                Requisicao requisicao = RequisicaoBytes.parse(linha, tamanho, despachante);
+                if (Despachante.isCancelamento(requisicao)) {
+                    conexao.resposta.pedirCancelamento();
+                }
+                conexao.adicionarRequisicao(requisicao);
+            }
+            inicio = i + 1;
+        }
+        buffer.position(inicio);
+    }
+
+    private static boolean emBranco(ByteBuffer buffer, int inicio, int fim) {
+        for (int i = inicio; i < fim; i++) {
+            byte b = buffer.get(i);
+            if (b != ' ' && b != '\t' && b != '\r') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Envia uma tarefa ao pool se há requisições e nenhuma outra tarefa cuida desta conexão.
+     */
+    private void agendar(ConexaoNio conexao) {
+        if (conexao.quantidadePendentes.get() > 0 && conexao.emProcessamento.compareAndSet(false, true)) {
+            try {
+                workers.execute(() -> processar(conexao));
+            } catch (RejectedExecutionException e) {
+                conexao.emProcessamento.set(false);
+            }
+        }
+    }
+
+    /**
+     * Executado por uma thread de trabalho: roda os comandos já recebidos em ordem
+     * (agrupando os que têm tratador em lote) e enfileira as respostas.
+     */
+    private void processar(ConexaoNio conexao) {
+        try {
+            List<Requisicao> lote = new ArrayList<>();
+            Requisicao requisicao;
+            while (lote.size() < LOTE_POR_TAREFA && (requisicao = conexao.proximaRequisicao()) != null) {
+                lote.add(requisicao);
+            }
+            despachante.despacharSequencia(lote, conexao.resposta);
+        } catch (IOException e) {
+            // Conexão fechada durante uma listagem contínua; o seletor já a descartou
+        } finally {
+            conexao.emProcessamento.set(false);
+            prontas.add(conexao);
+            selector.wakeup();
+        }
+    }
+
+    /**
+     * Envia as respostas acumuladas com uma escrita agrupada (gathering write).
+     * O que não couber no buffer do socket fica para quando ele aceitar escrita (OP_WRITE).
+     */
+    private void escrever(ConexaoNio conexao) throws IOException {
+        ByteBuffer buffer;
+        while (conexao.escrevendo.size() < MAX_BUFFERS_POR_ESCRITA && (buffer = conexao.saida.poll()) != null) {
+            conexao.escrevendo.addLast(buffer);
+        }
+
+        if (!conexao.escrevendo.isEmpty()) {
+            ByteBuffer[] lote = conexao.escrevendo.toArray(new ByteBuffer[0]);
+            long escritos = conexao.canal.write(lote);
+            conexao.bytesSaida.addAndGet(-escritos);
+            if (escritos > 0 && conexao.resposta.isStreamAtivo()) {
+                synchronized (conexao) {
+                    conexao.notifyAll();
+                }
+            }
+            while (!conexao.escrevendo.isEmpty() && !conexao.escrevendo.peekFirst().hasRemaining()) {
+                conexao.escrevendo.pollFirst();
+            }
+        }
+
+        if (conexao.temSaidaPendente()) {
+            conexao.chave.interestOps(conexao.chave.interestOps() | SelectionKey.OP_WRITE);
+        } else {
+            conexao.chave.interestOps(conexao.chave.interestOps() & ~SelectionKey.OP_WRITE);
+            if (conexao.fecharAposEscrita) {
+                fechar(conexao);
+            }
+        }
+    }
+
+    /**
+     * Contrapressão: deixa de ler um cliente que acumulou comandos demais ou que
+     * não está lendo as respostas, e volta a ler quando a situação normaliza.
+     */
+    private void ajustarLeitura(ConexaoNio conexao) {
+        if (!conexao.chave.isValid()) {
+            return;
+        }
+        // Numa listagem contínua a saída já é limitada pela thread de trabalho, e a conexão
+        // precisa continuar sendo lida para receber um CANCELAR
+        boolean sobrecarregada = conexao.quantidadePendentes.get() >= MAX_PENDENTES_POR_CONEXAO ||
+                                 (conexao.bytesSaida.get() >= MAX_BYTES_SAIDA_POR_CONEXAO &&
+                                  !conexao.resposta.isStreamAtivo());
+        boolean ler = !encerrando && !conexao.fecharAposEscrita && !sobrecarregada;
+
+        int ops = conexao.chave.interestOps();
+        int novas = ler ? ops | SelectionKey.OP_READ : ops & ~SelectionKey.OP_READ;
+        if (novas != ops) {
+            conexao.chave.interestOps(novas);
+        }
+    }
+
+    private void fecharOciosas(long agora) {
+        int timeout = config.getTimeoutOciosoMs();
+        if (timeout <= 0) {
+            return;
+        }
+        for (ConexaoNio conexao : new ArrayList<>(conexoes)) {
+            if (agora - conexao.ultimaAtividade > timeout && conexao.estaOciosa() &&
+                !conexao.resposta.temAssinaturas()) {
+                fechar(conexao);
+            }
+        }
+    }
+
+    private void pararDeAceitarELer() {
+        try {
+            canalServidor.close();
+        } catch (IOException e) {
+            System.err.println("Erro ao fechar porta do servidor: " + e.getMessage());
+        }
+        for (ConexaoNio conexao : conexoes) {
+            conexao.resposta.pedirCancelamento();
+            ajustarLeitura(conexao);
+        }
+    }
+
+    private void fechar(ConexaoNio conexao) {
+        conexoes.remove(conexao);
+        conexao.resposta.encerrarAssinaturas();
+        synchronized (conexao) {
+            // Libera uma thread de trabalho esperando para enviar registros de uma listagem
+            conexao.notifyAll();
+        }
+        if (conexao.chave != null) {
+            conexao.chave.cancel();
+        }
+        if (conexao.parcial != null) {
+            buffers.devolver(conexao.parcial);
+            conexao.parcial = null;
+        }
+        try {
+            conexao.canal.close();
+        } catch (IOException e) {
+            // já fechado
+        }
+    }
+
+    /**
+     * Saída de uma conexão NIO, usada pelas threads de trabalho. Respostas comuns só entram na
+     * fila; numa listagem contínua, a thread chama o seletor a cada
+     * {@link #BYTES_PARA_ESCRITA_STREAM} e espera enquanto o cliente tiver mais de
+     * {@link #MAX_BYTES_SAIDA_POR_CONEXAO} por ler, de modo que a memória por conexão fica limitada.
+     */
+    private class SaidaNio extends SaidaResposta {
+        private final ConexaoNio conexao;
+        /** Houve avisos descartados desde o último enviado. */
+        private boolean descartando;
+
+        SaidaNio(ConexaoNio conexao) {
+            this.conexao = conexao;
+        }
+
+        /**
+         * Avisos entram na fila de saída como as respostas; enquanto o cliente tiver mais de
+         * {@link #MAX_BYTES_SAIDA_POR_CONEXAO} por ler, são descartados.
+         */
+        @Override
+        public synchronized void avisar(String linha) {
+            if (!conexao.canal.isOpen()) {
+                return;
+            }
+            if (conexao.bytesSaida.get() >= MAX_BYTES_SAIDA_POR_CONEXAO) {
+                descartando = true;
+                return;
+            }
+            if (descartando) {
+                conexao.enfileirarResposta(Despachante.AVISOS_DESCARTADOS);
+                descartando = false;
+            }
+            conexao.enfileirarResposta(linha);
+            prontas.add(conexao);
+            selector.wakeup();
+        }
+
+        @Override
+        public boolean aceitaAvisos() {
+            return true;
+        }
+
+        @Override
+        public void enviar(String linha) throws IOException {
+            if (!isStreamAtivo()) {
+                conexao.enfileirarResposta(linha);
+                return;
+            }
+            if (!conexao.canal.isOpen()) {
+                throw new IOException("Conexão fechada pelo cliente");
+            }
+            conexao.enfileirarResposta(linha);
+            long pendentes = conexao.bytesSaida.get();
+            if (pendentes < BYTES_PARA_ESCRITA_STREAM) {
+                return;
+            }
+            prontas.add(conexao);
+            selector.wakeup();
+            if (pendentes < MAX_BYTES_SAIDA_POR_CONEXAO) {
+                return;
+            }
+            synchronized (conexao) {
+                while (conexao.bytesSaida.get() > MAX_BYTES_SAIDA_POR_CONEXAO / 2 && conexao.canal.isOpen()) {
+                    try {
+                        conexao.wait(100);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new IOException("Listagem interrompida");
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Desliga o servidor: para de aceitar e de ler, termina os comandos já recebidos,
+     * envia as respostas e fecha as conexões (até servidor.tempoDrenagemMs).
+     */
+    public void parar() {
+        if (encerrando) {
+            return;
+        }
+        System.out.println("Desligando servidor NIO...");
+        encerrando = true;
+        if (selector != null) {
+            selector.wakeup();
+        }
+
+        try {
+            finalizado.await(config.getTempoDrenagemMs() + 2000, TimeUnit.MILLISECONDS);
+            if (workers != null) {
+                workers.shutdown();
+                workers.awaitTermination(config.getTempoDrenagemMs(), TimeUnit.MILLISECONDS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
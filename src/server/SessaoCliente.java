@@ -0,0 +1,403 @@
+package server;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * Atende um cliente conectado: lê uma linha por comando e responde com uma linha.
+ * Clientes podem enviar vários comandos sem esperar as respostas (pipeline): as linhas
+ * já recebidas são executadas em ordem e as respostas enviadas juntas em um único flush.
+ * Durante uma listagem contínua, as linhas que chegam são lidas entre os registros enviados,
+ * para que um CANCELAR possa interrompê-la; os demais comandos esperam o fim da listagem.
+ * Avisos de assinaturas (ex.: ALERTA_ASSINAR) são escritos por uma segunda thread, criada
+ * no primeiro aviso, entre as linhas das respostas; uma conexão com assinaturas não é
+ * desconectada por inatividade.
+ * A linha BINARIO passa a conexão ao modo binário (ver {@link ProtocoloBinario}): a partir da
+ * resposta, requisições e respostas são quadros tratados por {@link ConexaoBinaria}, com o
+ * mesmo pipeline, listagens contínuas e avisos do modo texto.
+ * Roda em uma thread própria (virtual, quando disponível).
+ */
+public class SessaoCliente implements Runnable {
+
+    private final Socket socket;
+    private final Despachante despachante;
+    private final Servidor servidor;
+    private final int timeoutOciosoMs;
+    private final int tamanhoMaximoQuadro;
+
+    /** Máximo de linhas em pipeline executadas antes de enviar as respostas. */
+    private static final int MAX_LOTE = 256;
+    /** Registros de uma listagem contínua enviados entre verificações de linhas recebidas. */
+    private static final int REGISTROS_ENTRE_LEITURAS = 64;
+    /** Avisos à espera de serem escritos; além disso o cliente não está lendo e eles são descartados. */
+    private static final int MAX_AVISOS_PENDENTES = 1000;
+
+    /** Linhas recebidas e ainda não executadas. */
+    private final ArrayDeque<Requisicao> recebidas = new ArrayDeque<>();
+    /** Caracteres recebidos depois da última linha completa (modo texto). */
+    private final StringBuilder parcial = new StringBuilder();
+    /** Até onde {@link #parcial} já foi procurado por um fim de linha. */
+    private int varrido;
+    private final char[] bloco = new char[8192];
+    private BufferedReader in;
+    private BufferedWriter out;
+    /** Trava das escritas em {@link #out}, compartilhada com a thread de avisos. */
+    private final Object escrita = new Object();
+    private final LinkedBlockingQueue<String> avisos = new LinkedBlockingQueue<>(MAX_AVISOS_PENDENTES);
+    private Thread escritorAvisos;
+    /** Pedido de troca para o modo binário, atendido depois das linhas anteriores a ele. */
+    private boolean pedidoBinario;
+    /** Não nulo depois da troca para o modo binário. */
+    private volatile ConexaoBinaria binario;
+    private final SaidaResposta saida = new SaidaResposta() {
+        private int desdeUltimaLeitura;
+
+        @Override
+        public void enviar(String linha) throws IOException {
+            synchronized (escrita) {
+                if (binario != null) {
+                    binario.enviarLinha(linha);
+                } else {
+                    out.write(linha);
+                    out.write('\n');
+                }
+            }
+            if (isStreamAtivo() && ++desdeUltimaLeitura >= REGISTROS_ENTRE_LEITURAS) {
+                desdeUltimaLeitura = 0;
+                lerDisponiveis();
+            }
+        }
+
+        @Override
+        public void avisar(String linha) {
+            if (!avisos.offer(linha)) {
+                avisos.clear();
+                avisos.offer(Despachante.AVISOS_DESCARTADOS);
+                avisos.offer(linha);
+            }
+            iniciarEscritorAvisos();
+        }
+
+        @Override
+        public boolean aceitaAvisos() {
+            return true;
+        }
+    };
+
+    private boolean executando;
+    private boolean encerrando;
+
+    public SessaoCliente(Socket socket, Despachante despachante, Servidor servidor, int timeoutOciosoMs,
+                         int tamanhoMaximoQuadro) {
+        this.socket = socket;
+        this.despachante = despachante;
+        this.servidor = servidor;
+        this.timeoutOciosoMs = timeoutOciosoMs;
+        this.tamanhoMaximoQuadro = tamanhoMaximoQuadro;
+    }
+
+    @Override
+    public void run() {
+        String cliente = socket.getRemoteSocketAddress().toString();
+        try (BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+             BufferedWriter out = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8))) {
+
+            this.in = in;
+            this.out = out;
+            socket.setSoTimeout(timeoutOciosoMs);
+            socket.setTcpNoDelay(true);
+
+            List<Requisicao> lote = new ArrayList<>();
+            while (true) {
+                if (recebidas.isEmpty() && pedidoBinario) {
+                    if (!entrarModoBinario()) {
+                        break;
+                    }
+                    continue;
+                }
+                if (recebidas.isEmpty()) {
+                    try {
+                        if (!lerProxima()) {
+                            break;
+                        }
+                    } catch (SocketTimeoutException e) {
+                        if (saida.temAssinaturas()) {
+                            continue;
+                        }
+                        throw e;
+                    }
+                }
+                // Pipeline: junta as linhas que já chegaram para executar e responder de uma vez
+                lerDisponiveis();
+                if (recebidas.isEmpty()) {
+                    continue;
+                }
+                if (!iniciarComando()) {
+                    break;
+                }
+                try {
+                    while (lote.size() < MAX_LOTE && !recebidas.isEmpty()) {
+                        lote.add(recebidas.poll());
+                    }
+                    if (binario != null) {
+                        binario.executar(lote, saida);
+                    } else {
+                        despachante.despacharSequencia(lote, saida);
+                    }
+                    synchronized (escrita) {
+                        if (binario != null) {
+                            binario.flush();
+                        } else {
+                            out.flush();
+                        }
+                    }
+                } finally {
+                    lote.clear();
+                    finalizarComando();
+                }
+            }
+
+        } catch (SocketTimeoutException e) {
+            System.out.println("Cliente " + cliente + " desconectado por inatividade");
+        } catch (IOException e) {
+            if (!isEncerrando()) {
+                System.err.println("Erro na comunicação com " + cliente + ": " + e.getMessage());
+            }
+        } finally {
+            saida.encerrarAssinaturas();
+            pararEscritorAvisos();
+            fecharSocket();
+            servidor.sessaoEncerrada(this);
+        }
+    }
+
+    private synchronized void iniciarEscritorAvisos() {
+        if (escritorAvisos == null) {
+            escritorAvisos = new Thread(this::escreverAvisos, "avisos-" + socket.getRemoteSocketAddress());
+            escritorAvisos.setDaemon(true);
+            escritorAvisos.start();
+        }
+    }
+
+    private synchronized void pararEscritorAvisos() {
+        if (escritorAvisos != null) {
+            escritorAvisos.interrupt();
+        }
+    }
+
+    /**
+     * Thread de avisos: escreve cada aviso (e os que chegaram junto) com um flush.
+     */
+    private void escreverAvisos() {
+        try {
+            while (!socket.isClosed()) {
+                String linha = avisos.take();
+                synchronized (escrita) {
+                    ConexaoBinaria quadros = binario;
+                    do {
+                        if (quadros != null) {
+                            quadros.enviarAviso(linha);
+                        } else {
+                            out.write(linha);
+                            out.write('\n');
+                        }
+                    } while ((linha = avisos.poll()) != null);
+                    if (quadros != null) {
+                        quadros.flush();
+                    } else {
+                        out.flush();
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            // Sessão encerrada
+        } catch (IOException e) {
+            // Conexão fechada; a thread da sessão trata o erro
+        }
+    }
+
+    /**
+     * Espera a próxima linha ou quadro. Retorna false se o cliente fechou a conexão.
+     */
+    private boolean lerProxima() throws IOException {
+        if (binario != null) {
+            RequisicaoBinaria requisicao = binario.ler();
+            if (requisicao == null) {
+                return false;
+            }
+            adicionar(requisicao);
+            return true;
+        }
+        String linha;
+        while ((linha = linhaCompleta()) == null) {
+            if (!receber()) {
+                if (parcial.length() == 0) {
+                    return false;
+                }
+                // Última linha, sem fim de linha
+                linha = parcial.toString();
+                parcial.setLength(0);
+                varrido = 0;
+                break;
+            }
+        }
+        adicionar(linha);
+        return true;
+    }
+
+    /**
+     * Próxima linha completa já recebida (sem o '\n' e um '\r' antes dele), ou null.
+     */
+    private String linhaCompleta() {
+        for (; varrido < parcial.length(); varrido++) {
+            if (parcial.charAt(varrido) == '\n') {
+                int fim = varrido > 0 && parcial.charAt(varrido - 1) == '\r' ? varrido - 1 : varrido;
+                String linha = parcial.substring(0, fim);
+                parcial.delete(0, varrido + 1);
+                varrido = 0;
+                return linha;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Lê o que chegou do cliente para {@link #parcial}, esperando se ainda não chegou nada.
+     * Retorna false se o cliente fechou a conexão.
+     */
+    private boolean receber() throws IOException {
+        int lidos = in.read(bloco, 0, bloco.length);
+        if (lidos < 0) {
+            return false;
+        }
+        parcial.append(bloco, 0, lidos);
+        return true;
+    }
+
+    /**
+     * Lê as linhas (ou quadros) que já chegaram, sem bloquear, até o limite de um lote.
+     * No modo texto, só as linhas completas entram no lote: o começo de uma linha fica em
+     * {@link #parcial} até o resto chegar, sem segurar as anteriores. Para no pedido de modo
+     * binário: o que vem depois dele já são quadros.
+     */
+    private void lerDisponiveis() throws IOException {
+        if (binario != null) {
+            RequisicaoBinaria requisicao;
+            while (recebidas.size() < MAX_LOTE && binario.temDisponivel() && (requisicao = binario.ler()) != null) {
+                adicionar(requisicao);
+            }
+            return;
+        }
+        while (recebidas.size() < MAX_LOTE && !pedidoBinario) {
+            String linha = linhaCompleta();
+            if (linha != null) {
+                adicionar(linha);
+            } else if (!in.ready() || !receber()) {
+                return;
+            }
+        }
+    }
+
+    private void adicionar(String linha) {
+        if (linha.trim().isEmpty()) {
+            return;
+        }
+        Requisicao requisicao = Requisicao.parse(linha);
+        if (ProtocoloBinario.NEGOCIACAO.equals(requisicao.getComando())) {
+            pedidoBinario = true;
+            return;
+        }
+        adicionar(requisicao);
+    }
+
+    private void adicionar(Requisicao requisicao) {
+        if (Despachante.isCancelamento(requisicao)) {
+            saida.pedirCancelamento();
+        }
+        recebidas.add(requisicao);
+    }
+
+    /**
+     * Responde ao BINARIO e passa a ler e escrever quadros. O cliente só pode enviar quadros
+     * depois de ler a resposta: bytes que já estejam no leitor de texto seriam perdidos, então
+     * nesse caso a conexão é recusada. Retorna false se a conexão deve ser fechada.
+     */
+    private boolean entrarModoBinario() throws IOException {
+        pedidoBinario = false;
+        synchronized (escrita) {
+            if (parcial.length() > 0 || in.ready()) {
+                out.write(Despachante.ERRO + "Envie os quadros binários só depois da resposta ao " +
+                          ProtocoloBinario.NEGOCIACAO);
+                out.write('\n');
+                out.flush();
+                return false;
+            }
+            out.write(Despachante.SUCESSO + ProtocoloBinario.NEGOCIACAO + "|" + ProtocoloBinario.VERSAO);
+            out.write('\n');
+            out.flush();
+            binario = new ConexaoBinaria(new BufferedInputStream(socket.getInputStream(), 8192),
+                                         new BufferedOutputStream(socket.getOutputStream(), 8192),
+                                         escrita, despachante, tamanhoMaximoQuadro);
+        }
+        return true;
+    }
+
+    /**
+     * Marca o início de um comando. Retorna false se o servidor está desligando.
+     */
+    private synchronized boolean iniciarComando() {
+        if (encerrando) {
+            return false;
+        }
+        executando = true;
+        return true;
+    }
+
+    /**
+     * Marca o fim de um comando (já respondido). Se o desligamento foi pedido
+     * durante a execução, fecha a conexão agora.
+     */
+    private synchronized void finalizarComando() {
+        executando = false;
+        if (encerrando) {
+            fecharSocket();
+        }
+    }
+
+    /**
+     * Pede o encerramento da sessão: uma conexão ociosa é fechada imediatamente,
+     * uma conexão com comando em andamento é fechada depois de enviar a resposta
+     * (uma listagem contínua em andamento é cancelada).
+     */
+    public synchronized void encerrar() {
+        encerrando = true;
+        saida.pedirCancelamento();
+        if (!executando) {
+            fecharSocket();
+        }
+    }
+
+    private synchronized boolean isEncerrando() {
+        return encerrando;
+    }
+
+    private void fecharSocket() {
+        try {
+            socket.close();
+        } catch (IOException e) {
+            // já fechado
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package server;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Tabela de nomes de produto de uma sessão binária (ver {@link ProtocoloBinario}). O servidor e o
+ * cliente mantêm cópias iguais: cada nome recebe o próximo número quando é enviado pela primeira
+ * vez. Não é thread-safe; cada lado usa a sua a partir de uma única thread.
+ */
+public final class TabelaProdutos {
+
+    private final Map<String, Integer> numeros = new HashMap<>();
+    private final List<String> nomes = new ArrayList<>();
+
+    /**
+     * Número do nome, ou -1 se ele ainda não está na tabela.
+     */
+    public int numero(String nome) {
+        Integer numero = numeros.get(nome);
+        return numero != null ? numero : -1;
+    }
+
+    /**
+     * Acrescenta um nome e retorna o número atribuído, ou -1 se a tabela está cheia.
+     */
+    public int adicionar(String nome) {
+        if (nomes.size() >= ProtocoloBinario.MAXIMO_PRODUTOS) {
+            return -1;
+        }
+        int numero = nomes.size() + ProtocoloBinario.PRIMEIRO_NUMERO;
+        nomes.add(nome);
+        numeros.put(nome, numero);
+        return numero;
+    }
+
+    /**
+     * Nome com o número informado, ou null se não existe.
+     */
+    public String nome(int numero) {
+        int indice = numero - ProtocoloBinario.PRIMEIRO_NUMERO;
+        return indice >= 0 && indice < nomes.size() ? nomes.get(indice) : null;
+    }
+
+    /**
+     * Remove os nomes acrescentados depois que a tabela tinha {@code tamanho} nomes
+     * (resposta que falhou no meio e não chegou ao cliente).
+     */
+    public void truncar(int tamanho) {
+        while (nomes.size() > tamanho) {
+            numeros.remove(nomes.remove(nomes.size() - 1));
+        }
+    }
+
+    public int getTamanho() {
+        return nomes.size();
+    }
+}
@@ -0,0 +1,762 @@
+package service;
+
+import config.DatabaseConnection;
+import dao.AlteracoesEstoque;
+import dao.FotografiaEstoque;
+import dao.OuvinteEstoque;
+import model.Dinheiro;
+import model.Produto;
+import model.TotaisCategoria;
+
+import java.text.Collator;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Consumer;
+
+/**
+ * Agregados em memória usados pelos relatórios de balanço, quantidade por categoria,
+ * produtos mais movimentados e abaixo do mínimo, para que cada relatório custe o tamanho da
+ * resposta e não o tamanho das tabelas. Os produtos abaixo do mínimo ficam em um índice
+ * próprio, e cada produto que cruza o mínimo (para baixo ou de volta) é avisado aos
+ * {@link OuvinteAlertaEstoque} assinados.
+ *
+ * O estado é carregado do banco na primeira consulta e depois mantido pelos avisos de
+ * {@link AlteracoesEstoque} (criação, alteração e exclusão de produtos e gravação de
+ * movimentações). Uma alteração que o estado não sabe aplicar (limparTodos, movimentação de
+ * um produto desconhecido) o descarta, e a próxima consulta recarrega tudo.
+ * {@link #verificar()} confere o estado contra os totais calculados pelo banco.
+ *
+ * Os avisos chegam na thread que gravou; o estado é protegido pelo monitor do objeto, e a
+ * recarga, que lê o banco, roda fora dele.
+ *
+ * A recarga divide os produtos por categoria e lê as partes em paralelo em um ForkJoinPool,
+ * cada leitura em uma das conexões da fotografia (db.relatorio.paralelismo em
+ * database.properties); os totais parciais de cada parte são somados em centavos, então o
+ * resultado é o mesmo da leitura em série, em qualquer ordem de junção.
+ *
+ * Preços e valores ficam em centavos ({@link Dinheiro}): as atualizações a cada movimentação
+ * não alocam objetos, e os totais são exatos.
+ */
+public final class AgregadosRelatorio implements OuvinteEstoque {
+
+    private static volatile AgregadosRelatorio instancia;
+
+    /** Mesma ordem de nomes do banco (utf8mb4_unicode_ci ignora maiúsculas e acentos). */
+    private final Comparator<String> ordemNomes;
+    /** Threads e conexões usadas para ler a fotografia na recarga e na verificação. */
+    private final int paralelismo;
+    private final Object recarga = new Object();
+
+    /** Estado atual; null quando precisa ser recarregado. */
+    private Estado estado;
+    /** Avisos recebidos durante uma recarga, aplicados ao estado novo no fim dela. */
+    private List<Consumer<Estado>> pendentes;
+    /** Produtos abaixo do mínimo no último estado descartado, para avisar o que mudou na recarga. */
+    private Set<String> abaixoAnterior;
+    /** Há uma thread de recarga para os alertas que ainda não começou a recarregar. */
+    private boolean recargaAgendada;
+    private final List<OuvinteAlertaEstoque> alertas = new CopyOnWriteArrayList<>();
+
+    private AgregadosRelatorio() {
+        Collator collator = Collator.getInstance(new Locale("pt", "BR"));
+        collator.setStrength(Collator.PRIMARY);
+        this.ordemNomes = collator::compare;
+        this.paralelismo = (int) Math.max(1, DatabaseConnection.getInstance().getConfiguracao("db.relatorio.paralelismo", 4));
+    }
+
+    /**
+     * Instância do processo, registrada em {@link AlteracoesEstoque} na primeira chamada.
+     */
+    public static AgregadosRelatorio getInstance() {
+        if (instancia == null) {
+            synchronized (AgregadosRelatorio.class) {
+                if (instancia == null) {
+                    AgregadosRelatorio agregados = new AgregadosRelatorio();
+                    AlteracoesEstoque.registrar(agregados);
+                    instancia = agregados;
+                }
+            }
+        }
+        return instancia;
+    }
+
+    private static final class ItemProduto {
+        final String nome;
+        String categoria;
+        long precoCentavos;
+        long estoque;
+        long minimo;
+        long movimentacoes;
+
+        ItemProduto(String nome) {
+            this.nome = nome;
+        }
+
+        long valor() {
+            return Dinheiro.multiplicar(precoCentavos, estoque);
+        }
+
+        boolean abaixoDoMinimo() {
+            return estoque < minimo;
+        }
+    }
+
+    private static final class ItemCategoria {
+        long produtos;
+        long unidades;
+        /** Em centavos. */
+        long valor;
+
+        void somar(ItemCategoria outra) {
+            produtos += outra.produtos;
+            unidades += outra.unidades;
+            valor = Dinheiro.somar(valor, outra.valor);
+        }
+    }
+
+    /**
+     * Produtos lidos de um grupo de categorias, com os totais do grupo já somados.
+     */
+    private static final class Parcial {
+        final List<ItemProduto> produtos = new ArrayList<>();
+        final Map<String, ItemCategoria> categorias = new HashMap<>();
+
+        void adicionar(ItemProduto item) {
+            produtos.add(item);
+            ItemCategoria categoria = categorias.computeIfAbsent(item.categoria, k -> new ItemCategoria());
+            categoria.produtos++;
+            categoria.unidades += item.estoque;
+            categoria.valor = Dinheiro.somar(categoria.valor, item.valor());
+        }
+
+        Parcial juntar(Parcial outra) {
+            produtos.addAll(outra.produtos);
+            for (Map.Entry<String, ItemCategoria> entry : outra.categorias.entrySet()) {
+                categorias.computeIfAbsent(entry.getKey(), k -> new ItemCategoria()).somar(entry.getValue());
+            }
+            return this;
+        }
+    }
+
+    /**
+     * Lê os produtos de {@code categorias}, dividindo a lista ao meio até ter no máximo
+     * {@code categoriasPorLeitura} categorias por tarefa.
+     */
+    private static final class LeituraCategorias extends RecursiveTask<Parcial> {
+        private static final long serialVersionUID = 1L;
+
+        private final FotografiaEstoque fotografia;
+        private final List<String> categorias;
+        private final int categoriasPorLeitura;
+
+        LeituraCategorias(FotografiaEstoque fotografia, List<String> categorias, int categoriasPorLeitura) {
+            this.fotografia = fotografia;
+            this.categorias = categorias;
+            this.categoriasPorLeitura = categoriasPorLeitura;
+        }
+
+        @Override
+        protected Parcial compute() {
+            if (categorias.size() > categoriasPorLeitura) {
+                int meio = categorias.size() / 2;
+                LeituraCategorias primeira = new LeituraCategorias(fotografia, categorias.subList(0, meio), categoriasPorLeitura);
+                primeira.fork();
+                Parcial segunda = new LeituraCategorias(fotografia, categorias.subList(meio, categorias.size()),
+                                                        categoriasPorLeitura).compute();
+                return primeira.join().juntar(segunda);
+            }
+            Parcial parcial = new Parcial();
+            try {
+                for (String categoria : categorias) {
+                    fotografia.percorrerProdutos(categoria, produto -> {
+                        ItemProduto item = new ItemProduto(produto.getNome());
+                        item.categoria = produto.getCategoria().getNome();
+                        item.precoCentavos = produto.getPrecoCentavos();
+                        item.estoque = produto.getQuantidadeEstoque();
+                        item.minimo = produto.getQuantidadeMinima();
+                        parcial.adicionar(item);
+                        return true;
+                    });
+                }
+            } catch (Exception e) {
+                throw new CompletionException(e);
+            }
+            return parcial;
+        }
+    }
+
+    /**
+     * Estado carregado: produtos em ordem de nome, totais por categoria, o ranking de
+     * movimentações (só produtos com alguma) e os produtos abaixo do mínimo, mantidos
+     * ordenados a cada alteração.
+     */
+    private final class Estado {
+        final NavigableMap<String, ItemProduto> produtos = new TreeMap<>(ordemNomes);
+        final Map<String, ItemProduto> abaixoMinimo = new TreeMap<>(ordemNomes);
+        final Map<String, ItemCategoria> categorias = new TreeMap<>();
+        final TreeSet<ItemProduto> ranking = new TreeSet<>(
+                Comparator.<ItemProduto>comparingLong(item -> item.movimentacoes).reversed()
+                          .thenComparing(item -> item.nome, ordemNomes));
+        long quantidadeTotal;
+        /** Em centavos. */
+        long valorTotal;
+        boolean invalido;
+        /** Durante a leitura da fotografia os cruzamentos do mínimo não são avisados. */
+        boolean carregando = true;
+
+        void gravarProduto(String nome, String categoria, long precoCentavos, long estoque, long minimo) {
+            ItemProduto item = produtos.get(nome);
+            boolean abaixoAntes = false;
+            if (item == null) {
+                item = new ItemProduto(nome);
+                produtos.put(nome, item);
+            } else {
+                abaixoAntes = item.abaixoDoMinimo();
+                somar(item, -1);
+            }
+            item.categoria = categoria;
+            item.precoCentavos = precoCentavos;
+            item.estoque = estoque;
+            item.minimo = minimo;
+            somar(item, 1);
+            conferirMinimo(item, abaixoAntes);
+        }
+
+        /**
+         * Inclui os produtos lidos na recarga, com os totais já somados por {@link Parcial}.
+         */
+        void carregar(Parcial parcial) {
+            for (ItemProduto item : parcial.produtos) {
+                produtos.put(item.nome, item);
+                if (item.abaixoDoMinimo()) {
+                    abaixoMinimo.put(item.nome, item);
+                }
+                quantidadeTotal += item.estoque;
+            }
+            for (Map.Entry<String, ItemCategoria> entry : parcial.categorias.entrySet()) {
+                categorias.computeIfAbsent(entry.getKey(), k -> new ItemCategoria()).somar(entry.getValue());
+                valorTotal = Dinheiro.somar(valorTotal, entry.getValue().valor);
+            }
+        }
+
+        void removerProduto(String nome) {
+            ItemProduto item = produtos.remove(nome);
+            if (item != null) {
+                somar(item, -1);
+                ranking.remove(item);
+                abaixoMinimo.remove(item.nome);
+            }
+        }
+
+        void movimentar(String nome, int saldo, int quantidade) {
+            ItemProduto item = produtos.get(nome);
+            if (item == null) {
+                invalido = true;
+                return;
+            }
+            boolean abaixoAntes = item.abaixoDoMinimo();
+            somar(item, -1);
+            item.estoque += saldo;
+            somar(item, 1);
+            contar(item, quantidade);
+            conferirMinimo(item, abaixoAntes);
+        }
+
+        private void conferirMinimo(ItemProduto item, boolean abaixoAntes) {
+            boolean abaixo = item.abaixoDoMinimo();
+            if (abaixo == abaixoAntes) {
+                return;
+            }
+            if (abaixo) {
+                abaixoMinimo.put(item.nome, item);
+            } else {
+                abaixoMinimo.remove(item.nome);
+            }
+            if (!carregando) {
+                avisarCruzamento(item);
+            }
+        }
+
+        void contar(ItemProduto item, long quantidade) {
+            ranking.remove(item);
+            item.movimentacoes += quantidade;
+            if (item.movimentacoes > 0) {
+                ranking.add(item);
+            }
+        }
+
+        /**
+         * Soma (sinal 1) ou retira (sinal -1) o produto dos totais da categoria e gerais.
+         */
+        private void somar(ItemProduto item, int sinal) {
+            long valor = sinal * item.valor();
+            ItemCategoria categoria = categorias.computeIfAbsent(item.categoria, k -> new ItemCategoria());
+            categoria.produtos += sinal;
+            categoria.unidades += sinal * item.estoque;
+            categoria.valor = Dinheiro.somar(categoria.valor, valor);
+            if (categoria.produtos == 0) {
+                categorias.remove(item.categoria);
+            }
+            quantidadeTotal += sinal * item.estoque;
+            valorTotal = Dinheiro.somar(valorTotal, valor);
+        }
+    }
+
+    // ========== AVISOS DOS DAOs ==========
+
+    @Override
+    public void produtoGravado(Produto produto) {
+        String nome = produto.getNome();
+        String categoria = produto.getCategoria().getNome();
+        long preco = produto.getPrecoCentavos();
+        long estoque = produto.getQuantidadeEstoque();
+        long minimo = produto.getQuantidadeMinima();
+        aplicar(e -> e.gravarProduto(nome, categoria, preco, estoque, minimo));
+    }
+
+    @Override
+    public void produtoRemovido(String nome) {
+        aplicar(e -> e.removerProduto(nome));
+    }
+
+    @Override
+    public void movimentacoesGravadas(Map<String, Integer> saldos, Map<String, Integer> quantidades) {
+        aplicar(e -> {
+            for (Map.Entry<String, Integer> saldo : saldos.entrySet()) {
+                e.movimentar(saldo.getKey(), saldo.getValue(), quantidades.getOrDefault(saldo.getKey(), 0));
+            }
+        });
+    }
+
+    @Override
+    public void tudoAlterado() {
+        aplicar(e -> e.invalido = true);
+    }
+
+    private synchronized void aplicar(Consumer<Estado> aviso) {
+        if (pendentes != null) {
+            pendentes.add(aviso);
+        }
+        if (estado != null) {
+            aviso.accept(estado);
+            if (estado.invalido) {
+                descartarEstado();
+                if (!alertas.isEmpty() && !recargaAgendada) {
+                    // Com alertas assinados o estado não pode esperar a próxima consulta
+                    recargaAgendada = true;
+                    Thread recarga = new Thread(this::recarregarParaAlertas, "agregados-recarga");
+                    recarga.setDaemon(true);
+                    recarga.start();
+                }
+            }
+        }
+    }
+
+    private synchronized void descartarEstado() {
+        if (estado != null) {
+            abaixoAnterior = new HashSet<>(estado.abaixoMinimo.keySet());
+            estado = null;
+        }
+    }
+
+    private void avisarCruzamento(ItemProduto item) {
+        for (OuvinteAlertaEstoque ouvinte : alertas) {
+            try {
+                ouvinte.limiteCruzado(item.nome, item.estoque, item.minimo, item.abaixoDoMinimo());
+            } catch (RuntimeException e) {
+                System.err.println("Erro ao avisar alerta de estoque: " + e.getMessage());
+            }
+        }
+    }
+
+    private void recarregarParaAlertas() {
+        try {
+            synchronized (recarga) {
+                synchronized (this) {
+                    // Descartes a partir daqui agendam outra recarga
+                    recargaAgendada = false;
+                }
+                carregarSeNecessario();
+            }
+        } catch (Exception e) {
+            System.err.println("Erro ao recarregar agregados dos relatórios: " + e.getMessage());
+        }
+    }
+
+    // ========== ALERTAS ==========
+
+    /**
+     * Passa a avisar {@code ouvinte} de cada produto que cruzar o estoque mínimo.
+     * Carrega o estado, se preciso, para que nenhum cruzamento deixe de ser detectado.
+     */
+    public void assinarAlertas(OuvinteAlertaEstoque ouvinte) throws Exception {
+        carregarSeNecessario();
+        alertas.add(ouvinte);
+    }
+
+    public void cancelarAlertas(OuvinteAlertaEstoque ouvinte) {
+        alertas.remove(ouvinte);
+    }
+
+    // ========== CONSULTAS ==========
+
+    /**
+     * Balanço por produto em ordem de nome: nome,quantidade,preco,valorTotal e a linha
+     * TOTAL,quantidadeTotal,valorTotal (mesmo formato de {@link RelatorioService#gerarBalanco}).
+     */
+    public String balanco() throws Exception {
+        carregarSeNecessario();
+        synchronized (this) {
+            Estado atual = estadoCarregado();
+            StringBuilder sb = new StringBuilder();
+            for (ItemProduto item : atual.produtos.values()) {
+                sb.append(item.nome).append(',')
+                  .append(item.estoque).append(',');
+                Dinheiro.formatar(sb, item.precoCentavos).append(',');
+                Dinheiro.formatar(sb, item.valor()).append(';');
+            }
+            sb.append("TOTAL,").append(atual.quantidadeTotal).append(',');
+            Dinheiro.formatar(sb, atual.valorTotal);
+            return sb.toString();
+        }
+    }
+
+    /**
+     * Recebe as linhas do balanço sem montar o texto (ver {@link #balanco(LinhaBalanco)}).
+     */
+    @FunctionalInterface
+    public interface LinhaBalanco {
+        void aceitar(String nome, long quantidade, long precoCentavos, long valorCentavos);
+    }
+
+    /**
+     * Entrega o balanço a {@code linha}: primeiro o total (nome null, preço 0), depois cada
+     * produto em ordem de nome. Chamado com a trava dos agregados; {@code linha} não deve bloquear.
+     */
+    public void balanco(LinhaBalanco linha) throws Exception {
+        carregarSeNecessario();
+        synchronized (this) {
+            Estado atual = estadoCarregado();
+            linha.aceitar(null, atual.quantidadeTotal, 0, atual.valorTotal);
+            for (ItemProduto item : atual.produtos.values()) {
+                linha.aceitar(item.nome, item.estoque, item.precoCentavos, item.valor());
+            }
+        }
+    }
+
+    /**
+     * Uma página do balanço: até {@code limite} produtos, em ordem de nome, depois de
+     * {@code depoisDe} (null para começar do primeiro). Na última página entrega também o total
+     * (nome null, preço 0) e retorna null; nas demais retorna o nome do último produto, de onde
+     * começa a próxima. Cada página é lida com a trava, mas as páginas são lidas em momentos
+     * diferentes e o total é o do momento da última.
+     */
+    public String balanco(String depoisDe, int limite, LinhaBalanco linha) throws Exception {
+        carregarSeNecessario();
+        synchronized (this) {
+            Estado atual = estadoCarregado();
+            Iterator<ItemProduto> itens = (depoisDe == null ? atual.produtos : atual.produtos.tailMap(depoisDe, false))
+                    .values().iterator();
+            String ultimo = null;
+            for (int i = 0; i < limite && itens.hasNext(); i++) {
+                ItemProduto item = itens.next();
+                linha.aceitar(item.nome, item.estoque, item.precoCentavos, item.valor());
+                ultimo = item.nome;
+            }
+            if (itens.hasNext()) {
+                return ultimo;
+            }
+            linha.aceitar(null, atual.quantidadeTotal, 0, atual.valorTotal);
+            return null;
+        }
+    }
+
+    /**
+     * Totais das categorias que têm produtos, em ordem de nome.
+     */
+    public List<TotaisCategoria> totaisPorCategoria() throws Exception {
+        carregarSeNecessario();
+        synchronized (this) {
+            List<TotaisCategoria> totais = new ArrayList<>();
+            for (Map.Entry<String, ItemCategoria> entry : estadoCarregado().categorias.entrySet()) {
+                ItemCategoria item = entry.getValue();
+                totais.add(new TotaisCategoria(entry.getKey(), item.produtos, item.unidades, Dinheiro.valor(item.valor)));
+            }
+            return totais;
+        }
+    }
+
+    /**
+     * Os {@code limite} produtos com mais movimentações (empates em ordem de nome).
+     */
+    public Map<String, Long> maisMovimentados(int limite) throws Exception {
+        carregarSeNecessario();
+        synchronized (this) {
+            Map<String, Long> resultado = new LinkedHashMap<>();
+            for (ItemProduto item : estadoCarregado().ranking) {
+                if (resultado.size() == limite) {
+                    break;
+                }
+                resultado.put(item.nome, item.movimentacoes);
+            }
+            return resultado;
+        }
+    }
+
+    /**
+     * Produtos com estoque abaixo do mínimo, em ordem de nome (nome, estoque e mínimo preenchidos).
+     * Lê só o índice, sem percorrer os demais produtos.
+     */
+    public List<Produto> abaixoDoMinimo() throws Exception {
+        carregarSeNecessario();
+        synchronized (this) {
+            List<Produto> produtos = new ArrayList<>();
+            for (ItemProduto item : estadoCarregado().abaixoMinimo.values()) {
+                produtos.add(new Produto(item.nome, Dinheiro.valor(item.precoCentavos), null, (int) item.estoque,
+                                         (int) item.minimo, 0, null));
+            }
+            return produtos;
+        }
+    }
+
+    /**
+     * Estado para uma consulta; se um aviso o descartou depois da recarga, a consulta falha
+     * (acontece só com limparTodos concorrente).
+     */
+    private Estado estadoCarregado() throws Exception {
+        if (estado == null) {
+            throw new Exception("Relatório indisponível: dados alterados durante a consulta, tente novamente");
+        }
+        return estado;
+    }
+
+    // ========== RECARGA E VERIFICAÇÃO ==========
+
+    private void carregarSeNecessario() throws Exception {
+        synchronized (this) {
+            if (estado != null) {
+                return;
+            }
+        }
+        synchronized (recarga) {
+            synchronized (this) {
+                if (estado != null) {
+                    return;
+                }
+            }
+            recarregar();
+        }
+    }
+
+    /**
+     * Descarta o estado e o carrega de novo do banco.
+     */
+    public void reconstruir() throws Exception {
+        synchronized (recarga) {
+            descartarEstado();
+            recarregar();
+        }
+    }
+
+    /**
+     * Lê produtos e contagens de uma fotografia do banco; os avisos que chegam enquanto isso
+     * ficam em {@link #pendentes} e são aplicados ao estado novo. As contagens de movimentações
+     * e os grupos de categorias são lidos em paralelo.
+     */
+    private void recarregar() throws Exception {
+        long inicio = System.currentTimeMillis();
+        Estado novo = new Estado();
+        int conexoes = FotografiaEstoque.conexoesPermitidas(paralelismo);
+        ForkJoinPool pool = new ForkJoinPool(conexoes);
+        try (FotografiaEstoque fotografia = FotografiaEstoque.abrir(conexoes, this::iniciarPendentes)) {
+            ForkJoinTask<Map<String, Integer>> contagens = pool.submit(fotografia::contarMovimentacoes);
+            List<String> categorias = fotografia.categorias();
+            // Algumas leituras por thread, para equilibrar categorias de tamanhos diferentes
+            int categoriasPorLeitura = Math.max(1, categorias.size() / (conexoes * 4));
+            novo.carregar(pool.invoke(new LeituraCategorias(fotografia, categorias, categoriasPorLeitura)));
+            for (Map.Entry<String, Integer> total : contagens.get().entrySet()) {
+                ItemProduto item = novo.produtos.get(total.getKey());
+                if (item != null) {
+                    novo.contar(item, total.getValue());
+                }
+            }
+        } catch (Exception e) {
+            synchronized (this) {
+                pendentes = null;
+            }
+            throw causa(e);
+        } finally {
+            pool.shutdown();
+        }
+        synchronized (this) {
+            novo.carregando = false;
+            avisarDiferencas(novo);
+            for (Consumer<Estado> aviso : pendentes) {
+                aviso.accept(novo);
+            }
+            pendentes = null;
+            estado = novo;
+            if (novo.invalido) {
+                descartarEstado();
+            }
+        }
+        System.err.println("Agregados dos relatórios carregados: " + novo.produtos.size() + " produtos em " +
+                           (System.currentTimeMillis() - inicio) + " ms");
+    }
+
+    /**
+     * Avisa os cruzamentos entre o último estado descartado e o recarregado (alterações que
+     * não chegaram como aviso, como limparTodos ou gravações de outro processo).
+     */
+    private void avisarDiferencas(Estado novo) {
+        if (abaixoAnterior == null) {
+            return;
+        }
+        for (ItemProduto item : novo.abaixoMinimo.values()) {
+            if (!abaixoAnterior.remove(item.nome)) {
+                avisarCruzamento(item);
+            }
+        }
+        for (String nome : abaixoAnterior) {
+            ItemProduto item = novo.produtos.get(nome);
+            if (item != null) {
+                avisarCruzamento(item);
+            }
+        }
+        abaixoAnterior = null;
+    }
+
+    private synchronized void iniciarPendentes() {
+        pendentes = new ArrayList<>();
+    }
+
+    /**
+     * Confere os totais por categoria, as contagens de movimentações e o índice de produtos
+     * abaixo do mínimo contra os valores calculados pelo banco na mesma fotografia. Havendo
+     * diferença, o estado é reconstruído. Retorna as diferenças encontradas (vazia se estiver consistente).
+     */
+    public List<String> verificar() throws Exception {
+        carregarSeNecessario();
+        synchronized (recarga) {
+            Map<String, TotaisCategoria> esperados;
+            Map<String, Integer> contagens;
+            Map<String, TotaisCategoria> categorias = new HashMap<>();
+            Map<String, Long> movimentacoes = new HashMap<>();
+            Set<String> abaixo = new HashSet<>();
+            Set<String> abaixoEsperados;
+            int conexoes = FotografiaEstoque.conexoesPermitidas(Math.min(paralelismo, 3));
+            ForkJoinPool pool = new ForkJoinPool(conexoes);
+            try (FotografiaEstoque fotografia = FotografiaEstoque.abrir(conexoes,
+                                                                        () -> copiar(categorias, movimentacoes, abaixo))) {
+                ForkJoinTask<Map<String, TotaisCategoria>> totais = pool.submit(fotografia::totaisPorCategoria);
+                ForkJoinTask<Map<String, Integer>> contarMovimentacoes = pool.submit(fotografia::contarMovimentacoes);
+                ForkJoinTask<Set<String>> nomesAbaixo = pool.submit(fotografia::nomesAbaixoDoMinimo);
+                esperados = totais.get();
+                contagens = contarMovimentacoes.get();
+                abaixoEsperados = nomesAbaixo.get();
+            } catch (Exception e) {
+                throw causa(e);
+            } finally {
+                pool.shutdown();
+            }
+
+            List<String> diferencas = new ArrayList<>();
+            for (TotaisCategoria esperado : esperados.values()) {
+                TotaisCategoria atual = categorias.remove(esperado.getCategoria());
+                if (atual == null || atual.getProdutos() != esperado.getProdutos() ||
+                    atual.getUnidades() != esperado.getUnidades() ||
+                    atual.getValor().compareTo(esperado.getValor()) != 0) {
+                    diferencas.add("categoria " + esperado.getCategoria() + ": " + descrever(atual) +
+                                   " (banco: " + descrever(esperado) + ")");
+                }
+            }
+            for (TotaisCategoria sobra : categorias.values()) {
+                diferencas.add("categoria " + sobra.getCategoria() + ": " + descrever(sobra) + " (banco: sem produtos)");
+            }
+            for (Map.Entry<String, Integer> contagem : contagens.entrySet()) {
+                Long atual = movimentacoes.remove(contagem.getKey());
+                if (!Objects.equals(atual, contagem.getValue().longValue())) {
+                    diferencas.add("produto " + contagem.getKey() + ": " + (atual != null ? atual : 0) +
+                                   " movimentações (banco: " + contagem.getValue() + ")");
+                }
+            }
+            for (Map.Entry<String, Long> sobra : movimentacoes.entrySet()) {
+                diferencas.add("produto " + sobra.getKey() + ": " + sobra.getValue() + " movimentações (banco: 0)");
+            }
+            for (String nome : abaixoEsperados) {
+                if (!abaixo.remove(nome)) {
+                    diferencas.add("produto " + nome + ": fora do índice de abaixo do mínimo (banco: abaixo)");
+                }
+            }
+            for (String nome : abaixo) {
+                diferencas.add("produto " + nome + ": no índice de abaixo do mínimo (banco: no mínimo ou acima)");
+            }
+
+            if (!diferencas.isEmpty()) {
+                System.err.println("Agregados dos relatórios divergem do banco (" + diferencas.size() +
+                                   " diferenças); reconstruindo");
+                descartarEstado();
+                recarregar();
+            }
+            return diferencas;
+        }
+    }
+
+    /**
+     * Copia os totais atuais; chamado na abertura da fotografia, sem gravações em andamento.
+     */
+    private synchronized void copiar(Map<String, TotaisCategoria> categorias, Map<String, Long> movimentacoes,
+                                     Set<String> abaixo) {
+        if (estado == null) {
+            return;
+        }
+        for (Map.Entry<String, ItemCategoria> entry : estado.categorias.entrySet()) {
+            ItemCategoria item = entry.getValue();
+            categorias.put(entry.getKey(), new TotaisCategoria(entry.getKey(), item.produtos, item.unidades, Dinheiro.valor(item.valor)));
+        }
+        for (ItemProduto item : estado.ranking) {
+            movimentacoes.put(item.nome, item.movimentacoes);
+        }
+        abaixo.addAll(estado.abaixoMinimo.keySet());
+    }
+
+    /**
+     * Exceção original de uma leitura feita em outra thread do pool.
+     */
+    private static Exception causa(Exception e) {
+        Throwable causa = e;
+        while ((causa instanceof ExecutionException || causa instanceof CompletionException) && causa.getCause() != null) {
+            causa = causa.getCause();
+        }
+        if (causa instanceof Exception) {
+            return (Exception) causa;
+        }
+        throw (Error) causa;
+    }
+
+    private static String descrever(TotaisCategoria totais) {
+        if (totais == null) {
+            return "ausente";
+        }
+        return totais.getProdutos() + " produtos, " + totais.getUnidades() + " unidades, valor " +
+               RelatorioService.formatarValor(totais.getValor());
+    }
+}
@@ -0,0 +1,523 @@
+package service;
+
+import config.ServidorConfig;
+import model.Movimentacao;
+import model.Produto;
+
+import java.math.BigDecimal;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+import java.util.zip.CRC32C;
+
+/**
+ * Diário local (write-ahead log) das movimentações aceitas pelo {@link EstoqueEmMemoria},
+ * gravado em segmentos de tamanho fixo mapeados em memória ({@link MappedByteBuffer}).
+ * Cada movimentação recebe uma sequência crescente e ocupa um registro binário de 32 bytes:
+ *
+ * <pre>
+ *  0  tipo (1 = ENTRADA, 2 = SAIDA, 3 = entrada do dicionário de produtos, 0 = fim dos dados)
+ *  4  id do produto no segmento
+ *  8  sequência
+ * 16  data em epoch millis
+ * 24  quantidade
+ * 28  CRC32C dos bytes 0 a 27
+ * </pre>
+ *
+ * Os produtos são identificados pelo nome, então cada segmento tem o próprio dicionário:
+ * antes da primeira movimentação de um produto no segmento é gravada uma entrada do tipo 3
+ * (tamanho do nome no campo de quantidade, CRC do nome no campo de data), seguida do nome
+ * em UTF-8 ocupando os próximos registros. Assim cada segmento pode ser lido sozinho.
+ *
+ * A confirmação ao cliente espera o {@code force()} do trecho gravado, feito em grupo. Com
+ * estoque.memoria.diario.intervaloForceMs=0 (padrão), quem pede a sincronização força na hora,
+ * levando junto tudo o que as outras threads anotaram até ali. Com intervalo maior que zero,
+ * a thread "diario-force" força o segmento nesse intervalo, ou antes quando passam de
+ * estoque.memoria.diario.bytesForce bytes sem force (útil em discos com force lento).
+ * Segmentos cujas movimentações já estão todas no banco são apagados, a menos que
+ * estoque.memoria.diario.manterSegmentos=true (histórico local).
+ */
+public class DiarioMovimentacoes {
+
+    private static final int TAMANHO_REGISTRO = 32;
+    private static final int TAMANHO_CABECALHO = 32;
+    private static final int ASSINATURA = 0x44494152; // "DIAR"
+    private static final int VERSAO = 1;
+
+    private static final byte TIPO_FIM = 0;
+    private static final byte TIPO_ENTRADA = 1;
+    private static final byte TIPO_SAIDA = 2;
+    private static final byte TIPO_DICIONARIO = 3;
+
+    private static final String PREFIXO = "diario-";
+    private static final String EXTENSAO = ".seg";
+
+    private final Path diretorio;
+    private final int tamanhoSegmento;
+    private final int intervaloForceMs;
+    private final int bytesForce;
+    private final boolean manterSegmentos;
+    private final ZoneId fuso = ZoneId.systemDefault();
+
+    /** Protege o segmento atual, a sequência, a fila de pendentes e o buffer de montagem. */
+    private final Object trava = new Object();
+    /** Serializa os force e é o monitor em que esperam as threads aguardando durabilidade. */
+    private final Object travaSincronizacao = new Object();
+
+    private Segmento atual;
+    /** Segmentos anteriores ao atual, do mais antigo para o mais novo. */
+    private final ArrayDeque<Segmento> fechados = new ArrayDeque<>();
+    private long ultimaSequencia;
+    private volatile long sequenciaDuravel;
+    private final ArrayDeque<Registro> pendentes = new ArrayDeque<>();
+    /** Registro montado aqui antes de ser copiado para o segmento (usado sob a trava). */
+    private final ByteBuffer montagem = ByteBuffer.allocate(TAMANHO_REGISTRO);
+    private Thread threadForce;
+    private volatile boolean fechado;
+
+    /**
+     * Movimentação anotada no diário com sua sequência.
+     */
+    public static class Registro {
+        private final long sequencia;
+        private final Movimentacao movimentacao;
+
+        Registro(long sequencia, Movimentacao movimentacao) {
+            this.sequencia = sequencia;
+            this.movimentacao = movimentacao;
+        }
+
+        public long getSequencia() {
+            return sequencia;
+        }
+
+        public Movimentacao getMovimentacao() {
+            return movimentacao;
+        }
+    }
+
+    /**
+     * Um arquivo de segmento mapeado inteiro em memória.
+     */
+    private static class Segmento {
+        final Path arquivo;
+        final MappedByteBuffer buffer;
+        final Map<String, Integer> idsProdutos = new HashMap<>();
+        int posicao;
+        int forcado;
+        long ultimaSequencia;
+
+        Segmento(Path arquivo, MappedByteBuffer buffer) {
+            this.arquivo = arquivo;
+            this.buffer = buffer;
+        }
+    }
+
+    public DiarioMovimentacoes(ServidorConfig config) {
+        this.diretorio = Paths.get(config.getString("estoque.memoria.diario", "diario-estoque"));
+        this.tamanhoSegmento = Math.max(1, config.getInt("estoque.memoria.diario.tamanhoSegmentoMb", 64)) * 1024 * 1024;
+        this.intervaloForceMs = Math.max(0, config.getInt("estoque.memoria.diario.intervaloForceMs", 0));
+        this.bytesForce = Math.max(TAMANHO_REGISTRO, config.getInt("estoque.memoria.diario.bytesForce", 64 * 1024));
+        this.manterSegmentos = Boolean.parseBoolean(config.getString("estoque.memoria.diario.manterSegmentos", "false"));
+    }
+
+    /**
+     * Abre o diário. Os registros com sequência maior que {@code sequenciaGravada} (a última
+     * já gravada no banco) voltam para a fila de pendentes; retorna quantos foram recuperados.
+     * A leitura de cada segmento para no primeiro registro vazio ou com CRC inválido (queda
+     * durante a escrita): esse registro nunca foi confirmado, e a escrita continua dali.
+     */
+    public int abrir(long sequenciaGravada) throws IOException {
+        synchronized (trava) {
+            Files.createDirectories(diretorio);
+            ultimaSequencia = sequenciaGravada;
+
+            for (Path arquivo : listarSegmentos()) {
+                Segmento segmento = mapear(arquivo);
+                segmento.ultimaSequencia = segmento.buffer.getLong(8) - 1;
+                segmento.posicao = ler(segmento, registro -> {
+                    if (registro.sequencia > sequenciaGravada) {
+                        pendentes.add(registro);
+                    }
+                    segmento.ultimaSequencia = registro.sequencia;
+                });
+                // Limpa o que sobrou de uma escrita interrompida para a próxima leitura parar no lugar certo
+                if (segmento.posicao + TAMANHO_REGISTRO <= tamanhoSegmento) {
+                    segmento.buffer.put(segmento.posicao, new byte[TAMANHO_REGISTRO]);
+                }
+                segmento.forcado = segmento.posicao;
+                ultimaSequencia = Math.max(ultimaSequencia, segmento.ultimaSequencia);
+                if (atual != null) {
+                    fechados.add(atual);
+                }
+                atual = segmento;
+            }
+            if (atual == null) {
+                atual = criarSegmento(ultimaSequencia + 1);
+            }
+            sequenciaDuravel = ultimaSequencia;
+            apagarSegmentosGravados(sequenciaGravada);
+
+            if (intervaloForceMs > 0) {
+                threadForce = new Thread(this::executarForce, "diario-force");
+                threadForce.setDaemon(true);
+                threadForce.start();
+            }
+            return pendentes.size();
+        }
+    }
+
+    /**
+     * Anota uma movimentação no segmento atual (ainda sem force) e a coloca na fila de pendentes.
+     * Retorna a sequência atribuída, a ser passada para {@link #sincronizar(long)}.
+     */
+    public long registrar(Movimentacao movimentacao) throws IOException {
+        synchronized (trava) {
+            String nome = movimentacao.getProduto().getNome();
+            Integer id = atual.idsProdutos.get(nome);
+            byte[] nomeBytes = id == null ? nome.getBytes(StandardCharsets.UTF_8) : null;
+            if (atual.posicao + espacoNecessario(nomeBytes) > tamanhoSegmento) {
+                if (id != null) {
+                    nomeBytes = nome.getBytes(StandardCharsets.UTF_8);
+                }
+                if (TAMANHO_CABECALHO + espacoNecessario(nomeBytes) > tamanhoSegmento) {
+                    throw new IOException("Nome de produto grande demais para o segmento do diário: " + nome);
+                }
+                trocarSegmento();
+                id = null;
+            }
+            if (id == null) {
+                id = atual.idsProdutos.size() + 1;
+                escreverDicionario(id, nomeBytes);
+                atual.idsProdutos.put(nome, id);
+            }
+
+            long sequencia = ultimaSequencia + 1;
+            LocalDateTime data = movimentacao.getData() != null ? movimentacao.getData() : LocalDateTime.now();
+            byte tipo = movimentacao.getTipo() == Movimentacao.TipoMovimentacao.ENTRADA ? TIPO_ENTRADA : TIPO_SAIDA;
+            escreverRegistro(tipo, id, sequencia, data.atZone(fuso).toInstant().toEpochMilli(),
+                             movimentacao.getQuantidade());
+
+            ultimaSequencia = sequencia;
+            atual.ultimaSequencia = sequencia;
+            pendentes.add(new Registro(sequencia, movimentacao));
+            if (threadForce != null && atual.posicao - atual.forcado >= bytesForce) {
+                LockSupport.unpark(threadForce);
+            }
+            return sequencia;
+        }
+    }
+
+    /**
+     * Espera até o registro {@code sequencia} (e todos os anteriores) estar no disco.
+     */
+    public void sincronizar(long sequencia) throws IOException {
+        if (sequenciaDuravel >= sequencia) {
+            return;
+        }
+        if (threadForce == null) {
+            forcar();
+            return;
+        }
+        synchronized (travaSincronizacao) {
+            while (sequenciaDuravel < sequencia) {
+                if (fechado) {
+                    throw new IOException("Diário fechado");
+                }
+                try {
+                    travaSincronizacao.wait(100);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Interrompido aguardando o diário");
+                }
+            }
+        }
+    }
+
+    /**
+     * Primeiros registros ainda não gravados no banco, em ordem de sequência.
+     */
+    public List<Registro> pendentes(int maximo) {
+        synchronized (trava) {
+            List<Registro> lote = new ArrayList<>(Math.min(maximo, pendentes.size()));
+            for (Registro registro : pendentes) {
+                if (lote.size() == maximo) {
+                    break;
+                }
+                lote.add(registro);
+            }
+            return lote;
+        }
+    }
+
+    public int getQuantidadePendentes() {
+        synchronized (trava) {
+            return pendentes.size();
+        }
+    }
+
+    /**
+     * Marca como gravados no banco os registros até {@code sequencia} e apaga os segmentos
+     * antigos que não têm mais nada pendente.
+     */
+    public void confirmarAte(long sequencia) throws IOException {
+        synchronized (trava) {
+            while (!pendentes.isEmpty() && pendentes.peekFirst().sequencia <= sequencia) {
+                pendentes.pollFirst();
+            }
+            apagarSegmentosGravados(sequencia);
+        }
+    }
+
+    /**
+     * Percorre, em ordem, todas as movimentações dos segmentos ainda em disco.
+     * Com manterSegmentos=true, é uma forma rápida de reconstruir o histórico sem ler a
+     * tabela movimentacoes. Novas movimentações ficam bloqueadas durante a leitura.
+     */
+    public void percorrer(Consumer<Registro> consumidor) throws IOException {
+        synchronized (trava) {
+            for (Segmento segmento : fechados) {
+                ler(segmento, consumidor);
+            }
+            ler(atual, consumidor);
+        }
+    }
+
+    public void fechar() throws IOException {
+        fechado = true;
+        if (threadForce != null) {
+            LockSupport.unpark(threadForce);
+            try {
+                threadForce.join(1000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        forcar();
+    }
+
+    // ========== ESCRITA (sob a trava) ==========
+
+    private static int espacoNecessario(byte[] nomeNovo) {
+        return nomeNovo == null ? TAMANHO_REGISTRO : 2 * TAMANHO_REGISTRO + arredondar(nomeNovo.length);
+    }
+
+    /**
+     * O nome vai depois do cabeçalho, mas é copiado antes: o cabeçalho só fica válido
+     * (CRC correto) quando o nome já está no segmento.
+     */
+    private void escreverDicionario(int id, byte[] nome) {
+        CRC32C crc = new CRC32C();
+        crc.update(nome);
+        atual.buffer.put(atual.posicao + TAMANHO_REGISTRO, nome);
+        escreverRegistro(TIPO_DICIONARIO, id, 0, crc.getValue(), nome.length);
+        atual.posicao += arredondar(nome.length);
+    }
+
+    private void escreverRegistro(byte tipo, int id, long sequencia, long data, int quantidade) {
+        montagem.clear();
+        montagem.put(tipo).put((byte) 0).putShort((short) 0)
+                .putInt(id).putLong(sequencia).putLong(data).putInt(quantidade);
+        montagem.putInt(crc(montagem.array()));
+        atual.buffer.put(atual.posicao, montagem.array());
+        atual.posicao += TAMANHO_REGISTRO;
+    }
+
+    /**
+     * Força o segmento atual inteiro e abre um novo. Não usa a travaSincronizacao (que é
+     * tomada antes da trava em {@link #forcar()}); o próximo force marca as sequências
+     * deste segmento como duráveis.
+     */
+    private void trocarSegmento() throws IOException {
+        try {
+            atual.buffer.force();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        fechados.add(atual);
+        atual = criarSegmento(ultimaSequencia + 1);
+    }
+
+    private Segmento criarSegmento(long primeiraSequencia) throws IOException {
+        Path arquivo = diretorio.resolve(String.format("%s%020d%s", PREFIXO, primeiraSequencia, EXTENSAO));
+        Segmento segmento = mapear(arquivo);
+        segmento.buffer.putInt(0, ASSINATURA);
+        segmento.buffer.putInt(4, VERSAO);
+        segmento.buffer.putLong(8, primeiraSequencia);
+        segmento.buffer.force(0, TAMANHO_CABECALHO);
+        segmento.posicao = TAMANHO_CABECALHO;
+        segmento.forcado = TAMANHO_CABECALHO;
+        segmento.ultimaSequencia = primeiraSequencia - 1;
+        return segmento;
+    }
+
+    // ========== FORCE EM GRUPO ==========
+
+    private void executarForce() {
+        long intervalo = TimeUnit.MILLISECONDS.toNanos(intervaloForceMs);
+        while (!fechado) {
+            LockSupport.parkNanos(intervalo);
+            try {
+                forcar();
+            } catch (IOException e) {
+                System.err.println("Erro ao forçar diário para o disco: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Força para o disco o trecho ainda não forçado do segmento atual e acorda quem espera.
+     * A trava principal só é usada para ler a posição, então novas movimentações continuam
+     * sendo anotadas durante o force.
+     */
+    private void forcar() throws IOException {
+        synchronized (travaSincronizacao) {
+            Segmento segmento;
+            int fim;
+            long alvo;
+            synchronized (trava) {
+                segmento = atual;
+                fim = segmento.posicao;
+                alvo = ultimaSequencia;
+            }
+            if (alvo <= sequenciaDuravel) {
+                return;
+            }
+            forcarSegmento(segmento, fim);
+            sequenciaDuravel = alvo;
+            travaSincronizacao.notifyAll();
+        }
+    }
+
+    /**
+     * Chamado com a travaSincronizacao.
+     */
+    private void forcarSegmento(Segmento segmento, int fim) throws IOException {
+        if (fim <= segmento.forcado) {
+            return;
+        }
+        try {
+            segmento.buffer.force(segmento.forcado, fim - segmento.forcado);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        segmento.forcado = fim;
+    }
+
+    // ========== LEITURA ==========
+
+    /**
+     * Entrega os registros válidos do segmento e retorna a posição logo após o último.
+     */
+    private int ler(Segmento segmento, Consumer<Registro> consumidor) throws IOException {
+        MappedByteBuffer buffer = segmento.buffer;
+        if (buffer.getInt(0) != ASSINATURA || buffer.getInt(4) != VERSAO) {
+            throw new IOException("Segmento do diário inválido: " + segmento.arquivo);
+        }
+        Map<Integer, String> nomes = new HashMap<>();
+        byte[] bytes = new byte[TAMANHO_REGISTRO];
+        ByteBuffer registro = ByteBuffer.wrap(bytes);
+
+        int p = TAMANHO_CABECALHO;
+        while (p + TAMANHO_REGISTRO <= tamanhoSegmento) {
+            buffer.get(p, bytes);
+            byte tipo = bytes[0];
+            if (tipo == TIPO_FIM || registro.getInt(28) != crc(bytes)) {
+                break;
+            }
+            int id = registro.getInt(4);
+            if (tipo == TIPO_DICIONARIO) {
+                int tamanho = registro.getInt(24);
+                if (tamanho < 0 || p + TAMANHO_REGISTRO + tamanho > tamanhoSegmento) {
+                    break;
+                }
+                byte[] nome = new byte[tamanho];
+                buffer.get(p + TAMANHO_REGISTRO, nome);
+                CRC32C crc = new CRC32C();
+                crc.update(nome);
+                if (crc.getValue() != registro.getLong(16)) {
+                    break;
+                }
+                String texto = new String(nome, StandardCharsets.UTF_8);
+                nomes.put(id, texto);
+                segmento.idsProdutos.put(texto, id);
+                p += TAMANHO_REGISTRO + arredondar(tamanho);
+                continue;
+            }
+
+            String nome = nomes.get(id);
+            if (nome == null || (tipo != TIPO_ENTRADA && tipo != TIPO_SAIDA)) {
+                break;
+            }
+            LocalDateTime data = LocalDateTime.ofInstant(Instant.ofEpochMilli(registro.getLong(16)), fuso);
+            Movimentacao.TipoMovimentacao tipoMovimentacao = tipo == TIPO_ENTRADA
+                    ? Movimentacao.TipoMovimentacao.ENTRADA : Movimentacao.TipoMovimentacao.SAIDA;
+            Produto produto = new Produto(nome, BigDecimal.ZERO, null, 0, 0, 0, null);
+            consumidor.accept(new Registro(registro.getLong(8),
+                    new Movimentacao(produto, data, registro.getInt(24), tipoMovimentacao)));
+            p += TAMANHO_REGISTRO;
+        }
+        return p;
+    }
+
+    private Segmento mapear(Path arquivo) throws IOException {
+        try (FileChannel canal = FileChannel.open(arquivo, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                                                  StandardOpenOption.WRITE)) {
+            // O mapeamento continua válido depois de fechar o canal
+            return new Segmento(arquivo, canal.map(FileChannel.MapMode.READ_WRITE, 0, tamanhoSegmento));
+        }
+    }
+
+    private List<Path> listarSegmentos() throws IOException {
+        List<Path> arquivos = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(diretorio, PREFIXO + "*" + EXTENSAO)) {
+            for (Path arquivo : stream) {
+                arquivos.add(arquivo);
+            }
+        }
+        // A sequência no nome tem tamanho fixo, então a ordem alfabética é a ordem do diário
+        arquivos.sort(null);
+        return arquivos;
+    }
+
+    /**
+     * Apaga os segmentos fechados cujas movimentações já estão todas no banco; chamado com a trava.
+     */
+    private void apagarSegmentosGravados(long sequenciaGravada) throws IOException {
+        if (manterSegmentos) {
+            return;
+        }
+        while (!fechados.isEmpty() && fechados.peekFirst().ultimaSequencia <= sequenciaGravada) {
+            Files.deleteIfExists(fechados.pollFirst().arquivo);
+        }
+    }
+
+    private static int crc(byte[] registro) {
+        CRC32C crc = new CRC32C();
+        crc.update(registro, 0, 28);
+        return (int) crc.getValue();
+    }
+
+    private static int arredondar(int bytes) {
+        return (bytes + TAMANHO_REGISTRO - 1) / TAMANHO_REGISTRO * TAMANHO_REGISTRO;
+    }
+}
@@ -0,0 +1,349 @@
+package service;
+
+import config.ServidorConfig;
+import dao.MovimentacaoDAO;
+import dao.ProdutoDAO;
+import model.Movimentacao;
+import model.Produto;
+import model.ResultadoMovimentacao;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Estoque em memória com gravação adiada no MySQL (estoque.memoria=true em servidor.properties),
+ * para picos de movimentação em que a ida ao banco por MOVIMENTACAO_CRIAR é o gargalo.
+ *
+ * O estoque atual de cada produto fica em memória e as movimentações são aplicadas sob uma
+ * trava por faixa de produtos (lock striping). Cada movimentação aceita é anotada no
+ * {@link DiarioMovimentacoes} e só é confirmada ao cliente depois do fsync do diário, então
+ * uma movimentação confirmada nunca se perde em uma queda. Uma thread de gravação leva as
+ * pendentes ao banco em lotes, a cada estoque.memoria.intervaloGravacaoMs.
+ *
+ * Na inicialização, o que estiver no diário e ainda não estiver no banco é reaplicado, e o
+ * estoque em memória é reconstruído a partir da tabela produtos.
+ * Leituras feitas direto no banco (relatórios) ficam atrasadas em até um intervalo de gravação.
+ *
+ * Um lote que falha estoque.memoria.maxTentativas vezes seguidas é gravado uma movimentação
+ * por vez; as que o banco recusa pelo conteúdo (produto excluído no meio tempo, restrição
+ * violada) são anotadas em descartadas.log, no diretório do diário, e desfeitas no estoque em
+ * memória, para que as seguintes cheguem ao banco. Falhas passageiras (deadlock, espera de
+ * trava, banco fora do ar) não descartam nada: o lote continua pendente.
+ */
+public class EstoqueEmMemoria {
+
+    /** Quantidade de travas; produtos diferentes na mesma faixa compartilham a trava. */
+    private static final int FAIXAS = 64;
+
+    private final ReentrantLock[] travas = new ReentrantLock[FAIXAS];
+    /** Estoque atual por produto; cada int[1] só é lido ou alterado sob a trava da sua faixa. */
+    private final Map<String, int[]> estoques = new ConcurrentHashMap<>();
+
+    private final DiarioMovimentacoes diario;
+    private final MovimentacaoDAO movimentacaoDAO = new MovimentacaoDAO();
+    private final ProdutoDAO produtoDAO = new ProdutoDAO();
+    private final int intervaloGravacaoMs;
+    private final int maxLoteGravacao;
+    private final int maxTentativas;
+    private final Path arquivoDescartadas;
+    /** Falhas seguidas na gravação do lote mais antigo. */
+    private int falhasSeguidas;
+    /** Movimentações descartadas a desfazer no estoque em memória, fora do monitor (ver {@link #desfazerDescartadas}). */
+    private final Queue<Movimentacao> descartadas = new ConcurrentLinkedQueue<>();
+    private ScheduledExecutorService gravador;
+
+    public EstoqueEmMemoria(ServidorConfig config) {
+        this.diario = new DiarioMovimentacoes(config);
+        this.intervaloGravacaoMs = Math.max(10, config.getInt("estoque.memoria.intervaloGravacaoMs", 200));
+        this.maxLoteGravacao = Math.max(1, config.getInt("estoque.memoria.maxLoteGravacao", 5000));
+        this.maxTentativas = Math.max(1, config.getInt("estoque.memoria.maxTentativas", 5));
+        this.arquivoDescartadas = Paths.get(config.getString("estoque.memoria.diario", "diario-estoque"))
+                                       .resolve("descartadas.log");
+        for (int i = 0; i < FAIXAS; i++) {
+            travas[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * Reaplica o diário no banco, carrega o estoque de todos os produtos e inicia o gravador.
+     */
+    public void iniciar() throws Exception {
+        int recuperadas = diario.abrir(movimentacaoDAO.lerSequenciaDiario());
+        if (recuperadas > 0) {
+            System.out.println("Reaplicando " + recuperadas + " movimentações do diário no banco...");
+            gravarPendentes();
+            // O estoque ainda não foi carregado: é lido do banco, sem as descartadas
+            descartadas.clear();
+        }
+
+        for (Produto produto : produtoDAO.listarTodos()) {
+            estoques.put(produto.getNome(), new int[] { produto.getQuantidadeEstoque() });
+        }
+        System.out.println("Estoque em memória carregado: " + estoques.size() + " produtos");
+
+        gravador = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "estoque-gravador");
+            t.setDaemon(true);
+            return t;
+        });
+        gravador.scheduleWithFixedDelay(this::gravarPendentesAgendado,
+                                        intervaloGravacaoMs, intervaloGravacaoMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Aplica as movimentações em ordem e retorna um resultado por movimentação.
+     * As aceitas já estão no diário em disco quando este método retorna. Se a escrita no diário
+     * falhar, essa movimentação e as seguintes voltam como falha sem serem aplicadas; as
+     * anteriores continuam aceitas, e o cliente pode reenviar só as que falharam.
+     */
+    public List<ResultadoMovimentacao> movimentar(List<Movimentacao> movimentacoes) throws Exception {
+        List<ResultadoMovimentacao> resultados = new ArrayList<>(movimentacoes.size());
+        long ultimaSequencia = 0;
+        String erroDiario = null;
+        for (Movimentacao movimentacao : movimentacoes) {
+            if (erroDiario != null) {
+                resultados.add(ResultadoMovimentacao.falha(movimentacao, erroDiario));
+                continue;
+            }
+            try {
+                movimentacao.validarMovimentacao();
+                ultimaSequencia = aplicar(movimentacao);
+                resultados.add(ResultadoMovimentacao.sucesso(movimentacao));
+            } catch (IOException e) {
+                erroDiario = "Erro ao gravar diário de movimentações: " + e.getMessage();
+                resultados.add(ResultadoMovimentacao.falha(movimentacao, erroDiario));
+            } catch (Exception e) {
+                resultados.add(ResultadoMovimentacao.falha(movimentacao, e.getMessage()));
+            }
+        }
+
+        if (ultimaSequencia > 0) {
+            try {
+                diario.sincronizar(ultimaSequencia);
+            } catch (IOException e) {
+                throw new Exception("Erro ao gravar diário de movimentações: " + e.getMessage());
+            }
+        }
+        return resultados;
+    }
+
+    /**
+     * Confere o estoque, anota no diário e só então altera o valor em memória.
+     * Retorna a sequência do registro no diário.
+     */
+    private long aplicar(Movimentacao movimentacao) throws Exception {
+        String nome = movimentacao.getProduto().getNome();
+        ReentrantLock trava = travaDe(nome);
+        trava.lock();
+        try {
+            int[] estoque = estoqueDe(nome);
+            if (estoque == null) {
+                throw new Exception("Produto não encontrado: " + nome);
+            }
+
+            int novoEstoque;
+            if (movimentacao.getTipo() == Movimentacao.TipoMovimentacao.ENTRADA) {
+                novoEstoque = estoque[0] + movimentacao.getQuantidade();
+            } else {
+                novoEstoque = estoque[0] - movimentacao.getQuantidade();
+                if (novoEstoque < 0) {
+                    throw new Exception("Estoque insuficiente. Estoque atual: " + estoque[0]);
+                }
+            }
+
+            long sequencia = diario.registrar(movimentacao);
+            estoque[0] = novoEstoque;
+            movimentacao.getProduto().setQuantidadeEstoque(novoEstoque);
+            return sequencia;
+        } finally {
+            trava.unlock();
+        }
+    }
+
+    /**
+     * Estoque em memória do produto, ou null se ele não existir.
+     */
+    public Integer getEstoque(String nome) {
+        ReentrantLock trava = travaDe(nome);
+        trava.lock();
+        try {
+            int[] estoque = estoqueDe(nome);
+            return estoque != null ? estoque[0] : null;
+        } finally {
+            trava.unlock();
+        }
+    }
+
+    /**
+     * Executa uma alteração direta do produto no banco (atualização, exclusão) sem movimentações
+     * do mesmo produto em paralelo: grava as pendentes antes e recarrega o estoque depois.
+     */
+    public <T> T alterarProduto(String nome, Callable<T> alteracao) throws Exception {
+        ReentrantLock trava = travaDe(nome);
+        trava.lock();
+        try {
+            gravarPendentes();
+            T resultado = alteracao.call();
+            estoques.remove(nome);
+            // O estoque será relido do banco, que já não tem as descartadas
+            descartadas.removeIf(m -> m.getProduto().getNome().equals(nome));
+            return resultado;
+        } finally {
+            trava.unlock();
+        }
+    }
+
+    /**
+     * Para o gravador, leva ao banco tudo o que estiver pendente e fecha o diário.
+     */
+    public void parar() {
+        if (gravador != null) {
+            gravador.shutdown();
+            try {
+                gravador.awaitTermination(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        try {
+            gravarPendentes();
+            desfazerDescartadas();
+            diario.fechar();
+        } catch (Exception e) {
+            System.err.println("Erro ao gravar estoque em memória no desligamento " +
+                               "(será reaplicado do diário na próxima inicialização): " + e.getMessage());
+        }
+    }
+
+    public int getQuantidadePendentes() {
+        return diario.getQuantidadePendentes();
+    }
+
+    /**
+     * Grava no banco, em lotes, as movimentações pendentes no diário.
+     */
+    private synchronized void gravarPendentes() throws Exception {
+        List<DiarioMovimentacoes.Registro> lote;
+        do {
+            lote = diario.pendentes(maxLoteGravacao);
+            if (lote.isEmpty()) {
+                return;
+            }
+            List<Movimentacao> movimentacoes = new ArrayList<>(lote.size());
+            for (DiarioMovimentacoes.Registro registro : lote) {
+                movimentacoes.add(registro.getMovimentacao());
+            }
+            long ultimaSequencia = lote.get(lote.size() - 1).getSequencia();
+            try {
+                movimentacaoDAO.gravarAplicadas(movimentacoes, ultimaSequencia);
+            } catch (Exception e) {
+                if (++falhasSeguidas < maxTentativas) {
+                    throw e;
+                }
+                gravarSeparandoRecusadas(lote);
+                falhasSeguidas = 0;
+                continue;
+            }
+            falhasSeguidas = 0;
+            diario.confirmarAte(ultimaSequencia);
+        } while (lote.size() == maxLoteGravacao);
+    }
+
+    /**
+     * Grava o lote uma movimentação por vez e descarta as que o banco recusa pelo conteúdo.
+     * Qualquer outra falha é lançada: as já gravadas ficam confirmadas e o resto continua pendente.
+     */
+    private void gravarSeparandoRecusadas(List<DiarioMovimentacoes.Registro> lote) throws Exception {
+        for (DiarioMovimentacoes.Registro registro : lote) {
+            try {
+                movimentacaoDAO.gravarAplicadas(Collections.singletonList(registro.getMovimentacao()),
+                                                registro.getSequencia());
+            } catch (MovimentacaoDAO.MovimentacaoRecusadaException e) {
+                descartar(registro, e.getMessage());
+                movimentacaoDAO.gravarSequenciaDiario(registro.getSequencia());
+            }
+            diario.confirmarAte(registro.getSequencia());
+        }
+    }
+
+    private void descartar(DiarioMovimentacoes.Registro registro, String motivo) throws IOException {
+        Movimentacao movimentacao = registro.getMovimentacao();
+        String linha = registro.getSequencia() + ";" + movimentacao.getData() + ";" +
+                       movimentacao.getProduto().getNome() + ";" + movimentacao.getTipo() + ";" +
+                       movimentacao.getQuantidade() + ";" + motivo + System.lineSeparator();
+        Files.write(arquivoDescartadas, linha.getBytes(StandardCharsets.UTF_8),
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        System.err.println("Movimentação " + registro.getSequencia() + " recusada pelo banco, anotada em " +
+                           arquivoDescartadas + ": " + motivo);
+        descartadas.add(movimentacao);
+    }
+
+    /**
+     * Desfaz no estoque em memória as movimentações descartadas. Chamado fora de
+     * {@link #gravarPendentes}, sem nenhuma trava de faixa, porque pega as travas dos produtos.
+     */
+    private void desfazerDescartadas() {
+        Movimentacao movimentacao;
+        while ((movimentacao = descartadas.poll()) != null) {
+            String nome = movimentacao.getProduto().getNome();
+            ReentrantLock trava = travaDe(nome);
+            trava.lock();
+            try {
+                int[] estoque = estoques.get(nome);
+                if (estoque != null) {
+                    estoque[0] += movimentacao.getTipo() == Movimentacao.TipoMovimentacao.ENTRADA
+                                  ? -movimentacao.getQuantidade() : movimentacao.getQuantidade();
+                }
+            } finally {
+                trava.unlock();
+            }
+        }
+    }
+
+    private void gravarPendentesAgendado() {
+        try {
+            gravarPendentes();
+        } catch (Exception e) {
+            // As movimentações continuam no diário e serão tentadas de novo no próximo ciclo
+            System.err.println("Erro na gravação do estoque em memória: " + e.getMessage());
+        } finally {
+            desfazerDescartadas();
+        }
+    }
+
+    /**
+     * Deve ser chamado com a trava da faixa do produto. Produtos criados depois da
+     * inicialização (ou alterados por {@link #alterarProduto}) são lidos do banco.
+     */
+    private int[] estoqueDe(String nome) {
+        int[] estoque = estoques.get(nome);
+        if (estoque == null) {
+            Produto produto = produtoDAO.buscarPorNome(nome);
+            if (produto != null) {
+                estoque = new int[] { produto.getQuantidadeEstoque() };
+                estoques.put(nome, estoque);
+            }
+        }
+        return estoque;
+    }
+
+    private ReentrantLock travaDe(String nome) {
+        return travas[(nome.hashCode() & 0x7fffffff) % FAIXAS];
+    }
+}
@@ -0,0 +1,13 @@
+package service;
+
+/**
+ * Recebe os cruzamentos do estoque mínimo detectados por {@link AgregadosRelatorio}.
+ * Chamado na thread que gravou a alteração, em ordem; não pode bloquear.
+ */
+public interface OuvinteAlertaEstoque {
+
+    /**
+     * O produto passou a ficar abaixo do mínimo ({@code abaixo}) ou voltou a ficar no mínimo ou acima.
+     */
+    void limiteCruzado(String produto, long estoque, long minimo, boolean abaixo);
+}
@@ -0,0 +1,266 @@
+package service;
+
+import dao.ConsumidorRegistro;
+import dao.ProdutoDAO;
+import dao.ResumoMovimentacaoDAO;
+import model.Dinheiro;
+import model.Produto;
+import model.ResumoMovimentacao;
+import model.TotaisCategoria;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Gera os relatórios do sistema (RELATORIO_*).
+ * Cada relatório é retornado no formato do protocolo: registros separados por ';'
+ * e campos separados por ','.
+ * Balanço, quantidade por categoria, mais movimentados e abaixo do mínimo vêm dos agregados
+ * em memória ({@link AgregadosRelatorio}); a lista de preços lê os produtos do banco.
+ * Os relatórios por período vêm do resumo por hora e por dia das movimentações
+ * ({@link ResumoMovimentacaoDAO}).
+ */
+public class RelatorioService {
+
+    public static final int LIMITE_MAIS_MOVIMENTACOES = 10;
+
+    private final ProdutoDAO produtoDAO;
+    private final ResumoMovimentacaoDAO resumoDAO;
+    private final AgregadosRelatorio agregados;
+
+    public RelatorioService() {
+        this.produtoDAO = new ProdutoDAO();
+        this.resumoDAO = new ResumoMovimentacaoDAO();
+        this.agregados = AgregadosRelatorio.getInstance();
+    }
+
+    /**
+     * Lista de preços em ordem alfabética: nome,preco,unidade,categoria.
+     */
+    public String gerarListaPrecos() {
+        StringBuilder sb = new StringBuilder();
+        for (Produto produto : listaPrecos()) {
+            separar(sb);
+            sb.append(formatarPreco(produto));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Percorre a lista de preços sem montá-la em memória (ver {@link ProdutoDAO#percorrerTodos}).
+     */
+    public long percorrerListaPrecos(ConsumidorRegistro<Produto> consumidor) throws Exception {
+        return produtoDAO.percorrerTodos(consumidor);
+    }
+
+    /**
+     * Registro da lista de preços: nome,preco,unidade,categoria.
+     */
+    public static String formatarPreco(Produto produto) {
+        return produto.getNome() + "," +
+               Dinheiro.formatar(produto.getPrecoCentavos()) + "," +
+               produto.getUnidade() + "," +
+               produto.getCategoria().getNome();
+    }
+
+    /**
+     * Balanço físico/financeiro: nome,quantidade,preco,valorTotal por produto
+     * e uma última linha TOTAL,quantidadeTotal,valorTotal.
+     */
+    public String gerarBalanco() throws Exception {
+        return agregados.balanco();
+    }
+
+    /**
+     * Linhas do balanço sem formatação (total primeiro), para o modo binário.
+     */
+    public void balanco(AgregadosRelatorio.LinhaBalanco linha) throws Exception {
+        agregados.balanco(linha);
+    }
+
+    /**
+     * Uma página do balanço (ver {@link AgregadosRelatorio#balanco(String, int, AgregadosRelatorio.LinhaBalanco)}).
+     */
+    public String balanco(String depoisDe, int limite, AgregadosRelatorio.LinhaBalanco linha) throws Exception {
+        return agregados.balanco(depoisDe, limite, linha);
+    }
+
+    /**
+     * Registro do balanço: nome,quantidade,preco,valorTotal, ou TOTAL,quantidadeTotal,valorTotal
+     * para o total (nome null).
+     */
+    public static String formatarLinhaBalanco(String nome, long quantidade, long precoCentavos, long valorCentavos) {
+        if (nome == null) {
+            return "TOTAL," + quantidade + "," + Dinheiro.formatar(valorCentavos);
+        }
+        return nome + "," + quantidade + "," + Dinheiro.formatar(precoCentavos) + "," + Dinheiro.formatar(valorCentavos);
+    }
+
+    /**
+     * Produtos em ordem alfabética, para a lista de preços.
+     */
+    public List<Produto> listaPrecos() {
+        return produtoDAO.listarTodos();
+    }
+
+    /**
+     * Produtos com estoque abaixo do mínimo, em ordem de nome.
+     */
+    public List<Produto> abaixoDoMinimo() throws Exception {
+        return agregados.abaixoDoMinimo();
+    }
+
+    /**
+     * Totais por categoria, em ordem de nome.
+     */
+    public List<TotaisCategoria> totaisPorCategoria() throws Exception {
+        return agregados.totaisPorCategoria();
+    }
+
+    /**
+     * Os {@link #LIMITE_MAIS_MOVIMENTACOES} produtos com mais movimentações.
+     */
+    public Map<String, Long> maisMovimentados() throws Exception {
+        return agregados.maisMovimentados(LIMITE_MAIS_MOVIMENTACOES);
+    }
+
+    /**
+     * Produtos com estoque abaixo do mínimo: nome,estoqueAtual,estoqueMinimo.
+     */
+    public String gerarAbaixoMinimo() throws Exception {
+        StringBuilder sb = new StringBuilder();
+        for (Produto produto : abaixoDoMinimo()) {
+            separar(sb);
+            sb.append(produto.getNome()).append(',')
+              .append(produto.getQuantidadeEstoque()).append(',')
+              .append(produto.getQuantidadeMinima());
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Passa a avisar {@code ouvinte} dos produtos que cruzarem o estoque mínimo.
+     */
+    public void assinarAlertas(OuvinteAlertaEstoque ouvinte) throws Exception {
+        agregados.assinarAlertas(ouvinte);
+    }
+
+    public void cancelarAlertas(OuvinteAlertaEstoque ouvinte) {
+        agregados.cancelarAlertas(ouvinte);
+    }
+
+    /**
+     * Quantidade de produtos e de unidades em estoque por categoria: categoria,produtos,unidades.
+     */
+    public String gerarQuantidadePorCategoria() throws Exception {
+        StringBuilder sb = new StringBuilder();
+        for (TotaisCategoria totais : totaisPorCategoria()) {
+            separar(sb);
+            sb.append(totais.getCategoria()).append(',')
+              .append(totais.getProdutos()).append(',')
+              .append(totais.getUnidades());
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Produtos com mais movimentações (os 10 primeiros): nome,movimentacoes.
+     */
+    public String gerarMaisMovimentacoes() throws Exception {
+        StringBuilder sb = new StringBuilder();
+        for (Map.Entry<String, Long> entry : maisMovimentados().entrySet()) {
+            separar(sb);
+            sb.append(entry.getKey()).append(',').append(entry.getValue());
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Entradas e saídas de cada produto ({@code produto} null para todos) em cada dia de
+     * [de, ate), em ordem de dia e produto. Dias sem movimentação ficam de fora.
+     */
+    public List<ResumoMovimentacao> movimentacoesPorDia(String produto, LocalDateTime de, LocalDateTime ate)
+            throws Exception {
+        return resumoDAO.buscarTotais(produto, de, ate, true);
+    }
+
+    /**
+     * Entradas e saídas de cada produto em [de, ate), do mais movimentado para o menos
+     * movimentado (número de movimentações, depois nome).
+     */
+    public List<ResumoMovimentacao> movimentacoesPorProduto(LocalDateTime de, LocalDateTime ate) throws Exception {
+        List<ResumoMovimentacao> resumos = resumoDAO.buscarTotais(null, de, ate, false);
+        resumos.sort(Comparator.comparingLong(ResumoMovimentacao::getMovimentacoes).reversed()
+                               .thenComparing(ResumoMovimentacao::getProduto));
+        return resumos;
+    }
+
+    /**
+     * Movimentação diária no período: dia,produto,entradas,saidas,movimentacoes.
+     */
+    public String gerarMovimentacaoDiaria(String produto, LocalDateTime de, LocalDateTime ate) throws Exception {
+        StringBuilder sb = new StringBuilder();
+        for (ResumoMovimentacao resumo : movimentacoesPorDia(produto, de, ate)) {
+            separar(sb);
+            sb.append(resumo.getDia()).append(',')
+              .append(resumo.getProduto()).append(',')
+              .append(resumo.getEntradas()).append(',')
+              .append(resumo.getSaidas()).append(',')
+              .append(resumo.getMovimentacoes());
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Produtos com mais movimentações no período (os {@code limite} primeiros):
+     * nome,movimentacoes,entradas,saidas.
+     */
+    public String gerarMaisMovimentacoesPeriodo(LocalDateTime de, LocalDateTime ate, int limite) throws Exception {
+        if (limite <= 0) {
+            throw new Exception("Limite deve ser maior que zero");
+        }
+        StringBuilder sb = new StringBuilder();
+        List<ResumoMovimentacao> resumos = movimentacoesPorProduto(de, ate);
+        for (ResumoMovimentacao resumo : resumos.subList(0, Math.min(limite, resumos.size()))) {
+            separar(sb);
+            sb.append(resumo.getProduto()).append(',')
+              .append(resumo.getMovimentacoes()).append(',')
+              .append(resumo.getEntradas()).append(',')
+              .append(resumo.getSaidas());
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Confere os agregados dos relatórios contra o banco, reconstruindo-os se divergirem:
+     * OK ou quantidade de diferenças seguida das diferenças.
+     */
+    public String verificarAgregados() throws Exception {
+        List<String> diferencas = agregados.verificar();
+        if (diferencas.isEmpty()) {
+            return "OK";
+        }
+        StringBuilder sb = new StringBuilder(diferencas.size() + " diferenças (agregados reconstruídos)");
+        for (String diferenca : diferencas) {
+            sb.append(';').append(diferenca.replace(';', ','));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Formata um valor monetário com duas casas decimais e ponto como separador.
+     */
+    public static String formatarValor(BigDecimal valor) {
+        return valor.setScale(2, RoundingMode.HALF_UP).toPlainString();
+    }
+
+    private static void separar(StringBuilder sb) {
+        if (sb.length() > 0) {
+            sb.append(';');
+        }
+    }
+}
@@ -0,0 +1,248 @@
+package util;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Cache em memória com limite de entradas (remove a usada há mais tempo) e tempo de vida.
+ * Para não guardar um valor que ficou velho durante a carga, quem carrega do banco anota a
+ * {@link #versao()} antes da consulta e {@link #colocar} descarta o valor se aquela chave foi
+ * invalidada (ou o cache limpo) no meio; {@link #obter} já faz isso.
+ *
+ * As entradas ficam divididas em segmentos pelo hash da chave, cada um com sua trava e sua
+ * ordem de uso, então leituras de chaves diferentes raramente disputam a mesma trava; o
+ * limite de entradas e a remoção da usada há mais tempo valem por segmento.
+ */
+public class CacheLimitado<K, V> {
+
+    private static final int MAXIMO_SEGMENTOS = 16;
+    /** Invalidações lembradas por segmento antes de esquecê-las em bloco (ver {@link Segmento#invalidar}). */
+    private static final int MAXIMO_INVALIDACOES = 1024;
+
+    private final String nome;
+    private final int capacidade;
+    private final long ttlNanos;
+    private final Segmento<K, V>[] segmentos;
+    /** Relógio das invalidações: cada uma recebe o próximo valor. */
+    private final AtomicLong versao = new AtomicLong();
+
+    private final LongAdder acertos = new LongAdder();
+    private final LongAdder falhas = new LongAdder();
+    private final LongAdder remocoes = new LongAdder();
+    private final LongAdder expiracoes = new LongAdder();
+
+    private static final class Entrada<V> {
+        final V valor;
+        final long expiraEm;
+
+        Entrada(V valor, long expiraEm) {
+            this.valor = valor;
+            this.expiraEm = expiraEm;
+        }
+    }
+
+    private static final class Segmento<K, V> {
+        final LinkedHashMap<K, Entrada<V>> entradas;
+        /** Versão da última invalidação de cada chave, enquanto lembrada. */
+        final Map<K, Long> invalidadas = new HashMap<>();
+        /** Cargas iniciadas até esta versão são recusadas em qualquer chave do segmento. */
+        long limpoEm;
+
+        Segmento(int capacidade, LongAdder remocoes) {
+            entradas = new LinkedHashMap<K, Entrada<V>>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<K, Entrada<V>> maisAntiga) {
+                    if (size() > capacidade) {
+                        remocoes.increment();
+                        return true;
+                    }
+                    return false;
+                }
+            };
+        }
+
+        boolean aceita(K chave, long versaoLida) {
+            if (versaoLida < limpoEm) {
+                return false;
+            }
+            Long invalidadaEm = invalidadas.get(chave);
+            return invalidadaEm == null || invalidadaEm <= versaoLida;
+        }
+
+        /**
+         * Lembra a invalidação da chave. Quando há invalidações demais, elas são trocadas por
+         * {@link #limpoEm}: recusa cargas de outras chaves que estavam em andamento, mas nunca
+         * aceita um valor velho.
+         */
+        void invalidar(K chave, long versao) {
+            if (invalidadas.size() >= MAXIMO_INVALIDACOES) {
+                invalidadas.clear();
+                limpoEm = versao;
+            }
+            invalidadas.put(chave, versao);
+            entradas.remove(chave);
+        }
+
+        void limpar(long versao) {
+            entradas.clear();
+            invalidadas.clear();
+            limpoEm = versao;
+        }
+    }
+
+    /**
+     * @param capacidade máximo de entradas (0 desativa o cache)
+     * @param ttlMs tempo de vida de cada entrada
+     */
+    @SuppressWarnings("unchecked")
+    public CacheLimitado(String nome, int capacidade, long ttlMs) {
+        this.nome = nome;
+        this.capacidade = Math.max(0, capacidade);
+        this.ttlNanos = Math.max(1, ttlMs) * 1_000_000L;
+        // Potência de 2, sem passar da capacidade (cada segmento guarda ao menos uma entrada)
+        int quantidade = Integer.highestOneBit(Math.min(MAXIMO_SEGMENTOS, Math.max(1, this.capacidade)));
+        this.segmentos = (Segmento<K, V>[]) new Segmento<?, ?>[quantidade];
+        for (int i = 0; i < quantidade; i++) {
+            int porSegmento = this.capacidade / quantidade + (i < this.capacidade % quantidade ? 1 : 0);
+            segmentos[i] = new Segmento<>(porSegmento, remocoes);
+        }
+    }
+
+    private Segmento<K, V> segmento(K chave) {
+        int h = chave.hashCode();
+        return segmentos[(h ^ (h >>> 16)) & (segmentos.length - 1)];
+    }
+
+    /**
+     * Retorna o valor em cache ou carrega com {@code carregar} (que pode retornar null para
+     * "não existe"; esse resultado não é guardado).
+     */
+    public V obter(K chave, Function<K, V> carregar) {
+        V valor = buscar(chave);
+        if (valor != null) {
+            return valor;
+        }
+        long versaoAntes = versao();
+        valor = carregar.apply(chave);
+        if (valor != null) {
+            colocar(chave, valor, versaoAntes);
+        }
+        return valor;
+    }
+
+    public V buscar(K chave) {
+        Segmento<K, V> segmento = segmento(chave);
+        synchronized (segmento) {
+            Entrada<V> entrada = segmento.entradas.get(chave);
+            if (entrada == null) {
+                falhas.increment();
+                return null;
+            }
+            if (System.nanoTime() - entrada.expiraEm > 0) {
+                segmento.entradas.remove(chave);
+                expiracoes.increment();
+                falhas.increment();
+                return null;
+            }
+            acertos.increment();
+            return entrada.valor;
+        }
+    }
+
+    /**
+     * Versão atual do cache; avança a cada invalidação.
+     */
+    public long versao() {
+        return versao.get();
+    }
+
+    /**
+     * Guarda o valor carregado, a menos que a chave tenha sido invalidada (ou o cache limpo)
+     * depois de {@code versaoLida} (o valor pode ter sido lido antes de uma escrita).
+     */
+    public void colocar(K chave, V valor, long versaoLida) {
+        if (capacidade == 0) {
+            return;
+        }
+        Segmento<K, V> segmento = segmento(chave);
+        synchronized (segmento) {
+            if (segmento.aceita(chave, versaoLida)) {
+                segmento.entradas.put(chave, new Entrada<>(valor, System.nanoTime() + ttlNanos));
+            }
+        }
+    }
+
+    public void invalidar(K chave) {
+        Segmento<K, V> segmento = segmento(chave);
+        synchronized (segmento) {
+            segmento.invalidar(chave, versao.incrementAndGet());
+        }
+    }
+
+    public void limpar() {
+        long nova = versao.incrementAndGet();
+        for (Segmento<K, V> segmento : segmentos) {
+            synchronized (segmento) {
+                segmento.limpar(nova);
+            }
+        }
+    }
+
+    /**
+     * Remove as entradas vencidas (as demais são removidas quando acessadas).
+     */
+    public void removerExpiradas() {
+        long agora = System.nanoTime();
+        for (Segmento<K, V> segmento : segmentos) {
+            synchronized (segmento) {
+                Iterator<Entrada<V>> it = segmento.entradas.values().iterator();
+                while (it.hasNext()) {
+                    if (agora - it.next().expiraEm > 0) {
+                        it.remove();
+                        expiracoes.increment();
+                    }
+                }
+            }
+        }
+    }
+
+    public int getTamanho() {
+        int tamanho = 0;
+        for (Segmento<K, V> segmento : segmentos) {
+            synchronized (segmento) {
+                tamanho += segmento.entradas.size();
+            }
+        }
+        return tamanho;
+    }
+
+    public long getAcertos() {
+        return acertos.sum();
+    }
+
+    public long getFalhas() {
+        return falhas.sum();
+    }
+
+    public long getRemocoes() {
+        return remocoes.sum();
+    }
+
+    public long getExpiracoes() {
+        return expiracoes.sum();
+    }
+
+    public String resumo() {
+        long acertos = getAcertos();
+        long total = acertos + getFalhas();
+        return String.format(java.util.Locale.US,
+            "%s: tamanho=%d/%d acertos=%d falhas=%d taxa=%.1f%% remocoes=%d expiracoes=%d",
+            nome, getTamanho(), capacidade, acertos, getFalhas(),
+            total == 0 ? 0.0 : acertos * 100.0 / total, getRemocoes(), getExpiracoes());
+    }
+}
@@ -15,17 +15,28 @@ import java.nio.charset.StandardCharsets;
 public class DatabaseInitializer {
     
     /**
-     * Cria todas as tabelas do banco de dados executando o script schema.sql.
+     * Cria todas as tabelas do banco de dados executando o script schema.sql
+     * (ou schema_chaves_inteiras.sql, com db.chavesInteiras=true, migrando antes um banco
+     * que ainda esteja no esquema por nomes).
      */
     public static void initializeDatabase() {
         DatabaseConnection dbConnection = DatabaseConnection.getInstance();
+        boolean chavesInteiras = dbConnection.isChavesInteiras();
+        String script = chavesInteiras ? "schema_chaves_inteiras.sql" : "schema.sql";
         
         try (Connection conn = dbConnection.getConnection();
-             InputStream input = DatabaseInitializer.class.getClassLoader().getResourceAsStream("schema.sql")) {
+             InputStream input = DatabaseInitializer.class.getClassLoader().getResourceAsStream(script)) {
+            
+            if (chavesInteiras) {
+                MigracaoChavesInteiras.migrarSeNecessario(conn);
+            } else if (MigracaoChavesInteiras.temColuna(conn, "categorias", "id")) {
+                System.err.println("Aviso: o banco está no esquema de chaves inteiras, mas db.chavesInteiras=false " +
+                                   "em database.properties");
+            }
             
             if (input == null) {
-                System.err.println("Arquivo schema.sql não encontrado no classpath. Criando tabelas manualmente...");
-                criarTabelasManualmente(conn);
+                System.err.println("Arquivo " + script + " não encontrado no classpath. Criando tabelas manualmente...");
+                criarTabelasManualmente(conn, chavesInteiras);
                 return;
             }
             
@@ -54,6 +65,8 @@ public class DatabaseInitializer {
                 }
             }
             
+            IndicesMovimentacoes.atualizarSeNecessario(conn);
+            ReconstrucaoResumos.preencherSeNecessario(conn);
             System.out.println("Tabelas criadas/verificadas com sucesso!");
             
         } catch (Exception e) {
@@ -62,7 +75,7 @@ public class DatabaseInitializer {
             
             // Tentar criar tabelas manualmente
             try (Connection conn = dbConnection.getConnection()) {
-                criarTabelasManualmente(conn);
+                criarTabelasManualmente(conn, chavesInteiras);
             } catch (SQLException ex) {
                 System.err.println("Erro ao criar tabelas manualmente: " + ex.getMessage());
             }
@@ -72,34 +85,59 @@ public class DatabaseInitializer {
     /**
      * Cria as tabelas manualmente caso o arquivo schema.sql não seja encontrado.
      */
-    private static void criarTabelasManualmente(Connection conn) throws SQLException {
+    private static void criarTabelasManualmente(Connection conn, boolean chavesInteiras) throws SQLException {
+        // Trechos que mudam no esquema de chaves inteiras (ver schema_chaves_inteiras.sql)
+        String chaveCategoria = chavesInteiras
+                ? "id INT AUTO_INCREMENT PRIMARY KEY, nome VARCHAR(100) NOT NULL, "
+                : "nome VARCHAR(100) PRIMARY KEY, ";
+        String chaveProduto = chavesInteiras
+                ? "id INT AUTO_INCREMENT PRIMARY KEY, nome VARCHAR(100) NOT NULL, "
+                : "nome VARCHAR(100) PRIMARY KEY, ";
+        String referenciaCategoria = chavesInteiras
+                ? "categoria_id INT NOT NULL, "
+                : "categoria_nome VARCHAR(100) NOT NULL, ";
+        String restricoesProduto = chavesInteiras
+                ? "UNIQUE KEY uk_produto_nome (nome), " +
+                  "FOREIGN KEY (categoria_id) REFERENCES categorias(id) ON DELETE RESTRICT, " +
+                  "INDEX idx_categoria (categoria_id)"
+                : "FOREIGN KEY (categoria_nome) REFERENCES categorias(nome) ON DELETE RESTRICT ON UPDATE CASCADE, " +
+                  "INDEX idx_categoria (categoria_nome)";
+        String referenciaProduto = chavesInteiras
+                ? "produto_id INT NOT NULL, "
+                : "produto_nome VARCHAR(100) NOT NULL, ";
+        String restricoesMovimentacao = chavesInteiras
+                ? "FOREIGN KEY (produto_id) REFERENCES produtos(id) ON DELETE RESTRICT, " +
+                  "INDEX idx_produto_data (produto_id, data_movimentacao, id), "
+                : "FOREIGN KEY (produto_nome) REFERENCES produtos(nome) ON DELETE RESTRICT ON UPDATE CASCADE, " +
+                  "INDEX idx_produto_data (produto_nome, data_movimentacao, id), ";
+        
         try (Statement stmt = conn.createStatement()) {
             
             // Criar tabela categorias
             stmt.executeUpdate(
                 "CREATE TABLE IF NOT EXISTS categorias (" +
-                "nome VARCHAR(100) PRIMARY KEY, " +
+                chaveCategoria +
                 "tamanho ENUM('PEQUENO', 'MEDIO', 'GRANDE') NOT NULL, " +
                 "embalagem ENUM('LATA', 'VIDRO', 'PLASTICO') NOT NULL, " +
                 "created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP, " +
                 "updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP" +
+                (chavesInteiras ? ", UNIQUE KEY uk_categoria_nome (nome)" : "") +
                 ") ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci"
             );
             
             // Criar tabela produtos
             stmt.executeUpdate(
                 "CREATE TABLE IF NOT EXISTS produtos (" +
-                "nome VARCHAR(100) PRIMARY KEY, " +
+                chaveProduto +
                 "preco DECIMAL(10, 2) NOT NULL, " +
                 "unidade VARCHAR(20) NOT NULL, " +
                 "estoque_atual INT NOT NULL DEFAULT 0, " +
                 "estoque_minimo INT NOT NULL DEFAULT 0, " +
                 "estoque_maximo INT NOT NULL DEFAULT 0, " +
-                "categoria_nome VARCHAR(100) NOT NULL, " +
+                referenciaCategoria +
                 "created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP, " +
                 "updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP, " +
-                "FOREIGN KEY (categoria_nome) REFERENCES categorias(nome) ON DELETE RESTRICT ON UPDATE CASCADE, " +
-                "INDEX idx_categoria (categoria_nome)" +
+                restricoesProduto +
                 ") ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci"
             );
             
@@ -107,20 +145,42 @@ public class DatabaseInitializer {
             stmt.executeUpdate(
                 "CREATE TABLE IF NOT EXISTS movimentacoes (" +
                 "id INT AUTO_INCREMENT PRIMARY KEY, " +
-                "produto_nome VARCHAR(100) NOT NULL, " +
+                referenciaProduto +
                 "tipo ENUM('ENTRADA', 'SAIDA') NOT NULL, " +
                 "quantidade INT NOT NULL, " +
                 "observacao TEXT, " +
                 "data_movimentacao TIMESTAMP DEFAULT CURRENT_TIMESTAMP, " +
-                "FOREIGN KEY (produto_nome) REFERENCES produtos(nome) ON DELETE RESTRICT ON UPDATE CASCADE, " +
-                "INDEX idx_produto (produto_nome), " +
-                "INDEX idx_tipo (tipo), " +
-                "INDEX idx_data (data_movimentacao)" +
+                restricoesMovimentacao +
+                "INDEX idx_tipo_data (tipo, data_movimentacao, id), " +
+                "INDEX idx_data (data_movimentacao, id)" +
+                ") ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci"
+            );
+            
+            // Criar tabela diario_controle
+            stmt.executeUpdate(
+                "CREATE TABLE IF NOT EXISTS diario_controle (" +
+                "id TINYINT PRIMARY KEY, " +
+                "sequencia BIGINT NOT NULL" +
                 ") ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci"
             );
             
+            // Criar tabela movimentacoes_resumo
+            stmt.executeUpdate(
+                "CREATE TABLE IF NOT EXISTS movimentacoes_resumo (" +
+                referenciaProduto +
+                "escala ENUM('HORA', 'DIA') NOT NULL, " +
+                "inicio DATETIME NOT NULL, " +
+                "tipo ENUM('ENTRADA', 'SAIDA') NOT NULL, " +
+                "quantidade BIGINT NOT NULL, " +
+                "movimentacoes INT NOT NULL, " +
+                "PRIMARY KEY (" + (chavesInteiras ? "produto_id" : "produto_nome") + ", escala, inicio, tipo), " +
+                "INDEX idx_escala_inicio (escala, inicio)" +
+                ") ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci"
+            );
+            
+            IndicesMovimentacoes.atualizarSeNecessario(conn);
+            ReconstrucaoResumos.preencherSeNecessario(conn);
             System.out.println("Tabelas criadas manualmente com sucesso!");
         }
     }
 }
-
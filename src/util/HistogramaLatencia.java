@@ -0,0 +1,145 @@
+package util;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Histograma de latências sem locks, com buckets log-lineares.
+ * Cada potência de 2 é dividida em 8 sub-buckets (erro relativo de no máximo 12,5%),
+ * o que cobre de 1 ns até ~292 anos em 488 contadores fixos.
+ * Registrar um valor não aloca memória e pode ser feito por várias threads ao mesmo tempo.
+ */
+public class HistogramaLatencia {
+
+    private static final int SUB_BUCKETS_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKETS_BITS;
+    private static final int TOTAL_BUCKETS = (64 - SUB_BUCKETS_BITS) * SUB_BUCKETS;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(TOTAL_BUCKETS);
+    private final AtomicLong contagem = new AtomicLong();
+    private final AtomicLong soma = new AtomicLong();
+    private final AtomicLong maximo = new AtomicLong();
+
+    /**
+     * Registra uma amostra (normalmente em nanossegundos).
+     */
+    public void registrar(long valor) {
+        if (valor < 0) {
+            valor = 0;
+        }
+        buckets.incrementAndGet(indice(valor));
+        contagem.incrementAndGet();
+        soma.addAndGet(valor);
+
+        long atual = maximo.get();
+        while (valor > atual && !maximo.compareAndSet(atual, valor)) {
+            atual = maximo.get();
+        }
+    }
+
+    public long getContagem() {
+        return contagem.get();
+    }
+
+    public long getSoma() {
+        return soma.get();
+    }
+
+    public long getMaximo() {
+        return maximo.get();
+    }
+
+    public double getMedia() {
+        long n = contagem.get();
+        return n == 0 ? 0 : (double) soma.get() / n;
+    }
+
+    /**
+     * Retorna o valor do percentil informado (0 a 100).
+     * O resultado é o limite superior do bucket onde o percentil cai, limitado ao máximo observado.
+     */
+    public long percentil(double percentil) {
+        long n = contagem.get();
+        if (n == 0) {
+            return 0;
+        }
+        long alvo = (long) Math.ceil(n * (percentil / 100.0));
+        if (alvo < 1) {
+            alvo = 1;
+        }
+
+        long acumulado = 0;
+        for (int i = 0; i < TOTAL_BUCKETS; i++) {
+            acumulado += buckets.get(i);
+            if (acumulado >= alvo) {
+                return Math.min(limiteSuperior(i), maximo.get());
+            }
+        }
+        return maximo.get();
+    }
+
+    /**
+     * Quantidade de amostras registradas no bucket {@code indice}; usado para exportar o histograma.
+     */
+    public long getContagemBucket(int indice) {
+        return buckets.get(indice);
+    }
+
+    public int getTotalBuckets() {
+        return TOTAL_BUCKETS;
+    }
+
+    /**
+     * Maior valor que cai no bucket {@code indice}.
+     */
+    public static long limiteSuperior(int indice) {
+        if (indice == TOTAL_BUCKETS - 1) {
+            return Long.MAX_VALUE;
+        }
+        return limiteInferior(indice + 1) - 1;
+    }
+
+    /**
+     * Menor valor que cai no bucket {@code indice}.
+     */
+    public static long limiteInferior(int indice) {
+        if (indice < SUB_BUCKETS) {
+            return indice;
+        }
+        int expoente = indice / SUB_BUCKETS + SUB_BUCKETS_BITS - 1;
+        long sub = indice % SUB_BUCKETS;
+        return (SUB_BUCKETS + sub) << (expoente - SUB_BUCKETS_BITS);
+    }
+
+    static int indice(long valor) {
+        if (valor < SUB_BUCKETS) {
+            return (int) valor;
+        }
+        int expoente = 63 - Long.numberOfLeadingZeros(valor);
+        int sub = (int) (valor >>> (expoente - SUB_BUCKETS_BITS)) & (SUB_BUCKETS - 1);
+        return (expoente - SUB_BUCKETS_BITS + 1) * SUB_BUCKETS + sub;
+    }
+
+    /**
+     * Zera todas as amostras.
+     */
+    public void limpar() {
+        for (int i = 0; i < TOTAL_BUCKETS; i++) {
+            buckets.set(i, 0);
+        }
+        contagem.set(0);
+        soma.set(0);
+        maximo.set(0);
+    }
+
+    /**
+     * Resumo em microssegundos, assumindo amostras em nanossegundos.
+     */
+    public String resumoMicros() {
+        return String.format(java.util.Locale.US,
+            "n=%d media=%.1fus p50=%dus p90=%dus p99=%dus p999=%dus max=%dus",
+            getContagem(), getMedia() / 1000.0,
+            percentil(50) / 1000, percentil(90) / 1000, percentil(99) / 1000,
+            percentil(99.9) / 1000, getMaximo() / 1000);
+    }
+}
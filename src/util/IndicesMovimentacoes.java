@@ -0,0 +1,81 @@
+package util;
+
+import config.DatabaseConnection;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Troca os índices simples de movimentacoes (idx_produto, idx_tipo e idx_data só com a data)
+ * pelos índices compostos usados no histórico paginado, em bancos criados antes deles.
+ * O CREATE TABLE IF NOT EXISTS dos scripts não altera tabelas existentes, por isso a
+ * verificação é feita aqui a cada inicialização; não faz nada se os índices já existirem.
+ *
+ * Todas as mudanças vão em um único ALTER TABLE online (ALGORITHM=INPLACE, LOCK=NONE), que em
+ * tabelas grandes pode levar alguns minutos, mas não bloqueia leituras nem gravações.
+ */
+public class IndicesMovimentacoes {
+
+    public static void atualizarSeNecessario(Connection conn) throws SQLException {
+        // Outros bancos (db.url) só existem criados pelos scripts atuais, que já têm os índices
+        if (!DatabaseConnection.getInstance().isMySQL() || !MigracaoChavesInteiras.existeTabela(conn, "movimentacoes")) {
+            return;
+        }
+        String produto = MigracaoChavesInteiras.temColuna(conn, "movimentacoes", "produto_id")
+                ? "produto_id" : "produto_nome";
+
+        List<String> alteracoes = new ArrayList<>();
+        if (colunasDoIndice(conn, "idx_produto_data") == 0) {
+            alteracoes.add("ADD INDEX idx_produto_data (" + produto + ", data_movimentacao, id)");
+        }
+        if (colunasDoIndice(conn, "idx_produto") > 0) {
+            // A chave estrangeira passa a usar idx_produto_data, que começa pela mesma coluna
+            alteracoes.add("DROP INDEX idx_produto");
+        }
+        if (colunasDoIndice(conn, "idx_tipo_data") == 0) {
+            alteracoes.add("ADD INDEX idx_tipo_data (tipo, data_movimentacao, id)");
+        }
+        if (colunasDoIndice(conn, "idx_tipo") > 0) {
+            alteracoes.add("DROP INDEX idx_tipo");
+        }
+        int colunasData = colunasDoIndice(conn, "idx_data");
+        if (colunasData == 1) {
+            alteracoes.add("DROP INDEX idx_data");
+        }
+        if (colunasData < 2) {
+            alteracoes.add("ADD INDEX idx_data (data_movimentacao, id)");
+        }
+        if (alteracoes.isEmpty()) {
+            return;
+        }
+
+        System.out.println("Atualizando índices de movimentacoes...");
+        long inicio = System.currentTimeMillis();
+        try (Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate("ALTER TABLE movimentacoes " + String.join(", ", alteracoes) +
+                               ", ALGORITHM=INPLACE, LOCK=NONE");
+        }
+        System.out.println("Índices de movimentacoes atualizados em " +
+                           (System.currentTimeMillis() - inicio) / 1000 + " s.");
+    }
+
+    /**
+     * Quantidade de colunas do índice de movimentacoes, ou 0 se ele não existir.
+     */
+    private static int colunasDoIndice(Connection conn, String indice) throws SQLException {
+        String sql = "SELECT COUNT(*) FROM information_schema.STATISTICS " +
+                     "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'movimentacoes' AND INDEX_NAME = ?";
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setString(1, indice);
+            try (ResultSet rs = stmt.executeQuery()) {
+                rs.next();
+                return rs.getInt(1);
+            }
+        }
+    }
+}
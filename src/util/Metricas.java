@@ -0,0 +1,239 @@
+package util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Registro das métricas do processo: contadores, medidores e histogramas de latência.
+ *
+ * As métricas são criadas uma vez (normalmente em campos {@code static final} ou na montagem
+ * do despachante) e o código do caminho quente guarda a referência; incrementar um contador ou
+ * registrar uma latência não procura nada no registro e não aloca memória. Ler o registro
+ * (comando METRICAS e endpoint HTTP) monta o texto na hora, sem parar quem está registrando.
+ *
+ * Cada métrica tem um nome e, opcionalmente, um rótulo ({@code comando="PRODUTO_CRIAR"});
+ * os histogramas guardam nanossegundos e são exportados em segundos, como no Prometheus.
+ */
+public final class Metricas {
+
+    /** Limites (em segundos) dos buckets exportados no formato do Prometheus. */
+    private static final String[] LIMITES_SEGUNDOS = {
+        "0.0001", "0.00025", "0.0005", "0.001", "0.0025", "0.005", "0.01", "0.025", "0.05",
+        "0.1", "0.25", "0.5", "1", "2.5", "5", "10"
+    };
+    private static final long[] LIMITES_NANOS = new long[LIMITES_SEGUNDOS.length];
+
+    static {
+        for (int i = 0; i < LIMITES_SEGUNDOS.length; i++) {
+            LIMITES_NANOS[i] = Math.round(Double.parseDouble(LIMITES_SEGUNDOS[i]) * 1e9);
+        }
+    }
+
+    private static final Map<String, Familia> familias = new ConcurrentHashMap<>();
+
+    private Metricas() {
+    }
+
+    /**
+     * Contador monotônico; {@link LongAdder} evita disputa entre threads no incremento.
+     */
+    public static final class Contador implements LongSupplier {
+        private final LongAdder valor = new LongAdder();
+
+        public void incrementar() {
+            valor.increment();
+        }
+
+        public void somar(long quantidade) {
+            valor.add(quantidade);
+        }
+
+        @Override
+        public long getAsLong() {
+            return valor.sum();
+        }
+    }
+
+    private enum Tipo {
+        COUNTER, GAUGE, HISTOGRAM
+    }
+
+    /**
+     * Métricas de mesmo nome, uma por valor do rótulo.
+     */
+    private static final class Familia {
+        final String nome;
+        final String ajuda;
+        final Tipo tipo;
+        final Map<String, Object> series = new ConcurrentHashMap<>();
+
+        Familia(String nome, String ajuda, Tipo tipo) {
+            this.nome = nome;
+            this.ajuda = ajuda;
+            this.tipo = tipo;
+        }
+    }
+
+    /**
+     * Retorna o contador com esse nome e rótulo, criando-o na primeira chamada.
+     * {@code rotulo} é {@code null} ou um par {@code chave, valor}.
+     */
+    public static Contador contador(String nome, String ajuda, String... rotulo) {
+        return (Contador) familia(nome, ajuda, Tipo.COUNTER).series
+                .computeIfAbsent(rotulo(rotulo), r -> new Contador());
+    }
+
+    /**
+     * Publica um contador mantido por outra classe (ex.: timeouts do pool de conexões).
+     * Registrar de novo o mesmo nome e rótulo substitui a leitura anterior.
+     */
+    public static void contador(String nome, String ajuda, LongSupplier leitura, String... rotulo) {
+        familia(nome, ajuda, Tipo.COUNTER).series.put(rotulo(rotulo), leitura);
+    }
+
+    /**
+     * Publica um valor instantâneo, lido a cada exportação.
+     * Registrar de novo o mesmo nome e rótulo substitui a leitura anterior.
+     */
+    public static void medidor(String nome, String ajuda, LongSupplier leitura, String... rotulo) {
+        familia(nome, ajuda, Tipo.GAUGE).series.put(rotulo(rotulo), leitura);
+    }
+
+    /**
+     * Retorna o histograma (em nanossegundos) com esse nome e rótulo, criando-o na primeira chamada.
+     */
+    public static HistogramaLatencia histograma(String nome, String ajuda, String... rotulo) {
+        return (HistogramaLatencia) familia(nome, ajuda, Tipo.HISTOGRAM).series
+                .computeIfAbsent(rotulo(rotulo), r -> new HistogramaLatencia());
+    }
+
+    /**
+     * Publica um histograma (em nanossegundos) mantido por outra classe.
+     * Registrar de novo o mesmo nome e rótulo substitui o anterior.
+     */
+    public static void histograma(String nome, String ajuda, HistogramaLatencia histograma, String... rotulo) {
+        familia(nome, ajuda, Tipo.HISTOGRAM).series.put(rotulo(rotulo), histograma);
+    }
+
+    private static Familia familia(String nome, String ajuda, Tipo tipo) {
+        Familia familia = familias.computeIfAbsent(nome, n -> new Familia(n, ajuda, tipo));
+        if (familia.tipo != tipo) {
+            throw new IllegalStateException("Métrica " + nome + " já registrada como " + familia.tipo);
+        }
+        return familia;
+    }
+
+    private static String rotulo(String[] rotulo) {
+        if (rotulo == null || rotulo.length == 0) {
+            return "";
+        }
+        if (rotulo.length != 2) {
+            throw new IllegalArgumentException("Rótulo deve ser um par chave, valor");
+        }
+        return rotulo[0] + "=\"" + rotulo[1].replace("\\", "\\\\").replace("\"", "\\\"") + "\"";
+    }
+
+    /**
+     * Todas as métricas no formato de texto do Prometheus (versão 0.0.4).
+     */
+    public static String formatarPrometheus() {
+        StringBuilder sb = new StringBuilder(8192);
+        for (Familia familia : ordenadas()) {
+            String tipo = familia.tipo.name().toLowerCase(Locale.ROOT);
+            sb.append("# HELP ").append(familia.nome).append(' ').append(familia.ajuda).append('\n');
+            sb.append("# TYPE ").append(familia.nome).append(' ').append(tipo).append('\n');
+            for (Map.Entry<String, Object> serie : new TreeMap<>(familia.series).entrySet()) {
+                if (familia.tipo == Tipo.HISTOGRAM) {
+                    formatarHistograma(sb, familia.nome, serie.getKey(), (HistogramaLatencia) serie.getValue());
+                } else {
+                    sb.append(familia.nome).append(chaves(serie.getKey(), null)).append(' ')
+                      .append(((LongSupplier) serie.getValue()).getAsLong()).append('\n');
+                }
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Buckets acumulados nos limites de {@link #LIMITES_SEGUNDOS}; cada bucket do histograma
+     * entra no primeiro limite que cobre o seu maior valor. Os buckets são lidos uma vez só, e
+     * o total vem da soma deles, para que {@code _count} e o bucket {@code +Inf} sempre batam
+     * mesmo com registros acontecendo durante a leitura.
+     */
+    private static void formatarHistograma(StringBuilder sb, String nome, String rotulo, HistogramaLatencia h) {
+        long acumulado = 0;
+        int limite = 0;
+        for (int i = 0; i < h.getTotalBuckets(); i++) {
+            while (limite < LIMITES_SEGUNDOS.length
+                   && HistogramaLatencia.limiteSuperior(i) > LIMITES_NANOS[limite]) {
+                linhaBucket(sb, nome, rotulo, LIMITES_SEGUNDOS[limite], acumulado);
+                limite++;
+            }
+            acumulado += h.getContagemBucket(i);
+        }
+        for (; limite < LIMITES_SEGUNDOS.length; limite++) {
+            linhaBucket(sb, nome, rotulo, LIMITES_SEGUNDOS[limite], acumulado);
+        }
+        linhaBucket(sb, nome, rotulo, "+Inf", acumulado);
+        sb.append(nome).append("_sum").append(chaves(rotulo, null)).append(' ')
+          .append(h.getSoma() / 1e9).append('\n');
+        sb.append(nome).append("_count").append(chaves(rotulo, null)).append(' ')
+          .append(acumulado).append('\n');
+    }
+
+    private static void linhaBucket(StringBuilder sb, String nome, String rotulo, String le, long valor) {
+        sb.append(nome).append("_bucket").append(chaves(rotulo, "le=\"" + le + "\"")).append(' ')
+          .append(valor).append('\n');
+    }
+
+    private static String chaves(String rotulo, String extra) {
+        if (rotulo.isEmpty() && extra == null) {
+            return "";
+        }
+        if (extra == null) {
+            return "{" + rotulo + "}";
+        }
+        return rotulo.isEmpty() ? "{" + extra + "}" : "{" + rotulo + "," + extra + "}";
+    }
+
+    /**
+     * Resposta do comando METRICAS: registros separados por ';'. Contadores e medidores viram
+     * {@code nome,valor}; histogramas viram {@code nome,contagem,p50,p99,p999,maximo}, com as
+     * latências em microssegundos. O rótulo, quando existe, vai no nome entre chaves.
+     */
+    public static String formatarProtocolo() {
+        StringBuilder sb = new StringBuilder(4096);
+        for (Familia familia : ordenadas()) {
+            for (Map.Entry<String, Object> serie : new TreeMap<>(familia.series).entrySet()) {
+                if (sb.length() > 0) {
+                    sb.append(';');
+                }
+                // Vírgulas e ';' separam os campos do protocolo; o rótulo vai sem aspas
+                sb.append(familia.nome).append(chaves(serie.getKey().replace("\"", ""), null));
+                if (familia.tipo == Tipo.HISTOGRAM) {
+                    HistogramaLatencia h = (HistogramaLatencia) serie.getValue();
+                    sb.append(',').append(h.getContagem())
+                      .append(',').append(h.percentil(50) / 1000)
+                      .append(',').append(h.percentil(99) / 1000)
+                      .append(',').append(h.percentil(99.9) / 1000)
+                      .append(',').append(h.getMaximo() / 1000);
+                } else {
+                    sb.append(',').append(((LongSupplier) serie.getValue()).getAsLong());
+                }
+            }
+        }
+        return sb.toString();
+    }
+
+    private static List<Familia> ordenadas() {
+        List<Familia> lista = new ArrayList<>(familias.values());
+        lista.sort((a, b) -> a.nome.compareTo(b.nome));
+        return lista;
+    }
+}
@@ -0,0 +1,196 @@
+package util;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Migra um banco no esquema por nomes (schema.sql) para o esquema de chaves inteiras
+ * (schema_chaves_inteiras.sql). Chamada pelo {@link DatabaseInitializer} quando
+ * db.chavesInteiras=true; não faz nada se o banco já estiver migrado.
+ *
+ * categorias e produtos são alteradas no lugar (ganham id e perdem a chave por nome).
+ * movimentacoes, que pode ter milhões de linhas, é copiada em faixas de id para uma tabela
+ * nova sem índices secundários, que são criados só no fim; a troca é feita com RENAME TABLE.
+ * Cada etapa confere o estado atual antes de rodar, então uma migração interrompida continua
+ * de onde parou na próxima inicialização (a cópia de movimentacoes recomeça do início).
+ * Faça um backup antes: a tabela antiga de movimentações é apagada ao final.
+ */
+public class MigracaoChavesInteiras {
+
+    /** Linhas de movimentacoes copiadas por comando (cada faixa é uma transação). */
+    private static final int LINHAS_POR_FAIXA = 100_000;
+
+    public static void migrarSeNecessario(Connection conn) throws SQLException {
+        boolean categorias = existeTabela(conn, "categorias") && !temColuna(conn, "categorias", "id");
+        boolean produtos = existeTabela(conn, "produtos")
+                && (!temColuna(conn, "produtos", "id") || temColuna(conn, "produtos", "categoria_nome"));
+        boolean movimentacoes = temColuna(conn, "movimentacoes", "produto_nome");
+        boolean resumo = temColuna(conn, "movimentacoes_resumo", "produto_nome");
+        if (!categorias && !produtos && !movimentacoes && !resumo) {
+            return;
+        }
+
+        System.out.println("Migrando banco de dados para chaves inteiras...");
+        long inicio = System.currentTimeMillis();
+        try (Statement stmt = conn.createStatement()) {
+            if (resumo) {
+                // Recriada pelo schema_chaves_inteiras.sql e preenchida de novo por ReconstrucaoResumos
+                stmt.executeUpdate("DROP TABLE movimentacoes_resumo");
+            }
+            removerChavesEstrangeiras(conn, stmt, "movimentacoes");
+            removerChavesEstrangeiras(conn, stmt, "produtos");
+
+            if (categorias) {
+                stmt.executeUpdate("ALTER TABLE categorias DROP PRIMARY KEY, " +
+                                   "ADD COLUMN id INT NOT NULL AUTO_INCREMENT PRIMARY KEY FIRST, " +
+                                   "ADD UNIQUE KEY uk_categoria_nome (nome)");
+            }
+            if (!temColuna(conn, "produtos", "id")) {
+                stmt.executeUpdate("ALTER TABLE produtos DROP PRIMARY KEY, " +
+                                   "ADD COLUMN id INT NOT NULL AUTO_INCREMENT PRIMARY KEY FIRST, " +
+                                   "ADD UNIQUE KEY uk_produto_nome (nome)");
+            }
+            if (temColuna(conn, "produtos", "categoria_nome")) {
+                if (!temColuna(conn, "produtos", "categoria_id")) {
+                    stmt.executeUpdate("ALTER TABLE produtos ADD COLUMN categoria_id INT NULL AFTER estoque_maximo");
+                }
+                stmt.executeUpdate("UPDATE produtos p INNER JOIN categorias c ON p.categoria_nome = c.nome " +
+                                   "SET p.categoria_id = c.id");
+                // Remover a coluna também remove o índice idx_categoria antigo
+                stmt.executeUpdate("ALTER TABLE produtos DROP COLUMN categoria_nome, MODIFY categoria_id INT NOT NULL");
+                stmt.executeUpdate("ALTER TABLE produtos ADD INDEX idx_categoria (categoria_id)");
+            }
+            System.out.println("Categorias e produtos migrados.");
+
+            if (movimentacoes) {
+                copiarMovimentacoes(conn, stmt);
+            }
+
+            // Os dados vieram de junções internas, então as chaves já são válidas
+            stmt.execute("SET foreign_key_checks = 0");
+            try {
+                if (contarChavesEstrangeiras(conn, "produtos") == 0) {
+                    stmt.executeUpdate("ALTER TABLE produtos ADD FOREIGN KEY (categoria_id) " +
+                                       "REFERENCES categorias(id) ON DELETE RESTRICT");
+                }
+                if (contarChavesEstrangeiras(conn, "movimentacoes") == 0) {
+                    stmt.executeUpdate("ALTER TABLE movimentacoes ADD FOREIGN KEY (produto_id) " +
+                                       "REFERENCES produtos(id) ON DELETE RESTRICT");
+                }
+            } finally {
+                stmt.execute("SET foreign_key_checks = 1");
+            }
+        }
+        System.out.println("Migração para chaves inteiras concluída em " +
+                           (System.currentTimeMillis() - inicio) / 1000 + " s.");
+    }
+
+    /**
+     * Copia movimentacoes para a nova estrutura, trocando produto_nome por produto_id.
+     */
+    private static void copiarMovimentacoes(Connection conn, Statement stmt) throws SQLException {
+        stmt.executeUpdate("DROP TABLE IF EXISTS movimentacoes_migracao");
+        stmt.executeUpdate(
+            "CREATE TABLE movimentacoes_migracao (" +
+            "id INT AUTO_INCREMENT PRIMARY KEY, " +
+            "produto_id INT NOT NULL, " +
+            "tipo ENUM('ENTRADA', 'SAIDA') NOT NULL, " +
+            "quantidade INT NOT NULL, " +
+            "observacao TEXT, " +
+            "data_movimentacao TIMESTAMP DEFAULT CURRENT_TIMESTAMP" +
+            ") ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci"
+        );
+
+        long minimo;
+        long maximo;
+        long total;
+        try (ResultSet rs = stmt.executeQuery("SELECT MIN(id), MAX(id), COUNT(*) FROM movimentacoes")) {
+            rs.next();
+            minimo = rs.getLong(1);
+            maximo = rs.getLong(2);
+            total = rs.getLong(3);
+        }
+
+        String sql = "INSERT INTO movimentacoes_migracao (id, produto_id, tipo, quantidade, observacao, data_movimentacao) " +
+                     "SELECT m.id, p.id, m.tipo, m.quantidade, m.observacao, m.data_movimentacao " +
+                     "FROM movimentacoes m INNER JOIN produtos p ON m.produto_nome = p.nome " +
+                     "WHERE m.id BETWEEN ? AND ?";
+        long copiadas = 0;
+        long proximoAviso = 1_000_000;
+        try (PreparedStatement copia = conn.prepareStatement(sql)) {
+            for (long faixa = minimo; total > 0 && faixa <= maximo; faixa += LINHAS_POR_FAIXA) {
+                copia.setLong(1, faixa);
+                copia.setLong(2, faixa + LINHAS_POR_FAIXA - 1);
+                copiadas += copia.executeUpdate();
+                if (copiadas >= proximoAviso) {
+                    System.out.println("   " + copiadas + " de " + total + " movimentações copiadas");
+                    proximoAviso += 1_000_000;
+                }
+            }
+        }
+        if (copiadas != total) {
+            throw new SQLException("Migração de movimentações copiou " + copiadas + " de " + total +
+                                   " linhas; a tabela original foi mantida");
+        }
+
+        stmt.executeUpdate("ALTER TABLE movimentacoes_migracao " +
+                           "ADD INDEX idx_produto_data (produto_id, data_movimentacao, id), " +
+                           "ADD INDEX idx_tipo_data (tipo, data_movimentacao, id), " +
+                           "ADD INDEX idx_data (data_movimentacao, id)");
+        stmt.executeUpdate("RENAME TABLE movimentacoes TO movimentacoes_antiga, " +
+                           "movimentacoes_migracao TO movimentacoes");
+        stmt.executeUpdate("DROP TABLE movimentacoes_antiga");
+        System.out.println("Movimentações migradas: " + copiadas);
+    }
+
+    private static void removerChavesEstrangeiras(Connection conn, Statement stmt, String tabela) throws SQLException {
+        List<String> nomes = new ArrayList<>();
+        String sql = "SELECT CONSTRAINT_NAME FROM information_schema.REFERENTIAL_CONSTRAINTS " +
+                     "WHERE CONSTRAINT_SCHEMA = DATABASE() AND TABLE_NAME = ?";
+        try (PreparedStatement consulta = conn.prepareStatement(sql)) {
+            consulta.setString(1, tabela);
+            try (ResultSet rs = consulta.executeQuery()) {
+                while (rs.next()) {
+                    nomes.add(rs.getString(1));
+                }
+            }
+        }
+        for (String nome : nomes) {
+            stmt.executeUpdate("ALTER TABLE " + tabela + " DROP FOREIGN KEY " + nome);
+        }
+    }
+
+    private static int contarChavesEstrangeiras(Connection conn, String tabela) throws SQLException {
+        return contar(conn, "SELECT COUNT(*) FROM information_schema.REFERENTIAL_CONSTRAINTS " +
+                            "WHERE CONSTRAINT_SCHEMA = DATABASE() AND TABLE_NAME = ?", tabela);
+    }
+
+    // SCHEMA() é sinônimo de DATABASE() no MySQL e também existe no H2 (usado pelos benchmarks)
+    static boolean existeTabela(Connection conn, String tabela) throws SQLException {
+        return contar(conn, "SELECT COUNT(*) FROM information_schema.TABLES " +
+                            "WHERE TABLE_SCHEMA = SCHEMA() AND TABLE_NAME = ?", tabela) > 0;
+    }
+
+    static boolean temColuna(Connection conn, String tabela, String coluna) throws SQLException {
+        return contar(conn, "SELECT COUNT(*) FROM information_schema.COLUMNS " +
+                            "WHERE TABLE_SCHEMA = SCHEMA() AND TABLE_NAME = ? AND COLUMN_NAME = ?",
+                      tabela, coluna) > 0;
+    }
+
+    private static int contar(Connection conn, String sql, String... parametros) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            for (int i = 0; i < parametros.length; i++) {
+                stmt.setString(i + 1, parametros[i]);
+            }
+            try (ResultSet rs = stmt.executeQuery()) {
+                rs.next();
+                return rs.getInt(1);
+            }
+        }
+    }
+}
@@ -0,0 +1,195 @@
+package util;
+
+import config.DatabaseConnection;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLTransactionRollbackException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Reconstrói o resumo de movimentações (movimentacoes_resumo) a partir do histórico.
+ * Chamada pelo {@link DatabaseInitializer} quando o resumo está vazio e já existem
+ * movimentações (banco criado antes do resumo, ou migrado para chaves inteiras); também pode
+ * ser executada à mão para refazer o resumo depois de alterações feitas direto no banco:
+ *
+ * java -cp target/classes:lib/mysql-connector-j-8.0.33.jar util.ReconstrucaoResumos [threads] [diasPorFaixa]
+ *
+ * O histórico é dividido em faixas de dias inteiros, processadas em paralelo, cada uma em sua
+ * própria transação: apaga o resumo da faixa e o recalcula com INSERT ... SELECT agrupado por
+ * hora e por dia. Como as faixas não compartilham períodos, não disputam linhas do resumo.
+ * O servidor pode continuar gravando durante a reconstrução: o INSERT ... SELECT bloqueia a
+ * faixa de movimentacoes que lê (REPEATABLE READ), então uma movimentação nova da faixa
+ * espera o commit e é somada ao resumo já reconstruído.
+ */
+public class ReconstrucaoResumos {
+
+    private static final int DIAS_POR_FAIXA_PADRAO = 7;
+    /** Tentativas de cada faixa quando o MySQL a escolhe como vítima de um deadlock. */
+    private static final int TENTATIVAS = 3;
+
+    public static void main(String[] args) throws Exception {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : threadsPadrao();
+        int diasPorFaixa = args.length > 1 ? Integer.parseInt(args[1]) : DIAS_POR_FAIXA_PADRAO;
+        try {
+            reconstruir(threads, diasPorFaixa);
+        } finally {
+            DatabaseConnection.getInstance().closeConnection();
+        }
+    }
+
+    /**
+     * Preenche o resumo se ele estiver vazio e houver movimentações.
+     */
+    public static void preencherSeNecessario(Connection conn) throws SQLException {
+        if (!MigracaoChavesInteiras.existeTabela(conn, "movimentacoes_resumo")) {
+            return;
+        }
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(
+                     "SELECT EXISTS(SELECT 1 FROM movimentacoes_resumo), EXISTS(SELECT 1 FROM movimentacoes)")) {
+            rs.next();
+            if (rs.getBoolean(1) || !rs.getBoolean(2)) {
+                return;
+            }
+        }
+        reconstruir(threadsPadrao(), DIAS_POR_FAIXA_PADRAO);
+    }
+
+    /**
+     * Reconstrói o resumo de todo o histórico com {@code threads} conexões em paralelo
+     * (no máximo db.pool.maximo). Retorna o número de movimentações resumidas.
+     */
+    public static long reconstruir(int threads, int diasPorFaixa) throws SQLException {
+        if (threads <= 0 || diasPorFaixa <= 0) {
+            throw new IllegalArgumentException("Threads e dias por faixa devem ser positivos");
+        }
+        LocalDateTime primeira;
+        LocalDateTime ultima;
+        try (Connection conn = DatabaseConnection.getInstance().getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT MIN(data_movimentacao), MAX(data_movimentacao) FROM movimentacoes")) {
+            rs.next();
+            if (rs.getTimestamp(1) == null) {
+                return 0;
+            }
+            primeira = rs.getTimestamp(1).toLocalDateTime().truncatedTo(ChronoUnit.DAYS);
+            ultima = rs.getTimestamp(2).toLocalDateTime();
+        }
+
+        List<LocalDateTime> inicios = new ArrayList<>();
+        for (LocalDateTime inicio = primeira; !inicio.isAfter(ultima); inicio = inicio.plusDays(diasPorFaixa)) {
+            inicios.add(inicio);
+        }
+        System.out.println("Reconstruindo resumo de movimentações: " + inicios.size() + " faixas de " +
+                           diasPorFaixa + " dias, " + threads + " threads...");
+        long inicioMs = System.currentTimeMillis();
+        AtomicLong movimentacoes = new AtomicLong();
+        AtomicLong concluidas = new AtomicLong();
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> faixas = new ArrayList<>();
+            for (LocalDateTime inicio : inicios) {
+                LocalDateTime fim = inicio.plusDays(diasPorFaixa);
+                faixas.add(executor.submit(() -> {
+                    movimentacoes.addAndGet(reconstruirFaixa(inicio, fim));
+                    long feitas = concluidas.incrementAndGet();
+                    if (feitas % 50 == 0) {
+                        System.out.println("   " + feitas + " de " + inicios.size() + " faixas");
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> faixa : faixas) {
+                faixa.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Reconstrução do resumo interrompida");
+        } catch (ExecutionException e) {
+            Throwable causa = e.getCause();
+            throw causa instanceof SQLException ? (SQLException) causa : new SQLException(causa);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        System.out.println("Resumo reconstruído: " + movimentacoes.get() + " movimentações em " +
+                           (System.currentTimeMillis() - inicioMs) / 1000 + " s.");
+        return movimentacoes.get();
+    }
+
+    /**
+     * Refaz o resumo dos dias [inicio, fim) em uma transação. Retorna as movimentações resumidas.
+     */
+    private static long reconstruirFaixa(LocalDateTime inicio, LocalDateTime fim) throws SQLException {
+        for (int tentativa = 1; ; tentativa++) {
+            try (Connection conn = DatabaseConnection.getInstance().getConnection()) {
+                String produto = MigracaoChavesInteiras.temColuna(conn, "movimentacoes", "produto_id")
+                        ? "produto_id" : "produto_nome";
+                conn.setAutoCommit(false);
+                try {
+                    executar(conn, "DELETE FROM movimentacoes_resumo " +
+                                   "WHERE escala IN ('HORA', 'DIA') AND inicio >= ? AND inicio < ?", inicio, fim);
+                    executar(conn, inserirResumo(produto, "HORA", "DATE_FORMAT(data_movimentacao, '%Y-%m-%d %H:00:00')"),
+                             inicio, fim);
+                    executar(conn, inserirResumo(produto, "DIA", "DATE(data_movimentacao)"), inicio, fim);
+                    long resumidas;
+                    try (PreparedStatement stmt = conn.prepareStatement(
+                            "SELECT COALESCE(SUM(movimentacoes), 0) FROM movimentacoes_resumo " +
+                            "WHERE escala = 'DIA' AND inicio >= ? AND inicio < ?")) {
+                        stmt.setTimestamp(1, Timestamp.valueOf(inicio));
+                        stmt.setTimestamp(2, Timestamp.valueOf(fim));
+                        try (ResultSet rs = stmt.executeQuery()) {
+                            rs.next();
+                            resumidas = rs.getLong(1);
+                        }
+                    }
+                    conn.commit();
+                    return resumidas;
+                } catch (SQLException e) {
+                    conn.rollback();
+                    throw e;
+                } finally {
+                    conn.setAutoCommit(true);
+                }
+            } catch (SQLTransactionRollbackException e) {
+                if (tentativa == TENTATIVAS) {
+                    throw e;
+                }
+            }
+        }
+    }
+
+    private static String inserirResumo(String produto, String escala, String inicio) {
+        return "INSERT INTO movimentacoes_resumo (" + produto + ", escala, inicio, tipo, quantidade, movimentacoes) " +
+               "SELECT " + produto + ", '" + escala + "', " + inicio + ", tipo, SUM(quantidade), COUNT(*) " +
+               "FROM movimentacoes WHERE data_movimentacao >= ? AND data_movimentacao < ? " +
+               "GROUP BY " + produto + ", " + inicio + ", tipo";
+    }
+
+    private static void executar(Connection conn, String sql, LocalDateTime inicio, LocalDateTime fim)
+            throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setTimestamp(1, Timestamp.valueOf(inicio));
+            stmt.setTimestamp(2, Timestamp.valueOf(fim));
+            stmt.executeUpdate();
+        }
+    }
+
+    private static int threadsPadrao() {
+        return Math.min(4, Runtime.getRuntime().availableProcessors());
+    }
+}